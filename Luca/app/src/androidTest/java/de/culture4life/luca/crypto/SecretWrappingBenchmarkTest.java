@@ -0,0 +1,84 @@
+package de.culture4life.luca.crypto;
+
+import android.util.Pair;
+
+import de.culture4life.luca.LucaInstrumentationTest;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares the latency of unwrapping a secret using the RSA secret wrapping key pair (as done by
+ * previous app versions for each secret) with unwrapping it using AES-GCM and the master key.
+ */
+public class SecretWrappingBenchmarkTest extends LucaInstrumentationTest {
+
+    private static final String ALIAS = "benchmark_secret_wrapping_key_pair";
+    private static final int WARM_UP_ITERATIONS = 3;
+    private static final int ITERATIONS = 20;
+
+    @Rule
+    public TimberTestRule logAllAlwaysRule = TimberTestRule.logAllAlways();
+
+    private WrappingCipherProvider wrappingCipherProvider;
+    private SecureRandom secureRandom;
+    private byte[] secret;
+
+    @Before
+    public void setup() {
+        CryptoManager cryptoManager = application.getCryptoManager();
+        cryptoManager.initialize(application).blockingAwait();
+        wrappingCipherProvider = cryptoManager.getWrappingCipherProvider();
+        secureRandom = new SecureRandom();
+        secret = new byte[16];
+        secureRandom.nextBytes(secret);
+    }
+
+    @Test
+    public void benchmarkUnwrapping() throws Exception {
+        KeyPair keyPair = wrappingCipherProvider.generateKeyPair(ALIAS, application).blockingGet();
+        Pair<byte[], byte[]> rsaWrappedSecret = wrappingCipherProvider.encrypt(secret, keyPair.getPublic()).blockingGet();
+        long rsaDuration = measureAverageDuration(() -> wrappingCipherProvider
+                .decrypt(rsaWrappedSecret.first, rsaWrappedSecret.second, keyPair.getPrivate())
+                .blockingGet());
+
+        byte[] encodedMasterKey = new byte[32];
+        secureRandom.nextBytes(encodedMasterKey);
+        SecretKey masterKey = CryptoKernel.createAesKey(encodedMasterKey, 0, encodedMasterKey.length);
+        byte[] iv = new byte[CryptoKernel.AES_GCM_IV_LENGTH];
+        secureRandom.nextBytes(iv);
+        byte[] additionalData = ALIAS.getBytes(StandardCharsets.UTF_8);
+        byte[] sealedSecret = CryptoKernel.aesGcmEncrypt(masterKey, iv, additionalData, secret);
+        long envelopeDuration = measureAverageDuration(() -> CryptoKernel.aesGcmDecrypt(masterKey, iv, additionalData, sealedSecret));
+
+        Timber.i("Average unwrap duration: RSA %d µs, envelope %d µs",
+                TimeUnit.NANOSECONDS.toMicros(rsaDuration), TimeUnit.NANOSECONDS.toMicros(envelopeDuration));
+    }
+
+    private long measureAverageDuration(Callable<byte[]> unwrap) throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            assertArrayEquals(secret, unwrap.call());
+        }
+        long startTimestamp = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            unwrap.call();
+        }
+        return (System.nanoTime() - startTimestamp) / ITERATIONS;
+    }
+
+}
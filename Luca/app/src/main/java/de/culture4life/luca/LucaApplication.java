@@ -17,6 +17,7 @@ import de.culture4life.luca.dataaccess.DataAccessManager;
 import de.culture4life.luca.history.HistoryManager;
 import de.culture4life.luca.location.GeofenceManager;
 import de.culture4life.luca.location.LocationManager;
+import de.culture4life.luca.meeting.MeetingData;
 import de.culture4life.luca.meeting.MeetingManager;
 import de.culture4life.luca.network.NetworkManager;
 import de.culture4life.luca.notification.LucaNotificationManager;
@@ -29,6 +30,7 @@ import de.culture4life.luca.ui.dialog.BaseDialogFragment;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLPeerUnverifiedException;
@@ -41,6 +43,7 @@ import androidx.multidex.MultiDexApplication;
 import hu.akarnokd.rxjava3.debug.RxJavaAssemblyTracking;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.exceptions.UndeliverableException;
@@ -154,12 +157,16 @@ public class LucaApplication extends MultiDexApplication {
         ).andThen(Completable.mergeArray(
                 invokeRotatingBackendPublicKeyUpdate(),
                 invokeAccessedDataUpdate(),
+                invokeKeyStoreSweep(),
                 startKeepingDataUpdated()
         ));
     }
 
     private Completable invokeRotatingBackendPublicKeyUpdate() {
-        return Completable.fromAction(() -> applicationDisposable.add(cryptoManager.updateDailyKeyPairPublicKey()
+        return Completable.fromAction(() -> applicationDisposable.add(cryptoManager.getDailyKeyPairPublicKeyUpdateDelay()
+                .doOnSuccess(delay -> Timber.d("Updating rotating backend public key in %d ms", delay))
+                .flatMapCompletable(delay -> Completable.timer(delay, TimeUnit.MILLISECONDS))
+                .andThen(cryptoManager.updateDailyKeyPairPublicKey())
                 .doOnError(throwable -> {
                     if (throwable instanceof SSLPeerUnverifiedException) {
                         showErrorAsDialog(new ViewError.Builder(this)
@@ -186,6 +193,21 @@ public class LucaApplication extends MultiDexApplication {
                 )));
     }
 
+    private Completable invokeKeyStoreSweep() {
+        // the current meeting is looked up after enumerating the key store entries, so that the key
+        // pair of a meeting created in the meantime is not swept
+        Observable<UUID> activeMeetingIds = meetingManager.getCurrentMeetingDataIfAvailable()
+                .switchIfEmpty(meetingManager.restoreCurrentMeetingDataIfAvailable())
+                .map(MeetingData::getLocationId)
+                .toObservable();
+        return Completable.fromAction(() -> applicationDisposable.add(cryptoManager.sweepExpiredKeyStoreEntries(activeMeetingIds)
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        result -> Timber.d("Swept key store, deleted %d entries", result.getDeletedEntryCount()),
+                        throwable -> Timber.w("Unable to sweep key store: %s", throwable.toString())
+                )));
+    }
+
     private Completable startKeepingDataUpdated() {
         return Completable.fromAction(() -> applicationDisposable.add(keepDataUpdated()
                 .subscribeOn(Schedulers.io())
@@ -319,6 +341,10 @@ public class LucaApplication extends MultiDexApplication {
 
     public void onActivityStopped(@NonNull Activity activity) {
         startedActivities.remove(activity);
+        if (!isUiCurrentlyVisible()) {
+            // app went to background, no need to keep unwrapped secrets in memory
+            cryptoManager.clearWrappedSecretCache();
+        }
     }
 
     protected void showErrorAsDialog(@NonNull ViewError error) {
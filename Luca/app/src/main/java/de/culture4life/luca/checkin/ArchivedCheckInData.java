@@ -2,10 +2,21 @@ package de.culture4life.luca.checkin;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.preference.BinaryReader;
+import de.culture4life.luca.preference.BinaryWriter;
+import de.culture4life.luca.preference.DailyPartitionedCollection;
+import de.culture4life.luca.preference.ValueSerializer;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import androidx.annotation.NonNull;
+
 public class ArchivedCheckInData {
 
     @Expose
@@ -35,4 +46,156 @@ public class ArchivedCheckInData {
                 '}';
     }
 
+    /**
+     * Binary serializer for {@link ArchivedCheckInData}, each check-in is written as a
+     * length-prefixed record.
+     */
+    public static class BinarySerializer implements ValueSerializer<ArchivedCheckInData> {
+
+        private static final int VERSION = 1;
+
+        @Override
+        public Class<ArchivedCheckInData> getTypeClass() {
+            return ArchivedCheckInData.class;
+        }
+
+        @Override
+        public int getVersion() {
+            return VERSION;
+        }
+
+        @Override
+        public void serialize(@NonNull ArchivedCheckInData archivedCheckInData, @NonNull BinaryWriter writer) {
+            List<CheckInData> checkIns = archivedCheckInData.getCheckIns();
+            writer.writeVarLong(checkIns.size());
+            for (CheckInData checkInData : checkIns) {
+                writer.writeRecord(new BinaryWriter()
+                        .writeEncodedBytes(checkInData.getTraceId())
+                        .writeUuid(checkInData.getLocationId())
+                        .writeString(checkInData.getLocationAreaName())
+                        .writeString(checkInData.getLocationGroupName())
+                        .writeVarLong(checkInData.getTimestamp())
+                        .writeDouble(checkInData.getLatitude())
+                        .writeDouble(checkInData.getLongitude())
+                        .writeVarLong(checkInData.getRadius())
+                        .writeVarLong(checkInData.getMinimumDuration()));
+            }
+        }
+
+        @Override
+        public ArchivedCheckInData deserialize(@NonNull BinaryReader reader, int version) throws IOException {
+            int count = reader.readCount();
+            List<CheckInData> checkIns = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                BinaryReader record = reader.readRecord();
+                CheckInData checkInData = new CheckInData();
+                checkInData.setTraceId(record.readEncodedBytes());
+                checkInData.setLocationId(record.readUuid());
+                checkInData.setLocationAreaName(record.readString());
+                checkInData.setLocationGroupName(record.readString());
+                checkInData.setTimestamp(record.readVarLong());
+                checkInData.setLatitude(record.readDouble());
+                checkInData.setLongitude(record.readDouble());
+                checkInData.setRadius(record.readVarLong());
+                checkInData.setMinimumDuration(record.readVarLong());
+                checkIns.add(checkInData);
+            }
+            return new ArchivedCheckInData(checkIns);
+        }
+
+    }
+
+    /**
+     * Persists archived {@link CheckInData} in a {@link DailyPartitionedCollection}, partitioned by
+     * the check-in timestamp.
+     */
+    public static class ContainerAdapter implements DailyPartitionedCollection.ContainerAdapter<CheckInData, ArchivedCheckInData> {
+
+        @Override
+        public Class<ArchivedCheckInData> getContainerClass() {
+            return ArchivedCheckInData.class;
+        }
+
+        @Override
+        public List<CheckInData> getItems(@NonNull ArchivedCheckInData container) {
+            return container.checkIns;
+        }
+
+        @Override
+        public ArchivedCheckInData createContainer(@NonNull List<CheckInData> items) {
+            return new ArchivedCheckInData(items);
+        }
+
+        @Override
+        public long getTimestamp(@NonNull CheckInData item) {
+            return item.getTimestamp();
+        }
+
+        @Override
+        public String getKey(@NonNull CheckInData item) {
+            return item.getTraceId() + ":" + item.getTimestamp();
+        }
+
+    }
+
+    /**
+     * Streaming adapter for {@link ArchivedCheckInData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<ArchivedCheckInData> {
+
+        private final CheckInData.TypeAdapter checkInDataAdapter = new CheckInData.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, ArchivedCheckInData archivedCheckInData) throws IOException {
+            if (archivedCheckInData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("check-ins");
+            if (archivedCheckInData.checkIns == null) {
+                writer.nullValue();
+            } else {
+                writer.beginArray();
+                for (CheckInData element : archivedCheckInData.checkIns) {
+                    checkInDataAdapter.write(writer, element);
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public ArchivedCheckInData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArchivedCheckInData archivedCheckInData = new ArchivedCheckInData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "check-ins":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            archivedCheckInData.checkIns = null;
+                            break;
+                        }
+                        archivedCheckInData.checkIns = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            archivedCheckInData.checkIns.add(checkInDataAdapter.read(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return archivedCheckInData;
+        }
+
+    }
+
 }
@@ -2,7 +2,13 @@ package de.culture4life.luca.checkin;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 import java.util.UUID;
 
 import androidx.annotation.Nullable;
@@ -157,4 +163,76 @@ public class CheckInData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link CheckInData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<CheckInData> {
+
+        @Override
+        public void write(JsonWriter writer, CheckInData checkInData) throws IOException {
+            if (checkInData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(checkInData.traceId);
+            writer.name("locationId");
+            TypeAdapterUtil.writeUuid(writer, checkInData.locationId);
+            writer.name("locationName").value(checkInData.locationAreaName);
+            writer.name("locationGroupName").value(checkInData.locationGroupName);
+            writer.name("timestamp").value(checkInData.timestamp);
+            writer.name("latitude").value(checkInData.latitude);
+            writer.name("longitude").value(checkInData.longitude);
+            writer.name("radius").value(checkInData.radius);
+            writer.name("minimumDuration").value(checkInData.minimumDuration);
+            writer.endObject();
+        }
+
+        @Override
+        public CheckInData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            CheckInData checkInData = new CheckInData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        checkInData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "locationId":
+                        checkInData.locationId = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "locationName":
+                        checkInData.locationAreaName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "locationGroupName":
+                        checkInData.locationGroupName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "timestamp":
+                        checkInData.timestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "latitude":
+                        checkInData.latitude = TypeAdapterUtil.nextDoubleOrZero(reader);
+                        break;
+                    case "longitude":
+                        checkInData.longitude = TypeAdapterUtil.nextDoubleOrZero(reader);
+                        break;
+                    case "radius":
+                        checkInData.radius = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "minimumDuration":
+                        checkInData.minimumDuration = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return checkInData;
+        }
+
+    }
+
 }
@@ -15,6 +15,7 @@ import de.culture4life.luca.LucaApplication;
 import de.culture4life.luca.Manager;
 import de.culture4life.luca.R;
 import de.culture4life.luca.crypto.AsymmetricCipherProvider;
+import de.culture4life.luca.crypto.CryptoKernel;
 import de.culture4life.luca.crypto.CryptoManager;
 import de.culture4life.luca.crypto.TraceIdWrapper;
 import de.culture4life.luca.history.HistoryManager;
@@ -28,6 +29,7 @@ import de.culture4life.luca.network.pojo.CheckInRequestData;
 import de.culture4life.luca.network.pojo.CheckOutRequestData;
 import de.culture4life.luca.network.pojo.TraceData;
 import de.culture4life.luca.notification.LucaNotificationManager;
+import de.culture4life.luca.preference.DailyPartitionedCollection;
 import de.culture4life.luca.preference.PreferencesManager;
 import de.culture4life.luca.ui.MainActivity;
 import de.culture4life.luca.ui.qrcode.QrCodeData;
@@ -41,12 +43,14 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.interfaces.ECPublicKey;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import javax.crypto.Mac;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresPermission;
@@ -72,11 +76,14 @@ public class CheckInManager extends Manager {
     public static final String KEY_CHECKED_IN_VENUE_ID = "checked_in_venue_id";
     public static final String KEY_CHECK_IN_TIMESTAMP = "check_in_timestamp";
     public static final String KEY_CHECK_IN_DATA = "check_in_data_2";
+    public static final String KEY_ARCHIVED_CHECK_IN_DATA_PARTITION_PREFIX = "archived_check_in_data_";
+    public static final int RECENT_TRACE_IDS_LIMIT = (int) TimeUnit.HOURS.toMinutes(6);
+
+    @Deprecated
     public static final String KEY_ARCHIVED_CHECK_IN_DATA = "archived_check_in_data";
 
     private static final long MINIMUM_CHECK_IN_DURATION = TimeUnit.MINUTES.toMillis(1);
     private static final long LOCATION_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(3);
-    private static final int RECENT_TRACE_IDS_LIMIT = (int) TimeUnit.HOURS.toMinutes(6);
     private static final long CHECK_OUT_POLLING_INTERVAL = TimeUnit.MINUTES.toMillis(1);
     private static final long AUTOMATIC_CHECK_OUT_RETRY_DELAY = BuildConfig.DEBUG ? TimeUnit.SECONDS.toMillis(15) : TimeUnit.MINUTES.toMillis(2);
 
@@ -87,6 +94,7 @@ public class CheckInManager extends Manager {
     private final CryptoManager cryptoManager;
     private final HistoryManager historyManager;
     private final LucaNotificationManager notificationManager;
+    private final DailyPartitionedCollection<CheckInData, ArchivedCheckInData> archivedCheckIns;
 
     private boolean skipMinimumCheckInDurationAssertion;
     private boolean skipMinimumDistanceAssertion;
@@ -108,6 +116,7 @@ public class CheckInManager extends Manager {
         this.historyManager = historyManager;
         this.cryptoManager = cryptoManager;
         this.notificationManager = notificationManager;
+        this.archivedCheckIns = new DailyPartitionedCollection<>(preferencesManager, KEY_ARCHIVED_CHECK_IN_DATA_PARTITION_PREFIX, new ArchivedCheckInData.ContainerAdapter());
 
         skipMinimumDistanceAssertion = true;
         if (BuildConfig.DEBUG) {
@@ -126,7 +135,8 @@ public class CheckInManager extends Manager {
                 cryptoManager.initialize(context),
                 notificationManager.initialize(context)
         ).andThen(Completable.mergeArray(
-                deleteOldArchivedCheckInData(),
+                archivedCheckIns.migrate(KEY_ARCHIVED_CHECK_IN_DATA)
+                        .andThen(deleteOldArchivedCheckInData()),
                 Completable.fromAction(() ->
                         managerDisposable.add(getCheckInDataChanges()
                                 .doOnNext(updatedCheckInData -> {
@@ -228,24 +238,40 @@ public class CheckInManager extends Manager {
     }
 
     private Single<byte[]> encryptQrCodeData(@NonNull QrCodeData qrCodeData, @NonNull byte[] iv, @NonNull byte[] diffieHellmanSecret) {
-        return cryptoManager.generateDataEncryptionSecret(diffieHellmanSecret)
-                .flatMap(CryptoManager::createKeyFromSecret)
-                .flatMap(encryptionKey -> Single.fromCallable(
-                        () -> ByteBuffer.allocate(75)
-                                .put((byte) 3)
-                                .put(qrCodeData.getKeyId())
-                                .put(qrCodeData.getUserEphemeralPublicKey())
-                                .put(qrCodeData.getVerificationTag())
-                                .put(qrCodeData.getEncryptedData())
-                                .array())
-                        .flatMap(encodedQrCodeData -> cryptoManager.getSymmetricCipherProvider().encrypt(encodedQrCodeData, iv, encryptionKey)))
-                .doOnSuccess(bytes -> Timber.d("Encrypted QR code data: %s to %s", qrCodeData.toString(), SerializationUtil.serializeToBase64(bytes).blockingGet()));
+        return Single.fromCallable(() -> {
+            byte[] encryptionSecret = new byte[16];
+            try {
+                CryptoManager.generateDataEncryptionSecret(diffieHellmanSecret, encryptionSecret, 0);
+                byte[] encodedQrCodeData = ByteBuffer.allocate(75)
+                        .put((byte) 3)
+                        .put(qrCodeData.getKeyId())
+                        .put(qrCodeData.getUserEphemeralPublicKey())
+                        .put(qrCodeData.getVerificationTag())
+                        .put(qrCodeData.getEncryptedData())
+                        .array();
+                // CTR mode allows encrypting in place
+                CryptoKernel.aesCtr(CryptoKernel.createAesKey(encryptionSecret, 0, 16), iv, encodedQrCodeData, 0, encodedQrCodeData.length, encodedQrCodeData, 0);
+                return encodedQrCodeData;
+            } finally {
+                Arrays.fill(encryptionSecret, (byte) 0);
+            }
+        }).doOnSuccess(bytes -> Timber.d("Encrypted QR code data: %s to %s", qrCodeData.toString(), SerializationUtil.serializeToBase64(bytes).blockingGet()));
     }
 
     public Single<byte[]> createQrCodeDataMac(byte[] encryptedQrCodeData, @NonNull byte[] diffieHellmanSecret) {
-        return cryptoManager.generateDataAuthenticationSecret(diffieHellmanSecret)
-                .flatMap(CryptoManager::createKeyFromSecret)
-                .flatMap(dataAuthenticationKey -> cryptoManager.getMacProvider().sign(encryptedQrCodeData, dataAuthenticationKey));
+        return Single.fromCallable(() -> {
+            byte[] dataAuthenticationSecret = new byte[CryptoKernel.SHA256_LENGTH];
+            try {
+                CryptoManager.generateDataAuthenticationSecret(diffieHellmanSecret, dataAuthenticationSecret, 0);
+                byte[] mac = new byte[CryptoKernel.HMAC_SHA256_LENGTH];
+                Mac hmac = CryptoKernel.getHmacSha256(dataAuthenticationSecret);
+                hmac.update(encryptedQrCodeData);
+                CryptoKernel.finish(hmac, mac, 0, mac.length);
+                return mac;
+            } finally {
+                Arrays.fill(dataAuthenticationSecret, (byte) 0);
+            }
+        });
     }
 
     public Single<Boolean> isCheckedIn() {
@@ -333,8 +359,7 @@ public class CheckInManager extends Manager {
 
     private Single<byte[]> encryptAdditionalCheckInProperties(@NonNull JsonObject properties, @NonNull byte[] iv, @NonNull PrivateKey scannerEphemeralPrivateKey, @NonNull PublicKey locationPublicKey) {
         return cryptoManager.getAsymmetricCipherProvider().generateSecret(scannerEphemeralPrivateKey, locationPublicKey)
-                .flatMap(cryptoManager::generateDataEncryptionSecret)
-                .flatMap(CryptoManager::createKeyFromSecret)
+                .flatMap(cryptoManager::deriveDataEncryptionKey)
                 .flatMap(encryptionKey -> Single.fromCallable(() -> new Gson().toJson(properties))
                         .map(serializedProperties -> serializedProperties.getBytes(StandardCharsets.UTF_8))
                         .flatMap(encodedQrCodeData -> cryptoManager.getSymmetricCipherProvider().encrypt(encodedQrCodeData, iv, encryptionKey)));
@@ -342,8 +367,7 @@ public class CheckInManager extends Manager {
 
     public Single<byte[]> createAdditionalPropertiesMac(byte[] encryptedProperties, @NonNull PrivateKey scannerEphemeralPrivateKey, @NonNull PublicKey locationPublicKey) {
         return cryptoManager.getAsymmetricCipherProvider().generateSecret(scannerEphemeralPrivateKey, locationPublicKey)
-                .flatMap(cryptoManager::generateDataAuthenticationSecret)
-                .flatMap(CryptoManager::createKeyFromSecret)
+                .flatMap(cryptoManager::deriveDataAuthenticationKey)
                 .flatMap(dataAuthenticationKey -> cryptoManager.getMacProvider().sign(encryptedProperties, dataAuthenticationKey));
     }
 
@@ -736,19 +760,12 @@ public class CheckInManager extends Manager {
     }
 
     public Completable addCheckInDataToArchive(@NonNull CheckInData checkInData) {
-        return getArchivedCheckInData()
-                .mergeWith(Observable.just(checkInData))
-                .toList()
-                .map(ArchivedCheckInData::new)
-                .flatMapCompletable(archivedCheckInData -> preferencesManager.persist(KEY_ARCHIVED_CHECK_IN_DATA, archivedCheckInData))
+        return archivedCheckIns.add(checkInData)
                 .doOnComplete(() -> Timber.i("Added check-in data to archive: %s", checkInData));
     }
 
     public Observable<CheckInData> getArchivedCheckInData() {
-        return preferencesManager.restoreIfAvailable(KEY_ARCHIVED_CHECK_IN_DATA, ArchivedCheckInData.class)
-                .map(ArchivedCheckInData::getCheckIns)
-                .defaultIfEmpty(new ArrayList<>())
-                .flatMapObservable(Observable::fromIterable);
+        return archivedCheckIns.getItems();
     }
 
     public Maybe<CheckInData> getArchivedCheckInData(@NonNull String traceId) {
@@ -758,11 +775,8 @@ public class CheckInManager extends Manager {
     }
 
     public Completable deleteOldArchivedCheckInData() {
-        return getArchivedCheckInData()
-                .filter(checkInData -> checkInData.getTimestamp() > System.currentTimeMillis() - TimeUnit.DAYS.toMillis(14))
-                .toList()
-                .map(ArchivedCheckInData::new)
-                .flatMapCompletable(archivedCheckInData -> preferencesManager.persist(KEY_ARCHIVED_CHECK_IN_DATA, archivedCheckInData))
+        return Single.fromCallable(() -> System.currentTimeMillis() - TimeUnit.DAYS.toMillis(14))
+                .flatMapCompletable(archivedCheckIns::deleteItemsCreatedBefore)
                 .doOnComplete(() -> Timber.d("Deleted old archived check-in data"));
     }
 
@@ -0,0 +1,307 @@
+package de.culture4life.luca.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import androidx.annotation.NonNull;
+
+import static com.nexenio.rxkeystore.RxKeyStore.PROVIDER_BOUNCY_CASTLE;
+
+/**
+ * Synchronous implementations of the primitives used on hot paths (HMAC-SHA256, SHA-256, AES-CTR,
+ * AES-GCM and ECDH). Unlike the Rx providers, these methods don't create any operators and re-use thread
+ * local {@link Mac}, {@link MessageDigest}, {@link Cipher} and {@link KeyAgreement} instances.
+ * Methods taking an output buffer write into the caller supplied array, so that callers can avoid
+ * intermediate allocations (e.g. for concatenating or trimming data).
+ *
+ * The symmetric primitives use the default (platform) providers, ECDH uses BouncyCastle as the
+ * key pairs are generated by the BouncyCastle key store.
+ *
+ * The Rx providers ({@link MacProvider}, {@link HashProvider}, {@link SymmetricCipherProvider} and
+ * {@link AsymmetricCipherProvider}) delegate to this class.
+ */
+public final class CryptoKernel {
+
+    public static final int HMAC_SHA256_LENGTH = 32;
+    public static final int SHA256_LENGTH = 32;
+    public static final int AES_BLOCK_LENGTH = 16;
+    public static final int AES_GCM_IV_LENGTH = 12;
+    public static final int AES_GCM_TAG_LENGTH = 16;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String AES_ALGORITHM = "AES";
+    private static final String AES_CTR_TRANSFORMATION = "AES/CTR/NoPadding";
+    private static final String AES_GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String KEY_AGREEMENT_ALGORITHM = "ECDH";
+
+    private static final ThreadLocal<Mac> HMAC = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                return Mac.getInstance(HMAC_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC not available", e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<MessageDigest> SHA256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<Cipher> AES_CTR = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            try {
+                return Cipher.getInstance(AES_CTR_TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-CTR not available", e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<Cipher> AES_GCM = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            try {
+                return Cipher.getInstance(AES_GCM_TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM not available", e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<KeyAgreement> ECDH = new ThreadLocal<KeyAgreement>() {
+        @Override
+        protected KeyAgreement initialValue() {
+            try {
+                return KeyAgreement.getInstance(KEY_AGREEMENT_ALGORITHM, PROVIDER_BOUNCY_CASTLE);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("ECDH not available", e);
+            }
+        }
+    };
+
+    /**
+     * Holds full digests that are truncated when copied into the output. Zeroed after each copy, so
+     * that derived secrets don't linger in memory.
+     */
+    private static final ThreadLocal<byte[]> DIGEST_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[Math.max(HMAC_SHA256_LENGTH, SHA256_LENGTH)];
+        }
+    };
+
+    private CryptoKernel() {
+    }
+
+    /*
+        HMAC-SHA256
+     */
+
+    /**
+     * Provides the thread local {@link Mac}, initialized with the specified key. Useful for
+     * authenticating data consisting of multiple parts without concatenating them first.
+     */
+    public static Mac getHmacSha256(@NonNull Key key) throws GeneralSecurityException {
+        Mac mac = HMAC.get();
+        mac.init(key);
+        return mac;
+    }
+
+    public static Mac getHmacSha256(@NonNull byte[] key) throws GeneralSecurityException {
+        return getHmacSha256(new SecretKeySpec(key, HMAC_ALGORITHM));
+    }
+
+    public static byte[] hmacSha256(@NonNull Key key, @NonNull byte[] data) throws GeneralSecurityException {
+        return getHmacSha256(key).doFinal(data);
+    }
+
+    /**
+     * Writes the first {@code outputLength} bytes of the HMAC-SHA256 of the specified data into the
+     * output buffer.
+     */
+    public static void hmacSha256(@NonNull Key key, @NonNull byte[] data, int dataOffset, int dataLength, @NonNull byte[] output, int outputOffset, int outputLength) throws GeneralSecurityException {
+        Mac mac = getHmacSha256(key);
+        mac.update(data, dataOffset, dataLength);
+        finish(mac, output, outputOffset, outputLength);
+    }
+
+    /**
+     * Writes the first {@code outputLength} bytes of the HMAC-SHA256, calculated by the specified
+     * (already updated) mac, into the output buffer.
+     */
+    public static void finish(@NonNull Mac mac, @NonNull byte[] output, int outputOffset, int outputLength) throws GeneralSecurityException {
+        if (outputLength == HMAC_SHA256_LENGTH) {
+            mac.doFinal(output, outputOffset);
+        } else {
+            byte[] buffer = DIGEST_BUFFER.get();
+            try {
+                mac.doFinal(buffer, 0);
+                System.arraycopy(buffer, 0, output, outputOffset, outputLength);
+            } finally {
+                Arrays.fill(buffer, (byte) 0);
+            }
+        }
+    }
+
+    /*
+        SHA-256
+     */
+
+    /**
+     * Provides the thread local {@link MessageDigest}, reset and ready to be updated.
+     */
+    public static MessageDigest getSha256() {
+        MessageDigest messageDigest = SHA256.get();
+        messageDigest.reset();
+        return messageDigest;
+    }
+
+    public static byte[] sha256(@NonNull byte[] data) {
+        return getSha256().digest(data);
+    }
+
+    /**
+     * Writes the first {@code outputLength} bytes of the SHA-256 hash of the specified data into
+     * the output buffer.
+     */
+    public static void sha256(@NonNull byte[] data, int dataOffset, int dataLength, @NonNull byte[] output, int outputOffset, int outputLength) throws GeneralSecurityException {
+        MessageDigest messageDigest = getSha256();
+        messageDigest.update(data, dataOffset, dataLength);
+        finish(messageDigest, output, outputOffset, outputLength);
+    }
+
+    /**
+     * Writes the first {@code outputLength} bytes of the hash, calculated by the specified (already
+     * updated) message digest, into the output buffer.
+     */
+    public static void finish(@NonNull MessageDigest messageDigest, @NonNull byte[] output, int outputOffset, int outputLength) throws GeneralSecurityException {
+        if (outputLength == SHA256_LENGTH) {
+            messageDigest.digest(output, outputOffset, outputLength);
+        } else {
+            byte[] buffer = DIGEST_BUFFER.get();
+            try {
+                messageDigest.digest(buffer, 0, SHA256_LENGTH);
+                System.arraycopy(buffer, 0, output, outputOffset, outputLength);
+            } finally {
+                Arrays.fill(buffer, (byte) 0);
+            }
+        }
+    }
+
+    /*
+        AES-CTR
+     */
+
+    /**
+     * Encrypts or decrypts (which is the same operation in CTR mode) the specified input into the
+     * output buffer.
+     *
+     * @return the number of bytes written to the output buffer
+     */
+    public static int aesCtr(@NonNull Key key, @NonNull byte[] iv, @NonNull byte[] input, int inputOffset, int inputLength, @NonNull byte[] output, int outputOffset) throws GeneralSecurityException {
+        Cipher cipher = AES_CTR.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+        try {
+            return cipher.doFinal(input, inputOffset, inputLength, output, outputOffset);
+        } catch (ShortBufferException e) {
+            throw new IllegalArgumentException("Output buffer too small", e);
+        }
+    }
+
+    public static byte[] aesCtrEncrypt(@NonNull Key key, @NonNull byte[] iv, @NonNull byte[] data) throws GeneralSecurityException {
+        byte[] output = new byte[data.length];
+        aesCtr(key, iv, data, 0, data.length, output, 0);
+        return output;
+    }
+
+    public static byte[] aesCtrDecrypt(@NonNull Key key, @NonNull byte[] iv, @NonNull byte[] data) throws GeneralSecurityException {
+        return aesCtrEncrypt(key, iv, data);
+    }
+
+    /*
+        AES-GCM
+     */
+
+    /**
+     * Encrypts and authenticates the specified data. The additional data is authenticated, but not
+     * encrypted.
+     *
+     * @param iv a unique {@link #AES_GCM_IV_LENGTH} byte IV, must never be re-used with the same key
+     * @return the encrypted data, followed by the {@link #AES_GCM_TAG_LENGTH} byte tag
+     */
+    public static byte[] aesGcmEncrypt(@NonNull Key key, @NonNull byte[] iv, @NonNull byte[] additionalData, @NonNull byte[] data) throws GeneralSecurityException {
+        Cipher cipher = AES_GCM.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AES_GCM_TAG_LENGTH * 8, iv));
+        cipher.updateAAD(additionalData);
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Verifies and decrypts data encrypted using {@link #aesGcmEncrypt(Key, byte[], byte[],
+     * byte[])}.
+     *
+     * @throws javax.crypto.AEADBadTagException if the data or additional data has been modified
+     */
+    public static byte[] aesGcmDecrypt(@NonNull Key key, @NonNull byte[] iv, @NonNull byte[] additionalData, @NonNull byte[] encryptedData) throws GeneralSecurityException {
+        Cipher cipher = AES_GCM.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(AES_GCM_TAG_LENGTH * 8, iv));
+        cipher.updateAAD(additionalData);
+        return cipher.doFinal(encryptedData);
+    }
+
+    /*
+        ECDH
+     */
+
+    /**
+     * Writes the shared secret of the specified key pair into the output buffer.
+     *
+     * @return the number of bytes written to the output buffer
+     */
+    public static int ecdh(@NonNull PrivateKey privateKey, @NonNull PublicKey publicKey, @NonNull byte[] output, int outputOffset) throws GeneralSecurityException {
+        KeyAgreement keyAgreement = ECDH.get();
+        keyAgreement.init(privateKey);
+        keyAgreement.doPhase(publicKey, true);
+        return keyAgreement.generateSecret(output, outputOffset);
+    }
+
+    public static byte[] ecdh(@NonNull PrivateKey privateKey, @NonNull PublicKey publicKey) throws GeneralSecurityException {
+        KeyAgreement keyAgreement = ECDH.get();
+        keyAgreement.init(privateKey);
+        keyAgreement.doPhase(publicKey, true);
+        return keyAgreement.generateSecret();
+    }
+
+    /*
+        Keys
+     */
+
+    public static SecretKey createAesKey(@NonNull byte[] secret, int offset, int length) {
+        return new SecretKeySpec(secret, offset, length, AES_ALGORITHM);
+    }
+
+}
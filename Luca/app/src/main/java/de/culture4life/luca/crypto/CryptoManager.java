@@ -6,11 +6,13 @@ import android.os.Build;
 import android.util.Base64;
 import android.util.Pair;
 
+import com.google.gson.JsonObject;
 import com.nexenio.rxkeystore.RxKeyStore;
 import com.nexenio.rxkeystore.provider.hash.RxHashProvider;
 import com.nexenio.rxkeystore.util.RxBase64;
 
 import de.culture4life.luca.Manager;
+import de.culture4life.luca.checkin.CheckInManager;
 import de.culture4life.luca.network.NetworkManager;
 import de.culture4life.luca.network.endpoints.LucaEndpointsV3;
 import de.culture4life.luca.preference.PreferencesManager;
@@ -20,11 +22,13 @@ import de.culture4life.luca.util.TimeUtil;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.Provider;
 import java.security.PublicKey;
@@ -32,11 +36,17 @@ import java.security.SecureRandom;
 import java.security.Security;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -52,17 +62,25 @@ import timber.log.Timber;
 public class CryptoManager extends Manager {
 
     public static final String KEYSTORE_FILE_NAME = "keys.ks";
+    public static final String KEYSTORE_JOURNAL_FILE_NAME = "keys.ks.journal";
+    public static final String EPHEMERAL_KEYSTORE_FILE_NAME = "ephemeral_keys.ks";
+    public static final String EPHEMERAL_KEYSTORE_JOURNAL_FILE_NAME = "ephemeral_keys.ks.journal";
+    public static final String TRACE_ID_RING_BUFFER_FILE_NAME = "trace_ids.bin";
     public static final String DAILY_KEY_PAIR_PUBLIC_KEY_ID_KEY = "daily_key_pair_public_key_id";
     public static final String DAILY_KEY_PAIR_PUBLIC_KEY_POINT_KEY = "daily_key_pair_public_key";
+    public static final String DAILY_KEY_PAIR_PUBLIC_KEY_CREATION_TIMESTAMP_KEY = "daily_key_pair_public_key_creation_timestamp";
+    public static final String DAILY_KEY_PAIR_PUBLIC_KEY_VERIFIED_SIGNATURE_KEY = "daily_key_pair_public_key_verified_signature";
     public static final String DATA_SECRET_KEY = "user_data_secret_2";
-    public static final String TRACE_ID_WRAPPERS_KEY = "tracing_id_wrappers";
     public static final String TRACING_SECRET_KEY_PREFIX = "tracing_secret_";
+    public static final int RECENT_TRACING_SECRETS_DAYS = TracingSecretRing.DEFAULT_CAPACITY;
     public static final String ALIAS_GUEST_KEY_PAIR = "user_master_key_pair";
     public static final String ALIAS_USER_EPHEMERAL_KEY_PAIR = "user_ephemeral_key_pair";
     public static final String ALIAS_SCANNER_EPHEMERAL_KEY_PAIR = "scanner_ephemeral_key_pair";
     public static final String ALIAS_MEETING_EPHEMERAL_KEY_PAIR = "meeting_ephemeral_key_pair";
     public static final String ALIAS_KEYSTORE_PASSWORD = "keystore_secret";
     public static final String ALIAS_SECRET_WRAPPING_KEY_PAIR = "secret_wrapping_key_pair";
+    public static final String ALIAS_SECRET_WRAPPING_MASTER_KEY = "secret_wrapping_master_key";
+    private static final String ALIAS_POOLED_EPHEMERAL_KEY_PAIR = "pooled_ephemeral_key_pair";
 
     @Deprecated
     public static final String OLD_ROTATING_BACKEND_PUBLIC_KEY_ID_KEY = "rotating_backend_public_key_id";
@@ -78,9 +96,15 @@ public class CryptoManager extends Manager {
     public static final String USER_TRACE_SECRET_KEY_INSECURE = "user_trace_secret";
     @Deprecated
     public static final String USER_TRACE_SECRET_KEY = "user_trace_secret_2";
+    @Deprecated
+    public static final String TRACE_ID_WRAPPERS_KEY = "tracing_id_wrappers";
+
+    public static final long DAILY_KEY_PAIR_PUBLIC_KEY_MAXIMUM_AGE = TimeUnit.DAYS.toMillis(7);
+    private static final long DAILY_KEY_PAIR_PUBLIC_KEY_UPDATE_MARGIN = TimeUnit.DAYS.toMillis(1);
 
     private static final byte[] DATA_ENCRYPTION_SECRET_SUFFIX = new byte[]{0x01};
     private static final byte[] DATA_AUTHENTICATION_SECRET_SUFFIX = new byte[]{0x02};
+    private static final byte[] KEYSTORE_JOURNAL_SECRET_SUFFIX = new byte[]{0x03};
 
     private final PreferencesManager preferencesManager;
     private final NetworkManager networkManager;
@@ -97,8 +121,33 @@ public class CryptoManager extends Manager {
 
     private final SecureRandom secureRandom;
 
+    private final Object secretWrappingMasterKeyLock = new Object();
+
+    @Nullable
+    private SecretKey secretWrappingMasterKey;
+
+    private final WrappedSecretCache wrappedSecretCache;
+    private final TracingSecretRing tracingSecretRing;
+    private final DerivedKeyCache derivedKeyCache;
+    private final KeyIssuerCache keyIssuerCache;
+    private final KeyPairPool ephemeralKeyPairPool;
+
     private Context context;
 
+    /**
+     * Small key store for long-lived key pairs (like the guest key pair), loaded during
+     * initialization. Backed by the {@link #bouncyCastleKeyStore}.
+     */
+    private PersistentKeyStore longLivedKeyStore;
+
+    /**
+     * Key store for short-lived key pairs (user, meeting and scanner ephemeral key pairs), loaded
+     * on first access.
+     */
+    private PersistentKeyStore ephemeralKeyStore;
+
+    private TraceIdRingBuffer traceIdRingBuffer;
+
     @Nullable
     private DailyKeyPairPublicKeyWrapper dailyKeyPairPublicKeyWrapper;
 
@@ -117,6 +166,11 @@ public class CryptoManager extends Manager {
         macProvider = new MacProvider(bouncyCastleKeyStore);
         hashProvider = new HashProvider(bouncyCastleKeyStore);
         secureRandom = new SecureRandom();
+        wrappedSecretCache = new WrappedSecretCache();
+        tracingSecretRing = new TracingSecretRing(RECENT_TRACING_SECRETS_DAYS);
+        derivedKeyCache = new DerivedKeyCache();
+        keyIssuerCache = new KeyIssuerCache(preferencesManager, networkManager);
+        ephemeralKeyPairPool = new KeyPairPool(Single.defer(() -> asymmetricCipherProvider.generateKeyPair(ALIAS_POOLED_EPHEMERAL_KEY_PAIR, context)));
     }
 
     @Override
@@ -124,13 +178,56 @@ public class CryptoManager extends Manager {
         return Completable.mergeArray(
                 preferencesManager.initialize(context),
                 networkManager.initialize(context)
-        ).andThen(Completable.fromAction(() -> this.context = context))
-                .andThen(setupSecurityProviders())
-                .andThen(loadKeyStoreFromFile().onErrorComplete())
+        ).andThen(Completable.fromAction(() -> {
+            this.context = context;
+            this.longLivedKeyStore = new PersistentKeyStore(
+                    "long-lived",
+                    bouncyCastleKeyStore,
+                    asymmetricCipherProvider,
+                    context.getFileStreamPath(KEYSTORE_FILE_NAME),
+                    context.getFileStreamPath(KEYSTORE_JOURNAL_FILE_NAME),
+                    Single.defer(this::getKeyStorePasswordOrHardcodedValue),
+                    Single.defer(this::getKeyStorePassword),
+                    Single.defer(this::getKeyStoreJournalKey)
+            );
+            this.ephemeralKeyStore = new PersistentKeyStore(
+                    "ephemeral",
+                    context.getFileStreamPath(EPHEMERAL_KEYSTORE_FILE_NAME),
+                    context.getFileStreamPath(EPHEMERAL_KEYSTORE_JOURNAL_FILE_NAME),
+                    Single.defer(this::getKeyStorePassword),
+                    Single.defer(this::getKeyStorePassword),
+                    Single.defer(this::getKeyStoreJournalKey)
+            );
+            this.traceIdRingBuffer = new TraceIdRingBuffer(context.getFileStreamPath(TRACE_ID_RING_BUFFER_FILE_NAME), CheckInManager.RECENT_TRACE_IDS_LIMIT);
+        })).andThen(setupSecurityProviders())
+                .andThen(Completable.defer(() -> longLivedKeyStore.load()))
                 .andThen(Completable.mergeArray(
+                        Completable.defer(this::migrateEphemeralKeyPairs).onErrorComplete(),
                         migrateUserTracingSecret().onErrorComplete(),
-                        migrateDailyKeyPairPublicKey().onErrorComplete()
-                ));
+                        migrateDailyKeyPairPublicKey().onErrorComplete(),
+                        migrateTraceIdWrappers().onErrorComplete()
+                ))
+                .andThen(Completable.fromAction(ephemeralKeyPairPool::refill));
+    }
+
+    @Override
+    public void dispose() {
+        wrappedSecretCache.clear();
+        tracingSecretRing.clear();
+        derivedKeyCache.clear();
+        ephemeralKeyPairPool.dispose();
+        if (longLivedKeyStore != null) {
+            longLivedKeyStore.dispose();
+            ephemeralKeyStore.dispose();
+        }
+        if (traceIdRingBuffer != null) {
+            try {
+                traceIdRingBuffer.close();
+            } catch (IOException e) {
+                Timber.w("Unable to close trace ID ring buffer: %s", e.toString());
+            }
+        }
+        super.dispose();
     }
 
     @Nullable
@@ -180,32 +277,122 @@ public class CryptoManager extends Manager {
 
         return Maybe.zip(restoreId, restoreKey, DailyKeyPairPublicKeyWrapper::new)
                 .flatMapCompletable(this::persistDailyKeyPairPublicKeyWrapper)
+                // the migration is repeated if the deletions get lost, so they can be deferred
                 .andThen(Completable.mergeArray(
-                        preferencesManager.delete(OLD_ROTATING_BACKEND_PUBLIC_KEY_ID_KEY),
-                        preferencesManager.delete(OLD_ROTATING_BACKEND_PUBLIC_KEY_POINT_KEY),
-                        preferencesManager.delete(OLD_BACKEND_MASTER_PUBLIC_KEY_ID_KEY),
-                        preferencesManager.delete(OLD_BACKEND_MASTER_PUBLIC_KEY_POINT_KEY)
+                        preferencesManager.deleteDeferred(OLD_ROTATING_BACKEND_PUBLIC_KEY_ID_KEY),
+                        preferencesManager.deleteDeferred(OLD_ROTATING_BACKEND_PUBLIC_KEY_POINT_KEY),
+                        preferencesManager.deleteDeferred(OLD_BACKEND_MASTER_PUBLIC_KEY_ID_KEY),
+                        preferencesManager.deleteDeferred(OLD_BACKEND_MASTER_PUBLIC_KEY_POINT_KEY)
                 ));
     }
 
-    private Completable loadKeyStoreFromFile() {
-        return getKeyStorePasswordOrHardcodedValue()
-                .flatMapCompletable(password -> {
-                    FileInputStream inputStream = context.openFileInput(KEYSTORE_FILE_NAME);
-                    return bouncyCastleKeyStore.load(inputStream, password);
-                })
-                .doOnSubscribe(disposable -> Timber.d("Loading keystore from file"))
-                .doOnError(throwable -> Timber.w("Unable to load keystore from file: %s", throwable.toString()));
+    /**
+     * In app versions before 2.0.0, all key pairs have been persisted in the same key store. This
+     * method moves ephemeral key pairs from the {@link #longLivedKeyStore} to the {@link
+     * #ephemeralKeyStore}, if any.
+     */
+    private Completable migrateEphemeralKeyPairs() {
+        return longLivedKeyStore.getAliases()
+                .filter(CryptoManager::isEphemeralKeyPairAlias)
+                .toList()
+                .flatMapCompletable(aliases -> {
+                    if (aliases.isEmpty()) {
+                        return Completable.complete();
+                    }
+                    return ephemeralKeyStore.load()
+                            .andThen(Observable.fromIterable(aliases))
+                            .concatMapCompletable(alias -> longLivedKeyStore.getKeyPairIfAvailable(alias)
+                                    .flatMapCompletable(keyPair -> ephemeralKeyStore.getAsymmetricCipherProvider().setKeyPair(alias, keyPair)))
+                            .andThen(ephemeralKeyStore.persist())
+                            .andThen(longLivedKeyStore.deleteEntries(aliases))
+                            .andThen(longLivedKeyStore.persist())
+                            .doOnComplete(() -> Timber.i("Migrated %d ephemeral key pairs to separate key store", aliases.size()));
+                });
+    }
+
+    private static boolean isEphemeralKeyPairAlias(@NonNull String alias) {
+        return alias.equals(ALIAS_SCANNER_EPHEMERAL_KEY_PAIR)
+                || alias.startsWith(ALIAS_USER_EPHEMERAL_KEY_PAIR + "-")
+                || alias.startsWith(ALIAS_MEETING_EPHEMERAL_KEY_PAIR + "-");
+    }
+
+    /**
+     * Deletes user ephemeral key pairs of trace IDs that are no longer in the {@link
+     * #traceIdRingBuffer} and meeting ephemeral key pairs of meetings that are no longer active.
+     * Such entries may remain in the key store after crashes, abandoned QR codes or skipped check
+     * outs.
+     *
+     * All expired entries are deleted using a single journal record. If any entries have been
+     * deleted, a new snapshot of the {@link #ephemeralKeyStore} is persisted afterwards, which
+     * also truncates its journal.
+     *
+     * @param activeMeetingIds emits IDs of meetings whose ephemeral key pairs are still required.
+     *                         Only subscribed to after the aliases have been enumerated.
+     */
+    public Single<KeyStoreSweepResult> sweepExpiredKeyStoreEntries(@NonNull Observable<UUID> activeMeetingIds) {
+        return Single.defer(() -> sweepExpiredEntries(ephemeralKeyStore, getActiveEphemeralKeyPairAliases(activeMeetingIds)))
+                .doOnSuccess(result -> Timber.i("Swept expired key store entries: %s", result))
+                .doOnError(throwable -> Timber.w("Unable to sweep expired key store entries: %s", throwable.toString()));
+    }
+
+    /**
+     * Deletes all expirable entries of the specified key store that are not included in the
+     * active aliases. The active aliases are only subscribed to after the aliases of the key store
+     * have been enumerated, so that entries persisted in the meantime are always covered by an
+     * active alias.
+     */
+    static Single<KeyStoreSweepResult> sweepExpiredEntries(@NonNull PersistentKeyStore keyStore, @NonNull Single<? extends Set<String>> activeAliases) {
+        return Single.defer(() -> {
+            long fileSizeBefore = keyStore.getFileSize();
+            return keyStore.getAliases()
+                    .toList()
+                    .flatMap(aliases -> activeAliases
+                            .map(currentlyActiveAliases -> getExpiredEphemeralKeyPairAliases(aliases, currentlyActiveAliases))
+                            .flatMap(expiredAliases -> keyStore.deleteEntries(expiredAliases)
+                                    .andThen(expiredAliases.isEmpty() ? Completable.complete() : keyStore.persist())
+                                    .andThen(Single.fromCallable(() -> new KeyStoreSweepResult(
+                                            aliases.size(),
+                                            aliases.size() - expiredAliases.size(),
+                                            fileSizeBefore,
+                                            keyStore.getFileSize()
+                                    )))));
+        });
+    }
+
+    private Single<HashSet<String>> getActiveEphemeralKeyPairAliases(@NonNull Observable<UUID> activeMeetingIds) {
+        Observable<String> userAliases = restoreTraceIdWrappers()
+                .map(TraceIdWrapper::getTraceId)
+                .flatMapSingle(CryptoManager::getUserEphemeralKeyPairAlias);
+        Observable<String> meetingAliases = activeMeetingIds
+                .flatMapSingle(CryptoManager::getMeetingEphemeralKeyPairAlias);
+        return Observable.merge(userAliases, meetingAliases)
+                .toList()
+                .map(HashSet::new);
+    }
+
+    private static List<String> getExpiredEphemeralKeyPairAliases(@NonNull List<String> aliases, @NonNull Set<String> activeAliases) {
+        List<String> expiredAliases = new ArrayList<>();
+        for (String alias : aliases) {
+            boolean isExpirable = alias.startsWith(ALIAS_USER_EPHEMERAL_KEY_PAIR + "-")
+                    || alias.startsWith(ALIAS_MEETING_EPHEMERAL_KEY_PAIR + "-");
+            if (isExpirable && !activeAliases.contains(alias)) {
+                expiredAliases.add(alias);
+            }
+        }
+        return expiredAliases;
     }
 
-    private Completable persistKeyStoreToFile() {
+    /**
+     * The key used to encrypt {@link KeyStoreJournal} records, derived from the key store
+     * password.
+     */
+    private Single<SecretKey> getKeyStoreJournalKey() {
         return getKeyStorePassword()
-                .flatMapCompletable(password -> {
-                    FileOutputStream outputStream = context.openFileOutput(KEYSTORE_FILE_NAME, Context.MODE_PRIVATE);
-                    return bouncyCastleKeyStore.save(outputStream, password);
-                })
-                .doOnSubscribe(disposable -> Timber.d("Persisting keystore to file"))
-                .doOnError(throwable -> Timber.e("Unable to persist keystore to file: %s", throwable.toString()));
+                .map(password -> password.getBytes(StandardCharsets.UTF_8))
+                .flatMap(encodedPassword -> concatenate(encodedPassword, KEYSTORE_JOURNAL_SECRET_SUFFIX))
+                .flatMap(hashProvider::hash)
+                .flatMap(secret -> trim(secret, 16))
+                .flatMap(CryptoManager::createKeyFromSecret);
     }
 
     /**
@@ -244,28 +431,123 @@ public class CryptoManager extends Manager {
     }
 
     /**
-     * Will restore the {@link WrappedSecret} using the {@link #preferencesManager} and decrypt it
-     * using the {@link #wrappingCipherProvider}.
+     * Will get or generate the AES master key used for sealing {@link WrappedSecret}s. The master
+     * key itself is encrypted using the {@link #wrappingCipherProvider}, so that only a single RSA
+     * operation is required per process instead of one per restored secret.
+     */
+    private Single<SecretKey> getSecretWrappingMasterKey() {
+        return Single.fromCallable(() -> {
+            synchronized (secretWrappingMasterKeyLock) {
+                if (secretWrappingMasterKey == null) {
+                    secretWrappingMasterKey = restoreSecretWrappingMasterKey()
+                            .switchIfEmpty(generateSecretWrappingMasterKey())
+                            .blockingGet();
+                }
+                return secretWrappingMasterKey;
+            }
+        });
+    }
+
+    private Maybe<SecretKey> restoreSecretWrappingMasterKey() {
+        return preferencesManager.restoreIfAvailable(ALIAS_SECRET_WRAPPING_MASTER_KEY, WrappedSecret.class)
+                .flatMapSingle(this::decryptRsaWrappedSecret)
+                .map(secret -> CryptoKernel.createAesKey(secret, 0, secret.length));
+    }
+
+    private Single<SecretKey> generateSecretWrappingMasterKey() {
+        return generateSecureRandomData(32)
+                .flatMap(secret -> getSecretWrappingKeyPair()
+                        .flatMap(keyPair -> wrappingCipherProvider.encrypt(secret, keyPair.getPublic()))
+                        .map(WrappedSecret::new)
+                        .flatMapCompletable(wrappedSecret -> preferencesManager.persist(ALIAS_SECRET_WRAPPING_MASTER_KEY, wrappedSecret))
+                        .andThen(Single.fromCallable(() -> CryptoKernel.createAesKey(secret, 0, secret.length))))
+                .doOnSubscribe(disposable -> Timber.d("Generating new secret wrapping master key"));
+    }
+
+    /**
+     * Will emit the secret from the {@link #wrappedSecretCache} if available. Otherwise, the {@link
+     * WrappedSecret} will be restored using the {@link #preferencesManager}, decrypted and added to
+     * the cache.
      */
     private Maybe<byte[]> restoreWrappedSecretIfAvailable(@NonNull String alias) {
-        return preferencesManager.restoreIfAvailable(alias, WrappedSecret.class)
-                .flatMapSingle(wrappedSecret -> getSecretWrappingKeyPair()
-                        .flatMap(keyPair -> wrappingCipherProvider.decrypt(wrappedSecret.getDeserializedEncryptedSecret(), wrappedSecret.getDeserializedIv(), keyPair.getPrivate())))
+        return wrappedSecretCache.get(alias)
+                .switchIfEmpty(unwrapSecretIfAvailable(alias)
+                        .flatMap(secret -> wrappedSecretCache.put(alias, secret)
+                                .andThen(Maybe.just(secret))))
                 .doOnError(throwable -> Timber.e("Unable to restore wrapped secret: %s", throwable.toString()));
     }
 
+    private Maybe<byte[]> unwrapSecretIfAvailable(@NonNull String alias) {
+        return preferencesManager.restoreIfAvailable(alias, WrappedSecret.class)
+                .flatMapSingle(wrappedSecret -> unwrapSecret(alias, wrappedSecret));
+    }
+
     /**
-     * Will encrypt the specified secret using the {@link #wrappingCipherProvider} and persist it as
-     * a {@link WrappedSecret} using the {@link #preferencesManager}.
+     * Decrypts the specified {@link WrappedSecret} using the secret wrapping master key. Secrets
+     * that have been wrapped by previous app versions (using RSA) will be decrypted using the
+     * {@link #wrappingCipherProvider} and sealed using the master key afterwards.
      */
-    private Completable persistWrappedSecret(@NonNull String alias, @NonNull byte[] secret) {
+    private Single<byte[]> unwrapSecret(@NonNull String alias, @NonNull WrappedSecret wrappedSecret) {
+        if (wrappedSecret.isEnvelopeEncrypted()) {
+            return getSecretWrappingMasterKey()
+                    .map(masterKey -> CryptoKernel.aesGcmDecrypt(masterKey, wrappedSecret.getDeserializedIv(), alias.getBytes(StandardCharsets.UTF_8), wrappedSecret.getDeserializedEncryptedSecret()));
+        }
+        return decryptRsaWrappedSecret(wrappedSecret)
+                .flatMap(secret -> sealSecret(alias, secret)
+                        .flatMapCompletable(sealedSecret -> preferencesManager.persist(alias, sealedSecret))
+                        .doOnComplete(() -> Timber.d("Migrated wrapped secret %s to envelope encryption", alias))
+                        .doOnError(throwable -> Timber.w("Unable to migrate wrapped secret %s: %s", alias, throwable.toString()))
+                        .onErrorComplete()
+                        .andThen(Single.just(secret)));
+    }
+
+    private Single<byte[]> decryptRsaWrappedSecret(@NonNull WrappedSecret wrappedSecret) {
         return getSecretWrappingKeyPair()
-                .flatMap(keyPair -> wrappingCipherProvider.encrypt(secret, keyPair.getPublic()))
-                .map(WrappedSecret::new)
+                .flatMap(keyPair -> wrappingCipherProvider.decrypt(wrappedSecret.getDeserializedEncryptedSecret(), wrappedSecret.getDeserializedIv(), keyPair.getPrivate()));
+    }
+
+    /**
+     * Encrypts the specified secret using AES-GCM with the secret wrapping master key. The alias is
+     * authenticated as additional data, so that wrapped secrets can't be swapped.
+     */
+    private Single<WrappedSecret> sealSecret(@NonNull String alias, @NonNull byte[] secret) {
+        return getSecretWrappingMasterKey()
+                .map(masterKey -> {
+                    byte[] iv = new byte[CryptoKernel.AES_GCM_IV_LENGTH];
+                    secureRandom.nextBytes(iv);
+                    byte[] encryptedSecret = CryptoKernel.aesGcmEncrypt(masterKey, iv, alias.getBytes(StandardCharsets.UTF_8), secret);
+                    return new WrappedSecret(encryptedSecret, iv, WrappedSecret.VERSION_AES_GCM);
+                });
+    }
+
+    /**
+     * Will seal the specified secret using the secret wrapping master key and persist it as a
+     * {@link WrappedSecret} using the {@link #preferencesManager}. The plain secret will be added
+     * to the {@link #wrappedSecretCache}.
+     */
+    private Completable persistWrappedSecret(@NonNull String alias, @NonNull byte[] secret) {
+        return sealSecret(alias, secret)
                 .flatMapCompletable(wrappedSecret -> preferencesManager.persist(alias, wrappedSecret))
+                .andThen(wrappedSecretCache.put(alias, secret))
                 .doOnError(throwable -> Timber.e("Unable to persist wrapped secret: %s", throwable.toString()));
     }
 
+    private Completable deleteWrappedSecret(@NonNull String alias) {
+        return wrappedSecretCache.invalidate(alias)
+                .andThen(preferencesManager.delete(alias));
+    }
+
+    /**
+     * Zeroizes all cached unwrapped secrets and keys derived from them. Should be called when the
+     * app is no longer visible, so that secrets are only kept in memory while they are frequently
+     * needed.
+     */
+    public void clearWrappedSecretCache() {
+        wrappedSecretCache.clear();
+        tracingSecretRing.clear();
+        derivedKeyCache.clear();
+    }
+
     /*
         Check-in
      */
@@ -279,43 +561,90 @@ public class CryptoManager extends Manager {
     private Single<TraceIdWrapper> generateTraceIdWrapper(@NonNull UUID userId) {
         return TimeUtil.getCurrentUnixTimestamp()
                 .flatMap(TimeUtil::roundUnixTimestampDownToMinute)
-                .flatMap(roundedUnixTimestamp -> generateTraceId(userId, roundedUnixTimestamp)
-                        .map(traceId -> new TraceIdWrapper(roundedUnixTimestamp, traceId)));
+                .flatMap(roundedUnixTimestamp -> generateTraceIdWrapper(userId, roundedUnixTimestamp));
+    }
+
+    /**
+     * Generates a trace ID wrapper for the specified timestamp without persisting it. Use {@link
+     * #persistTraceIdWrapper(TraceIdWrapper)} once the trace ID is actually used.
+     */
+    public Single<TraceIdWrapper> generateTraceIdWrapper(@NonNull UUID userId, long roundedUnixTimestamp) {
+        return generateTraceId(userId, roundedUnixTimestamp)
+                .map(traceId -> new TraceIdWrapper(roundedUnixTimestamp, traceId));
     }
 
     public Single<byte[]> generateTraceId(@NonNull UUID userId, long roundedUnixTimestamp) {
-        return Single.zip(encode(userId), TimeUtil.encodeUnixTimestamp(roundedUnixTimestamp), Pair::new)
-                .flatMap(encodedDataPair -> concatenate(encodedDataPair.first, encodedDataPair.second))
-                .flatMap(encodedData -> getCurrentTracingSecret()
-                        .flatMap(CryptoManager::createKeyFromSecret)
-                        .flatMap(traceKey -> macProvider.sign(encodedData, traceKey)))
-                .flatMap(traceId -> trim(traceId, 16))
+        return getCurrentTracingSecret()
+                .map(tracingSecret -> {
+                    byte[] traceId = new byte[16];
+                    generateTraceId(userId, roundedUnixTimestamp, tracingSecret, traceId, 0);
+                    return traceId;
+                })
                 .doOnSuccess(traceId -> Timber.d("Generated new trace ID: %s", SerializationUtil.serializeToBase64(traceId).blockingGet()));
     }
 
+    /**
+     * Writes the 16 byte trace ID, which is the trimmed HMAC-SHA256 of the user ID and the
+     * (little endian) timestamp using the tracing secret as key, into the output buffer.
+     */
+    public static void generateTraceId(@NonNull UUID userId, long roundedUnixTimestamp, @NonNull byte[] tracingSecret, @NonNull byte[] output, int outputOffset) throws GeneralSecurityException {
+        byte[] encodedData = ByteBuffer.allocate(20)
+                .putLong(userId.getMostSignificantBits())
+                .putLong(userId.getLeastSignificantBits())
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt((int) roundedUnixTimestamp)
+                .array();
+        Mac mac = CryptoKernel.getHmacSha256(tracingSecret);
+        mac.update(encodedData);
+        CryptoKernel.finish(mac, output, outputOffset, 16);
+    }
+
     public Observable<TraceIdWrapper> getTraceIdWrappers() {
         return restoreTraceIdWrappers();
     }
 
+    /**
+     * Emits the most recent trace ID wrappers, starting with the oldest one.
+     */
     private Observable<TraceIdWrapper> restoreTraceIdWrappers() {
-        return preferencesManager.restoreIfAvailable(TRACE_ID_WRAPPERS_KEY, TraceIdWrapperList.class)
-                .flatMapObservable(Observable::fromIterable)
-                .sorted((first, second) -> Long.compare(first.getTimestamp(), second.getTimestamp()));
+        return traceIdRingBuffer.read();
     }
 
-    private Completable persistTraceIdWrapper(@NonNull TraceIdWrapper traceIdWrapper) {
-        return getTraceIdWrappers()
-                .mergeWith(Observable.just(traceIdWrapper))
-                .toList()
-                .map(TraceIdWrapperList::new)
-                .flatMapCompletable(traceIdWrappers -> preferencesManager.persist(TRACE_ID_WRAPPERS_KEY, traceIdWrappers));
+    /**
+     * Appends the trace ID wrapper to the {@link TraceIdRingBuffer}. If that overwrites the oldest
+     * trace ID wrapper, the related user ephemeral key pair will be deleted.
+     */
+    public Completable persistTraceIdWrapper(@NonNull TraceIdWrapper traceIdWrapper) {
+        return traceIdRingBuffer.append(traceIdWrapper)
+                .flatMapCompletable(overwrittenTraceIdWrapper -> deleteUserEphemeralKeyPair(overwrittenTraceIdWrapper.getTraceId())
+                        .doOnError(throwable -> Timber.w("Unable to delete outdated user ephemeral key pair: %s", throwable.toString()))
+                        .onErrorComplete());
     }
 
+    /**
+     * Deletes the user ephemeral key pairs of all trace IDs in a single key store transaction and
+     * clears the trace ID wrappers afterwards.
+     */
     public Completable deleteTraceData() {
         return getTraceIdWrappers()
                 .map(TraceIdWrapper::getTraceId)
-                .flatMapCompletable(this::deleteUserEphemeralKeyPair)
-                .andThen(preferencesManager.delete(TRACE_ID_WRAPPERS_KEY));
+                .flatMapSingle(CryptoManager::getUserEphemeralKeyPairAlias)
+                .toList()
+                .flatMapCompletable(ephemeralKeyStore::deleteEntries)
+                .andThen(traceIdRingBuffer.clear());
+    }
+
+    /**
+     * Moves trace ID wrappers from the preferences (where they have been persisted as a single JSON
+     * list) to the {@link TraceIdRingBuffer}.
+     */
+    private Completable migrateTraceIdWrappers() {
+        return preferencesManager.restoreIfAvailable(TRACE_ID_WRAPPERS_KEY, TraceIdWrapperList.class)
+                .flatMapCompletable(traceIdWrappers -> Observable.fromIterable(traceIdWrappers)
+                        .sorted((first, second) -> Long.compare(first.getTimestamp(), second.getTimestamp()))
+                        .concatMapCompletable(this::persistTraceIdWrapper)
+                        .andThen(preferencesManager.delete(TRACE_ID_WRAPPERS_KEY))
+                        .doOnComplete(() -> Timber.i("Migrated %d trace ID wrappers to ring buffer", traceIdWrappers.size())));
     }
 
     public Single<byte[]> generateEphemeralDiffieHellmanSecret(@NonNull PrivateKey ephemeralUserPrivateKey) {
@@ -330,68 +659,105 @@ public class CryptoManager extends Manager {
      * Will fetch the latest daily key pair public key from the API, update {@link
      * #dailyKeyPairPublicKeyWrapper} and persist it in the preferences.
      *
-     * This should be done on each app start, but not required for a successful initialization (e.g.
-     * because the user may be offline).
+     * If the key ID, creation timestamp and signature match the previously verified key, decoding
+     * and signature verification will be skipped and nothing needs to be persisted.
+     *
+     * This is not required for a successful initialization (e.g. because the user may be offline).
+     * Use {@link #getDailyKeyPairPublicKeyUpdateDelay()} to check when an update is required.
      */
     public Completable updateDailyKeyPairPublicKey() {
-        return fetchDailyKeyPairPublicKeyWrapperFromBackend()
+        return networkManager.getLucaEndpointsV3()
+                .flatMap(LucaEndpointsV3::getDailyKeyPairPublicKey)
+                .flatMap(jsonObject -> restorePreviouslyVerifiedDailyKeyPairPublicKeyWrapper(jsonObject)
+                        .doOnSuccess(wrapper -> Timber.d("Daily key pair public key has not changed, skipping verification"))
+                        .switchIfEmpty(verifyDailyKeyPairPublicKeyWrapper(jsonObject)
+                                .doOnSuccess(wrapper -> Timber.d("Fetched daily key pair public key from backend: %s", wrapper))
+                                .flatMap(wrapper -> persistDailyKeyPairPublicKeyWrapper(wrapper)
+                                        .andThen(preferencesManager.persist(DAILY_KEY_PAIR_PUBLIC_KEY_VERIFIED_SIGNATURE_KEY, jsonObject.get("signature").getAsString()))
+                                        .andThen(Single.just(wrapper)))))
                 .doOnSuccess(wrapper -> this.dailyKeyPairPublicKeyWrapper = wrapper)
-                .flatMapCompletable(this::persistDailyKeyPairPublicKeyWrapper)
+                .ignoreElement()
                 .doOnSubscribe(disposable -> Timber.d("Updating daily key pair public key"));
     }
 
+    /**
+     * Emits the delay until the daily key pair public key should be updated, which is shortly
+     * before the current key reaches {@link #DAILY_KEY_PAIR_PUBLIC_KEY_MAXIMUM_AGE}. Emits 0 if no
+     * key (or no key with known creation timestamp) is available.
+     */
+    public Single<Long> getDailyKeyPairPublicKeyUpdateDelay() {
+        return getDailyKeyPairPublicKeyWrapperIfAvailable()
+                .map(DailyKeyPairPublicKeyWrapper::getCreationTimestamp)
+                .filter(creationUnixTimestamp -> creationUnixTimestamp > 0)
+                .flatMapSingle(TimeUtil::convertFromUnixTimestamp)
+                .map(creationTimestamp -> creationTimestamp + DAILY_KEY_PAIR_PUBLIC_KEY_MAXIMUM_AGE - DAILY_KEY_PAIR_PUBLIC_KEY_UPDATE_MARGIN - System.currentTimeMillis())
+                .map(delay -> Math.max(0, delay))
+                .defaultIfEmpty(0L);
+    }
+
     public Single<DailyKeyPairPublicKeyWrapper> getDailyKeyPairPublicKeyWrapper() {
+        return getDailyKeyPairPublicKeyWrapperIfAvailable()
+                .switchIfEmpty(updateDailyKeyPairPublicKey()
+                        .andThen(Single.fromCallable(() -> dailyKeyPairPublicKeyWrapper)));
+    }
+
+    private Maybe<DailyKeyPairPublicKeyWrapper> getDailyKeyPairPublicKeyWrapperIfAvailable() {
         return Maybe.fromCallable(() -> dailyKeyPairPublicKeyWrapper)
                 .switchIfEmpty(restoreDailyKeyPairPublicKeyWrapper()
-                        .doOnSuccess(restoredKey -> dailyKeyPairPublicKeyWrapper = restoredKey)
-                        .switchIfEmpty(updateDailyKeyPairPublicKey()
-                                .andThen(Single.fromCallable(() -> dailyKeyPairPublicKeyWrapper))));
+                        .doOnSuccess(restoredKey -> dailyKeyPairPublicKeyWrapper = restoredKey));
     }
 
-    private Single<DailyKeyPairPublicKeyWrapper> fetchDailyKeyPairPublicKeyWrapperFromBackend() {
-        return networkManager.getLucaEndpointsV3()
-                .flatMap(LucaEndpointsV3::getDailyKeyPairPublicKey)
-                .flatMap(jsonObject -> Single.fromCallable(() -> {
-                    byte[] encodedPublicKey = decodeFromString(jsonObject.get("publicKey").getAsString()).blockingGet();
-                    ECPublicKey publicKey = AsymmetricCipherProvider.decodePublicKey(encodedPublicKey).blockingGet();
+    /**
+     * Emits the persisted daily key pair public key, if the specified API response refers to the
+     * same key and has the same signature that has already been verified.
+     */
+    private Maybe<DailyKeyPairPublicKeyWrapper> restorePreviouslyVerifiedDailyKeyPairPublicKeyWrapper(@NonNull JsonObject jsonObject) {
+        return preferencesManager.restoreIfAvailable(DAILY_KEY_PAIR_PUBLIC_KEY_VERIFIED_SIGNATURE_KEY, String.class)
+                .filter(verifiedSignature -> verifiedSignature.equals(jsonObject.get("signature").getAsString()))
+                .flatMap(verifiedSignature -> getDailyKeyPairPublicKeyWrapperIfAvailable())
+                .filter(wrapper -> wrapper.getId() == jsonObject.get("keyId").getAsInt()
+                        && wrapper.getCreationTimestamp() == jsonObject.get("createdAt").getAsLong())
+                .doOnSuccess(wrapper -> assertDailyKeyPairPublicKeyAge(wrapper.getCreationTimestamp()));
+    }
 
-                    int creationUnixTimestamp = jsonObject.get("createdAt").getAsInt();
-                    byte[] encodedCreationTimestamp = TimeUtil.encodeUnixTimestamp(creationUnixTimestamp).blockingGet();
+    /**
+     * Decodes the daily key pair public key from the specified API response and verifies its
+     * signature using the key of the issuer, which is served from the {@link KeyIssuerCache}.
+     */
+    private Single<DailyKeyPairPublicKeyWrapper> verifyDailyKeyPairPublicKeyWrapper(@NonNull JsonObject jsonObject) {
+        return Single.fromCallable(() -> {
+            byte[] encodedPublicKey = decodeFromString(jsonObject.get("publicKey").getAsString()).blockingGet();
+            ECPublicKey publicKey = AsymmetricCipherProvider.decodePublicKey(encodedPublicKey).blockingGet();
 
-                    int id = jsonObject.get("keyId").getAsInt();
-                    byte[] encodedId = ByteBuffer.allocate(4)
-                            .order(ByteOrder.LITTLE_ENDIAN)
-                            .putInt(id)
-                            .array();
+            int creationUnixTimestamp = jsonObject.get("createdAt").getAsInt();
+            byte[] encodedCreationTimestamp = TimeUtil.encodeUnixTimestamp(creationUnixTimestamp).blockingGet();
 
-                    PublicKey issuerSigningKey = getKeyIssuerSigningKey(jsonObject.get("issuerId").getAsString()).blockingGet();
-                    byte[] signature = decodeFromString(jsonObject.get("signature").getAsString()).blockingGet();
-                    byte[] signedData = concatenate(encodedId, encodedCreationTimestamp, encodedPublicKey).blockingGet();
+            int id = jsonObject.get("keyId").getAsInt();
+            byte[] encodedId = ByteBuffer.allocate(4)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(id)
+                    .array();
 
-                    signatureProvider.verify(signedData, signature, issuerSigningKey).blockingAwait();
+            byte[] signature = decodeFromString(jsonObject.get("signature").getAsString()).blockingGet();
+            byte[] signedData = concatenate(encodedId, encodedCreationTimestamp, encodedPublicKey).blockingGet();
 
-                    long keyAge = TimeUtil.convertFromUnixTimestamp(creationUnixTimestamp)
-                            .map(creationTimestamp -> System.currentTimeMillis() - creationTimestamp)
-                            .blockingGet();
+            keyIssuerCache.verify(jsonObject.get("issuerId").getAsString(), issuerSigningKey -> signatureProvider.verify(signedData, signature, issuerSigningKey))
+                    .blockingAwait();
 
-                    if (keyAge > TimeUnit.DAYS.toMillis(7)) {
-                        throw new IllegalStateException("Daily key pair public key is older than 7 days");
-                    }
+            assertDailyKeyPairPublicKeyAge(creationUnixTimestamp);
 
-                    DailyKeyPairPublicKeyWrapper wrapper = new DailyKeyPairPublicKeyWrapper();
-                    wrapper.setId(id);
-                    wrapper.setPublicKey(publicKey);
-                    return wrapper;
-                })).doOnSuccess(wrapper -> Timber.d("Fetched daily key pair public key from backend: %s", wrapper));
+            return new DailyKeyPairPublicKeyWrapper(id, publicKey, creationUnixTimestamp);
+        });
     }
 
-    private Single<PublicKey> getKeyIssuerSigningKey(@NonNull String issuerId) {
-        // TODO: 18.03.21 cache previously requested issuers
-        return networkManager.getLucaEndpointsV3()
-                .flatMap(lucaEndpointsV3 -> lucaEndpointsV3.getKeyIssuer(issuerId))
-                .map(jsonObject -> jsonObject.get("publicHDSKP").getAsString())
-                .flatMap(CryptoManager::decodeFromString)
-                .flatMap(AsymmetricCipherProvider::decodePublicKey);
+    private static void assertDailyKeyPairPublicKeyAge(long creationUnixTimestamp) {
+        long keyAge = TimeUtil.convertFromUnixTimestamp(creationUnixTimestamp)
+                .map(creationTimestamp -> System.currentTimeMillis() - creationTimestamp)
+                .blockingGet();
+
+        if (keyAge > DAILY_KEY_PAIR_PUBLIC_KEY_MAXIMUM_AGE) {
+            throw new IllegalStateException("Daily key pair public key is older than 7 days");
+        }
     }
 
     private Maybe<DailyKeyPairPublicKeyWrapper> restoreDailyKeyPairPublicKeyWrapper() {
@@ -399,7 +765,11 @@ public class CryptoManager extends Manager {
         Maybe<ECPublicKey> restoreKey = preferencesManager.restoreIfAvailable(DAILY_KEY_PAIR_PUBLIC_KEY_POINT_KEY, String.class)
                 .flatMapSingle(CryptoManager::decodeFromString)
                 .flatMapSingle(AsymmetricCipherProvider::decodePublicKey);
-        return Maybe.zip(restoreId, restoreKey, DailyKeyPairPublicKeyWrapper::new);
+        Single<Long> restoreCreationTimestamp = preferencesManager.restoreOrDefault(DAILY_KEY_PAIR_PUBLIC_KEY_CREATION_TIMESTAMP_KEY, 0L);
+        return Maybe.zip(restoreId, restoreKey, DailyKeyPairPublicKeyWrapper::new)
+                .flatMapSingle(wrapper -> restoreCreationTimestamp
+                        .doOnSuccess(wrapper::setCreationTimestamp)
+                        .map(creationTimestamp -> wrapper));
     }
 
     private Completable persistDailyKeyPairPublicKeyWrapper(@NonNull DailyKeyPairPublicKeyWrapper wrapper) {
@@ -407,7 +777,8 @@ public class CryptoManager extends Manager {
         Completable persistKey = AsymmetricCipherProvider.encode(wrapper.getPublicKey(), false)
                 .flatMap(CryptoManager::encodeToString)
                 .flatMapCompletable(encodedPublicKey -> preferencesManager.persist(DAILY_KEY_PAIR_PUBLIC_KEY_POINT_KEY, encodedPublicKey));
-        return Completable.mergeArray(persistId, persistKey);
+        Completable persistCreationTimestamp = preferencesManager.persist(DAILY_KEY_PAIR_PUBLIC_KEY_CREATION_TIMESTAMP_KEY, wrapper.getCreationTimestamp());
+        return Completable.mergeArray(persistId, persistKey, persistCreationTimestamp);
     }
 
     /*
@@ -438,12 +809,11 @@ public class CryptoManager extends Manager {
     }
 
     private Maybe<KeyPair> restoreGuestKeyPair() {
-        return asymmetricCipherProvider.getKeyPairIfAvailable(ALIAS_GUEST_KEY_PAIR);
+        return longLivedKeyStore.getKeyPairIfAvailable(ALIAS_GUEST_KEY_PAIR);
     }
 
     private Completable persistGuestKeyPair(@NonNull KeyPair keyPair) {
-        return asymmetricCipherProvider.setKeyPair(ALIAS_GUEST_KEY_PAIR, keyPair)
-                .andThen(persistKeyStoreToFile());
+        return longLivedKeyStore.setKeyPair(ALIAS_GUEST_KEY_PAIR, keyPair);
     }
 
     /*
@@ -466,26 +836,28 @@ public class CryptoManager extends Manager {
         return getUserEphemeralKeyPair(traceId).map(KeyPair::getPublic);
     }
 
-    private Single<KeyPair> generateUserEphemeralKeyPair(@NonNull byte[] traceId) {
-        return getUserEphemeralKeyPairAlias(traceId)
-                .flatMap(alias -> asymmetricCipherProvider.generateKeyPair(alias, context))
+    /**
+     * Generates a user ephemeral key pair without persisting it. Use {@link
+     * #persistUserEphemeralKeyPair(byte[], KeyPair)} once the key pair is actually used.
+     */
+    public Single<KeyPair> generateUserEphemeralKeyPair(@NonNull byte[] traceId) {
+        return ephemeralKeyPairPool.take()
                 .doOnSuccess(keyPair -> Timber.d("Generated new user ephemeral key pair for trace ID %s: %s", SerializationUtil.serializeToBase64(traceId).blockingGet(), keyPair.getPublic()));
     }
 
     private Maybe<KeyPair> restoreUserEphemeralKeyPair(@NonNull byte[] traceId) {
         return getUserEphemeralKeyPairAlias(traceId)
-                .flatMapMaybe(asymmetricCipherProvider::getKeyPairIfAvailable);
+                .flatMapMaybe(ephemeralKeyStore::getKeyPairIfAvailable);
     }
 
-    private Completable persistUserEphemeralKeyPair(@NonNull byte[] traceId, @NonNull KeyPair keyPair) {
+    public Completable persistUserEphemeralKeyPair(@NonNull byte[] traceId, @NonNull KeyPair keyPair) {
         return getUserEphemeralKeyPairAlias(traceId)
-                .flatMapCompletable(alias -> asymmetricCipherProvider.setKeyPair(alias, keyPair))
-                .andThen(persistKeyStoreToFile());
+                .flatMapCompletable(alias -> ephemeralKeyStore.setKeyPair(alias, keyPair));
     }
 
     private Completable deleteUserEphemeralKeyPair(@NonNull byte[] traceId) {
         return getUserEphemeralKeyPairAlias(traceId)
-                .flatMapCompletable(bouncyCastleKeyStore::deleteEntry);
+                .flatMapCompletable(ephemeralKeyStore::deleteEntry);
     }
 
     private static Single<String> getUserEphemeralKeyPairAlias(@NonNull byte[] traceId) {
@@ -518,20 +890,75 @@ public class CryptoManager extends Manager {
 
     private Completable persistCurrentTracingSecret(@NonNull byte[] secret) {
         return TimeUtil.getStartOfDayTimestamp()
-                .map(startOfDayTimestamp -> TRACING_SECRET_KEY_PREFIX + startOfDayTimestamp)
-                .flatMapCompletable(preferenceKey -> persistWrappedSecret(preferenceKey, secret));
+                .flatMapCompletable(startOfDayTimestamp -> persistTracingSecret(startOfDayTimestamp, secret));
     }
 
+    private Completable persistTracingSecret(long startOfDayTimestamp, @NonNull byte[] secret) {
+        return persistWrappedSecret(TRACING_SECRET_KEY_PREFIX + startOfDayTimestamp, secret)
+                .andThen(Completable.fromAction(() -> tracingSecretRing.put(startOfDayTimestamp, secret)));
+    }
+
+    /**
+     * Emits the tracing secrets of the specified amount of recent days, starting with the current
+     * day. Days without a tracing secret are skipped.
+     *
+     * Secrets are served from the {@link #tracingSecretRing}. Days that have not been loaded yet
+     * are restored in a single batch, unwrapping all of them in parallel.
+     */
     public Observable<Pair<Long, byte[]>> restoreRecentTracingSecrets(int days) {
         return generateRecentStartOfDayTimestamps(days)
-                .flatMapMaybe(startOfDayTimestamp -> restoreWrappedSecretIfAvailable(TRACING_SECRET_KEY_PREFIX + startOfDayTimestamp)
-                        .map(secret -> new Pair<>(startOfDayTimestamp, secret)));
+                .toList()
+                .flatMap(this::restoreTracingSecrets)
+                .flatMapObservable(Observable::fromIterable);
+    }
+
+    private Single<List<Pair<Long, byte[]>>> restoreTracingSecrets(@NonNull List<Long> startOfDayTimestamps) {
+        return Observable.fromIterable(startOfDayTimestamps)
+                .filter(startOfDayTimestamp -> !tracingSecretRing.contains(startOfDayTimestamp))
+                .toList()
+                .flatMap(this::unwrapTracingSecrets)
+                .map(unwrappedSecrets -> {
+                    List<Pair<Long, byte[]>> secrets = new ArrayList<>(startOfDayTimestamps.size());
+                    for (Long startOfDayTimestamp : startOfDayTimestamps) {
+                        // unwrapped secrets may not fit into the ring if more days than its capacity have been requested
+                        byte[] secret = unwrappedSecrets.containsKey(startOfDayTimestamp)
+                                ? unwrappedSecrets.get(startOfDayTimestamp)
+                                : tracingSecretRing.get(startOfDayTimestamp);
+                        if (secret != null) {
+                            secrets.add(new Pair<>(startOfDayTimestamp, secret));
+                        }
+                    }
+                    return secrets;
+                });
+    }
+
+    /**
+     * Restores and unwraps the tracing secrets of the specified days in parallel and adds them to
+     * the {@link #tracingSecretRing}. Days without a persisted secret are added as well, so that
+     * they won't be looked up again.
+     */
+    private Single<Map<Long, byte[]>> unwrapTracingSecrets(@NonNull List<Long> startOfDayTimestamps) {
+        if (startOfDayTimestamps.isEmpty()) {
+            return Single.just(Collections.emptyMap());
+        }
+        return Observable.fromIterable(startOfDayTimestamps)
+                .flatMapMaybe(startOfDayTimestamp -> unwrapSecretIfAvailable(TRACING_SECRET_KEY_PREFIX + startOfDayTimestamp)
+                        .map(secret -> new Pair<>(startOfDayTimestamp, secret))
+                        .subscribeOn(Schedulers.io()))
+                .toMap(pair -> pair.first, pair -> pair.second)
+                .doOnSuccess(unwrappedSecrets -> {
+                    for (Long startOfDayTimestamp : startOfDayTimestamps) {
+                        tracingSecretRing.put(startOfDayTimestamp, unwrappedSecrets.get(startOfDayTimestamp));
+                    }
+                    Timber.d("Restored %d tracing secrets for %d days", unwrappedSecrets.size(), startOfDayTimestamps.size());
+                })
+                .doOnError(throwable -> Timber.e("Unable to restore tracing secrets: %s", throwable.toString()));
     }
 
     private Observable<Long> generateRecentStartOfDayTimestamps(int days) {
         return TimeUtil.getStartOfDayTimestamp()
                 .flatMapObservable(firstStartOfDayTimestamp -> Observable.range(0, days)
-                        .map(dayIndex -> firstStartOfDayTimestamp - (dayIndex * TimeUnit.DAYS.toMillis(dayIndex))));
+                        .map(dayIndex -> firstStartOfDayTimestamp - (dayIndex * TimeUnit.DAYS.toMillis(1))));
     }
 
     /**
@@ -541,7 +968,7 @@ public class CryptoManager extends Manager {
     private Completable migrateUserTracingSecret() {
         return restoreWrappedSecretIfAvailable(USER_TRACE_SECRET_KEY)
                 .flatMapCompletable(this::persistCurrentTracingSecret)
-                .andThen(preferencesManager.delete(USER_TRACE_SECRET_KEY))
+                .andThen(deleteWrappedSecret(USER_TRACE_SECRET_KEY))
                 .doOnComplete(() -> Timber.i("Migrated user tracing secret for daily rotation"));
     }
 
@@ -595,9 +1022,44 @@ public class CryptoManager extends Manager {
      */
 
     public Single<byte[]> generateDataEncryptionSecret(@NonNull byte[] baseSecret) {
-        return concatenate(baseSecret, DATA_ENCRYPTION_SECRET_SUFFIX)
-                .flatMap(hashProvider::hash)
-                .flatMap(secret -> trim(secret, 16));
+        return getDataEncryptionKey(baseSecret)
+                .map(SecretKey::getEncoded);
+    }
+
+    /**
+     * Emits the key for the data encryption secret derived from the specified base secret. Derived
+     * keys are cached in the {@link DerivedKeyCache}.
+     */
+    public Single<SecretKey> getDataEncryptionKey(@NonNull byte[] baseSecret) {
+        return Single.fromCallable(() -> derivedKeyCache.getDataEncryptionKey(baseSecret));
+    }
+
+    /**
+     * Like {@link #getDataEncryptionKey(byte[])}, but the key is not cached. Meant for base secrets
+     * that are only used once (e.g. Diffie-Hellman secrets of ephemeral key pairs), which would
+     * otherwise evict the keys of reused base secrets.
+     */
+    public Single<SecretKey> deriveDataEncryptionKey(@NonNull byte[] baseSecret) {
+        return Single.fromCallable(() -> {
+            byte[] secret = new byte[16];
+            try {
+                generateDataEncryptionSecret(baseSecret, secret, 0);
+                return CryptoKernel.createAesKey(secret, 0, secret.length);
+            } finally {
+                Arrays.fill(secret, (byte) 0);
+            }
+        });
+    }
+
+    /**
+     * Writes the 16 byte data encryption secret, which is the trimmed SHA-256 hash of the base
+     * secret and {@link #DATA_ENCRYPTION_SECRET_SUFFIX}, into the output buffer.
+     */
+    public static void generateDataEncryptionSecret(@NonNull byte[] baseSecret, @NonNull byte[] output, int outputOffset) throws GeneralSecurityException {
+        MessageDigest messageDigest = CryptoKernel.getSha256();
+        messageDigest.update(baseSecret);
+        messageDigest.update(DATA_ENCRYPTION_SECRET_SUFFIX);
+        CryptoKernel.finish(messageDigest, output, outputOffset, 16);
     }
 
     /*
@@ -605,8 +1067,43 @@ public class CryptoManager extends Manager {
      */
 
     public Single<byte[]> generateDataAuthenticationSecret(@NonNull byte[] baseSecret) {
-        return concatenate(baseSecret, DATA_AUTHENTICATION_SECRET_SUFFIX)
-                .flatMap(hashProvider::hash);
+        return getDataAuthenticationKey(baseSecret)
+                .map(SecretKey::getEncoded);
+    }
+
+    /**
+     * Emits the key for the data authentication secret derived from the specified base secret.
+     * Derived keys are cached in the {@link DerivedKeyCache}.
+     */
+    public Single<SecretKey> getDataAuthenticationKey(@NonNull byte[] baseSecret) {
+        return Single.fromCallable(() -> derivedKeyCache.getDataAuthenticationKey(baseSecret));
+    }
+
+    /**
+     * Like {@link #getDataAuthenticationKey(byte[])}, but the key is not cached, see {@link
+     * #deriveDataEncryptionKey(byte[])}.
+     */
+    public Single<SecretKey> deriveDataAuthenticationKey(@NonNull byte[] baseSecret) {
+        return Single.fromCallable(() -> {
+            byte[] secret = new byte[CryptoKernel.SHA256_LENGTH];
+            try {
+                generateDataAuthenticationSecret(baseSecret, secret, 0);
+                return CryptoKernel.createAesKey(secret, 0, secret.length);
+            } finally {
+                Arrays.fill(secret, (byte) 0);
+            }
+        });
+    }
+
+    /**
+     * Writes the 32 byte data authentication secret, which is the SHA-256 hash of the base secret
+     * and {@link #DATA_AUTHENTICATION_SECRET_SUFFIX}, into the output buffer.
+     */
+    public static void generateDataAuthenticationSecret(@NonNull byte[] baseSecret, @NonNull byte[] output, int outputOffset) throws GeneralSecurityException {
+        MessageDigest messageDigest = CryptoKernel.getSha256();
+        messageDigest.update(baseSecret);
+        messageDigest.update(DATA_AUTHENTICATION_SECRET_SUFFIX);
+        CryptoKernel.finish(messageDigest, output, outputOffset, CryptoKernel.SHA256_LENGTH);
     }
 
     /*
@@ -614,17 +1111,16 @@ public class CryptoManager extends Manager {
      */
 
     public Single<KeyPair> getScannerEphemeralKeyPair() {
-        return asymmetricCipherProvider.getKeyPair(ALIAS_SCANNER_EPHEMERAL_KEY_PAIR);
+        return ephemeralKeyStore.getKeyPair(ALIAS_SCANNER_EPHEMERAL_KEY_PAIR);
     }
 
     public Single<KeyPair> generateScannerEphemeralKeyPair() {
-        return asymmetricCipherProvider.generateKeyPair(ALIAS_SCANNER_EPHEMERAL_KEY_PAIR, context)
+        return ephemeralKeyPairPool.take()
                 .doOnSuccess(keyPair -> Timber.d("Generated new scanner ephemeral key pair: %s", keyPair.getPublic()));
     }
 
     public Completable persistScannerEphemeralKeyPair(@NonNull KeyPair keyPair) {
-        return asymmetricCipherProvider.setKeyPair(ALIAS_SCANNER_EPHEMERAL_KEY_PAIR, keyPair)
-                .andThen(persistKeyStoreToFile());
+        return ephemeralKeyStore.setKeyPair(ALIAS_SCANNER_EPHEMERAL_KEY_PAIR, keyPair);
     }
 
     /*
@@ -647,24 +1143,23 @@ public class CryptoManager extends Manager {
     }
 
     public Single<KeyPair> generateMeetingEphemeralKeyPair() {
-        return asymmetricCipherProvider.generateKeyPair(ALIAS_MEETING_EPHEMERAL_KEY_PAIR, context)
+        return ephemeralKeyPairPool.take()
                 .doOnSuccess(keyPair -> Timber.d("Generated new meeting ephemeral key pair: %s", keyPair.getPublic()));
     }
 
     public Maybe<KeyPair> restoreMeetingEphemeralKeyPair(@NonNull UUID meetingId) {
         return getMeetingEphemeralKeyPairAlias(meetingId)
-                .flatMapMaybe(asymmetricCipherProvider::getKeyPairIfAvailable);
+                .flatMapMaybe(ephemeralKeyStore::getKeyPairIfAvailable);
     }
 
     public Completable persistMeetingEphemeralKeyPair(@NonNull UUID meetingId, @NonNull KeyPair keyPair) {
         return getMeetingEphemeralKeyPairAlias(meetingId)
-                .flatMapCompletable(alias -> asymmetricCipherProvider.setKeyPair(alias, keyPair))
-                .andThen(persistKeyStoreToFile());
+                .flatMapCompletable(alias -> ephemeralKeyStore.setKeyPair(alias, keyPair));
     }
 
     public Completable deleteMeetingEphemeralKeyPair(@NonNull UUID meetingId) {
         return getMeetingEphemeralKeyPairAlias(meetingId)
-                .flatMapCompletable(bouncyCastleKeyStore::deleteEntry);
+                .flatMapCompletable(ephemeralKeyStore::deleteEntry);
     }
 
     public static Single<String> getMeetingEphemeralKeyPairAlias(@NonNull UUID meetingId) {
@@ -730,6 +1225,10 @@ public class CryptoManager extends Manager {
         return bouncyCastleKeyStore;
     }
 
+    public WrappingCipherProvider getWrappingCipherProvider() {
+        return wrappingCipherProvider;
+    }
+
     public SymmetricCipherProvider getSymmetricCipherProvider() {
         return symmetricCipherProvider;
     }
@@ -742,6 +1241,13 @@ public class CryptoManager extends Manager {
         return signatureProvider;
     }
 
+    /**
+     * Pool of pre-generated key pairs used for user, scanner and meeting ephemeral key pairs.
+     */
+    public KeyPairPool getEphemeralKeyPairPool() {
+        return ephemeralKeyPairPool;
+    }
+
     public MacProvider getMacProvider() {
         return macProvider;
     }
@@ -5,6 +5,10 @@ import com.google.gson.annotations.SerializedName;
 
 import java.security.interfaces.ECPublicKey;
 
+/**
+ * Not serialized using Gson, so no {@link com.google.gson.TypeAdapter} is required. Its fields are
+ * persisted as separate preferences, see {@link CryptoManager}.
+ */
 public class DailyKeyPairPublicKeyWrapper {
 
     @SerializedName("id")
@@ -15,6 +19,13 @@ public class DailyKeyPairPublicKeyWrapper {
     @Expose
     private ECPublicKey publicKey;
 
+    /**
+     * Unix timestamp (in seconds) of the key creation, 0 if unknown.
+     */
+    @SerializedName("createdAt")
+    @Expose
+    private long creationTimestamp;
+
     public DailyKeyPairPublicKeyWrapper() {
     }
 
@@ -23,6 +34,11 @@ public class DailyKeyPairPublicKeyWrapper {
         this.publicKey = publicKey;
     }
 
+    public DailyKeyPairPublicKeyWrapper(int id, ECPublicKey publicKey, long creationTimestamp) {
+        this(id, publicKey);
+        this.creationTimestamp = creationTimestamp;
+    }
+
     public int getId() {
         return id;
     }
@@ -39,11 +55,20 @@ public class DailyKeyPairPublicKeyWrapper {
         this.publicKey = publicKey;
     }
 
+    public long getCreationTimestamp() {
+        return creationTimestamp;
+    }
+
+    public void setCreationTimestamp(long creationTimestamp) {
+        this.creationTimestamp = creationTimestamp;
+    }
+
     @Override
     public String toString() {
         return "DailyKeyPairPublicKeyWrapper{" +
                 "id=" + id +
                 ", publicKey=" + publicKey +
+                ", creationTimestamp=" + creationTimestamp +
                 '}';
     }
 
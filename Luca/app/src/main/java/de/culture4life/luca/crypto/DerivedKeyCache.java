@@ -0,0 +1,134 @@
+package de.culture4life.luca.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import androidx.annotation.NonNull;
+import timber.log.Timber;
+
+/**
+ * Bounded in-memory cache for the data encryption and data authentication keys derived from a base
+ * secret (like the data secret or a Diffie-Hellman secret). Entries are addressed by the SHA-256
+ * digest of the base secret, so the base secret itself is never retained. Both derived keys are
+ * derived on the first lookup.
+ *
+ * The least recently used entry is evicted if the maximum size is exceeded. Callers receive a copy
+ * of the cached key, so that evicted or cleared keys can be zeroized while callers are still using
+ * their copy.
+ */
+public class DerivedKeyCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 32;
+
+    private static final String KEY_ALGORITHM = "AES";
+
+    private final int maximumSize;
+    private final LinkedHashMap<ByteBuffer, Entry> entries;
+
+    public DerivedKeyCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public DerivedKeyCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(maximumSize, 0.75f, true);
+    }
+
+    public SecretKey getDataEncryptionKey(@NonNull byte[] baseSecret) throws GeneralSecurityException {
+        return get(baseSecret, true);
+    }
+
+    public SecretKey getDataAuthenticationKey(@NonNull byte[] baseSecret) throws GeneralSecurityException {
+        return get(baseSecret, false);
+    }
+
+    /**
+     * Provides a copy of the requested derived key. The copy is created while holding the lock, so
+     * that it can't be affected by a concurrent eviction.
+     */
+    private SecretKey get(@NonNull byte[] baseSecret, boolean dataEncryptionKey) throws GeneralSecurityException {
+        ByteBuffer digest = ByteBuffer.wrap(CryptoKernel.sha256(baseSecret));
+        synchronized (entries) {
+            Entry entry = entries.get(digest);
+            if (entry != null) {
+                return entry.copyKey(dataEncryptionKey);
+            }
+        }
+
+        byte[] dataEncryptionSecret = new byte[16];
+        byte[] dataAuthenticationSecret = new byte[CryptoKernel.SHA256_LENGTH];
+        CryptoManager.generateDataEncryptionSecret(baseSecret, dataEncryptionSecret, 0);
+        CryptoManager.generateDataAuthenticationSecret(baseSecret, dataAuthenticationSecret, 0);
+        Entry entry = new Entry(dataEncryptionSecret, dataAuthenticationSecret);
+        SecretKey key = entry.copyKey(dataEncryptionKey);
+
+        synchronized (entries) {
+            Entry previousEntry = entries.put(digest, entry);
+            if (previousEntry != null) {
+                previousEntry.zeroize();
+            }
+            evictIfRequired();
+        }
+        return key;
+    }
+
+    /**
+     * Zeroizes and removes all cached keys. Copies that have already been provided are not
+     * affected.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                entry.zeroize();
+            }
+            if (!entries.isEmpty()) {
+                Timber.d("Cleared %d cached derived keys", entries.size());
+            }
+            entries.clear();
+        }
+    }
+
+    private void evictIfRequired() {
+        Iterator<Map.Entry<ByteBuffer, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maximumSize && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            iterator.remove();
+            entry.zeroize();
+        }
+    }
+
+    /**
+     * The derived secrets, which are never handed out directly.
+     */
+    private static final class Entry {
+
+        private final byte[] dataEncryptionSecret;
+        private final byte[] dataAuthenticationSecret;
+
+        private Entry(@NonNull byte[] dataEncryptionSecret, @NonNull byte[] dataAuthenticationSecret) {
+            this.dataEncryptionSecret = dataEncryptionSecret;
+            this.dataAuthenticationSecret = dataAuthenticationSecret;
+        }
+
+        /**
+         * {@link SecretKeySpec} copies the secret, so the returned key stays valid after zeroizing.
+         */
+        private SecretKey copyKey(boolean dataEncryptionKey) {
+            return new SecretKeySpec(dataEncryptionKey ? dataEncryptionSecret : dataAuthenticationSecret, KEY_ALGORITHM);
+        }
+
+        private void zeroize() {
+            Arrays.fill(dataEncryptionSecret, (byte) 0);
+            Arrays.fill(dataAuthenticationSecret, (byte) 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+package de.culture4life.luca.crypto;
+
+import org.bouncycastle.jcajce.provider.asymmetric.util.EC5Util;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.ECPointUtil;
+import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.EllipticCurve;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import timber.log.Timber;
+
+import static com.nexenio.rxkeystore.RxKeyStore.PROVIDER_BOUNCY_CASTLE;
+
+/**
+ * Synchronous decoding of secp256r1 keys. The curve and domain parameters are only computed once,
+ * {@link KeyFactory} instances are re-used per thread and decoded public keys are kept in a bounded
+ * LRU cache, as the same keys (e.g. scanner, meeting guest, daily and issuer keys) are decoded
+ * repeatedly.
+ */
+public final class EcCodec {
+
+    public static final String CURVE_NAME = "secp256r1";
+    public static final int PUBLIC_KEY_CACHE_SIZE = 256;
+
+    private static final String KEY_ALGORITHM = "ECDSA";
+
+    private static final ThreadLocal<KeyFactory> KEY_FACTORY = new ThreadLocal<KeyFactory>() {
+        @Override
+        protected KeyFactory initialValue() {
+            try {
+                return KeyFactory.getInstance(KEY_ALGORITHM, PROVIDER_BOUNCY_CASTLE);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("EC key factory not available", e);
+            }
+        }
+    };
+
+    private static final Map<ByteBuffer, ECPublicKey> PUBLIC_KEY_CACHE = new LinkedHashMap<ByteBuffer, ECPublicKey>(PUBLIC_KEY_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ECPublicKey> eldest) {
+            return size() > PUBLIC_KEY_CACHE_SIZE;
+        }
+    };
+
+    private EcCodec() {
+    }
+
+    /**
+     * Decodes the specified compressed or uncompressed point, from the cache if possible.
+     */
+    public static ECPublicKey decodePublicKey(@NonNull byte[] encodedKey) throws GeneralSecurityException {
+        ByteBuffer cacheKey = ByteBuffer.wrap(encodedKey.clone());
+        synchronized (PUBLIC_KEY_CACHE) {
+            ECPublicKey publicKey = PUBLIC_KEY_CACHE.get(cacheKey);
+            if (publicKey != null) {
+                return publicKey;
+            }
+        }
+        ECPoint point = ECPointUtil.decodePoint(Domain.CURVE, encodedKey);
+        ECPublicKey publicKey = (ECPublicKey) KEY_FACTORY.get().generatePublic(new ECPublicKeySpec(point, Domain.PARAMETER_SPEC));
+        synchronized (PUBLIC_KEY_CACHE) {
+            PUBLIC_KEY_CACHE.put(cacheKey, publicKey);
+        }
+        return publicKey;
+    }
+
+    /**
+     * Decodes the specified points in a single pass. Keys that can't be decoded are logged and
+     * result in null elements, so that a single invalid key doesn't prevent decoding the others.
+     * Null elements are passed through without being logged, they represent missing keys.
+     *
+     * @return the decoded keys, in the same order as the specified encoded keys
+     */
+    public static List<ECPublicKey> decodePublicKeys(@NonNull List<byte[]> encodedKeys) {
+        List<ECPublicKey> publicKeys = new ArrayList<>(encodedKeys.size());
+        for (byte[] encodedKey : encodedKeys) {
+            if (encodedKey == null) {
+                publicKeys.add(null);
+                continue;
+            }
+            try {
+                publicKeys.add(decodePublicKey(encodedKey));
+            } catch (GeneralSecurityException | RuntimeException e) {
+                Timber.w("Unable to decode public key: %s", e.toString());
+                publicKeys.add(null);
+            }
+        }
+        return publicKeys;
+    }
+
+    /**
+     * Decodes the specified (big endian, unsigned) private key value. Private keys are not cached.
+     */
+    public static ECPrivateKey decodePrivateKey(@NonNull byte[] encodedKey) throws GeneralSecurityException {
+        BigInteger s = new BigInteger(1, encodedKey);
+        return (ECPrivateKey) KEY_FACTORY.get().generatePrivate(new ECPrivateKeySpec(s, Domain.PARAMETER_SPEC));
+    }
+
+    public static ECParameterSpec getParameterSpec() {
+        return Domain.PARAMETER_SPEC;
+    }
+
+    /**
+     * Lazily computed domain parameters of {@link #CURVE_NAME}.
+     */
+    private static final class Domain {
+
+        private static final ECNamedCurveParameterSpec BC_PARAMETER_SPEC = ECNamedCurveTable.getParameterSpec(CURVE_NAME);
+        private static final EllipticCurve CURVE = EC5Util.convertCurve(BC_PARAMETER_SPEC.getCurve(), BC_PARAMETER_SPEC.getSeed());
+        private static final ECParameterSpec PARAMETER_SPEC = EC5Util.convertSpec(CURVE, BC_PARAMETER_SPEC);
+
+    }
+
+}
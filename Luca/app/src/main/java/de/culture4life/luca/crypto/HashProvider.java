@@ -4,6 +4,7 @@ import com.nexenio.rxkeystore.RxKeyStore;
 import com.nexenio.rxkeystore.provider.hash.Sha256HashProvider;
 
 import androidx.annotation.NonNull;
+import io.reactivex.rxjava3.core.Single;
 
 public class HashProvider extends Sha256HashProvider {
 
@@ -11,4 +12,9 @@ public class HashProvider extends Sha256HashProvider {
         super(rxKeyStore);
     }
 
+    @Override
+    public Single<byte[]> hash(@NonNull byte[] data) {
+        return Single.fromCallable(() -> CryptoKernel.sha256(data));
+    }
+
 }
@@ -0,0 +1,159 @@
+package de.culture4life.luca.crypto;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
+import java.security.PublicKey;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Signing key of a key issuer (e.g. a health department), as provided by the {@code
+ * keys/issuers/{issuerId}} endpoint, together with the information required to revalidate it.
+ */
+public class KeyIssuer {
+
+    @SerializedName("issuerId")
+    @Expose
+    private String issuerId;
+
+    @SerializedName("publicSigningKey")
+    @Expose
+    private String encodedPublicSigningKey;
+
+    @SerializedName("eTag")
+    @Expose
+    @Nullable
+    private String eTag;
+
+    @SerializedName("validationTimestamp")
+    @Expose
+    private long validationTimestamp;
+
+    @Nullable
+    private transient PublicKey publicSigningKey;
+
+    public KeyIssuer() {
+    }
+
+    public KeyIssuer(String issuerId, String encodedPublicSigningKey, @Nullable String eTag, long validationTimestamp) {
+        this.issuerId = issuerId;
+        this.encodedPublicSigningKey = encodedPublicSigningKey;
+        this.eTag = eTag;
+        this.validationTimestamp = validationTimestamp;
+    }
+
+    public String getIssuerId() {
+        return issuerId;
+    }
+
+    public void setIssuerId(String issuerId) {
+        this.issuerId = issuerId;
+    }
+
+    public String getEncodedPublicSigningKey() {
+        return encodedPublicSigningKey;
+    }
+
+    public void setEncodedPublicSigningKey(String encodedPublicSigningKey) {
+        this.encodedPublicSigningKey = encodedPublicSigningKey;
+        this.publicSigningKey = null;
+    }
+
+    @Nullable
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(@Nullable String eTag) {
+        this.eTag = eTag;
+    }
+
+    public long getValidationTimestamp() {
+        return validationTimestamp;
+    }
+
+    public void setValidationTimestamp(long validationTimestamp) {
+        this.validationTimestamp = validationTimestamp;
+    }
+
+    /**
+     * The decoded {@link #encodedPublicSigningKey}, if already available.
+     */
+    @Nullable
+    public PublicKey getPublicSigningKey() {
+        return publicSigningKey;
+    }
+
+    public void setPublicSigningKey(@Nullable PublicKey publicSigningKey) {
+        this.publicSigningKey = publicSigningKey;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyIssuer{" +
+                "issuerId='" + issuerId + '\'' +
+                ", encodedPublicSigningKey='" + encodedPublicSigningKey + '\'' +
+                ", eTag='" + eTag + '\'' +
+                ", validationTimestamp=" + validationTimestamp +
+                '}';
+    }
+
+    /**
+     * Streaming adapter for {@link KeyIssuer}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<KeyIssuer> {
+
+        @Override
+        public void write(JsonWriter writer, KeyIssuer keyIssuer) throws IOException {
+            if (keyIssuer == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("issuerId").value(keyIssuer.issuerId);
+            writer.name("publicSigningKey").value(keyIssuer.encodedPublicSigningKey);
+            writer.name("eTag").value(keyIssuer.eTag);
+            writer.name("validationTimestamp").value(keyIssuer.validationTimestamp);
+            writer.endObject();
+        }
+
+        @Override
+        public KeyIssuer read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            KeyIssuer keyIssuer = new KeyIssuer();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "issuerId":
+                        keyIssuer.issuerId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicSigningKey":
+                        keyIssuer.encodedPublicSigningKey = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "eTag":
+                        keyIssuer.eTag = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "validationTimestamp":
+                        keyIssuer.validationTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return keyIssuer;
+        }
+
+    }
+
+}
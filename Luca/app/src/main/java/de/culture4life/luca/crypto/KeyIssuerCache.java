@@ -0,0 +1,169 @@
+package de.culture4life.luca.crypto;
+
+import com.google.gson.JsonObject;
+
+import de.culture4life.luca.network.NetworkManager;
+import de.culture4life.luca.preference.PreferencesManager;
+
+import java.net.HttpURLConnection;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Function;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import timber.log.Timber;
+
+/**
+ * Two-level cache for the signing keys of key issuers. Decoded keys are kept in memory, the encoded
+ * keys are persisted in the preferences together with the entity tag of the response.
+ *
+ * Cached keys are used without any request until they are older than {@link
+ * #REVALIDATION_INTERVAL}. Afterwards, they are revalidated using a conditional request. If that
+ * request fails (e.g. because the device is offline), the cached key will still be used.
+ *
+ * Issuers may rotate their signing key at any time. If a verification using a cached key fails,
+ * {@link #verify(String, Function)} invalidates the cached key and verifies again with a freshly
+ * fetched key.
+ */
+public class KeyIssuerCache {
+
+    public static final String KEY_ISSUER_KEY_PREFIX = "key_issuer_";
+    public static final long REVALIDATION_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    private final PreferencesManager preferencesManager;
+    private final NetworkManager networkManager;
+    private final Map<String, KeyIssuer> keyIssuers;
+
+    public KeyIssuerCache(@NonNull PreferencesManager preferencesManager, @NonNull NetworkManager networkManager) {
+        this.preferencesManager = preferencesManager;
+        this.networkManager = networkManager;
+        this.keyIssuers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Emits the signing key of the specified issuer, from the cache if possible.
+     */
+    public Single<PublicKey> getSigningKey(@NonNull String issuerId) {
+        return getCachedKeyIssuer(issuerId)
+                .flatMapSingle(keyIssuer -> {
+                    if (requiresRevalidation(keyIssuer)) {
+                        return revalidate(keyIssuer)
+                                .doOnError(throwable -> Timber.w("Unable to revalidate key issuer %s, using cached key: %s", issuerId, throwable.toString()))
+                                .onErrorReturnItem(keyIssuer);
+                    } else {
+                        return Single.just(keyIssuer);
+                    }
+                })
+                .switchIfEmpty(fetch(issuerId, null))
+                .flatMap(this::getDecodedSigningKey);
+    }
+
+    /**
+     * Verifies data using the signing key of the specified issuer. If the verification fails, the
+     * cached key may be outdated. The key is then fetched again unconditionally (without the
+     * entity tag) and the verification is repeated once.
+     *
+     * @param verification completes if the data has been signed using the provided key
+     */
+    public Completable verify(@NonNull String issuerId, @NonNull Function<PublicKey, Completable> verification) {
+        return getSigningKey(issuerId)
+                .flatMapCompletable(verification)
+                .onErrorResumeNext(throwable -> {
+                    Timber.w("Unable to verify using signing key of issuer %s, fetching key again: %s", issuerId, throwable.toString());
+                    return refetchSigningKey(issuerId).flatMapCompletable(verification);
+                });
+    }
+
+    /**
+     * Invalidates the cached key issuer and fetches it again, without a conditional request.
+     */
+    public Single<PublicKey> refetchSigningKey(@NonNull String issuerId) {
+        return Completable.fromAction(() -> keyIssuers.remove(issuerId))
+                .andThen(fetch(issuerId, null))
+                .flatMap(this::getDecodedSigningKey);
+    }
+
+    private Maybe<KeyIssuer> getCachedKeyIssuer(@NonNull String issuerId) {
+        return Maybe.fromCallable(() -> keyIssuers.get(issuerId))
+                .switchIfEmpty(preferencesManager.restoreIfAvailable(getPreferenceKey(issuerId), KeyIssuer.class)
+                        .doOnSuccess(keyIssuer -> keyIssuers.put(issuerId, keyIssuer)));
+    }
+
+    private Single<KeyIssuer> revalidate(@NonNull KeyIssuer keyIssuer) {
+        return fetch(keyIssuer.getIssuerId(), keyIssuer);
+    }
+
+    /**
+     * Requests the specified key issuer. If a cached key issuer is provided, the request will be
+     * conditional and the cached key issuer will be emitted if it has not been modified.
+     */
+    private Single<KeyIssuer> fetch(@NonNull String issuerId, @Nullable KeyIssuer cachedKeyIssuer) {
+        String eTag = cachedKeyIssuer != null ? cachedKeyIssuer.getETag() : null;
+        return networkManager.getLucaEndpointsV3()
+                .flatMap(lucaEndpointsV3 -> lucaEndpointsV3.getKeyIssuer(issuerId, eTag))
+                .map(response -> {
+                    long now = System.currentTimeMillis();
+                    if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED && cachedKeyIssuer != null) {
+                        Timber.d("Key issuer %s has not been modified", issuerId);
+                        cachedKeyIssuer.setValidationTimestamp(now);
+                        return cachedKeyIssuer;
+                    }
+                    JsonObject body = getBody(response);
+                    KeyIssuer keyIssuer = new KeyIssuer(
+                            issuerId,
+                            body.get("publicHDSKP").getAsString(),
+                            response.headers().get("ETag"),
+                            now
+                    );
+                    Timber.d("Fetched key issuer: %s", keyIssuer);
+                    return keyIssuer;
+                })
+                .flatMap(keyIssuer -> persist(keyIssuer).andThen(Single.just(keyIssuer)));
+    }
+
+    private static JsonObject getBody(@NonNull Response<JsonObject> response) {
+        JsonObject body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            throw new HttpException(response);
+        }
+        return body;
+    }
+
+    private Completable persist(@NonNull KeyIssuer keyIssuer) {
+        return Completable.fromAction(() -> keyIssuers.put(keyIssuer.getIssuerId(), keyIssuer))
+                .andThen(preferencesManager.persist(getPreferenceKey(keyIssuer.getIssuerId()), keyIssuer));
+    }
+
+    private Single<PublicKey> getDecodedSigningKey(@NonNull KeyIssuer keyIssuer) {
+        return Maybe.fromCallable(keyIssuer::getPublicSigningKey)
+                .switchIfEmpty(CryptoManager.decodeFromString(keyIssuer.getEncodedPublicSigningKey())
+                        .flatMap(AsymmetricCipherProvider::decodePublicKey)
+                        .cast(PublicKey.class)
+                        .doOnSuccess(keyIssuer::setPublicSigningKey));
+    }
+
+    private static boolean requiresRevalidation(@NonNull KeyIssuer keyIssuer) {
+        long age = System.currentTimeMillis() - keyIssuer.getValidationTimestamp();
+        return age < 0 || age > REVALIDATION_INTERVAL;
+    }
+
+    /**
+     * Removes all key issuers from the in-memory cache. Persisted key issuers are not affected.
+     */
+    public void clear() {
+        keyIssuers.clear();
+    }
+
+    private static String getPreferenceKey(@NonNull String issuerId) {
+        return KEY_ISSUER_KEY_PREFIX + issuerId;
+    }
+
+}
@@ -0,0 +1,159 @@
+package de.culture4life.luca.crypto;
+
+import java.security.KeyPair;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Keeps a few pre-generated key pairs ready, so that consumers on latency sensitive paths (like the
+ * QR code generation or the check-in) don't have to wait for the key pair generation.
+ *
+ * Taking a key pair is O(1). Whenever a key pair is taken, the pool will be refilled using a low
+ * priority background thread. If the pool is empty, a key pair will be generated on the calling
+ * thread instead (a miss).
+ */
+public class KeyPairPool {
+
+    public static final int DEFAULT_SIZE = 3;
+
+    private final Single<KeyPair> keyPairGenerator;
+    private final Queue<KeyPair> keyPairs;
+    private final Object refillExecutorLock;
+    private final CompositeDisposable refillDisposable;
+    private final AtomicBoolean isRefilling;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+
+    @Nullable
+    private ExecutorService refillExecutor;
+
+    private volatile int size;
+
+    public KeyPairPool(@NonNull Single<KeyPair> keyPairGenerator) {
+        this(keyPairGenerator, DEFAULT_SIZE);
+    }
+
+    public KeyPairPool(@NonNull Single<KeyPair> keyPairGenerator, int size) {
+        this.keyPairGenerator = keyPairGenerator;
+        this.keyPairs = new ConcurrentLinkedQueue<>();
+        this.refillExecutorLock = new Object();
+        this.refillDisposable = new CompositeDisposable();
+        this.isRefilling = new AtomicBoolean();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.size = size;
+    }
+
+    /**
+     * Emits a pooled key pair if available or generates a new one. Each key pair is only emitted
+     * once.
+     */
+    public Single<KeyPair> take() {
+        return Single.defer(() -> {
+            KeyPair keyPair = keyPairs.poll();
+            refill();
+            if (keyPair != null) {
+                hitCount.incrementAndGet();
+                return Single.just(keyPair);
+            } else {
+                missCount.incrementAndGet();
+                Timber.v("Key pair pool miss, generating key pair on demand (%d hits, %d misses)", hitCount.get(), missCount.get());
+                return keyPairGenerator;
+            }
+        });
+    }
+
+    /**
+     * Fills the pool up to the configured size in the background, unless a refill is already in
+     * progress.
+     */
+    public void refill() {
+        if (!isRefilling.compareAndSet(false, true)) {
+            return;
+        }
+        refillDisposable.add(Completable.defer(() -> {
+            if (keyPairs.size() >= size) {
+                return Completable.complete();
+            }
+            return keyPairGenerator
+                    .doOnSuccess(keyPairs::offer)
+                    .ignoreElement()
+                    .repeatUntil(() -> keyPairs.size() >= size);
+        })
+                .doFinally(() -> isRefilling.set(false))
+                .subscribeOn(Schedulers.from(getRefillExecutor()))
+                .subscribe(
+                        () -> Timber.v("Refilled key pair pool with %d key pairs", keyPairs.size()),
+                        throwable -> Timber.w("Unable to refill key pair pool: %s", throwable.toString())
+                ));
+    }
+
+    /**
+     * Lazily creates the low priority background thread used for refilling, so that the pool can be
+     * refilled again after being disposed.
+     */
+    private ExecutorService getRefillExecutor() {
+        synchronized (refillExecutorLock) {
+            if (refillExecutor == null) {
+                refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "KeyPairPool");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return refillExecutor;
+        }
+    }
+
+    /**
+     * Stops refilling, shuts down the background thread and drops all pooled key pairs.
+     */
+    public void dispose() {
+        refillDisposable.clear();
+        synchronized (refillExecutorLock) {
+            if (refillExecutor != null) {
+                refillExecutor.shutdownNow();
+                refillExecutor = null;
+            }
+        }
+        isRefilling.set(false);
+        keyPairs.clear();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+        while (keyPairs.size() > size) {
+            keyPairs.poll();
+        }
+    }
+
+    public int getAvailableKeyPairCount() {
+        return keyPairs.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+}
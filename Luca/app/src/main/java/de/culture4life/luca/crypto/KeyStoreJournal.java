@@ -0,0 +1,334 @@
+package de.culture4life.luca.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
+import timber.log.Timber;
+
+import static com.nexenio.rxkeystore.RxKeyStore.PROVIDER_BOUNCY_CASTLE;
+
+/**
+ * Append-only log of changes to the BouncyCastle key store. Instead of re-writing the whole key
+ * store file for each new or deleted entry, the change is appended as a single encrypted record
+ * and synced to disk. The key store file acts as a snapshot, the journal needs to be replayed on
+ * top of it when loading. Once the journal grows beyond {@link #COMPACTION_THRESHOLD} records, it
+ * should be compacted by persisting a new snapshot using {@link #compact(Completable)}.
+ *
+ * Each record has the following format:
+ * <pre>
+ * length (4) | operation (1) | alias length (2) | alias | IV (12) | AES-GCM encrypted payload
+ * </pre>
+ * The alias is authenticated as additional data. Bulk deletions use an empty alias and contain all
+ * deleted aliases in the payload, so that they are applied either completely or not at all.
+ * Incomplete records at the end of the journal (e.g. caused by the process being killed while
+ * writing) are truncated when reading the records.
+ */
+public class KeyStoreJournal {
+
+    public static final int COMPACTION_THRESHOLD = 100;
+
+    static final byte OPERATION_SET_KEY_PAIR = 1;
+    static final byte OPERATION_DELETE_ENTRY = 2;
+    static final byte OPERATION_DELETE_ENTRIES = 3;
+
+    private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String KEY_ALGORITHM = "EC";
+    private static final int RECORD_LENGTH_LENGTH = 4;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+
+    private final File file;
+    private final SecureRandom secureRandom;
+    private int recordCount;
+
+    public KeyStoreJournal(@NonNull File file) {
+        this.file = file;
+        this.secureRandom = new SecureRandom();
+    }
+
+    /**
+     * Appends a record that will set the specified key pair for the alias when replayed.
+     */
+    public Completable appendKeyPair(@NonNull String alias, @NonNull KeyPair keyPair, @NonNull SecretKey journalKey) {
+        return Completable.fromAction(() -> {
+            byte[] encodedPrivateKey = keyPair.getPrivate().getEncoded();
+            byte[] encodedPublicKey = keyPair.getPublic().getEncoded();
+            ByteArrayOutputStream payloadStream = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadStream);
+            payload.writeInt(encodedPrivateKey.length);
+            payload.write(encodedPrivateKey);
+            payload.writeInt(encodedPublicKey.length);
+            payload.write(encodedPublicKey);
+            append(OPERATION_SET_KEY_PAIR, alias, payloadStream.toByteArray(), journalKey);
+        });
+    }
+
+    /**
+     * Appends a record that will delete the entry for the alias when replayed.
+     */
+    public Completable appendDeletion(@NonNull String alias, @NonNull SecretKey journalKey) {
+        return Completable.fromAction(() -> append(OPERATION_DELETE_ENTRY, alias, new byte[0], journalKey));
+    }
+
+    /**
+     * Appends a single record that will delete the entries for all specified aliases when
+     * replayed. Requires only one write and sync, regardless of the amount of aliases.
+     */
+    public Completable appendDeletions(@NonNull Collection<String> aliases, @NonNull SecretKey journalKey) {
+        return Completable.fromAction(() -> {
+            ByteArrayOutputStream payloadStream = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadStream);
+            payload.writeInt(aliases.size());
+            for (String alias : aliases) {
+                byte[] encodedAlias = alias.getBytes(StandardCharsets.UTF_8);
+                payload.writeShort(encodedAlias.length);
+                payload.write(encodedAlias);
+            }
+            append(OPERATION_DELETE_ENTRIES, "", payloadStream.toByteArray(), journalKey);
+        });
+    }
+
+    private void append(byte operation, @NonNull String alias, @NonNull byte[] payload, @NonNull SecretKey journalKey) throws Exception {
+        byte[] encodedAlias = alias.getBytes(StandardCharsets.UTF_8);
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, journalKey, new GCMParameterSpec(TAG_LENGTH, iv));
+        cipher.updateAAD(encodedAlias);
+        byte[] encryptedPayload = cipher.doFinal(payload);
+
+        ByteArrayOutputStream recordStream = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordStream);
+        record.writeInt(1 + 2 + encodedAlias.length + IV_LENGTH + encryptedPayload.length);
+        record.writeByte(operation);
+        record.writeShort(encodedAlias.length);
+        record.write(encodedAlias);
+        record.write(iv);
+        record.write(encryptedPayload);
+
+        synchronized (this) {
+            try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+                outputStream.write(recordStream.toByteArray());
+                outputStream.getFD().sync();
+            }
+            recordCount++;
+        }
+    }
+
+    /**
+     * Emits all complete records in the order they have been appended. An incomplete record at the
+     * end of the journal is truncated after all complete records have been emitted, so that
+     * records appended afterwards can be replayed.
+     */
+    public Observable<Record> readRecords(@NonNull SecretKey journalKey) {
+        return Observable.create(emitter -> {
+            synchronized (this) {
+                recordCount = 0;
+                if (!file.exists()) {
+                    emitter.onComplete();
+                    return;
+                }
+                long fileLength = file.length();
+                long validLength = 0;
+                try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+                    while (!emitter.isDisposed()) {
+                        byte[] encodedRecord = readEncodedRecord(inputStream, fileLength - validLength);
+                        if (encodedRecord == null) {
+                            break;
+                        }
+                        Record record = decodeRecord(encodedRecord, journalKey);
+                        validLength += RECORD_LENGTH_LENGTH + encodedRecord.length;
+                        recordCount++;
+                        emitter.onNext(record);
+                    }
+                }
+                if (!emitter.isDisposed() && validLength < fileLength) {
+                    Timber.w("Truncating incomplete key store journal record at %d", validLength);
+                    truncateTail(validLength);
+                }
+            }
+            emitter.onComplete();
+        });
+    }
+
+    /**
+     * @param remainingLength the amount of bytes left in the journal
+     * @return the next record, or null if there is no complete record left
+     */
+    @Nullable
+    private static byte[] readEncodedRecord(@NonNull DataInputStream inputStream, long remainingLength) throws IOException {
+        if (remainingLength < RECORD_LENGTH_LENGTH) {
+            return null;
+        }
+        int length = inputStream.readInt();
+        if (length <= 0 || length > remainingLength - RECORD_LENGTH_LENGTH) {
+            return null;
+        }
+        byte[] encodedRecord = new byte[length];
+        inputStream.readFully(encodedRecord);
+        return encodedRecord;
+    }
+
+    private static Record decodeRecord(@NonNull byte[] encodedRecord, @NonNull SecretKey journalKey) throws Exception {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(encodedRecord));
+        byte operation = record.readByte();
+        byte[] encodedAlias = new byte[record.readUnsignedShort()];
+        record.readFully(encodedAlias);
+        byte[] iv = new byte[IV_LENGTH];
+        record.readFully(iv);
+        byte[] encryptedPayload = new byte[record.available()];
+        record.readFully(encryptedPayload);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, journalKey, new GCMParameterSpec(TAG_LENGTH, iv));
+        cipher.updateAAD(encodedAlias);
+        byte[] payload = cipher.doFinal(encryptedPayload);
+
+        String alias = new String(encodedAlias, StandardCharsets.UTF_8);
+        if (operation == OPERATION_SET_KEY_PAIR) {
+            return new Record(operation, Collections.singletonList(alias), decodeKeyPair(payload));
+        } else if (operation == OPERATION_DELETE_ENTRIES) {
+            return new Record(operation, decodeAliases(payload), null);
+        } else {
+            return new Record(operation, Collections.singletonList(alias), null);
+        }
+    }
+
+    private static List<String> decodeAliases(@NonNull byte[] payload) throws IOException {
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(payload));
+        int aliasCount = inputStream.readInt();
+        List<String> aliases = new ArrayList<>(aliasCount);
+        for (int i = 0; i < aliasCount; i++) {
+            byte[] encodedAlias = new byte[inputStream.readUnsignedShort()];
+            inputStream.readFully(encodedAlias);
+            aliases.add(new String(encodedAlias, StandardCharsets.UTF_8));
+        }
+        return aliases;
+    }
+
+    private static KeyPair decodeKeyPair(@NonNull byte[] payload) throws Exception {
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(payload));
+        byte[] encodedPrivateKey = new byte[inputStream.readInt()];
+        inputStream.readFully(encodedPrivateKey);
+        byte[] encodedPublicKey = new byte[inputStream.readInt()];
+        inputStream.readFully(encodedPublicKey);
+        KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM, PROVIDER_BOUNCY_CASTLE);
+        return new KeyPair(
+                keyFactory.generatePublic(new X509EncodedKeySpec(encodedPublicKey)),
+                keyFactory.generatePrivate(new PKCS8EncodedKeySpec(encodedPrivateKey))
+        );
+    }
+
+    /**
+     * Persists a new snapshot using the specified completable and truncates the journal afterwards.
+     * No records can be appended while the compaction is in progress, so that no change gets lost.
+     */
+    public Completable compact(@NonNull Completable persistSnapshot) {
+        return Completable.fromAction(() -> {
+            synchronized (this) {
+                int compactedRecordCount = recordCount;
+                persistSnapshot.blockingAwait();
+                truncate();
+                Timber.d("Compacted %d key store journal records", compactedRecordCount);
+            }
+        });
+    }
+
+    public Completable clear() {
+        return Completable.fromAction(() -> {
+            synchronized (this) {
+                truncate();
+            }
+        });
+    }
+
+    private void truncateTail(long length) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length);
+            randomAccessFile.getFD().sync();
+        }
+    }
+
+    private void truncate() throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete key store journal");
+        }
+        recordCount = 0;
+    }
+
+    public synchronized boolean requiresCompaction() {
+        return recordCount >= COMPACTION_THRESHOLD;
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public long getFileSize() {
+        return file.length();
+    }
+
+    public static class Record {
+
+        private final byte operation;
+        private final List<String> aliases;
+
+        @Nullable
+        private final KeyPair keyPair;
+
+        Record(byte operation, @NonNull List<String> aliases, @Nullable KeyPair keyPair) {
+            this.operation = operation;
+            this.aliases = aliases;
+            this.keyPair = keyPair;
+        }
+
+        public boolean isDeletion() {
+            return operation == OPERATION_DELETE_ENTRY || operation == OPERATION_DELETE_ENTRIES;
+        }
+
+        /**
+         * The alias of the entry that has been set or deleted. For bulk deletions, use {@link
+         * #getAliases()}.
+         */
+        public String getAlias() {
+            return aliases.get(0);
+        }
+
+        public List<String> getAliases() {
+            return aliases;
+        }
+
+        @Nullable
+        public KeyPair getKeyPair() {
+            return keyPair;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package de.culture4life.luca.crypto;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Statistics of a single key store sweep, as performed by {@link
+ * CryptoManager#sweepExpiredKeyStoreEntries(io.reactivex.rxjava3.core.Observable)}. File sizes include the key store
+ * snapshot and the {@link KeyStoreJournal}.
+ */
+public class KeyStoreSweepResult {
+
+    private final int entryCountBefore;
+    private final int entryCountAfter;
+    private final long fileSizeBefore;
+    private final long fileSizeAfter;
+
+    public KeyStoreSweepResult(int entryCountBefore, int entryCountAfter, long fileSizeBefore, long fileSizeAfter) {
+        this.entryCountBefore = entryCountBefore;
+        this.entryCountAfter = entryCountAfter;
+        this.fileSizeBefore = fileSizeBefore;
+        this.fileSizeAfter = fileSizeAfter;
+    }
+
+    public int getEntryCountBefore() {
+        return entryCountBefore;
+    }
+
+    public int getEntryCountAfter() {
+        return entryCountAfter;
+    }
+
+    public int getDeletedEntryCount() {
+        return entryCountBefore - entryCountAfter;
+    }
+
+    public long getFileSizeBefore() {
+        return fileSizeBefore;
+    }
+
+    public long getFileSizeAfter() {
+        return fileSizeAfter;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "KeyStoreSweepResult{" +
+                "entryCountBefore=" + entryCountBefore +
+                ", entryCountAfter=" + entryCountAfter +
+                ", fileSizeBefore=" + fileSizeBefore +
+                ", fileSizeAfter=" + fileSizeAfter +
+                '}';
+    }
+
+}
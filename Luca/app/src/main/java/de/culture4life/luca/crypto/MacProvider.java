@@ -3,7 +3,10 @@ package de.culture4life.luca.crypto;
 import com.nexenio.rxkeystore.RxKeyStore;
 import com.nexenio.rxkeystore.provider.mac.HmacProvider;
 
+import javax.crypto.SecretKey;
+
 import androidx.annotation.NonNull;
+import io.reactivex.rxjava3.core.Single;
 
 public class MacProvider extends HmacProvider {
 
@@ -11,4 +14,9 @@ public class MacProvider extends HmacProvider {
         super(rxKeyStore, HASH_ALGORITHM_SHA256);
     }
 
+    @Override
+    public Single<byte[]> sign(@NonNull byte[] data, @NonNull SecretKey secretKey) {
+        return Single.fromCallable(() -> CryptoKernel.hmacSha256(secretKey, data));
+    }
+
 }
@@ -0,0 +1,306 @@
+package de.culture4life.luca.crypto;
+
+import com.nexenio.rxkeystore.RxKeyStore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.util.Collection;
+
+import javax.crypto.SecretKey;
+
+import androidx.annotation.NonNull;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * BouncyCastle key store that is persisted as a snapshot file and a {@link KeyStoreJournal}.
+ *
+ * The key store is loaded on first access (or when calling {@link #load()}), so that key stores
+ * which are not required right away don't slow down the app start. Loading happens at most once,
+ * all operations wait for it to complete.
+ */
+public class PersistentKeyStore {
+
+    private final String name;
+    private final RxKeyStore rxKeyStore;
+    private final AsymmetricCipherProvider asymmetricCipherProvider;
+    private final File snapshotFile;
+    private final KeyStoreJournal journal;
+    private final Single<String> loadingPassword;
+    private final Single<String> password;
+    private final Single<SecretKey> journalKey;
+    private final Completable loading;
+    private final CompositeDisposable compactionDisposable;
+    private final Object writeLock = new Object();
+
+    /**
+     * @param loadingPassword the password used when loading the snapshot, may differ from the
+     *                        password for persisting it for migration purposes
+     */
+    public PersistentKeyStore(@NonNull String name, @NonNull File snapshotFile, @NonNull File journalFile, @NonNull Single<String> loadingPassword, @NonNull Single<String> password, @NonNull Single<SecretKey> journalKey) {
+        this(name, new RxKeyStore(RxKeyStore.TYPE_BKS, RxKeyStore.PROVIDER_BOUNCY_CASTLE), snapshotFile, journalFile, loadingPassword, password, journalKey);
+    }
+
+    private PersistentKeyStore(@NonNull String name, @NonNull RxKeyStore rxKeyStore, @NonNull File snapshotFile, @NonNull File journalFile, @NonNull Single<String> loadingPassword, @NonNull Single<String> password, @NonNull Single<SecretKey> journalKey) {
+        this(name, rxKeyStore, new AsymmetricCipherProvider(rxKeyStore), snapshotFile, journalFile, loadingPassword, password, journalKey);
+    }
+
+    /**
+     * Uses an existing {@link RxKeyStore}, e.g. because other providers have already been bound to
+     * it.
+     */
+    public PersistentKeyStore(@NonNull String name, @NonNull RxKeyStore rxKeyStore, @NonNull AsymmetricCipherProvider asymmetricCipherProvider, @NonNull File snapshotFile, @NonNull File journalFile, @NonNull Single<String> loadingPassword, @NonNull Single<String> password, @NonNull Single<SecretKey> journalKey) {
+        this.name = name;
+        this.rxKeyStore = rxKeyStore;
+        this.asymmetricCipherProvider = asymmetricCipherProvider;
+        this.snapshotFile = snapshotFile;
+        this.journal = new KeyStoreJournal(journalFile);
+        this.loadingPassword = loadingPassword;
+        this.password = password;
+        this.journalKey = journalKey;
+        this.loading = loadFromFile().cache();
+        this.compactionDisposable = new CompositeDisposable();
+    }
+
+    /**
+     * Loads the last snapshot and replays all changes from the {@link #journal} on top of it. Only
+     * performed once, subsequent subscriptions complete immediately.
+     */
+    public Completable load() {
+        return loading;
+    }
+
+    private Completable loadFromFile() {
+        return loadSnapshotFromFile()
+                .onErrorComplete()
+                .andThen(replayJournal())
+                .onErrorComplete()
+                .doOnSubscribe(disposable -> Timber.d("Loading %s keystore", name))
+                .doOnComplete(this::compactIfRequired);
+    }
+
+    /**
+     * Loads the snapshot. If it has been protected with a different password than the one used
+     * for persisting (e.g. the legacy hardcoded password), it's re-written right away. Otherwise it
+     * would stay protected with the loading password, which can't be used anymore after the
+     * persisting password has been created.
+     */
+    private Completable loadSnapshotFromFile() {
+        return Completable.defer(() -> {
+            if (!snapshotFile.exists()) {
+                return Completable.complete();
+            }
+            return loadingPassword.flatMapCompletable(loadingPassword -> {
+                FileInputStream inputStream = new FileInputStream(snapshotFile);
+                return rxKeyStore.load(inputStream, loadingPassword)
+                        .andThen(password)
+                        .flatMapCompletable(password -> {
+                            if (password.equals(loadingPassword)) {
+                                return Completable.complete();
+                            }
+                            return persistSnapshotToFile()
+                                    .doOnComplete(() -> Timber.i("Re-encrypted %s keystore snapshot with current password", name));
+                        });
+            });
+        }).doOnError(throwable -> Timber.w("Unable to load %s keystore from file: %s", name, throwable.toString()));
+    }
+
+    private Completable replayJournal() {
+        return journalKey.flatMapObservable(journal::readRecords)
+                .concatMapCompletable(record -> {
+                    if (record.isDeletion()) {
+                        return Observable.fromIterable(record.getAliases())
+                                .concatMapCompletable(alias -> rxKeyStore.deleteEntry(alias).onErrorComplete());
+                    } else {
+                        return asymmetricCipherProvider.setKeyPair(record.getAlias(), record.getKeyPair());
+                    }
+                })
+                .doOnComplete(() -> Timber.d("Replayed %d %s keystore journal records", journal.getRecordCount(), name))
+                .doOnError(throwable -> Timber.w("Unable to replay %s keystore journal: %s", name, throwable.toString()));
+    }
+
+    public Maybe<KeyPair> getKeyPairIfAvailable(@NonNull String alias) {
+        return loading.andThen(asymmetricCipherProvider.getKeyPairIfAvailable(alias));
+    }
+
+    public Single<KeyPair> getKeyPair(@NonNull String alias) {
+        return loading.andThen(asymmetricCipherProvider.getKeyPair(alias));
+    }
+
+    public Observable<String> getAliases() {
+        return loading.andThen(rxKeyStore.getAliases());
+    }
+
+    /**
+     * Sets the specified key pair and appends the change to the {@link #journal}, without
+     * re-writing the whole snapshot.
+     */
+    public Completable setKeyPair(@NonNull String alias, @NonNull KeyPair keyPair) {
+        return loading.andThen(journalKey)
+                .flatMapCompletable(key -> write(asymmetricCipherProvider.setKeyPair(alias, keyPair)
+                        .andThen(journal.appendKeyPair(alias, keyPair, key))))
+                .doOnComplete(this::compactIfRequired)
+                .doOnError(throwable -> Timber.e("Unable to persist key pair in %s keystore: %s", name, throwable.toString()));
+    }
+
+    /**
+     * Deletes the entry for the specified alias and appends the change to the {@link #journal},
+     * without re-writing the whole snapshot.
+     */
+    public Completable deleteEntry(@NonNull String alias) {
+        return loading.andThen(journalKey)
+                .flatMapCompletable(key -> write(rxKeyStore.deleteEntry(alias)
+                        .andThen(journal.appendDeletion(alias, key))))
+                .doOnComplete(this::compactIfRequired)
+                .doOnError(throwable -> Timber.e("Unable to delete entry from %s keystore: %s", name, throwable.toString()));
+    }
+
+    /**
+     * Deletes the entries for the specified aliases as a single transaction. The deletion is
+     * persisted first, as a single {@link #journal} record (and therefore with a single write,
+     * regardless of the amount of aliases). Entries are only deleted from memory afterwards, so
+     * that memory and file never disagree if persisting fails.
+     *
+     * The snapshot is not re-written, call {@link #persist()} afterwards if the file should shrink
+     * right away.
+     */
+    public Completable deleteEntries(@NonNull Collection<String> aliases) {
+        if (aliases.isEmpty()) {
+            return Completable.complete();
+        }
+        return loading.andThen(journalKey)
+                .flatMapCompletable(key -> write(journal.appendDeletions(aliases, key)
+                        .andThen(Observable.fromIterable(aliases))
+                        .concatMapCompletable(alias -> rxKeyStore.deleteEntry(alias).onErrorComplete())))
+                .doOnComplete(this::compactIfRequired)
+                .doOnComplete(() -> Timber.d("Deleted %d entries from %s keystore", aliases.size(), name))
+                .doOnError(throwable -> Timber.e("Unable to delete entries from %s keystore: %s", name, throwable.toString()));
+    }
+
+    /**
+     * Persists a new snapshot and truncates the {@link #journal}.
+     */
+    public Completable persist() {
+        return loading.andThen(compact());
+    }
+
+    /**
+     * Persists a new snapshot in the background, if the {@link #journal} grew too large.
+     */
+    private void compactIfRequired() {
+        if (!journal.requiresCompaction()) {
+            return;
+        }
+        compactionDisposable.add(Completable.defer(() -> {
+            if (!journal.requiresCompaction()) {
+                return Completable.complete();
+            }
+            return compact();
+        }).subscribeOn(Schedulers.io())
+                .subscribe(
+                        () -> Timber.d("Compacted %s keystore journal", name),
+                        throwable -> Timber.w("Unable to compact %s keystore journal: %s", name, throwable.toString())
+                ));
+    }
+
+    private Completable compact() {
+        return write(journal.compact(persistSnapshotToFile()));
+    }
+
+    /**
+     * Runs the specified change while holding the {@link #writeLock}. Changes in memory and their
+     * journal records are applied together, so that a compaction can't persist a snapshot in
+     * between and then truncate a record that is not part of that snapshot.
+     */
+    private Completable write(@NonNull Completable change) {
+        return Completable.fromAction(() -> {
+            synchronized (writeLock) {
+                change.blockingAwait();
+            }
+        });
+    }
+
+    /**
+     * Persists a full snapshot. The snapshot is written to a temporary file first, so that the
+     * previous snapshot stays intact if writing fails.
+     */
+    private Completable persistSnapshotToFile() {
+        return password.flatMapCompletable(password -> {
+            File temporaryFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+            SyncingOutputStream outputStream = new SyncingOutputStream(new FileOutputStream(temporaryFile));
+            return rxKeyStore.save(outputStream, password)
+                    .andThen(Completable.fromAction(() -> {
+                        outputStream.close();
+                        if (!temporaryFile.renameTo(snapshotFile)) {
+                            throw new IOException("Unable to replace " + name + " keystore snapshot");
+                        }
+                    }))
+                    .doOnError(throwable -> outputStream.close());
+        }).doOnSubscribe(disposable -> Timber.d("Persisting %s keystore to file", name))
+                .doOnError(throwable -> Timber.e("Unable to persist %s keystore to file: %s", name, throwable.toString()));
+    }
+
+    /**
+     * Size of the snapshot and the journal, in bytes.
+     */
+    public long getFileSize() {
+        return snapshotFile.length() + journal.getFileSize();
+    }
+
+    public void dispose() {
+        compactionDisposable.dispose();
+    }
+
+    public RxKeyStore getRxKeyStore() {
+        return rxKeyStore;
+    }
+
+    public AsymmetricCipherProvider getAsymmetricCipherProvider() {
+        return asymmetricCipherProvider;
+    }
+
+    /**
+     * Syncs the file to disk when being closed. Closing is idempotent, so it doesn't matter if
+     * {@link RxKeyStore#save(java.io.OutputStream, String)} closes the stream itself.
+     */
+    private static final class SyncingOutputStream extends FilterOutputStream {
+
+        private final FileOutputStream fileOutputStream;
+        private boolean closed;
+
+        private SyncingOutputStream(@NonNull FileOutputStream fileOutputStream) {
+            super(fileOutputStream);
+            this.fileOutputStream = fileOutputStream;
+        }
+
+        @Override
+        public void write(@NonNull byte[] bytes, int offset, int length) throws IOException {
+            fileOutputStream.write(bytes, offset, length);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                fileOutputStream.flush();
+                fileOutputStream.getFD().sync();
+            } finally {
+                fileOutputStream.close();
+            }
+        }
+
+    }
+
+}
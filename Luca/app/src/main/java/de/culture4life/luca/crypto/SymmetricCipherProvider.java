@@ -28,6 +28,16 @@ public class SymmetricCipherProvider extends AesCipherProvider {
                 });
     }
 
+    @Override
+    public Single<byte[]> encrypt(@NonNull byte[] data, @NonNull byte[] initializationVector, @NonNull SecretKey secretKey) {
+        return Single.fromCallable(() -> CryptoKernel.aesCtrEncrypt(secretKey, initializationVector, data));
+    }
+
+    @Override
+    public Single<byte[]> decrypt(@NonNull byte[] data, @NonNull byte[] initializationVector, @NonNull SecretKey secretKey) {
+        return Single.fromCallable(() -> CryptoKernel.aesCtrDecrypt(secretKey, initializationVector, data));
+    }
+
     @Override
     protected String[] getBlockModes() {
         return new String[]{"CTR"};
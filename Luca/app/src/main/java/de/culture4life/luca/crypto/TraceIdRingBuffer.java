@@ -0,0 +1,238 @@
+package de.culture4life.luca.crypto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import timber.log.Timber;
+
+/**
+ * Binary file holding the most recent {@link TraceIdWrapper}s as fixed size records. Once the
+ * capacity is reached, each append overwrites the oldest record. Appends are O(1) and records are
+ * read in the order they have been appended, which matches the order of their timestamps.
+ *
+ * The file has the following format:
+ * <pre>
+ * header: magic (4) | capacity (4) | total record count (8)
+ * record: record index (8) | timestamp (8) | trace ID (16) | CRC32 (4)
+ * </pre>
+ * The total record count is updated before the record is written and the file is synced to disk
+ * before an append completes, so that an appended trace ID survives the device shutting down. A
+ * record is only read if its index matches the slot and its checksum is valid, so that an
+ * incomplete record (e.g. caused by the process being killed while writing) is treated as an empty
+ * slot. The record that has been
+ * overwritten is lost in that case, its user ephemeral key pair is then deleted by {@link
+ * CryptoManager#sweepExpiredKeyStoreEntries(io.reactivex.rxjava3.core.Observable)}.
+ */
+public class TraceIdRingBuffer {
+
+    public static final int TRACE_ID_LENGTH = 16;
+
+    private static final int MAGIC = 0x4C544932;
+    private static final int HEADER_LENGTH = 16;
+    private static final int RECORD_CONTENT_LENGTH = 8 + 8 + TRACE_ID_LENGTH;
+    private static final int RECORD_LENGTH = RECORD_CONTENT_LENGTH + 4;
+    private static final int COUNT_OFFSET = 8;
+
+    private final File file;
+    private final int capacity;
+    private final boolean useMemoryMappedReads;
+
+    private RandomAccessFile randomAccessFile;
+    private long totalRecordCount;
+
+    public TraceIdRingBuffer(@NonNull File file, int capacity) {
+        this(file, capacity, false);
+    }
+
+    /**
+     * @param useMemoryMappedReads if true, records will be read from a read-only memory mapping of
+     *                             the file instead of a single buffered read.
+     */
+    public TraceIdRingBuffer(@NonNull File file, int capacity, boolean useMemoryMappedReads) {
+        this.file = file;
+        this.capacity = capacity;
+        this.useMemoryMappedReads = useMemoryMappedReads;
+    }
+
+    /**
+     * Appends the specified trace ID wrapper and emits the wrapper that has been overwritten, if
+     * the capacity has already been reached.
+     */
+    public Maybe<TraceIdWrapper> append(@NonNull TraceIdWrapper traceIdWrapper) {
+        return Maybe.fromCallable(() -> {
+            byte[] traceId = traceIdWrapper.getTraceId();
+            if (traceId == null || traceId.length != TRACE_ID_LENGTH) {
+                throw new IllegalArgumentException("Invalid trace ID length");
+            }
+            synchronized (this) {
+                RandomAccessFile randomAccessFile = getOpenFile();
+                long position = getRecordPosition(totalRecordCount);
+
+                TraceIdWrapper overwrittenTraceIdWrapper = null;
+                if (totalRecordCount >= capacity) {
+                    byte[] record = new byte[RECORD_LENGTH];
+                    randomAccessFile.seek(position);
+                    randomAccessFile.readFully(record);
+                    overwrittenTraceIdWrapper = decodeRecord(ByteBuffer.wrap(record), totalRecordCount - capacity);
+                }
+
+                ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH)
+                        .putLong(totalRecordCount)
+                        .putLong(traceIdWrapper.getTimestamp())
+                        .put(traceId);
+                record.putInt(getChecksum(record.array()));
+                randomAccessFile.seek(COUNT_OFFSET);
+                randomAccessFile.writeLong(totalRecordCount + 1);
+                totalRecordCount++;
+                randomAccessFile.seek(position);
+                randomAccessFile.write(record.array());
+                randomAccessFile.getFD().sync();
+                return overwrittenTraceIdWrapper;
+            }
+        });
+    }
+
+    /**
+     * Emits all available trace ID wrappers, starting with the oldest one. Empty slots are
+     * skipped.
+     */
+    public Observable<TraceIdWrapper> read() {
+        return Observable.defer(() -> {
+            ByteBuffer records;
+            long firstRecordIndex;
+            long recordCount;
+            synchronized (this) {
+                if (!file.exists() && randomAccessFile == null) {
+                    return Observable.empty();
+                }
+                RandomAccessFile randomAccessFile = getOpenFile();
+                recordCount = Math.min(totalRecordCount, capacity);
+                firstRecordIndex = totalRecordCount - recordCount;
+                records = readRecords(randomAccessFile, (int) recordCount);
+            }
+            return Observable.range(0, (int) recordCount)
+                    .flatMapMaybe(index -> Maybe.fromCallable(() -> {
+                        long recordIndex = firstRecordIndex + index;
+                        ByteBuffer record = records.duplicate();
+                        record.position((int) (recordIndex % capacity) * RECORD_LENGTH);
+                        return decodeRecord(record, recordIndex);
+                    }));
+        });
+    }
+
+    private ByteBuffer readRecords(@NonNull RandomAccessFile randomAccessFile, int recordCount) throws IOException {
+        int length = recordCount * RECORD_LENGTH;
+        if (useMemoryMappedReads && length > 0) {
+            MappedByteBuffer mappedBuffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, length);
+            mappedBuffer.load();
+            return mappedBuffer.asReadOnlyBuffer();
+        } else {
+            byte[] records = new byte[length];
+            randomAccessFile.seek(HEADER_LENGTH);
+            randomAccessFile.readFully(records);
+            return ByteBuffer.wrap(records);
+        }
+    }
+
+    /**
+     * Deletes all records.
+     */
+    public Completable clear() {
+        return Completable.fromAction(() -> {
+            synchronized (this) {
+                close();
+                if (file.exists() && !file.delete()) {
+                    throw new IOException("Unable to delete trace ID ring buffer");
+                }
+            }
+        });
+    }
+
+    public synchronized void close() throws IOException {
+        if (randomAccessFile != null) {
+            randomAccessFile.close();
+            randomAccessFile = null;
+        }
+        totalRecordCount = 0;
+    }
+
+    /**
+     * Amount of used slots, including slots of incomplete records.
+     */
+    public synchronized int getRecordCount() throws IOException {
+        getOpenFile();
+        return (int) Math.min(totalRecordCount, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private RandomAccessFile getOpenFile() throws IOException {
+        if (randomAccessFile != null) {
+            return randomAccessFile;
+        }
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        if (randomAccessFile.length() >= HEADER_LENGTH) {
+            randomAccessFile.seek(0);
+            int magic = randomAccessFile.readInt();
+            int persistedCapacity = randomAccessFile.readInt();
+            long persistedRecordCount = randomAccessFile.readLong();
+            if (magic == MAGIC && persistedCapacity == capacity && persistedRecordCount >= 0) {
+                totalRecordCount = persistedRecordCount;
+                return randomAccessFile;
+            }
+            Timber.w("Resetting trace ID ring buffer with unexpected header (capacity %d, expected %d)", persistedCapacity, capacity);
+        }
+        randomAccessFile.setLength(0);
+        randomAccessFile.writeInt(MAGIC);
+        randomAccessFile.writeInt(capacity);
+        randomAccessFile.writeLong(0);
+        randomAccessFile.setLength(HEADER_LENGTH + (long) capacity * RECORD_LENGTH);
+        totalRecordCount = 0;
+        return randomAccessFile;
+    }
+
+    private long getRecordPosition(long recordIndex) {
+        return HEADER_LENGTH + (recordIndex % capacity) * RECORD_LENGTH;
+    }
+
+    /**
+     * @return the decoded record, or null if the slot doesn't contain a valid record with the
+     * specified index
+     */
+    @Nullable
+    private static TraceIdWrapper decodeRecord(@NonNull ByteBuffer record, long expectedRecordIndex) {
+        byte[] content = new byte[RECORD_CONTENT_LENGTH];
+        record.get(content);
+        int checksum = record.getInt();
+        ByteBuffer contentBuffer = ByteBuffer.wrap(content);
+        long recordIndex = contentBuffer.getLong();
+        if (recordIndex != expectedRecordIndex || checksum != getChecksum(content)) {
+            Timber.w("Ignoring invalid trace ID ring buffer record %d", expectedRecordIndex);
+            return null;
+        }
+        long timestamp = contentBuffer.getLong();
+        byte[] traceId = new byte[TRACE_ID_LENGTH];
+        contentBuffer.get(traceId);
+        return new TraceIdWrapper(timestamp, traceId);
+    }
+
+    private static int getChecksum(@NonNull byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, RECORD_CONTENT_LENGTH);
+        return (int) crc.getValue();
+    }
+
+}
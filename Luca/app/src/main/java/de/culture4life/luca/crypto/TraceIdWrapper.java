@@ -1,16 +1,12 @@
 package de.culture4life.luca.crypto;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import de.culture4life.luca.util.SerializationUtil;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 public class TraceIdWrapper {
 
@@ -41,23 +37,45 @@ public class TraceIdWrapper {
         this.traceId = traceId;
     }
 
-    public static class TypeAdapter implements JsonSerializer<TraceIdWrapper>, JsonDeserializer<TraceIdWrapper> {
+    /**
+     * Streaming adapter for {@link TraceIdWrapper}, avoiding intermediate JSON trees.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<TraceIdWrapper> {
 
         @Override
-        public JsonElement serialize(TraceIdWrapper traceIdWrapper, Type type, JsonSerializationContext context) {
-            JsonObject jsonObject = new JsonObject();
-            jsonObject.add("ts", context.serialize(traceIdWrapper.getTimestamp()));
-            jsonObject.add("id", context.serialize(SerializationUtil.serializeToBase64(traceIdWrapper.traceId).blockingGet()));
-            return jsonObject;
+        public void write(JsonWriter writer, TraceIdWrapper traceIdWrapper) throws IOException {
+            if (traceIdWrapper == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("ts").value(traceIdWrapper.timestamp);
+            writer.name("id").value(SerializationUtil.serializeToBase64(traceIdWrapper.traceId).blockingGet());
+            writer.endObject();
         }
 
         @Override
-        public TraceIdWrapper deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext context) throws JsonParseException {
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            long timestamp = jsonObject.get("ts").getAsLong();
-            String encodedTraceId = jsonObject.get("id").getAsString();
-            byte[] traceId = SerializationUtil.deserializeFromBase64(encodedTraceId).blockingGet();
-            return new TraceIdWrapper(timestamp, traceId);
+        public TraceIdWrapper read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            TraceIdWrapper traceIdWrapper = new TraceIdWrapper();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "ts":
+                        traceIdWrapper.timestamp = reader.nextLong();
+                        break;
+                    case "id":
+                        traceIdWrapper.traceId = SerializationUtil.deserializeFromBase64(reader.nextString()).blockingGet();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return traceIdWrapper;
         }
 
     }
@@ -0,0 +1,108 @@
+package de.culture4life.luca.crypto;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.Nullable;
+import timber.log.Timber;
+
+/**
+ * In-memory ring of unwrapped tracing secrets, indexed by day. Each slot holds the secret of a
+ * single day (identified by its start of day timestamp), so that the ring covers the most recent
+ * days without any lookup structure. A slot is re-used once the day that is {@link #getCapacity()}
+ * days later gets loaded, which extends the ring when the day rotates.
+ *
+ * Days without a persisted secret are remembered as well, so that they don't need to be looked up
+ * again. Overwritten or cleared secrets are zeroized. Callers only ever get copies of the secrets.
+ */
+public class TracingSecretRing {
+
+    public static final int DEFAULT_CAPACITY = 14;
+
+    private static final long EMPTY_SLOT = -1;
+    private static final long DAY_DURATION = TimeUnit.DAYS.toMillis(1);
+
+    private final long[] startOfDayTimestamps;
+    private final byte[][] secrets;
+
+    public TracingSecretRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TracingSecretRing(int capacity) {
+        this.startOfDayTimestamps = new long[capacity];
+        this.secrets = new byte[capacity][];
+        Arrays.fill(startOfDayTimestamps, EMPTY_SLOT);
+    }
+
+    /**
+     * Checks if the specified day has been loaded, i.e. if it's known whether or not a secret
+     * exists for that day.
+     */
+    public synchronized boolean contains(long startOfDayTimestamp) {
+        return startOfDayTimestamps[getIndex(startOfDayTimestamp)] == startOfDayTimestamp;
+    }
+
+    /**
+     * Provides a copy of the secret of the specified day, or null if the day has not been loaded or
+     * no secret exists for that day.
+     */
+    @Nullable
+    public synchronized byte[] get(long startOfDayTimestamp) {
+        int index = getIndex(startOfDayTimestamp);
+        if (startOfDayTimestamps[index] != startOfDayTimestamp || secrets[index] == null) {
+            return null;
+        }
+        return secrets[index].clone();
+    }
+
+    /**
+     * Stores a copy of the secret of the specified day, replacing (and zeroizing) the secret of the
+     * day that previously occupied the slot.
+     *
+     * @param secret the secret or null, if no secret exists for the specified day
+     */
+    public synchronized void put(long startOfDayTimestamp, @Nullable byte[] secret) {
+        int index = getIndex(startOfDayTimestamp);
+        if (startOfDayTimestamps[index] > startOfDayTimestamp) {
+            // don't replace a more recent day with an older one
+            return;
+        }
+        zeroize(index);
+        startOfDayTimestamps[index] = startOfDayTimestamp;
+        secrets[index] = secret != null ? secret.clone() : null;
+    }
+
+    /**
+     * Zeroizes and removes all secrets.
+     */
+    public synchronized void clear() {
+        int clearedSecrets = 0;
+        for (int index = 0; index < secrets.length; index++) {
+            if (secrets[index] != null) {
+                clearedSecrets++;
+            }
+            zeroize(index);
+            startOfDayTimestamps[index] = EMPTY_SLOT;
+        }
+        if (clearedSecrets > 0) {
+            Timber.d("Cleared %d tracing secrets", clearedSecrets);
+        }
+    }
+
+    public int getCapacity() {
+        return secrets.length;
+    }
+
+    private void zeroize(int index) {
+        if (secrets[index] != null) {
+            Arrays.fill(secrets[index], (byte) 0);
+            secrets[index] = null;
+        }
+    }
+
+    private int getIndex(long startOfDayTimestamp) {
+        return (int) ((startOfDayTimestamp / DAY_DURATION) % secrets.length);
+    }
+
+}
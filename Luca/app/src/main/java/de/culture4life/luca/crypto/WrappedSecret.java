@@ -1,16 +1,33 @@
 package de.culture4life.luca.crypto;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import android.util.Pair;
 
 import de.culture4life.luca.util.SerializationUtil;
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 public class WrappedSecret {
 
+    /**
+     * The secret has been encrypted using the RSA secret wrapping key pair.
+     */
+    public static final int VERSION_RSA = 0;
+
+    /**
+     * The secret has been encrypted using AES-GCM with the (RSA wrapped) secret wrapping master
+     * key, the IV is required.
+     */
+    public static final int VERSION_AES_GCM = 1;
+
     @Expose
     private String encryptedSecret;
 
@@ -18,9 +35,18 @@ public class WrappedSecret {
     @Expose
     private String iv;
 
+    @Expose
+    private int version = VERSION_RSA;
+
     public WrappedSecret() {
     }
 
+    public WrappedSecret(@NonNull byte[] encryptedSecret, @NonNull byte[] iv, int version) {
+        this.encryptedSecret = SerializationUtil.serializeToBase64(encryptedSecret).blockingGet();
+        this.iv = SerializationUtil.serializeToBase64(iv).blockingGet();
+        this.version = version;
+    }
+
     public WrappedSecret(@NonNull byte[] encryptedSecret) {
         this.encryptedSecret = SerializationUtil.serializeToBase64(encryptedSecret).blockingGet();
     }
@@ -61,4 +87,63 @@ public class WrappedSecret {
         this.iv = iv;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public boolean isEnvelopeEncrypted() {
+        return version == VERSION_AES_GCM;
+    }
+
+    /**
+     * Streaming adapter for {@link WrappedSecret}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<WrappedSecret> {
+
+        @Override
+        public void write(JsonWriter writer, WrappedSecret wrappedSecret) throws IOException {
+            if (wrappedSecret == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("encryptedSecret").value(wrappedSecret.encryptedSecret);
+            writer.name("iv").value(wrappedSecret.iv);
+            writer.name("version").value(wrappedSecret.version);
+            writer.endObject();
+        }
+
+        @Override
+        public WrappedSecret read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            WrappedSecret wrappedSecret = new WrappedSecret();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "encryptedSecret":
+                        wrappedSecret.encryptedSecret = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "iv":
+                        wrappedSecret.iv = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "version":
+                        wrappedSecret.version = TypeAdapterUtil.nextIntOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return wrappedSecret;
+        }
+
+    }
+
 }
@@ -0,0 +1,136 @@
+package de.culture4life.luca.crypto;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import timber.log.Timber;
+
+/**
+ * Bounded in-memory cache for secrets that have been unwrapped using the {@link
+ * WrappingCipherProvider}, keyed by their alias. Avoids a key store round-trip for each restore of
+ * frequently used secrets, like the current tracing secret or the data secret.
+ *
+ * Entries expire after the configured time to live and the least recently used entry is evicted if
+ * the maximum size is exceeded. Evicted, invalidated or cleared secrets are zeroized. Callers only
+ * ever get copies of the cached secrets.
+ */
+public class WrappedSecretCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 32;
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+
+    private final int maximumSize;
+    private final long timeToLive;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public WrappedSecretCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    public WrappedSecretCache(int maximumSize, long timeToLive) {
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<>(maximumSize, 0.75f, true);
+    }
+
+    /**
+     * Emits a copy of the cached secret for the specified alias, if available and not yet expired.
+     */
+    public Maybe<byte[]> get(@NonNull String alias) {
+        return Maybe.fromCallable(() -> {
+            synchronized (entries) {
+                Entry entry = entries.get(alias);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.isExpired(System.currentTimeMillis())) {
+                    entries.remove(alias);
+                    entry.zeroize();
+                    return null;
+                }
+                return entry.secret.clone();
+            }
+        });
+    }
+
+    /**
+     * Caches a copy of the specified secret, replacing (and zeroizing) any previously cached secret
+     * for the same alias.
+     */
+    public Completable put(@NonNull String alias, @NonNull byte[] secret) {
+        return Completable.fromAction(() -> {
+            synchronized (entries) {
+                Entry previousEntry = entries.put(alias, new Entry(secret.clone(), System.currentTimeMillis() + timeToLive));
+                if (previousEntry != null) {
+                    previousEntry.zeroize();
+                }
+                evictIfRequired();
+            }
+        });
+    }
+
+    public Completable invalidate(@NonNull String alias) {
+        return Completable.fromAction(() -> {
+            synchronized (entries) {
+                Entry entry = entries.remove(alias);
+                if (entry != null) {
+                    entry.zeroize();
+                }
+            }
+        });
+    }
+
+    /**
+     * Zeroizes and removes all cached secrets.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                entry.zeroize();
+            }
+            if (!entries.isEmpty()) {
+                Timber.d("Cleared %d cached secrets", entries.size());
+            }
+            entries.clear();
+        }
+    }
+
+    private void evictIfRequired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entries.size() > maximumSize || entry.isExpired(now)) {
+                iterator.remove();
+                entry.zeroize();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] secret;
+        private final long expirationTimestamp;
+
+        private Entry(@NonNull byte[] secret, long expirationTimestamp) {
+            this.secret = secret;
+            this.expirationTimestamp = expirationTimestamp;
+        }
+
+        private boolean isExpired(long timestamp) {
+            return timestamp > expirationTimestamp;
+        }
+
+        private void zeroize() {
+            Arrays.fill(secret, (byte) 0);
+        }
+
+    }
+
+}
@@ -2,10 +2,20 @@ package de.culture4life.luca.dataaccess;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.preference.BinaryReader;
+import de.culture4life.luca.preference.BinaryWriter;
+import de.culture4life.luca.preference.ValueSerializer;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import androidx.annotation.NonNull;
+
 public class AccessedData {
 
     @Expose
@@ -31,4 +41,123 @@ public class AccessedData {
                 '}';
     }
 
+    /**
+     * Binary serializer for {@link AccessedData}, each accessed trace is written as a
+     * length-prefixed record.
+     */
+    public static class BinarySerializer implements ValueSerializer<AccessedData> {
+
+        private static final int VERSION = 1;
+
+        @Override
+        public Class<AccessedData> getTypeClass() {
+            return AccessedData.class;
+        }
+
+        @Override
+        public int getVersion() {
+            return VERSION;
+        }
+
+        @Override
+        public void serialize(@NonNull AccessedData accessedData, @NonNull BinaryWriter writer) {
+            List<AccessedTraceData> traceData = accessedData.getTraceData();
+            writer.writeVarLong(traceData.size());
+            for (AccessedTraceData accessedTraceData : traceData) {
+                writer.writeRecord(new BinaryWriter()
+                        .writeEncodedBytes(accessedTraceData.getHashedTraceId())
+                        .writeEncodedBytes(accessedTraceData.getTraceId())
+                        .writeString(accessedTraceData.getLocationName())
+                        .writeString(accessedTraceData.getHealthDepartmentId())
+                        .writeString(accessedTraceData.getHealthDepartmentName())
+                        .writeVarLong(accessedTraceData.getAccessTimestamp())
+                        .writeVarLong(accessedTraceData.getCheckInTimestamp())
+                        .writeVarLong(accessedTraceData.getCheckOutTimestamp()));
+            }
+        }
+
+        @Override
+        public AccessedData deserialize(@NonNull BinaryReader reader, int version) throws IOException {
+            int count = reader.readCount();
+            List<AccessedTraceData> traceData = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                BinaryReader record = reader.readRecord();
+                AccessedTraceData accessedTraceData = new AccessedTraceData();
+                accessedTraceData.setHashedTraceId(record.readEncodedBytes());
+                accessedTraceData.setTraceId(record.readEncodedBytes());
+                accessedTraceData.setLocationName(record.readString());
+                accessedTraceData.setHealthDepartmentId(record.readString());
+                accessedTraceData.setHealthDepartmentName(record.readString());
+                accessedTraceData.setAccessTimestamp(record.readVarLong());
+                accessedTraceData.setCheckInTimestamp(record.readVarLong());
+                accessedTraceData.setCheckOutTimestamp(record.readVarLong());
+                traceData.add(accessedTraceData);
+            }
+            AccessedData accessedData = new AccessedData();
+            accessedData.setTraceData(traceData);
+            return accessedData;
+        }
+
+    }
+
+    /**
+     * Streaming adapter for {@link AccessedData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<AccessedData> {
+
+        private final AccessedTraceData.TypeAdapter accessedTraceDataAdapter = new AccessedTraceData.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, AccessedData accessedData) throws IOException {
+            if (accessedData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("tracingData");
+            if (accessedData.traceData == null) {
+                writer.nullValue();
+            } else {
+                writer.beginArray();
+                for (AccessedTraceData element : accessedData.traceData) {
+                    accessedTraceDataAdapter.write(writer, element);
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public AccessedData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            AccessedData accessedData = new AccessedData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "tracingData":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            accessedData.traceData = null;
+                            break;
+                        }
+                        accessedData.traceData = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            accessedData.traceData.add(accessedTraceDataAdapter.read(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return accessedData;
+        }
+
+    }
+
 }
@@ -2,6 +2,13 @@ package de.culture4life.luca.dataaccess;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class AccessedTraceData {
 
@@ -115,4 +122,71 @@ public class AccessedTraceData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link AccessedTraceData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<AccessedTraceData> {
+
+        @Override
+        public void write(JsonWriter writer, AccessedTraceData accessedTraceData) throws IOException {
+            if (accessedTraceData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("hashedTracingId").value(accessedTraceData.hashedTraceId);
+            writer.name("tracingId").value(accessedTraceData.traceId);
+            writer.name("locationName").value(accessedTraceData.locationName);
+            writer.name("healthDepartmentId").value(accessedTraceData.healthDepartmentId);
+            writer.name("healthDepartmentName").value(accessedTraceData.healthDepartmentName);
+            writer.name("accessTimestamp").value(accessedTraceData.accessTimestamp);
+            writer.name("checkInTimestamp").value(accessedTraceData.checkInTimestamp);
+            writer.name("checkOutTimestamp").value(accessedTraceData.checkOutTimestamp);
+            writer.endObject();
+        }
+
+        @Override
+        public AccessedTraceData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            AccessedTraceData accessedTraceData = new AccessedTraceData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "hashedTracingId":
+                        accessedTraceData.hashedTraceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "tracingId":
+                        accessedTraceData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "locationName":
+                        accessedTraceData.locationName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "healthDepartmentId":
+                        accessedTraceData.healthDepartmentId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "healthDepartmentName":
+                        accessedTraceData.healthDepartmentName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "accessTimestamp":
+                        accessedTraceData.accessTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "checkInTimestamp":
+                        accessedTraceData.checkInTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "checkOutTimestamp":
+                        accessedTraceData.checkOutTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return accessedTraceData;
+        }
+
+    }
+
 }
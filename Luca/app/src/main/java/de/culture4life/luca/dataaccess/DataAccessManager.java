@@ -1,6 +1,7 @@
 package de.culture4life.luca.dataaccess;
 
 import android.content.Context;
+import android.util.Base64;
 import android.util.Pair;
 
 import de.culture4life.luca.BuildConfig;
@@ -9,6 +10,7 @@ import de.culture4life.luca.Manager;
 import de.culture4life.luca.R;
 import de.culture4life.luca.checkin.CheckInData;
 import de.culture4life.luca.checkin.CheckInManager;
+import de.culture4life.luca.crypto.CryptoKernel;
 import de.culture4life.luca.crypto.CryptoManager;
 import de.culture4life.luca.history.HistoryItem;
 import de.culture4life.luca.history.HistoryManager;
@@ -19,12 +21,14 @@ import de.culture4life.luca.preference.PreferencesManager;
 import de.culture4life.luca.ui.MainActivity;
 import de.culture4life.luca.util.TimeUtil;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
-import javax.crypto.SecretKey;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.work.Constraints;
@@ -50,7 +54,7 @@ public class DataAccessManager extends Manager {
 
     private static final String LAST_UPDATE_TIMESTAMP_KEY = "last_accessed_data_update_timestamp";
     private static final String LAST_INFO_SHOWN_TIMESTAMP_KEY = "last_accessed_data_info_shown_timestamp";
-    private static final String ACCESSED_DATA_KEY = "accessed_data";
+    public static final String ACCESSED_DATA_KEY = "accessed_data";
 
     private final PreferencesManager preferencesManager;
     private final NetworkManager networkManager;
@@ -242,29 +246,84 @@ public class DataAccessManager extends Manager {
      */
     public Observable<AccessedTraceData> fetchRecentlyAccessedTraceData() {
         // get all recent trace IDs from the user that could have been accessed
-        Observable<String> potentiallyAccessedTraceIds = getRecentTraceIds().cache();
+        Single<List<String>> potentiallyAccessedTraceIds = getRecentTraceIds().toList();
 
         // get the intersection of data from the user and data that has been accessed
         return fetchAllRecentlyAccessedHashedTraceIdsData()
-                .flatMap(accessedHashedData -> potentiallyAccessedTraceIds
-                        .flatMapSingle(traceId -> getHashedTraceId(accessedHashedData.getHealthDepartment().getId(), traceId)
-                                .map(hashedTraceId -> {
-                                    AccessedTraceData potentiallyAccessedData = new AccessedTraceData();
-                                    potentiallyAccessedData.setTraceId(traceId);
-                                    potentiallyAccessedData.setHashedTraceId(hashedTraceId);
-                                    return potentiallyAccessedData;
-                                }))
-                        .filter(potentiallyAccessedData -> hasBeenAccessed(potentiallyAccessedData, accessedHashedData))
-                        .map(accessedData -> {
-                            accessedData.setAccessTimestamp(System.currentTimeMillis());
-                            accessedData.setHealthDepartmentId(accessedHashedData.getHealthDepartment().getId());
-                            accessedData.setHealthDepartmentName(accessedHashedData.getHealthDepartment().getName());
-                            accessedData.setLocationName(getLocationName(accessedData).blockingGet());
-                            Pair<Long, Long> checkInAndOutTimestamps = getCheckInAndOutTimestamps(accessedData).blockingGet();
-                            accessedData.setCheckInTimestamp(checkInAndOutTimestamps.first);
-                            accessedData.setCheckOutTimestamp(checkInAndOutTimestamps.second);
-                            return accessedData;
-                        }));
+                .toList()
+                .flatMapObservable(accessedHashedDataList -> potentiallyAccessedTraceIds
+                        .flatMapObservable(traceIds -> getAccessedTraceData(accessedHashedDataList, traceIds)))
+                .map(accessedData -> {
+                    accessedData.setAccessTimestamp(System.currentTimeMillis());
+                    accessedData.setLocationName(getLocationName(accessedData).blockingGet());
+                    Pair<Long, Long> checkInAndOutTimestamps = getCheckInAndOutTimestamps(accessedData).blockingGet();
+                    accessedData.setCheckInTimestamp(checkInAndOutTimestamps.first);
+                    accessedData.setCheckOutTimestamp(checkInAndOutTimestamps.second);
+                    return accessedData;
+                });
+    }
+
+    /**
+     * Emits trace data for each of the specified trace IDs that is included in the hashed trace IDs
+     * accessed by any health department. Uses a {@link HashedTraceIdMatrix}, so that all trace IDs
+     * are hashed for all health departments in a single pass.
+     */
+    private static Observable<AccessedTraceData> getAccessedTraceData(@NonNull List<AccessedHashedTraceIdsData> accessedHashedDataList, @NonNull List<String> traceIds) {
+        return Observable.defer(() -> {
+            if (accessedHashedDataList.isEmpty() || traceIds.isEmpty()) {
+                return Observable.empty();
+            }
+
+            List<UUID> healthDepartmentIds = new ArrayList<>(accessedHashedDataList.size());
+            for (AccessedHashedTraceIdsData accessedHashedData : accessedHashedDataList) {
+                healthDepartmentIds.add(UUID.fromString(accessedHashedData.getHealthDepartment().getId()));
+            }
+            List<byte[]> decodedTraceIds = new ArrayList<>(traceIds.size());
+            for (String traceId : traceIds) {
+                decodedTraceIds.add(Base64.decode(traceId, Base64.NO_WRAP));
+            }
+            HashedTraceIdMatrix matrix = HashedTraceIdMatrix.calculate(healthDepartmentIds, decodedTraceIds);
+            Timber.d("Hashed %d trace IDs for %d health departments", traceIds.size(), healthDepartmentIds.size());
+
+            List<AccessedTraceData> accessedTraceDataList = new ArrayList<>();
+            for (int healthDepartmentIndex = 0; healthDepartmentIndex < healthDepartmentIds.size(); healthDepartmentIndex++) {
+                AccessedHashedTraceIdsData accessedHashedData = accessedHashedDataList.get(healthDepartmentIndex);
+                Set<ByteBuffer> accessedHashedTraceIds = decodeHashedTraceIds(accessedHashedData);
+                for (int traceIdIndex = 0; traceIdIndex < traceIds.size(); traceIdIndex++) {
+                    ByteBuffer hashedTraceId = matrix.get(healthDepartmentIndex, traceIdIndex);
+                    if (!accessedHashedTraceIds.contains(hashedTraceId)) {
+                        continue;
+                    }
+                    byte[] encodedHashedTraceId = new byte[HashedTraceIdMatrix.HASHED_TRACE_ID_LENGTH];
+                    hashedTraceId.get(encodedHashedTraceId);
+                    AccessedTraceData accessedTraceData = new AccessedTraceData();
+                    accessedTraceData.setTraceId(traceIds.get(traceIdIndex));
+                    accessedTraceData.setHashedTraceId(Base64.encodeToString(encodedHashedTraceId, Base64.NO_WRAP));
+                    accessedTraceData.setHealthDepartmentId(accessedHashedData.getHealthDepartment().getId());
+                    accessedTraceData.setHealthDepartmentName(accessedHashedData.getHealthDepartment().getName());
+                    accessedTraceDataList.add(accessedTraceData);
+                }
+            }
+            return Observable.fromIterable(accessedTraceDataList);
+        });
+    }
+
+    /**
+     * Checks if the hashed trace ID from the specified {@link AccessedTraceData} is present in the
+     * list of accessed hashes from the specified {@link AccessedHashedTraceIdsData}. Hashes are
+     * compared decoded, the same way as the entries of the {@link HashedTraceIdMatrix}.
+     */
+    public static boolean hasBeenAccessed(@NonNull AccessedTraceData potentiallyAccessedData, @NonNull AccessedHashedTraceIdsData accessedData) {
+        ByteBuffer hashedTraceId = ByteBuffer.wrap(Base64.decode(potentiallyAccessedData.getHashedTraceId(), Base64.NO_WRAP));
+        return decodeHashedTraceIds(accessedData).contains(hashedTraceId);
+    }
+
+    private static Set<ByteBuffer> decodeHashedTraceIds(@NonNull AccessedHashedTraceIdsData accessedData) {
+        Set<ByteBuffer> hashedTraceIds = new HashSet<>();
+        for (String hashedTraceId : accessedData.getHashedTraceIds()) {
+            hashedTraceIds.add(ByteBuffer.wrap(Base64.decode(hashedTraceId, Base64.NO_WRAP)));
+        }
+        return hashedTraceIds;
     }
 
     /**
@@ -304,14 +363,6 @@ public class DataAccessManager extends Manager {
         return preferencesManager.persist(LAST_INFO_SHOWN_TIMESTAMP_KEY, System.currentTimeMillis());
     }
 
-    /**
-     * Checks if the hashed trace ID from the specified {@link AccessedTraceData} is present in the
-     * list of accessed hashes from the specified {@link AccessedHashedTraceIdsData}.
-     */
-    public static boolean hasBeenAccessed(@NonNull AccessedTraceData potentiallyAccessedData, @NonNull AccessedHashedTraceIdsData accessedData) {
-        return accessedData.getHashedTraceIds().contains(potentiallyAccessedData.getHashedTraceId());
-    }
-
     /**
      * Emits true if the specified trace ID is part of the accessed data.
      */
@@ -327,17 +378,17 @@ public class DataAccessManager extends Manager {
      * Hashes the specified base64 encoded trace ID and encodes the result back to base64.
      */
     public Single<String> getHashedTraceId(@NonNull String healthDepartmentId, @NonNull String traceId) {
-        Single<byte[]> getMessage = Single.just(traceId)
-                .flatMap(CryptoManager::decodeFromString);
-
-        Single<SecretKey> getKey = Single.just(UUID.fromString(healthDepartmentId))
-                .flatMap(CryptoManager::encode)
-                .flatMap(CryptoManager::createKeyFromSecret);
-
-        return Single.zip(getMessage, getKey, (message, key) -> cryptoManager.getMacProvider().sign(message, key))
-                .flatMap(sign -> sign)
-                .flatMap(signature -> CryptoManager.trim(signature, 16))
-                .flatMap(CryptoManager::encodeToString);
+        return Single.fromCallable(() -> {
+            UUID healthDepartmentUuid = UUID.fromString(healthDepartmentId);
+            byte[] key = ByteBuffer.allocate(16)
+                    .putLong(healthDepartmentUuid.getMostSignificantBits())
+                    .putLong(healthDepartmentUuid.getLeastSignificantBits())
+                    .array();
+            byte[] message = Base64.decode(traceId, Base64.NO_WRAP);
+            byte[] hashedTraceId = new byte[16];
+            CryptoKernel.hmacSha256(CryptoKernel.createAesKey(key, 0, key.length), message, 0, message.length, hashedTraceId, 0, hashedTraceId.length);
+            return Base64.encodeToString(hashedTraceId, Base64.NO_WRAP);
+        });
     }
 
     /*
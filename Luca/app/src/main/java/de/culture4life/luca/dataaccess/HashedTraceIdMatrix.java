@@ -0,0 +1,158 @@
+package de.culture4life.luca.dataaccess;
+
+import de.culture4life.luca.crypto.CryptoKernel;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.crypto.Mac;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Hashed trace IDs for all combinations of health departments and trace IDs, calculated in a single
+ * pass. Equivalent to calling {@link DataAccessManager#getHashedTraceId(String, String)} for each
+ * combination, but the {@link Mac} is only keyed once per health department and the work is spread
+ * across all available cores using fork / join.
+ *
+ * The hashed trace IDs are kept as raw 16 byte values in a single array, ordered by health
+ * department first.
+ */
+public final class HashedTraceIdMatrix {
+
+    public static final int HASHED_TRACE_ID_LENGTH = 16;
+
+    /**
+     * Maximum amount of trace IDs that will be hashed by a single task before splitting it.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 128;
+
+    private static final ForkJoinPool HASHING_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final int healthDepartmentCount;
+    private final int traceIdCount;
+    private final byte[] hashedTraceIds;
+
+    private HashedTraceIdMatrix(int healthDepartmentCount, int traceIdCount) {
+        this.healthDepartmentCount = healthDepartmentCount;
+        this.traceIdCount = traceIdCount;
+        this.hashedTraceIds = new byte[healthDepartmentCount * traceIdCount * HASHED_TRACE_ID_LENGTH];
+    }
+
+    /**
+     * Calculates the hashed trace IDs for the specified health departments and (decoded) trace IDs.
+     */
+    public static HashedTraceIdMatrix calculate(@NonNull List<UUID> healthDepartmentIds, @NonNull List<byte[]> traceIds) {
+        HashedTraceIdMatrix matrix = new HashedTraceIdMatrix(healthDepartmentIds.size(), traceIds.size());
+        if (matrix.hashedTraceIds.length > 0) {
+            HASHING_POOL.invoke(new HashingTask(matrix, healthDepartmentIds, traceIds, 0, healthDepartmentIds.size()));
+        }
+        return matrix;
+    }
+
+    /**
+     * Provides a read-only view on the 16 byte hashed trace ID of the specified combination.
+     * Suitable for lookups in hash based collections of wrapped hashed trace IDs.
+     */
+    public ByteBuffer get(int healthDepartmentIndex, int traceIdIndex) {
+        return ByteBuffer.wrap(hashedTraceIds, getOffset(healthDepartmentIndex, traceIdIndex), HASHED_TRACE_ID_LENGTH)
+                .slice()
+                .asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies the 16 byte hashed trace ID of the specified combination into the output buffer.
+     */
+    public void copy(int healthDepartmentIndex, int traceIdIndex, @NonNull byte[] output, int outputOffset) {
+        System.arraycopy(hashedTraceIds, getOffset(healthDepartmentIndex, traceIdIndex), output, outputOffset, HASHED_TRACE_ID_LENGTH);
+    }
+
+    private int getOffset(int healthDepartmentIndex, int traceIdIndex) {
+        if (healthDepartmentIndex < 0 || healthDepartmentIndex >= healthDepartmentCount || traceIdIndex < 0 || traceIdIndex >= traceIdCount) {
+            throw new IndexOutOfBoundsException();
+        }
+        return (healthDepartmentIndex * traceIdCount + traceIdIndex) * HASHED_TRACE_ID_LENGTH;
+    }
+
+    public int getHealthDepartmentCount() {
+        return healthDepartmentCount;
+    }
+
+    public int getTraceIdCount() {
+        return traceIdCount;
+    }
+
+    /**
+     * Splits the work by health departments first and by trace IDs afterwards, until a task only
+     * needs to hash up to {@link #SEQUENTIAL_THRESHOLD} trace IDs for a single health department.
+     */
+    private static final class HashingTask extends RecursiveAction {
+
+        private final HashedTraceIdMatrix matrix;
+        private final List<UUID> healthDepartmentIds;
+        private final List<byte[]> traceIds;
+        private final int healthDepartmentStartIndex;
+        private final int healthDepartmentEndIndex;
+        private final int traceIdStartIndex;
+        private final int traceIdEndIndex;
+
+        private HashingTask(HashedTraceIdMatrix matrix, List<UUID> healthDepartmentIds, List<byte[]> traceIds, int healthDepartmentStartIndex, int healthDepartmentEndIndex) {
+            this(matrix, healthDepartmentIds, traceIds, healthDepartmentStartIndex, healthDepartmentEndIndex, 0, traceIds.size());
+        }
+
+        private HashingTask(HashedTraceIdMatrix matrix, List<UUID> healthDepartmentIds, List<byte[]> traceIds, int healthDepartmentStartIndex, int healthDepartmentEndIndex, int traceIdStartIndex, int traceIdEndIndex) {
+            this.matrix = matrix;
+            this.healthDepartmentIds = healthDepartmentIds;
+            this.traceIds = traceIds;
+            this.healthDepartmentStartIndex = healthDepartmentStartIndex;
+            this.healthDepartmentEndIndex = healthDepartmentEndIndex;
+            this.traceIdStartIndex = traceIdStartIndex;
+            this.traceIdEndIndex = traceIdEndIndex;
+        }
+
+        @Override
+        protected void compute() {
+            int healthDepartmentCount = healthDepartmentEndIndex - healthDepartmentStartIndex;
+            int traceIdCount = traceIdEndIndex - traceIdStartIndex;
+            if (healthDepartmentCount > 1) {
+                int middle = healthDepartmentStartIndex + healthDepartmentCount / 2;
+                invokeAll(
+                        new HashingTask(matrix, healthDepartmentIds, traceIds, healthDepartmentStartIndex, middle, traceIdStartIndex, traceIdEndIndex),
+                        new HashingTask(matrix, healthDepartmentIds, traceIds, middle, healthDepartmentEndIndex, traceIdStartIndex, traceIdEndIndex)
+                );
+            } else if (traceIdCount > SEQUENTIAL_THRESHOLD) {
+                int middle = traceIdStartIndex + traceIdCount / 2;
+                invokeAll(
+                        new HashingTask(matrix, healthDepartmentIds, traceIds, healthDepartmentStartIndex, healthDepartmentEndIndex, traceIdStartIndex, middle),
+                        new HashingTask(matrix, healthDepartmentIds, traceIds, healthDepartmentStartIndex, healthDepartmentEndIndex, middle, traceIdEndIndex)
+                );
+            } else if (healthDepartmentCount == 1) {
+                try {
+                    hashSequentially();
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Unable to hash trace IDs", e);
+                }
+            }
+        }
+
+        private void hashSequentially() throws GeneralSecurityException {
+            UUID healthDepartmentId = healthDepartmentIds.get(healthDepartmentStartIndex);
+            byte[] key = ByteBuffer.allocate(16)
+                    .putLong(healthDepartmentId.getMostSignificantBits())
+                    .putLong(healthDepartmentId.getLeastSignificantBits())
+                    .array();
+            // keyed once, doFinal resets the mac for the next trace ID
+            Mac mac = CryptoKernel.getHmacSha256(CryptoKernel.createAesKey(key, 0, key.length));
+            for (int traceIdIndex = traceIdStartIndex; traceIdIndex < traceIdEndIndex; traceIdIndex++) {
+                mac.update(traceIds.get(traceIdIndex));
+                CryptoKernel.finish(mac, matrix.hashedTraceIds, matrix.getOffset(healthDepartmentStartIndex, traceIdIndex), HASHED_TRACE_ID_LENGTH);
+            }
+        }
+
+    }
+
+}
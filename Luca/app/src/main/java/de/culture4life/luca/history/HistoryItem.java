@@ -1,16 +1,16 @@
 package de.culture4life.luca.history;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 import java.lang.annotation.Retention;
+import java.util.List;
 
 import androidx.annotation.IntDef;
 
@@ -104,30 +104,130 @@ public class HistoryItem {
                 '}';
     }
 
-    public static class TypeAdapter implements JsonSerializer<HistoryItem>, JsonDeserializer<HistoryItem> {
-
-        private final Gson gson = new Gson();
+    /**
+     * Streaming adapter for {@link HistoryItem} and its subclasses, avoiding reflection. Items
+     * persisted by the reflective adapter may contain the subclass fields before the type, so all
+     * fields are read before the matching subclass is constructed.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<HistoryItem> {
 
         @Override
-        public JsonElement serialize(HistoryItem item, java.lang.reflect.Type typeOfSrc, JsonSerializationContext context) {
-            return gson.toJsonTree(item, getItemClass(item.getType()));
+        public void write(JsonWriter writer, HistoryItem item) throws IOException {
+            if (item == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("type").value(item.type);
+            writer.name("relatedId").value(item.relatedId);
+            writer.name("timestamp").value(item.timestamp);
+            writer.name("displayName").value(item.displayName);
+            if (item instanceof MeetingEndedItem) {
+                writer.name("guests");
+                TypeAdapterUtil.writeStrings(writer, ((MeetingEndedItem) item).getGuests());
+            } else if (item instanceof TraceDataAccessedItem) {
+                TraceDataAccessedItem accessedItem = (TraceDataAccessedItem) item;
+                writer.name("healthDepartmentName").value(accessedItem.getHealthDepartmentName());
+                writer.name("healthDepartmentId").value(accessedItem.getHealthDepartmentId());
+                writer.name("tracingId").value(accessedItem.getTraceId());
+                writer.name("locationName").value(accessedItem.getLocationName());
+                writer.name("checkInTimestamp").value(accessedItem.getCheckInTimestamp());
+                writer.name("checkOutTimestamp").value(accessedItem.getCheckOutTimestamp());
+            }
+            writer.endObject();
         }
 
         @Override
-        public HistoryItem deserialize(JsonElement jsonElement, java.lang.reflect.Type type, JsonDeserializationContext context) throws JsonParseException {
-            int itemType = jsonElement.getAsJsonObject().get("type").getAsInt();
-            return gson.fromJson(jsonElement, getItemClass(itemType));
-        }
+        public HistoryItem read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            int type = 0;
+            String relatedId = null;
+            long timestamp = 0;
+            String displayName = null;
+            boolean hasGuests = false;
+            List<String> guests = null;
+            String healthDepartmentName = null;
+            String healthDepartmentId = null;
+            String traceId = null;
+            String locationName = null;
+            long checkInTimestamp = 0;
+            long checkOutTimestamp = 0;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "type":
+                        type = reader.nextInt();
+                        break;
+                    case "relatedId":
+                        relatedId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "timestamp":
+                        timestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "displayName":
+                        displayName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "guests":
+                        hasGuests = true;
+                        guests = TypeAdapterUtil.nextStringsOrNull(reader);
+                        break;
+                    case "healthDepartmentName":
+                        healthDepartmentName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "healthDepartmentId":
+                        healthDepartmentId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "tracingId":
+                        traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "locationName":
+                        locationName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "checkInTimestamp":
+                        checkInTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "checkOutTimestamp":
+                        checkOutTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
 
-        private static Class<? extends HistoryItem> getItemClass(@Type int type) {
+            HistoryItem item;
             switch (type) {
-                case TYPE_MEETING_ENDED:
-                    return MeetingEndedItem.class;
-                case TYPE_TRACE_DATA_ACCESSED:
-                    return TraceDataAccessedItem.class;
+                case TYPE_MEETING_ENDED: {
+                    MeetingEndedItem meetingEndedItem = new MeetingEndedItem();
+                    if (hasGuests) {
+                        meetingEndedItem.setGuests(guests);
+                    }
+                    item = meetingEndedItem;
+                    break;
+                }
+                case TYPE_TRACE_DATA_ACCESSED: {
+                    TraceDataAccessedItem accessedItem = new TraceDataAccessedItem();
+                    accessedItem.setHealthDepartmentName(healthDepartmentName);
+                    accessedItem.setHealthDepartmentId(healthDepartmentId);
+                    accessedItem.setTraceId(traceId);
+                    accessedItem.setLocationName(locationName);
+                    accessedItem.setCheckInTimestamp(checkInTimestamp);
+                    accessedItem.setCheckOutTimestamp(checkOutTimestamp);
+                    item = accessedItem;
+                    break;
+                }
                 default:
-                    return HistoryItem.class;
+                    item = new HistoryItem();
             }
+            item.type = type;
+            item.relatedId = relatedId;
+            item.timestamp = timestamp;
+            item.displayName = displayName;
+            return item;
         }
 
     }
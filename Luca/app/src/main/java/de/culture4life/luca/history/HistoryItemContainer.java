@@ -2,8 +2,14 @@ package de.culture4life.luca.history;
 
 import com.google.gson.Gson;
 
+import de.culture4life.luca.preference.BinaryReader;
+import de.culture4life.luca.preference.BinaryWriter;
+import de.culture4life.luca.preference.ValueSerializer;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import androidx.annotation.NonNull;
 
@@ -21,4 +27,91 @@ public class HistoryItemContainer extends ArrayList<HistoryItem> {
         super(collection);
     }
 
+    /**
+     * Binary serializer for {@link HistoryItemContainer}. Each item is written as a length-prefixed
+     * record, starting with the fields of {@link HistoryItem} followed by the fields of the
+     * subclass matching its type.
+     */
+    public static class BinarySerializer implements ValueSerializer<HistoryItemContainer> {
+
+        private static final int VERSION = 1;
+
+        @Override
+        public Class<HistoryItemContainer> getTypeClass() {
+            return HistoryItemContainer.class;
+        }
+
+        @Override
+        public int getVersion() {
+            return VERSION;
+        }
+
+        @Override
+        public void serialize(@NonNull HistoryItemContainer historyItems, @NonNull BinaryWriter writer) {
+            writer.writeVarLong(historyItems.size());
+            for (HistoryItem item : historyItems) {
+                writer.writeRecord(serializeItem(item));
+            }
+        }
+
+        @Override
+        public HistoryItemContainer deserialize(@NonNull BinaryReader reader, int version) throws IOException {
+            int count = reader.readCount();
+            HistoryItemContainer historyItems = new HistoryItemContainer();
+            for (int i = 0; i < count; i++) {
+                historyItems.add(deserializeItem(reader.readRecord()));
+            }
+            return historyItems;
+        }
+
+        static BinaryWriter serializeItem(@NonNull HistoryItem item) {
+            BinaryWriter record = new BinaryWriter()
+                    .writeVarLong(item.getType())
+                    .writeString(item.getRelatedId())
+                    .writeVarLong(item.getTimestamp())
+                    .writeString(item.getDisplayName());
+            if (item instanceof MeetingEndedItem) {
+                record.writeStrings(((MeetingEndedItem) item).getGuests());
+            } else if (item instanceof TraceDataAccessedItem) {
+                TraceDataAccessedItem accessedItem = (TraceDataAccessedItem) item;
+                record.writeString(accessedItem.getHealthDepartmentName())
+                        .writeString(accessedItem.getHealthDepartmentId())
+                        .writeEncodedBytes(accessedItem.getTraceId())
+                        .writeString(accessedItem.getLocationName())
+                        .writeVarLong(accessedItem.getCheckInTimestamp())
+                        .writeVarLong(accessedItem.getCheckOutTimestamp());
+            }
+            return record;
+        }
+
+        static HistoryItem deserializeItem(@NonNull BinaryReader record) throws IOException {
+            int type = (int) record.readVarLong();
+            HistoryItem item;
+            if (type == HistoryItem.TYPE_MEETING_ENDED) {
+                item = new MeetingEndedItem();
+            } else if (type == HistoryItem.TYPE_TRACE_DATA_ACCESSED) {
+                item = new TraceDataAccessedItem();
+            } else {
+                item = new HistoryItem();
+            }
+            item.setType(type);
+            item.setRelatedId(record.readString());
+            item.setTimestamp(record.readVarLong());
+            item.setDisplayName(record.readString());
+            if (item instanceof MeetingEndedItem) {
+                ((MeetingEndedItem) item).setGuests(record.readStrings());
+            } else if (item instanceof TraceDataAccessedItem) {
+                TraceDataAccessedItem accessedItem = (TraceDataAccessedItem) item;
+                accessedItem.setHealthDepartmentName(record.readString());
+                accessedItem.setHealthDepartmentId(record.readString());
+                accessedItem.setTraceId(record.readEncodedBytes());
+                accessedItem.setLocationName(record.readString());
+                accessedItem.setCheckInTimestamp(record.readVarLong());
+                accessedItem.setCheckOutTimestamp(record.readVarLong());
+            }
+            return item;
+        }
+
+    }
+
 }
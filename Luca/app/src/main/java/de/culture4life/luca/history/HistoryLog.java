@@ -0,0 +1,331 @@
+package de.culture4life.luca.history;
+
+import de.culture4life.luca.preference.BinaryReader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import androidx.annotation.NonNull;
+import timber.log.Timber;
+
+/**
+ * Append-only file of {@link HistoryItem}s, with an in-memory index sorted by timestamp.
+ *
+ * Adding an item appends a single record and inserts the item into the index, so that reads never
+ * need to parse or sort the file. The file starts with a header, followed by records in the order
+ * in which items have been added:
+ * <pre>
+ * header: version (4) | head offset (8)
+ * record: length (4) | CRC32 (4) | item
+ * </pre>
+ * Items are encoded like in {@link HistoryItemContainer.BinarySerializer}. Replaying stops at the
+ * first record with an invalid length or checksum, which is then truncated.
+ *
+ * Removed items are dropped from the index right away. Records at the head of the file are
+ * truncated by advancing the head offset and zeroing the freed range, so that removed items don't
+ * remain on disk. The file is re-written once the truncated head takes up more than half of it, or
+ * if removed records are not at the head.
+ */
+public class HistoryLog {
+
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = 12;
+    private static final int HEAD_OFFSET_POSITION = 4;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int MINIMUM_REWRITE_LENGTH = 16 * 1024;
+
+    private final File file;
+
+    /**
+     * Entries in the order of their records, starting at the head.
+     */
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    /**
+     * Entries that haven't been removed, newest first.
+     */
+    private final List<Entry> sortedEntries = new ArrayList<>();
+
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long headOffset;
+    private long length;
+
+    public HistoryLog(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the file and replays all records into the index. Called implicitly by all other
+     * methods, if required.
+     */
+    public synchronized void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        if (channel.size() < FILE_HEADER_LENGTH) {
+            initializeFile();
+        } else {
+            replay();
+        }
+        Timber.d("Opened history log with %d items, %d of %d bytes in use", sortedEntries.size(), length - headOffset, length);
+    }
+
+    private void replay() throws IOException {
+        byte[] bytes = new byte[(int) channel.size()];
+        randomAccessFile.seek(0);
+        randomAccessFile.readFully(bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int version = buffer.getInt(0);
+        if (version != VERSION) {
+            throw new IOException("Unsupported history log version: " + version);
+        }
+        headOffset = buffer.getLong(HEAD_OFFSET_POSITION);
+        if (headOffset < FILE_HEADER_LENGTH || headOffset > bytes.length) {
+            throw new IOException("Invalid history log head offset: " + headOffset);
+        }
+        length = headOffset;
+        entries.clear();
+        sortedEntries.clear();
+        while (length + RECORD_HEADER_LENGTH <= bytes.length) {
+            int itemLength = buffer.getInt((int) length);
+            int itemOffset = (int) length + RECORD_HEADER_LENGTH;
+            if (itemLength <= 0 || itemLength > bytes.length - itemOffset) {
+                break;
+            }
+            if (buffer.getInt((int) length + 4) != getChecksum(bytes, itemOffset, itemLength)) {
+                Timber.w("Ignoring incomplete history log record at %d", length);
+                break;
+            }
+            HistoryItem item = HistoryItemContainer.BinarySerializer.deserializeItem(new BinaryReader(Arrays.copyOfRange(bytes, itemOffset, itemOffset + itemLength)));
+            index(new Entry(item, length + RECORD_HEADER_LENGTH + itemLength));
+            length += RECORD_HEADER_LENGTH + itemLength;
+        }
+        if (length < bytes.length) {
+            channel.truncate(length);
+        }
+    }
+
+    /**
+     * @return all items, newest first
+     */
+    public synchronized List<HistoryItem> getItems() throws IOException {
+        open();
+        List<HistoryItem> items = new ArrayList<>(sortedEntries.size());
+        for (Entry entry : sortedEntries) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    public synchronized void append(@NonNull HistoryItem item) throws IOException {
+        appendAll(Collections.singletonList(item));
+    }
+
+    /**
+     * Appends the specified items using a single write.
+     */
+    public synchronized void appendAll(@NonNull Collection<HistoryItem> items) throws IOException {
+        open();
+        List<Entry> appendedEntries = new ArrayList<>(items.size());
+        byte[] records = encodeRecords(items, length, appendedEntries);
+        channel.write(ByteBuffer.wrap(records), length);
+        length += records.length;
+        for (Entry entry : appendedEntries) {
+            index(entry);
+        }
+    }
+
+    /**
+     * Removes all items created at or before the specified timestamp.
+     */
+    public synchronized void removeItemsCreatedAtOrBefore(long timestamp) throws IOException {
+        open();
+        int removedCount = 0;
+        while (!sortedEntries.isEmpty() && sortedEntries.get(sortedEntries.size() - 1).item.getTimestamp() <= timestamp) {
+            sortedEntries.remove(sortedEntries.size() - 1).isRemoved = true;
+            removedCount++;
+        }
+        if (removedCount == 0) {
+            return;
+        }
+        truncateHead();
+        for (Entry entry : entries) {
+            if (entry.isRemoved) {
+                rewrite();
+                return;
+            }
+        }
+    }
+
+    public synchronized void clear() throws IOException {
+        open();
+        entries.clear();
+        sortedEntries.clear();
+        rewrite();
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        channel.close();
+        randomAccessFile.close();
+        channel = null;
+        randomAccessFile = null;
+    }
+
+    /**
+     * Size of the file, including the truncated head, in bytes.
+     */
+    public synchronized long getLength() throws IOException {
+        open();
+        return length;
+    }
+
+    /**
+     * Advances the head offset past all removed entries at the head and zeroes the freed range, or
+     * re-writes the file if the truncated head takes up more than half of it. Removed entries that
+     * are not at the head (e.g. items with a timestamp older than previously added ones) are
+     * dropped by {@link #removeItemsCreatedAtOrBefore(long)}, which re-writes the file.
+     */
+    private void truncateHead() throws IOException {
+        long previousHeadOffset = headOffset;
+        while (!entries.isEmpty() && entries.peekFirst().isRemoved) {
+            headOffset = entries.pollFirst().recordEndOffset;
+        }
+        if (headOffset == previousHeadOffset) {
+            return;
+        }
+        if (length >= MINIMUM_REWRITE_LENGTH && headOffset - FILE_HEADER_LENGTH > length - headOffset) {
+            rewrite();
+            return;
+        }
+        // the head offset is written first, so that replaying never reads the zeroed range
+        ByteBuffer encodedHeadOffset = ByteBuffer.allocate(8).putLong(0, headOffset);
+        channel.write(encodedHeadOffset, HEAD_OFFSET_POSITION);
+        channel.force(false);
+        channel.write(ByteBuffer.allocate((int) (headOffset - previousHeadOffset)), previousHeadOffset);
+        channel.force(false);
+    }
+
+    /**
+     * Writes all entries that haven't been removed to a new file, which then atomically replaces
+     * the current one.
+     */
+    private void rewrite() throws IOException {
+        List<HistoryItem> items = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (!entry.isRemoved) {
+                items.add(entry.item);
+            }
+        }
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            outputStream.write(encodeFileHeader(FILE_HEADER_LENGTH).array());
+            outputStream.write(encodeRecords(items, FILE_HEADER_LENGTH, new ArrayList<>()));
+            outputStream.getFD().sync();
+        }
+        long previousLength = length;
+        close();
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Unable to replace history log");
+        }
+        open();
+        Timber.d("Re-wrote history log from %d to %d bytes", previousLength, length);
+    }
+
+    private void initializeFile() throws IOException {
+        channel.truncate(0);
+        channel.write(encodeFileHeader(FILE_HEADER_LENGTH), 0);
+        headOffset = FILE_HEADER_LENGTH;
+        length = FILE_HEADER_LENGTH;
+        entries.clear();
+        sortedEntries.clear();
+    }
+
+    /**
+     * Adds the entry to the end of the file order and to the sorted index. Entries with the same
+     * timestamp are kept in the order they have been added.
+     */
+    private void index(@NonNull Entry entry) {
+        entries.addLast(entry);
+        long timestamp = entry.item.getTimestamp();
+        int low = 0;
+        int high = sortedEntries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedEntries.get(middle).item.getTimestamp() >= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        sortedEntries.add(low, entry);
+    }
+
+    private static ByteBuffer encodeFileHeader(long headOffset) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+        header.putInt(0, VERSION)
+                .putLong(HEAD_OFFSET_POSITION, headOffset);
+        return header;
+    }
+
+    /**
+     * Encodes the items as consecutive records, starting at the specified offset. The entries of
+     * the encoded records are added to the specified list.
+     */
+    private static byte[] encodeRecords(@NonNull Collection<HistoryItem> items, long offset, @NonNull List<Entry> encodedEntries) {
+        List<byte[]> encodedItems = new ArrayList<>(items.size());
+        int recordsLength = 0;
+        for (HistoryItem item : items) {
+            byte[] encodedItem = HistoryItemContainer.BinarySerializer.serializeItem(item).toByteArray();
+            encodedItems.add(encodedItem);
+            recordsLength += RECORD_HEADER_LENGTH + encodedItem.length;
+        }
+        ByteBuffer records = ByteBuffer.allocate(recordsLength);
+        int index = 0;
+        for (HistoryItem item : items) {
+            byte[] encodedItem = encodedItems.get(index++);
+            records.putInt(encodedItem.length)
+                    .putInt(getChecksum(encodedItem, 0, encodedItem.length))
+                    .put(encodedItem);
+            encodedEntries.add(new Entry(item, offset + records.position()));
+        }
+        return records.array();
+    }
+
+    private static int getChecksum(@NonNull byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static class Entry {
+
+        private final HistoryItem item;
+        private final long recordEndOffset;
+        private boolean isRemoved;
+
+        private Entry(@NonNull HistoryItem item, long recordEndOffset) {
+            this.item = item;
+            this.recordEndOffset = recordEndOffset;
+        }
+
+    }
+
+}
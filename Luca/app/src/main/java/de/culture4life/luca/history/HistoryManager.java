@@ -11,7 +11,12 @@ import de.culture4life.luca.meeting.MeetingManager;
 import de.culture4life.luca.preference.PreferencesManager;
 import de.culture4life.luca.registration.RegistrationData;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
@@ -25,17 +30,20 @@ import timber.log.Timber;
 public class HistoryManager extends Manager {
 
     private static final long MAXIMUM_ITEM_AGE = TimeUnit.DAYS.toMillis(14);
-    public static final String KEY_HISTORY_ITEMS = "history_items_2";
+    private static final String HISTORY_LOG_FILE_NAME = "history.log";
 
     @Deprecated
     public static final String KEY_HISTORY_ITEMS_V1 = "history_items";
 
+    @Deprecated
+    public static final String KEY_HISTORY_ITEMS_V2 = "history_items_2";
+
     private final PreferencesManager preferencesManager;
 
     private final PublishSubject<HistoryItem> newItemPublisher;
 
     @Nullable
-    private Observable<HistoryItem> cachedHistoryItems;
+    private HistoryLog historyLog;
 
     public HistoryManager(@NonNull PreferencesManager preferencesManager) {
         this.preferencesManager = preferencesManager;
@@ -45,14 +53,75 @@ public class HistoryManager extends Manager {
     @Override
     protected Completable doInitialize(@NonNull Context context) {
         return preferencesManager.initialize(context)
+                .andThen(openHistoryLog(context))
                 .andThen(migrateOldItems())
                 .andThen(deleteOldItems());
     }
 
+    private Completable openHistoryLog(@NonNull Context context) {
+        return Completable.fromAction(() -> {
+            HistoryLog log = new HistoryLog(new File(context.getFilesDir(), HISTORY_LOG_FILE_NAME));
+            log.open();
+            historyLog = log;
+        });
+    }
+
+    @Override
+    public void dispose() {
+        if (historyLog != null) {
+            try {
+                historyLog.close();
+            } catch (IOException e) {
+                Timber.w("Unable to close history log: %s", e.toString());
+            }
+        }
+        super.dispose();
+    }
+
     private Completable migrateOldItems() {
-        // migration is not needed anymore, as not yet migrated history items
+        // migration of v1 items is not needed anymore, as not yet migrated history items
         // are older than 2 weeks by now
-        return preferencesManager.delete(KEY_HISTORY_ITEMS_V1);
+        Observable<HistoryItem> legacyItems = preferencesManager.restoreIfAvailable(KEY_HISTORY_ITEMS_V2, HistoryItemContainer.class)
+                .flatMapObservable(Observable::fromIterable);
+
+        return preferencesManager.delete(KEY_HISTORY_ITEMS_V1)
+                .andThen(legacyItems.sorted((first, second) -> Long.compare(first.getTimestamp(), second.getTimestamp())).toList())
+                .flatMapCompletable(items -> {
+                    if (items.isEmpty()) {
+                        return Completable.complete();
+                    }
+                    return getInitializedField(historyLog)
+                            .map(log -> {
+                                List<HistoryItem> migratedItems = getItemsNotYetInLog(items, log.getItems());
+                                log.appendAll(migratedItems);
+                                return migratedItems.size();
+                            })
+                            .doOnSuccess(migratedItemCount -> Timber.i("Migrated %d of %d history items to history log", migratedItemCount, items.size()))
+                            .ignoreElement()
+                            .andThen(preferencesManager.delete(KEY_HISTORY_ITEMS_V2));
+                });
+    }
+
+    /**
+     * Filters items that are already in the log, identified by type, related ID and timestamp. This
+     * way, a migration that got interrupted before deleting the legacy items doesn't add them twice.
+     */
+    private static List<HistoryItem> getItemsNotYetInLog(@NonNull List<HistoryItem> items, @NonNull List<HistoryItem> logItems) {
+        Set<String> logItemKeys = new HashSet<>(logItems.size());
+        for (HistoryItem logItem : logItems) {
+            logItemKeys.add(getMigrationKey(logItem));
+        }
+        List<HistoryItem> remainingItems = new ArrayList<>(items.size());
+        for (HistoryItem item : items) {
+            if (!logItemKeys.contains(getMigrationKey(item))) {
+                remainingItems.add(item);
+            }
+        }
+        return remainingItems;
+    }
+
+    private static String getMigrationKey(@NonNull HistoryItem item) {
+        return item.getType() + ":" + item.getRelatedId() + ":" + item.getTimestamp();
     }
 
     public Completable addCheckInItem(@NonNull CheckInData checkInData) {
@@ -141,20 +210,19 @@ public class HistoryManager extends Manager {
     }
 
     public Completable addItem(@NonNull HistoryItem historyItem) {
-        return persistItemsToPreferences(getItems()
-                .mergeWith(Observable.just(historyItem)))
-                .andThen(invalidateItemCache())
+        return getInitializedField(historyLog)
+                .flatMapCompletable(log -> Completable.fromAction(() -> log.append(historyItem)))
                 .doOnComplete(() -> newItemPublisher.onNext(historyItem))
                 .doOnSubscribe(disposable -> Timber.d("Adding history item: %s", historyItem));
     }
 
+    /**
+     * Emits all items, newest first.
+     */
     public Observable<HistoryItem> getItems() {
-        return Observable.defer(() -> {
-            if (cachedHistoryItems == null) {
-                cachedHistoryItems = restoreItemsFromPreferences().cache();
-            }
-            return cachedHistoryItems;
-        });
+        return getInitializedField(historyLog)
+                .map(HistoryLog::getItems)
+                .flatMapObservable(Observable::fromIterable);
     }
 
     public Observable<HistoryItem> getNewItems() {
@@ -163,40 +231,20 @@ public class HistoryManager extends Manager {
     }
 
     public Completable clearItems() {
-        return persistItemsToPreferences(Observable.empty())
-                .andThen(invalidateItemCache())
+        return getInitializedField(historyLog)
+                .flatMapCompletable(log -> Completable.fromAction(log::clear))
                 .andThen(addHistoryDeletedItem());
     }
 
     private Completable deleteOldItems() {
         return Single.fromCallable(() -> System.currentTimeMillis() - MAXIMUM_ITEM_AGE)
-                .flatMapCompletable(this::deleteItemsCreatedBefore);
-    }
-
-    private Completable deleteItemsCreatedBefore(long timestamp) {
-        Observable<HistoryItem> remainingItems = getItems()
-                .filter(historyItem -> historyItem.getTimestamp() > timestamp);
-
-        return persistItemsToPreferences(remainingItems)
-                .doOnComplete(() -> Timber.d("Deleted history items created before %d", timestamp))
-                .andThen(invalidateItemCache());
-    }
-
-    private Completable invalidateItemCache() {
-        return Completable.fromAction(() -> cachedHistoryItems = null);
-    }
-
-    private Observable<HistoryItem> restoreItemsFromPreferences() {
-        return preferencesManager.restoreOrDefault(KEY_HISTORY_ITEMS, new HistoryItemContainer())
-                .flatMapObservable(Observable::fromIterable)
-                .sorted((first, second) -> Long.compare(second.getTimestamp(), first.getTimestamp()))
-                .doOnSubscribe(disposable -> Timber.d("Restoring items from preferences"));
+                .flatMapCompletable(this::deleteItemsCreatedAtOrBefore);
     }
 
-    private Completable persistItemsToPreferences(Observable<HistoryItem> historyItems) {
-        return historyItems.toList()
-                .map(HistoryItemContainer::new)
-                .flatMapCompletable(historyItemContainer -> preferencesManager.persist(KEY_HISTORY_ITEMS, historyItemContainer));
+    private Completable deleteItemsCreatedAtOrBefore(long timestamp) {
+        return getInitializedField(historyLog)
+                .flatMapCompletable(log -> Completable.fromAction(() -> log.removeItemsCreatedAtOrBefore(timestamp)))
+                .doOnComplete(() -> Timber.d("Deleted history items created at or before %d", timestamp));
     }
 
     public static String createUnorderedList(@NonNull List<String> items) {
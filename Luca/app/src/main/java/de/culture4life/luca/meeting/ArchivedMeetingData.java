@@ -2,10 +2,22 @@ package de.culture4life.luca.meeting;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.preference.BinaryReader;
+import de.culture4life.luca.preference.BinaryWriter;
+import de.culture4life.luca.preference.DailyPartitionedCollection;
+import de.culture4life.luca.preference.ValueSerializer;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import androidx.annotation.NonNull;
+
 public class ArchivedMeetingData {
 
     @Expose
@@ -35,4 +47,168 @@ public class ArchivedMeetingData {
                 '}';
     }
 
+    /**
+     * Binary serializer for {@link ArchivedMeetingData}, each meeting and guest is written as a
+     * length-prefixed record.
+     */
+    public static class BinarySerializer implements ValueSerializer<ArchivedMeetingData> {
+
+        private static final int VERSION = 1;
+
+        @Override
+        public Class<ArchivedMeetingData> getTypeClass() {
+            return ArchivedMeetingData.class;
+        }
+
+        @Override
+        public int getVersion() {
+            return VERSION;
+        }
+
+        @Override
+        public void serialize(@NonNull ArchivedMeetingData archivedMeetingData, @NonNull BinaryWriter writer) {
+            List<MeetingData> meetings = archivedMeetingData.getMeetings();
+            writer.writeVarLong(meetings.size());
+            for (MeetingData meetingData : meetings) {
+                List<MeetingGuestData> guestData = meetingData.getGuestData() != null ? meetingData.getGuestData() : Collections.emptyList();
+                BinaryWriter record = new BinaryWriter()
+                        .writeUuid(meetingData.getLocationId())
+                        .writeUuid(meetingData.getAccessId())
+                        .writeUuid(meetingData.getScannerId())
+                        .writeVarLong(meetingData.getCreationTimestamp())
+                        .writeVarLong(guestData.size());
+                for (MeetingGuestData guest : guestData) {
+                    record.writeRecord(new BinaryWriter()
+                            .writeEncodedBytes(guest.getTraceId())
+                            .writeString(guest.getFirstName())
+                            .writeString(guest.getLastName())
+                            .writeVarLong(guest.getCheckInTimestamp())
+                            .writeVarLong(guest.getCheckOutTimestamp()));
+                }
+                writer.writeRecord(record);
+            }
+        }
+
+        @Override
+        public ArchivedMeetingData deserialize(@NonNull BinaryReader reader, int version) throws IOException {
+            int count = reader.readCount();
+            List<MeetingData> meetings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                BinaryReader record = reader.readRecord();
+                MeetingData meetingData = new MeetingData();
+                meetingData.setLocationId(record.readUuid());
+                meetingData.setAccessId(record.readUuid());
+                meetingData.setScannerId(record.readUuid());
+                meetingData.setCreationTimestamp(record.readVarLong());
+                int guestCount = record.readCount();
+                for (int j = 0; j < guestCount; j++) {
+                    BinaryReader guestRecord = record.readRecord();
+                    MeetingGuestData guest = new MeetingGuestData();
+                    guest.setTraceId(guestRecord.readEncodedBytes());
+                    guest.setFirstName(guestRecord.readString());
+                    guest.setLastName(guestRecord.readString());
+                    guest.setCheckInTimestamp(guestRecord.readVarLong());
+                    guest.setCheckOutTimestamp(guestRecord.readVarLong());
+                    meetingData.getGuestData().add(guest);
+                }
+                meetings.add(meetingData);
+            }
+            return new ArchivedMeetingData(meetings);
+        }
+
+    }
+
+    /**
+     * Persists archived {@link MeetingData} in a {@link DailyPartitionedCollection}, partitioned by
+     * the creation timestamp.
+     */
+    public static class ContainerAdapter implements DailyPartitionedCollection.ContainerAdapter<MeetingData, ArchivedMeetingData> {
+
+        @Override
+        public Class<ArchivedMeetingData> getContainerClass() {
+            return ArchivedMeetingData.class;
+        }
+
+        @Override
+        public List<MeetingData> getItems(@NonNull ArchivedMeetingData container) {
+            return container.meetings;
+        }
+
+        @Override
+        public ArchivedMeetingData createContainer(@NonNull List<MeetingData> items) {
+            return new ArchivedMeetingData(items);
+        }
+
+        @Override
+        public long getTimestamp(@NonNull MeetingData item) {
+            return item.getCreationTimestamp();
+        }
+
+        @Override
+        public String getKey(@NonNull MeetingData item) {
+            return item.getLocationId() + ":" + item.getCreationTimestamp();
+        }
+
+    }
+
+    /**
+     * Streaming adapter for {@link ArchivedMeetingData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<ArchivedMeetingData> {
+
+        private final MeetingData.TypeAdapter meetingDataAdapter = new MeetingData.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, ArchivedMeetingData archivedMeetingData) throws IOException {
+            if (archivedMeetingData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("meetings");
+            if (archivedMeetingData.meetings == null) {
+                writer.nullValue();
+            } else {
+                writer.beginArray();
+                for (MeetingData element : archivedMeetingData.meetings) {
+                    meetingDataAdapter.write(writer, element);
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public ArchivedMeetingData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArchivedMeetingData archivedMeetingData = new ArchivedMeetingData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "meetings":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            archivedMeetingData.meetings = null;
+                            break;
+                        }
+                        archivedMeetingData.meetings = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            archivedMeetingData.meetings.add(meetingDataAdapter.read(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return archivedMeetingData;
+        }
+
+    }
+
 }
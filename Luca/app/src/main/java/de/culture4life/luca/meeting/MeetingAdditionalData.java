@@ -1,8 +1,14 @@
 package de.culture4life.luca.meeting;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import de.culture4life.luca.registration.RegistrationData;
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 import androidx.annotation.NonNull;
 
@@ -46,4 +52,47 @@ public class MeetingAdditionalData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link MeetingAdditionalData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<MeetingAdditionalData> {
+
+        @Override
+        public void write(JsonWriter writer, MeetingAdditionalData meetingAdditionalData) throws IOException {
+            if (meetingAdditionalData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("fn").value(meetingAdditionalData.firstName);
+            writer.name("ln").value(meetingAdditionalData.lastName);
+            writer.endObject();
+        }
+
+        @Override
+        public MeetingAdditionalData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            MeetingAdditionalData meetingAdditionalData = new MeetingAdditionalData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "fn":
+                        meetingAdditionalData.firstName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "ln":
+                        meetingAdditionalData.lastName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return meetingAdditionalData;
+        }
+
+    }
+
 }
@@ -2,7 +2,13 @@ package de.culture4life.luca.meeting;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 import java.util.UUID;
 
 public class MeetingCreationResponse {
@@ -31,4 +37,54 @@ public class MeetingCreationResponse {
         return accessUuid;
     }
 
+    /**
+     * Streaming adapter for {@link MeetingCreationResponse}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<MeetingCreationResponse> {
+
+        @Override
+        public void write(JsonWriter writer, MeetingCreationResponse meetingCreationResponse) throws IOException {
+            if (meetingCreationResponse == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("locationId");
+            TypeAdapterUtil.writeUuid(writer, meetingCreationResponse.locationUuid);
+            writer.name("scannerId");
+            TypeAdapterUtil.writeUuid(writer, meetingCreationResponse.scannerUuid);
+            writer.name("accessId");
+            TypeAdapterUtil.writeUuid(writer, meetingCreationResponse.accessUuid);
+            writer.endObject();
+        }
+
+        @Override
+        public MeetingCreationResponse read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            MeetingCreationResponse meetingCreationResponse = new MeetingCreationResponse();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "locationId":
+                        meetingCreationResponse.locationUuid = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "scannerId":
+                        meetingCreationResponse.scannerUuid = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "accessId":
+                        meetingCreationResponse.accessUuid = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return meetingCreationResponse;
+        }
+
+    }
+
 }
@@ -2,7 +2,13 @@ package de.culture4life.luca.meeting;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -91,4 +97,83 @@ public class MeetingData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link MeetingData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<MeetingData> {
+
+        private final MeetingGuestData.TypeAdapter meetingGuestDataAdapter = new MeetingGuestData.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, MeetingData meetingData) throws IOException {
+            if (meetingData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("locationId");
+            TypeAdapterUtil.writeUuid(writer, meetingData.locationId);
+            writer.name("accessId");
+            TypeAdapterUtil.writeUuid(writer, meetingData.accessId);
+            writer.name("scannerId");
+            TypeAdapterUtil.writeUuid(writer, meetingData.scannerId);
+            writer.name("creationTimestamp").value(meetingData.creationTimestamp);
+            writer.name("guestData");
+            if (meetingData.guestData == null) {
+                writer.nullValue();
+            } else {
+                writer.beginArray();
+                for (MeetingGuestData element : meetingData.guestData) {
+                    meetingGuestDataAdapter.write(writer, element);
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public MeetingData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            MeetingData meetingData = new MeetingData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "locationId":
+                        meetingData.locationId = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "accessId":
+                        meetingData.accessId = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "scannerId":
+                        meetingData.scannerId = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "creationTimestamp":
+                        meetingData.creationTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "guestData":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            meetingData.guestData = null;
+                            break;
+                        }
+                        meetingData.guestData = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            meetingData.guestData.add(meetingGuestDataAdapter.read(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return meetingData;
+        }
+
+    }
+
 }
@@ -1,6 +1,13 @@
 package de.culture4life.luca.meeting;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class MeetingGuestData {
 
@@ -59,4 +66,59 @@ public class MeetingGuestData {
         this.checkOutTimestamp = checkOutTimestamp;
     }
 
+    /**
+     * Streaming adapter for {@link MeetingGuestData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<MeetingGuestData> {
+
+        @Override
+        public void write(JsonWriter writer, MeetingGuestData guestData) throws IOException {
+            if (guestData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(guestData.traceId);
+            writer.name("firstName").value(guestData.firstName);
+            writer.name("lastName").value(guestData.lastName);
+            writer.name("checkInTimestamp").value(guestData.checkInTimestamp);
+            writer.name("checkOutTimestamp").value(guestData.checkOutTimestamp);
+            writer.endObject();
+        }
+
+        @Override
+        public MeetingGuestData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            MeetingGuestData guestData = new MeetingGuestData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        guestData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "firstName":
+                        guestData.firstName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "lastName":
+                        guestData.lastName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "checkInTimestamp":
+                        guestData.checkInTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "checkOutTimestamp":
+                        guestData.checkOutTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return guestData;
+        }
+
+    }
+
 }
@@ -1,6 +1,5 @@
 package de.culture4life.luca.meeting;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
 import android.content.Context;
@@ -12,6 +11,7 @@ import de.culture4life.luca.history.HistoryManager;
 import de.culture4life.luca.location.LocationManager;
 import de.culture4life.luca.network.NetworkManager;
 import de.culture4life.luca.network.pojo.TracesResponseData;
+import de.culture4life.luca.preference.DailyPartitionedCollection;
 import de.culture4life.luca.preference.PreferencesManager;
 import de.culture4life.luca.util.SerializationUtil;
 import de.culture4life.luca.util.TimeUtil;
@@ -22,6 +22,7 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.interfaces.ECPublicKey;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -38,6 +39,9 @@ import timber.log.Timber;
 public class MeetingManager extends Manager {
 
     public static final String KEY_CURRENT_MEETING_DATA = "current_meeting_data";
+    public static final String KEY_ARCHIVED_MEETING_DATA_PARTITION_PREFIX = "archived_meeting_data_";
+
+    @Deprecated
     public static final String KEY_ARCHIVED_MEETING_DATA = "archived_meeting_data";
 
     private final PreferencesManager preferencesManager;
@@ -45,6 +49,7 @@ public class MeetingManager extends Manager {
     private final LocationManager locationManager;
     private final CryptoManager cryptoManager;
     private final HistoryManager historyManager;
+    private final DailyPartitionedCollection<MeetingData, ArchivedMeetingData> archivedMeetings;
 
     @Nullable
     private MeetingData currentMeetingData;
@@ -55,6 +60,7 @@ public class MeetingManager extends Manager {
         this.locationManager = locationManager;
         this.historyManager = historyManager;
         this.cryptoManager = cryptoManager;
+        this.archivedMeetings = new DailyPartitionedCollection<>(preferencesManager, KEY_ARCHIVED_MEETING_DATA_PARTITION_PREFIX, new ArchivedMeetingData.ContainerAdapter());
     }
 
     @Override
@@ -67,7 +73,8 @@ public class MeetingManager extends Manager {
                 cryptoManager.initialize(context)
         ).andThen(Completable.mergeArray(
                 restoreCurrentMeetingDataIfAvailable().ignoreElement(),
-                deleteOldArchivedMeetingData()
+                archivedMeetings.migrate(KEY_ARCHIVED_MEETING_DATA)
+                        .andThen(deleteOldArchivedMeetingData())
         ));
     }
 
@@ -155,8 +162,11 @@ public class MeetingManager extends Manager {
 
     public Completable updateMeetingGuestData() {
         return fetchGuestData()
-                .flatMapSingle(this::getMeetingGuestData)
                 .toList()
+                .flatMap(tracesResponseData -> decodeGuestPublicKeys(tracesResponseData)
+                        .flatMap(guestPublicKeys -> Observable.range(0, tracesResponseData.size())
+                                .concatMapSingle(index -> getMeetingGuestData(tracesResponseData.get(index), guestPublicKeys.get(index)))
+                                .toList()))
                 .flatMapCompletable(meetingGuestData -> getCurrentMeetingDataIfAvailable()
                         .doOnSuccess(meetingData -> meetingData.setGuestData(meetingGuestData))
                         .flatMapCompletable(this::persistCurrentMeetingData));
@@ -170,7 +180,28 @@ public class MeetingManager extends Manager {
                 .flatMapObservable(Observable::fromIterable);
     }
 
-    private Single<MeetingGuestData> getMeetingGuestData(@NonNull TracesResponseData tracesResponseData) {
+    /**
+     * Decodes the public keys of all guests at once. Elements are null for guests without (valid)
+     * additional data.
+     */
+    private static Single<List<ECPublicKey>> decodeGuestPublicKeys(@NonNull List<TracesResponseData> tracesResponseData) {
+        return Single.fromCallable(() -> {
+            List<byte[]> encodedPublicKeys = new ArrayList<>(tracesResponseData.size());
+            for (TracesResponseData traceResponseData : tracesResponseData) {
+                TracesResponseData.AdditionalData additionalData = traceResponseData.getAdditionalData();
+                if (additionalData == null || additionalData.getPublicKey() == null) {
+                    encodedPublicKeys.add(null);
+                    continue;
+                }
+                encodedPublicKeys.add(SerializationUtil.deserializeFromBase64(additionalData.getPublicKey())
+                        .onErrorReturnItem(new byte[0])
+                        .blockingGet());
+            }
+            return encodedPublicKeys;
+        }).flatMap(AsymmetricCipherProvider::decodePublicKeys);
+    }
+
+    private Single<MeetingGuestData> getMeetingGuestData(@NonNull TracesResponseData tracesResponseData, @Nullable PublicKey guestPublicKey) {
         return Single.fromCallable(() -> {
             MeetingGuestData meetingGuestData = new MeetingGuestData();
 
@@ -187,10 +218,11 @@ public class MeetingManager extends Manager {
                         .map(MeetingData::getLocationId)
                         .blockingGet();
 
+                if (guestPublicKey == null) {
+                    throw new IllegalStateException("No valid public key available for " + tracesResponseData.getTraceId());
+                }
+
                 PrivateKey meetingPrivateKey = cryptoManager.getMeetingEphemeralPrivateKey(meetingId).blockingGet();
-                PublicKey guestPublicKey = SerializationUtil.deserializeFromBase64(additionalData.getPublicKey())
-                        .flatMap(AsymmetricCipherProvider::decodePublicKey)
-                        .blockingGet();
 
                 byte[] diffieHellmanSecret = cryptoManager.getAsymmetricCipherProvider()
                         .generateSecret(meetingPrivateKey, guestPublicKey)
@@ -198,18 +230,16 @@ public class MeetingManager extends Manager {
 
                 byte[] encryptedData = SerializationUtil.deserializeFromBase64(additionalData.getData()).blockingGet();
                 byte[] iv = SerializationUtil.deserializeFromBase64(additionalData.getIv()).blockingGet();
-                byte[] encryptionSecret = cryptoManager.generateDataEncryptionSecret(diffieHellmanSecret).blockingGet();
-                SecretKey decryptionKey = CryptoManager.createKeyFromSecret(encryptionSecret).blockingGet();
+                SecretKey decryptionKey = cryptoManager.getDataEncryptionKey(diffieHellmanSecret).blockingGet();
                 byte[] decryptedData = cryptoManager.getSymmetricCipherProvider().decrypt(encryptedData, iv, decryptionKey).blockingGet();
 
-                byte[] dataAuthenticationSecret = cryptoManager.generateDataAuthenticationSecret(diffieHellmanSecret).blockingGet();
-                SecretKey dataAuthenticationKey = CryptoManager.createKeyFromSecret(dataAuthenticationSecret).blockingGet();
+                SecretKey dataAuthenticationKey = cryptoManager.getDataAuthenticationKey(diffieHellmanSecret).blockingGet();
                 byte[] mac = SerializationUtil.deserializeFromBase64(additionalData.getMac()).blockingGet();
                 cryptoManager.getMacProvider().verify(encryptedData, mac, dataAuthenticationKey).blockingAwait();
 
                 MeetingAdditionalData meetingAdditionalData = Single.fromCallable(() -> new String(decryptedData, StandardCharsets.UTF_8))
                         .doOnSuccess(json -> Timber.d("Additional data JSON: %s", json))
-                        .map(json -> new Gson().fromJson(json, MeetingAdditionalData.class))
+                        .flatMap(json -> SerializationUtil.deserializeFromJson(json, MeetingAdditionalData.class))
                         .blockingGet();
 
                 meetingGuestData.setFirstName(meetingAdditionalData.getFirstName());
@@ -240,27 +270,17 @@ public class MeetingManager extends Manager {
     }
 
     public Completable addMeetingDataToArchive(@NonNull MeetingData meetingData) {
-        return getArchivedMeetingData()
-                .mergeWith(Observable.just(meetingData))
-                .toList()
-                .map(ArchivedMeetingData::new)
-                .flatMapCompletable(meetingsDataArchive -> preferencesManager.persist(KEY_ARCHIVED_MEETING_DATA, meetingsDataArchive))
+        return archivedMeetings.add(meetingData)
                 .doOnComplete(() -> Timber.i("Added meeting data to archive: %s", meetingData));
     }
 
     public Observable<MeetingData> getArchivedMeetingData() {
-        return preferencesManager.restoreIfAvailable(KEY_ARCHIVED_MEETING_DATA, ArchivedMeetingData.class)
-                .map(ArchivedMeetingData::getMeetings)
-                .defaultIfEmpty(new ArrayList<>())
-                .flatMapObservable(Observable::fromIterable);
+        return archivedMeetings.getItems();
     }
 
     public Completable deleteOldArchivedMeetingData() {
-        return getArchivedMeetingData()
-                .filter(meetingData -> meetingData.getCreationTimestamp() > System.currentTimeMillis() - TimeUnit.DAYS.toMillis(14))
-                .toList()
-                .map(ArchivedMeetingData::new)
-                .flatMapCompletable(meetingsDataArchive -> preferencesManager.persist(KEY_ARCHIVED_MEETING_DATA, meetingsDataArchive))
+        return Single.fromCallable(() -> System.currentTimeMillis() - TimeUnit.DAYS.toMillis(14))
+                .flatMapCompletable(archivedMeetings::deleteItemsCreatedBefore)
                 .doOnComplete(() -> Timber.d("Deleted old archived meeting data"));
     }
 
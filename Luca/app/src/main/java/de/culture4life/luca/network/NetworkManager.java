@@ -10,7 +10,19 @@ import android.os.Build;
 
 import de.culture4life.luca.BuildConfig;
 import de.culture4life.luca.Manager;
+import de.culture4life.luca.meeting.MeetingCreationResponse;
 import de.culture4life.luca.network.endpoints.LucaEndpointsV3;
+import de.culture4life.luca.network.pojo.AccessedHashedTraceIdsData;
+import de.culture4life.luca.network.pojo.AccessedHashedTraceIdsDataList;
+import de.culture4life.luca.network.pojo.AdditionalCheckInPropertiesRequestData;
+import de.culture4life.luca.network.pojo.CheckInRequestData;
+import de.culture4life.luca.network.pojo.CheckOutRequestData;
+import de.culture4life.luca.network.pojo.DataTransferRequestData;
+import de.culture4life.luca.network.pojo.HealthDepartment;
+import de.culture4life.luca.network.pojo.LocationResponseData;
+import de.culture4life.luca.network.pojo.TraceData;
+import de.culture4life.luca.network.pojo.TracesResponseData;
+import de.culture4life.luca.network.pojo.UserRegistrationRequestData;
 
 import java.util.concurrent.TimeUnit;
 
@@ -59,6 +71,18 @@ public class NetworkManager extends Manager {
             gson = new GsonBuilder()
                     .setLenient()
                     .setDateFormat("yyyy-MM-dd'T'HH:mm:ssZ")
+                    .registerTypeAdapter(TracesResponseData.class, new TracesResponseData.TypeAdapter())
+                    .registerTypeAdapter(AccessedHashedTraceIdsData.class, new AccessedHashedTraceIdsData.TypeAdapter())
+                    .registerTypeAdapter(HealthDepartment.class, new HealthDepartment.TypeAdapter())
+                    .registerTypeAdapter(LocationResponseData.class, new LocationResponseData.TypeAdapter())
+                    .registerTypeAdapter(AccessedHashedTraceIdsDataList.class, new AccessedHashedTraceIdsDataList.TypeAdapter())
+                    .registerTypeAdapter(AdditionalCheckInPropertiesRequestData.class, new AdditionalCheckInPropertiesRequestData.TypeAdapter())
+                    .registerTypeAdapter(CheckInRequestData.class, new CheckInRequestData.TypeAdapter())
+                    .registerTypeAdapter(CheckOutRequestData.class, new CheckOutRequestData.TypeAdapter())
+                    .registerTypeAdapter(DataTransferRequestData.class, new DataTransferRequestData.TypeAdapter())
+                    .registerTypeAdapter(TraceData.class, new TraceData.TypeAdapter())
+                    .registerTypeAdapter(UserRegistrationRequestData.class, new UserRegistrationRequestData.TypeAdapter())
+                    .registerTypeAdapter(MeetingCreationResponse.class, new MeetingCreationResponse.TypeAdapter())
                     .create();
 
             Interceptor userAgentInterceptor = chain -> chain.proceed(chain.request()
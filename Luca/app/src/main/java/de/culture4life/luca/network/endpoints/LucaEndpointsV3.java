@@ -15,11 +15,14 @@ import de.culture4life.luca.network.pojo.UserRegistrationRequestData;
 
 import java.util.List;
 
+import androidx.annotation.Nullable;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Single;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Headers;
 import retrofit2.http.PATCH;
 import retrofit2.http.POST;
@@ -34,8 +37,12 @@ public interface LucaEndpointsV3 {
     @GET("keys/daily/current")
     Single<JsonObject> getDailyKeyPairPublicKey();
 
+    /**
+     * Responds with 304 (not modified) and without a body if the specified entity tag is still
+     * valid. Pass null to always get the key issuer.
+     */
     @GET("keys/issuers/{issuerId}")
-    Single<JsonObject> getKeyIssuer(@Path("issuerId") String issuerId);
+    Single<Response<JsonObject>> getKeyIssuer(@Path("issuerId") String issuerId, @Nullable @Header("If-None-Match") String eTag);
 
     /*
         Locations
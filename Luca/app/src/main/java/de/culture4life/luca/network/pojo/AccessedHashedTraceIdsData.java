@@ -1,7 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,4 +43,51 @@ public class AccessedHashedTraceIdsData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link AccessedHashedTraceIdsData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<AccessedHashedTraceIdsData> {
+
+        private final HealthDepartment.TypeAdapter healthDepartmentAdapter = new HealthDepartment.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, AccessedHashedTraceIdsData accessedData) throws IOException {
+            if (accessedData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("healthDepartment");
+            healthDepartmentAdapter.write(writer, accessedData.healthDepartment);
+            writer.name("hashedTraceIds");
+            TypeAdapterUtil.writeStrings(writer, accessedData.hashedTraceIds);
+            writer.endObject();
+        }
+
+        @Override
+        public AccessedHashedTraceIdsData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            AccessedHashedTraceIdsData accessedData = new AccessedHashedTraceIdsData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "healthDepartment":
+                        accessedData.healthDepartment = healthDepartmentAdapter.read(reader);
+                        break;
+                    case "hashedTraceIds":
+                        accessedData.hashedTraceIds = TypeAdapterUtil.nextStringsOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return accessedData;
+        }
+
+    }
+
 }
@@ -1,5 +1,10 @@
 package de.culture4life.luca.network.pojo;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -14,4 +19,41 @@ public class AccessedHashedTraceIdsDataList extends ArrayList<AccessedHashedTrac
         super(c);
     }
 
+    /**
+     * Streaming adapter for {@link AccessedHashedTraceIdsDataList}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<AccessedHashedTraceIdsDataList> {
+
+        private final AccessedHashedTraceIdsData.TypeAdapter accessedDataAdapter = new AccessedHashedTraceIdsData.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, AccessedHashedTraceIdsDataList accessedDataList) throws IOException {
+            if (accessedDataList == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginArray();
+            for (AccessedHashedTraceIdsData accessedData : accessedDataList) {
+                accessedDataAdapter.write(writer, accessedData);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public AccessedHashedTraceIdsDataList read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            AccessedHashedTraceIdsDataList accessedDataList = new AccessedHashedTraceIdsDataList();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                accessedDataList.add(accessedDataAdapter.read(reader));
+            }
+            reader.endArray();
+            return accessedDataList;
+        }
+
+    }
+
 }
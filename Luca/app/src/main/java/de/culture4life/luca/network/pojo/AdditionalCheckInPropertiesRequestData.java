@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class AdditionalCheckInPropertiesRequestData {
 
@@ -73,4 +80,59 @@ public class AdditionalCheckInPropertiesRequestData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link AdditionalCheckInPropertiesRequestData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<AdditionalCheckInPropertiesRequestData> {
+
+        @Override
+        public void write(JsonWriter writer, AdditionalCheckInPropertiesRequestData propertiesRequestData) throws IOException {
+            if (propertiesRequestData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(propertiesRequestData.traceId);
+            writer.name("data").value(propertiesRequestData.encryptedProperties);
+            writer.name("iv").value(propertiesRequestData.iv);
+            writer.name("mac").value(propertiesRequestData.mac);
+            writer.name("publicKey").value(propertiesRequestData.scannerPublicKey);
+            writer.endObject();
+        }
+
+        @Override
+        public AdditionalCheckInPropertiesRequestData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            AdditionalCheckInPropertiesRequestData propertiesRequestData = new AdditionalCheckInPropertiesRequestData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        propertiesRequestData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "data":
+                        propertiesRequestData.encryptedProperties = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "iv":
+                        propertiesRequestData.iv = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "mac":
+                        propertiesRequestData.mac = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicKey":
+                        propertiesRequestData.scannerPublicKey = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return propertiesRequestData;
+        }
+
+    }
+
 }
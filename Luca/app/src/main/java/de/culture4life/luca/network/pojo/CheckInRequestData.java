@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class CheckInRequestData {
 
@@ -109,4 +116,71 @@ public class CheckInRequestData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link CheckInRequestData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<CheckInRequestData> {
+
+        @Override
+        public void write(JsonWriter writer, CheckInRequestData checkInRequestData) throws IOException {
+            if (checkInRequestData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(checkInRequestData.traceId);
+            writer.name("scannerId").value(checkInRequestData.scannerId);
+            writer.name("timestamp").value(checkInRequestData.unixTimestamp);
+            writer.name("data").value(checkInRequestData.reEncryptedQrCodeData);
+            writer.name("iv").value(checkInRequestData.iv);
+            writer.name("mac").value(checkInRequestData.mac);
+            writer.name("publicKey").value(checkInRequestData.scannerEphemeralPublicKey);
+            writer.name("deviceType").value(checkInRequestData.deviceType);
+            writer.endObject();
+        }
+
+        @Override
+        public CheckInRequestData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            CheckInRequestData checkInRequestData = new CheckInRequestData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        checkInRequestData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "scannerId":
+                        checkInRequestData.scannerId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "timestamp":
+                        checkInRequestData.unixTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "data":
+                        checkInRequestData.reEncryptedQrCodeData = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "iv":
+                        checkInRequestData.iv = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "mac":
+                        checkInRequestData.mac = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicKey":
+                        checkInRequestData.scannerEphemeralPublicKey = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "deviceType":
+                        checkInRequestData.deviceType = TypeAdapterUtil.nextIntOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return checkInRequestData;
+        }
+
+    }
+
 }
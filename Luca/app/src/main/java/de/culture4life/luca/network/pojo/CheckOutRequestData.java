@@ -1,9 +1,15 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import de.culture4life.luca.util.SerializationUtil;
 import de.culture4life.luca.util.TimeUtil;
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class CheckOutRequestData {
 
@@ -47,4 +53,47 @@ public class CheckOutRequestData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link CheckOutRequestData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<CheckOutRequestData> {
+
+        @Override
+        public void write(JsonWriter writer, CheckOutRequestData checkOutRequestData) throws IOException {
+            if (checkOutRequestData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(checkOutRequestData.traceId);
+            writer.name("timestamp").value(checkOutRequestData.roundedUnixTimestamp);
+            writer.endObject();
+        }
+
+        @Override
+        public CheckOutRequestData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            CheckOutRequestData checkOutRequestData = new CheckOutRequestData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        checkOutRequestData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "timestamp":
+                        checkOutRequestData.roundedUnixTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return checkOutRequestData;
+        }
+
+    }
+
 }
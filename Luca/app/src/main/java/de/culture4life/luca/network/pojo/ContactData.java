@@ -2,8 +2,14 @@ package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import de.culture4life.luca.registration.RegistrationData;
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 import androidx.annotation.NonNull;
 
@@ -167,4 +173,75 @@ public class ContactData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link ContactData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<ContactData> {
+
+        @Override
+        public void write(JsonWriter writer, ContactData contactData) throws IOException {
+            if (contactData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("v").value(contactData.version);
+            writer.name("fn").value(contactData.firstName);
+            writer.name("ln").value(contactData.lastName);
+            writer.name("pn").value(contactData.phoneNumber);
+            writer.name("e").value(contactData.email);
+            writer.name("st").value(contactData.street);
+            writer.name("hn").value(contactData.houseNumber);
+            writer.name("c").value(contactData.city);
+            writer.name("pc").value(contactData.postalCode);
+            writer.endObject();
+        }
+
+        @Override
+        public ContactData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ContactData contactData = new ContactData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "v":
+                        contactData.version = TypeAdapterUtil.nextIntOrZero(reader);
+                        break;
+                    case "fn":
+                        contactData.firstName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "ln":
+                        contactData.lastName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "pn":
+                        contactData.phoneNumber = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "e":
+                        contactData.email = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "st":
+                        contactData.street = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "hn":
+                        contactData.houseNumber = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "c":
+                        contactData.city = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "pc":
+                        contactData.postalCode = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return contactData;
+        }
+
+    }
+
 }
@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class DataTransferRequestData {
 
@@ -70,4 +77,59 @@ public class DataTransferRequestData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link DataTransferRequestData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<DataTransferRequestData> {
+
+        @Override
+        public void write(JsonWriter writer, DataTransferRequestData transferRequestData) throws IOException {
+            if (transferRequestData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("data").value(transferRequestData.encryptedContactData);
+            writer.name("iv").value(transferRequestData.iv);
+            writer.name("publicKey").value(transferRequestData.guestKeyPairPublicKey);
+            writer.name("mac").value(transferRequestData.mac);
+            writer.name("keyId").value(transferRequestData.dailyKeyPairPublicKeyId);
+            writer.endObject();
+        }
+
+        @Override
+        public DataTransferRequestData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            DataTransferRequestData transferRequestData = new DataTransferRequestData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "data":
+                        transferRequestData.encryptedContactData = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "iv":
+                        transferRequestData.iv = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicKey":
+                        transferRequestData.guestKeyPairPublicKey = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "mac":
+                        transferRequestData.mac = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "keyId":
+                        transferRequestData.dailyKeyPairPublicKeyId = TypeAdapterUtil.nextIntOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return transferRequestData;
+        }
+
+    }
+
 }
@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class HealthDepartment {
 
@@ -58,4 +65,55 @@ public class HealthDepartment {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link HealthDepartment}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<HealthDepartment> {
+
+        @Override
+        public void write(JsonWriter writer, HealthDepartment healthDepartment) throws IOException {
+            if (healthDepartment == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("departmentId").value(healthDepartment.id);
+            writer.name("name").value(healthDepartment.name);
+            writer.name("publicHDEKP").value(healthDepartment.publicHDEKP);
+            writer.name("publicHDSKP").value(healthDepartment.publicHDSKP);
+            writer.endObject();
+        }
+
+        @Override
+        public HealthDepartment read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            HealthDepartment healthDepartment = new HealthDepartment();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "departmentId":
+                        healthDepartment.id = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "name":
+                        healthDepartment.name = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicHDEKP":
+                        healthDepartment.publicHDEKP = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicHDSKP":
+                        healthDepartment.publicHDSKP = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return healthDepartment;
+        }
+
+    }
+
 }
@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class LocationResponseData {
 
@@ -82,4 +89,63 @@ public class LocationResponseData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link LocationResponseData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<LocationResponseData> {
+
+        @Override
+        public void write(JsonWriter writer, LocationResponseData locationData) throws IOException {
+            if (locationData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("locationId").value(locationData.locationId);
+            writer.name("locationName").value(locationData.areaName);
+            writer.name("groupName").value(locationData.groupName);
+            writer.name("lat").value(locationData.latitude);
+            writer.name("lng").value(locationData.longitude);
+            writer.name("radius").value(locationData.radius);
+            writer.endObject();
+        }
+
+        @Override
+        public LocationResponseData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            LocationResponseData locationData = new LocationResponseData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "locationId":
+                        locationData.locationId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "locationName":
+                        locationData.areaName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "groupName":
+                        locationData.groupName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "lat":
+                        locationData.latitude = TypeAdapterUtil.nextDoubleOrZero(reader);
+                        break;
+                    case "lng":
+                        locationData.longitude = TypeAdapterUtil.nextDoubleOrZero(reader);
+                        break;
+                    case "radius":
+                        locationData.radius = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return locationData;
+        }
+
+    }
+
 }
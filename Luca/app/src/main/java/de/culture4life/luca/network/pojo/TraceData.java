@@ -2,6 +2,13 @@ package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class TraceData {
 
@@ -70,4 +77,55 @@ public class TraceData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link TraceData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<TraceData> {
+
+        @Override
+        public void write(JsonWriter writer, TraceData traceData) throws IOException {
+            if (traceData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(traceData.traceId);
+            writer.name("createdAt").value(traceData.checkInTimestamp);
+            writer.name("checkout").value(traceData.checkOutTimestamp);
+            writer.name("locationId").value(traceData.locationId);
+            writer.endObject();
+        }
+
+        @Override
+        public TraceData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            TraceData traceData = new TraceData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        traceData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "createdAt":
+                        traceData.checkInTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "checkout":
+                        traceData.checkOutTimestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "locationId":
+                        traceData.locationId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return traceData;
+        }
+
+    }
+
 }
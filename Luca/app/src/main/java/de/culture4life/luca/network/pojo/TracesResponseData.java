@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 public class TracesResponseData {
 
@@ -118,6 +125,111 @@ public class TracesResponseData {
                     '}';
         }
 
+        /**
+         * Streaming adapter for {@link AdditionalData}, avoiding reflection.
+         */
+        public static class TypeAdapter extends com.google.gson.TypeAdapter<AdditionalData> {
+
+            @Override
+            public void write(JsonWriter writer, AdditionalData additionalData) throws IOException {
+                if (additionalData == null) {
+                    writer.nullValue();
+                    return;
+                }
+                writer.beginObject();
+                writer.name("data").value(additionalData.data);
+                writer.name("iv").value(additionalData.iv);
+                writer.name("mac").value(additionalData.mac);
+                writer.name("publicKey").value(additionalData.publicKey);
+                writer.endObject();
+            }
+
+            @Override
+            public AdditionalData read(JsonReader reader) throws IOException {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    return null;
+                }
+                AdditionalData additionalData = new AdditionalData();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "data":
+                            additionalData.data = TypeAdapterUtil.nextStringOrNull(reader);
+                            break;
+                        case "iv":
+                            additionalData.iv = TypeAdapterUtil.nextStringOrNull(reader);
+                            break;
+                        case "mac":
+                            additionalData.mac = TypeAdapterUtil.nextStringOrNull(reader);
+                            break;
+                        case "publicKey":
+                            additionalData.publicKey = TypeAdapterUtil.nextStringOrNull(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return additionalData;
+            }
+
+        }
+
+    }
+
+    /**
+     * Streaming adapter for {@link TracesResponseData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<TracesResponseData> {
+
+        private final AdditionalData.TypeAdapter additionalDataAdapter = new AdditionalData.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, TracesResponseData tracesResponseData) throws IOException {
+            if (tracesResponseData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("traceId").value(tracesResponseData.traceId);
+            writer.name("checkin").value(tracesResponseData.checkInTimestamp);
+            writer.name("checkout").value(tracesResponseData.checkOutTimestamp);
+            writer.name("data");
+            additionalDataAdapter.write(writer, tracesResponseData.additionalData);
+            writer.endObject();
+        }
+
+        @Override
+        public TracesResponseData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            TracesResponseData tracesResponseData = new TracesResponseData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "traceId":
+                        tracesResponseData.traceId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "checkin":
+                        tracesResponseData.checkInTimestamp = TypeAdapterUtil.nextLongOrNull(reader);
+                        break;
+                    case "checkout":
+                        tracesResponseData.checkOutTimestamp = TypeAdapterUtil.nextLongOrNull(reader);
+                        break;
+                    case "data":
+                        tracesResponseData.additionalData = additionalDataAdapter.read(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return tracesResponseData;
+        }
+
     }
 
 }
@@ -2,7 +2,14 @@ package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -117,6 +124,129 @@ public class TransferData {
                     '}';
         }
 
+        /**
+         * Streaming adapter for {@link TraceSecretWrapper}, avoiding reflection.
+         */
+        public static class TypeAdapter extends com.google.gson.TypeAdapter<TraceSecretWrapper> {
+
+            @Override
+            public void write(JsonWriter writer, TraceSecretWrapper traceSecretWrapper) throws IOException {
+                if (traceSecretWrapper == null) {
+                    writer.nullValue();
+                    return;
+                }
+                writer.beginObject();
+                writer.name("ts").value(traceSecretWrapper.timestamp);
+                writer.name("s").value(traceSecretWrapper.secret);
+                writer.endObject();
+            }
+
+            @Override
+            public TraceSecretWrapper read(JsonReader reader) throws IOException {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    return null;
+                }
+                TraceSecretWrapper traceSecretWrapper = new TraceSecretWrapper();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "ts":
+                            traceSecretWrapper.timestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                            break;
+                        case "s":
+                            traceSecretWrapper.secret = TypeAdapterUtil.nextStringOrNull(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return traceSecretWrapper;
+            }
+
+        }
+
+    }
+
+    /**
+     * Streaming adapter for {@link TransferData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<TransferData> {
+
+        private final TraceSecretWrapper.TypeAdapter traceSecretWrapperAdapter = new TraceSecretWrapper.TypeAdapter();
+
+        @Override
+        public void write(JsonWriter writer, TransferData transferData) throws IOException {
+            if (transferData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("v").value(transferData.version);
+            writer.name("uid").value(transferData.userId);
+            writer.name("uts");
+            writeTraceSecretWrappers(writer, transferData.traceSecretWrappers);
+            writer.name("uds").value(transferData.dataSecret);
+            writer.endObject();
+        }
+
+        @Override
+        public TransferData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            TransferData transferData = new TransferData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "v":
+                        transferData.version = TypeAdapterUtil.nextIntOrZero(reader);
+                        break;
+                    case "uid":
+                        transferData.userId = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "uts":
+                        transferData.traceSecretWrappers = readTraceSecretWrappers(reader);
+                        break;
+                    case "uds":
+                        transferData.dataSecret = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return transferData;
+        }
+
+        private void writeTraceSecretWrappers(JsonWriter writer, List<TraceSecretWrapper> traceSecretWrappers) throws IOException {
+            if (traceSecretWrappers == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginArray();
+            for (TraceSecretWrapper traceSecretWrapper : traceSecretWrappers) {
+                traceSecretWrapperAdapter.write(writer, traceSecretWrapper);
+            }
+            writer.endArray();
+        }
+
+        private List<TraceSecretWrapper> readTraceSecretWrappers(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            List<TraceSecretWrapper> traceSecretWrappers = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                traceSecretWrappers.add(traceSecretWrapperAdapter.read(reader));
+            }
+            reader.endArray();
+            return traceSecretWrappers;
+        }
+
     }
 
 }
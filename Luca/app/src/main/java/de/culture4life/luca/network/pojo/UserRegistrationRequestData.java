@@ -1,6 +1,13 @@
 package de.culture4life.luca.network.pojo;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 
 /**
  * Example:
@@ -83,4 +90,59 @@ public class UserRegistrationRequestData {
                 '}';
     }
 
+    /**
+     * Streaming adapter for {@link UserRegistrationRequestData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<UserRegistrationRequestData> {
+
+        @Override
+        public void write(JsonWriter writer, UserRegistrationRequestData registrationRequestData) throws IOException {
+            if (registrationRequestData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("data").value(registrationRequestData.encryptedContactData);
+            writer.name("iv").value(registrationRequestData.iv);
+            writer.name("publicKey").value(registrationRequestData.guestKeyPairPublicKey);
+            writer.name("mac").value(registrationRequestData.mac);
+            writer.name("signature").value(registrationRequestData.signature);
+            writer.endObject();
+        }
+
+        @Override
+        public UserRegistrationRequestData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            UserRegistrationRequestData registrationRequestData = new UserRegistrationRequestData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "data":
+                        registrationRequestData.encryptedContactData = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "iv":
+                        registrationRequestData.iv = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "publicKey":
+                        registrationRequestData.guestKeyPairPublicKey = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "mac":
+                        registrationRequestData.mac = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "signature":
+                        registrationRequestData.signature = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return registrationRequestData;
+        }
+
+    }
+
 }
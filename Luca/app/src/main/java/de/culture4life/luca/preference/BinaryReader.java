@@ -0,0 +1,144 @@
+package de.culture4life.luca.preference;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Reads values written by a {@link BinaryWriter}. Truncated or malformed input results in an
+ * {@link IOException}.
+ */
+public class BinaryReader {
+
+    private static final int MAXIMUM_VAR_LONG_LENGTH = 10;
+
+    private final ByteBuffer buffer;
+
+    public BinaryReader(@NonNull byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    private BinaryReader(@NonNull ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() throws IOException {
+        ensureRemaining(1);
+        return buffer.get() & 0xFF;
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < MAXIMUM_VAR_LONG_LENGTH; i++) {
+            int currentByte = readByte();
+            value |= (long) (currentByte & 0x7F) << (7 * i);
+            if ((currentByte & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public int readCount() throws IOException {
+        long count = readVarLong();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Invalid count: " + count);
+        }
+        return (int) count;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public double readDouble() throws IOException {
+        ensureRemaining(8);
+        return buffer.getDouble();
+    }
+
+    public byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readCount()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Nullable
+    public String readString() throws IOException {
+        long encodedLength = readVarLong();
+        if (encodedLength == 0) {
+            return null;
+        }
+        int length = (int) encodedLength - 1;
+        ensureRemaining(length);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Nullable
+    public UUID readUuid() throws IOException {
+        if (!readBoolean()) {
+            return null;
+        }
+        ensureRemaining(16);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Reads a value written by {@link BinaryWriter#writeEncodedBytes(String)}, including the Base64
+     * encoding.
+     */
+    @Nullable
+    public String readEncodedBytes() throws IOException {
+        int encoding = readByte();
+        switch (encoding) {
+            case BinaryWriter.ENCODED_BYTES_NULL:
+                return null;
+            case BinaryWriter.ENCODED_BYTES_RAW:
+                return new String(BinaryWriter.encodeBase64(readBytes()), StandardCharsets.US_ASCII);
+            case BinaryWriter.ENCODED_BYTES_STRING:
+                return readString();
+            default:
+                throw new IOException("Unknown encoding: " + encoding);
+        }
+    }
+
+    public List<String> readStrings() throws IOException {
+        int count = readCount();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed record. The returned reader is limited to the record, the remaining
+     * bytes of the record (e.g. fields added by later versions) don't need to be read.
+     */
+    public BinaryReader readRecord() throws IOException {
+        int length = readCount();
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        buffer.position(buffer.position() + length);
+        return new BinaryReader(record);
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (length < 0 || buffer.remaining() < length) {
+            throw new IOException("Unexpected end of input", new BufferUnderflowException());
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package de.culture4life.luca.preference;
+
+import android.util.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Writes values in the binary format used by {@link ValueSerializer}s.
+ *
+ * Integers are written as unsigned LEB128 varints, so that timestamps and counts only take as many
+ * bytes as required. Nested objects are written as length-prefixed records, so that readers can
+ * skip fields added by later versions.
+ */
+public class BinaryWriter {
+
+    static final int ENCODED_BYTES_NULL = 0;
+    static final int ENCODED_BYTES_RAW = 1;
+    static final int ENCODED_BYTES_STRING = 2;
+
+    private final ByteArrayOutputStream outputStream;
+
+    public BinaryWriter() {
+        outputStream = new ByteArrayOutputStream();
+    }
+
+    public BinaryWriter writeByte(int value) {
+        outputStream.write(value);
+        return this;
+    }
+
+    public BinaryWriter writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            outputStream.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+        return this;
+    }
+
+    public BinaryWriter writeBoolean(boolean value) {
+        return writeByte(value ? 1 : 0);
+    }
+
+    public BinaryWriter writeDouble(double value) {
+        writeLong(Double.doubleToLongBits(value));
+        return this;
+    }
+
+    public BinaryWriter writeBytes(@NonNull byte[] value) {
+        writeVarLong(value.length);
+        outputStream.write(value, 0, value.length);
+        return this;
+    }
+
+    /**
+     * Writes the length + 1 followed by the UTF-8 bytes, or 0 if the value is null.
+     */
+    public BinaryWriter writeString(@Nullable String value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1);
+        outputStream.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    public BinaryWriter writeUuid(@Nullable UUID value) {
+        if (value == null) {
+            return writeBoolean(false);
+        }
+        writeBoolean(true);
+        writeLong(value.getMostSignificantBits());
+        writeLong(value.getLeastSignificantBits());
+        return this;
+    }
+
+    /**
+     * Writes a Base64 encoded ID (e.g. a trace ID) as raw bytes, which requires 25% less space
+     * and no decoding when being read. Values that wouldn't be restored to the exact same string are
+     * written as string instead.
+     */
+    public BinaryWriter writeEncodedBytes(@Nullable String base64) {
+        if (base64 == null) {
+            return writeByte(ENCODED_BYTES_NULL);
+        }
+        byte[] bytes = decodeBase64(base64);
+        if (bytes != null && Arrays.equals(base64.getBytes(StandardCharsets.US_ASCII), encodeBase64(bytes))) {
+            writeByte(ENCODED_BYTES_RAW);
+            return writeBytes(bytes);
+        }
+        writeByte(ENCODED_BYTES_STRING);
+        return writeString(base64);
+    }
+
+    public BinaryWriter writeStrings(@Nullable Collection<String> values) {
+        if (values == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the content of the specified record writer, prefixed by its length.
+     */
+    public BinaryWriter writeRecord(@NonNull BinaryWriter record) {
+        return writeBytes(record.toByteArray());
+    }
+
+    private void writeLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            outputStream.write((int) (value >>> shift));
+        }
+    }
+
+    public byte[] toByteArray() {
+        return outputStream.toByteArray();
+    }
+
+    @Nullable
+    private static byte[] decodeBase64(@NonNull String base64) {
+        try {
+            return Base64.decode(base64, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static byte[] encodeBase64(@NonNull byte[] bytes) {
+        return Base64.encode(bytes, Base64.NO_WRAP);
+    }
+
+}
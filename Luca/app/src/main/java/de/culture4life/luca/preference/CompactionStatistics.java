@@ -0,0 +1,179 @@
+package de.culture4life.luca.preference;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
+
+/**
+ * Sizes and read durations of the preferences store before and after it has been compacted. Read
+ * durations are the time it took to read all values, in microseconds.
+ */
+public class CompactionStatistics {
+
+    @Expose
+    @SerializedName("timestamp")
+    private long timestamp;
+
+    @Expose
+    @SerializedName("fileSizeBefore")
+    private long fileSizeBefore;
+
+    @Expose
+    @SerializedName("fileSizeAfter")
+    private long fileSizeAfter;
+
+    @Expose
+    @SerializedName("usedSizeBefore")
+    private long usedSizeBefore;
+
+    @Expose
+    @SerializedName("usedSizeAfter")
+    private long usedSizeAfter;
+
+    @Expose
+    @SerializedName("readDurationBefore")
+    private long readDurationBefore;
+
+    @Expose
+    @SerializedName("readDurationAfter")
+    private long readDurationAfter;
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getFileSizeBefore() {
+        return fileSizeBefore;
+    }
+
+    public void setFileSizeBefore(long fileSizeBefore) {
+        this.fileSizeBefore = fileSizeBefore;
+    }
+
+    public long getFileSizeAfter() {
+        return fileSizeAfter;
+    }
+
+    public void setFileSizeAfter(long fileSizeAfter) {
+        this.fileSizeAfter = fileSizeAfter;
+    }
+
+    public long getUsedSizeBefore() {
+        return usedSizeBefore;
+    }
+
+    public void setUsedSizeBefore(long usedSizeBefore) {
+        this.usedSizeBefore = usedSizeBefore;
+    }
+
+    public long getUsedSizeAfter() {
+        return usedSizeAfter;
+    }
+
+    public void setUsedSizeAfter(long usedSizeAfter) {
+        this.usedSizeAfter = usedSizeAfter;
+    }
+
+    public long getReadDurationBefore() {
+        return readDurationBefore;
+    }
+
+    public void setReadDurationBefore(long readDurationBefore) {
+        this.readDurationBefore = readDurationBefore;
+    }
+
+    public long getReadDurationAfter() {
+        return readDurationAfter;
+    }
+
+    public void setReadDurationAfter(long readDurationAfter) {
+        this.readDurationAfter = readDurationAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionStatistics{" +
+                "timestamp=" + timestamp +
+                ", fileSizeBefore=" + fileSizeBefore +
+                ", fileSizeAfter=" + fileSizeAfter +
+                ", usedSizeBefore=" + usedSizeBefore +
+                ", usedSizeAfter=" + usedSizeAfter +
+                ", readDurationBefore=" + readDurationBefore +
+                ", readDurationAfter=" + readDurationAfter +
+                '}';
+    }
+
+    /**
+     * Streaming adapter for {@link CompactionStatistics}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<CompactionStatistics> {
+
+        @Override
+        public void write(JsonWriter writer, CompactionStatistics statistics) throws IOException {
+            if (statistics == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("timestamp").value(statistics.timestamp);
+            writer.name("fileSizeBefore").value(statistics.fileSizeBefore);
+            writer.name("fileSizeAfter").value(statistics.fileSizeAfter);
+            writer.name("usedSizeBefore").value(statistics.usedSizeBefore);
+            writer.name("usedSizeAfter").value(statistics.usedSizeAfter);
+            writer.name("readDurationBefore").value(statistics.readDurationBefore);
+            writer.name("readDurationAfter").value(statistics.readDurationAfter);
+            writer.endObject();
+        }
+
+        @Override
+        public CompactionStatistics read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            CompactionStatistics statistics = new CompactionStatistics();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "timestamp":
+                        statistics.timestamp = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "fileSizeBefore":
+                        statistics.fileSizeBefore = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "fileSizeAfter":
+                        statistics.fileSizeAfter = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "usedSizeBefore":
+                        statistics.usedSizeBefore = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "usedSizeAfter":
+                        statistics.usedSizeAfter = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "readDurationBefore":
+                        statistics.readDurationBefore = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    case "readDurationAfter":
+                        statistics.readDurationAfter = TypeAdapterUtil.nextLongOrZero(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return statistics;
+        }
+
+    }
+
+}
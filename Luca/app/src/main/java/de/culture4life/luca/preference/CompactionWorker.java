@@ -0,0 +1,30 @@
+package de.culture4life.luca.preference;
+
+import android.content.Context;
+
+import de.culture4life.luca.LucaApplication;
+
+import androidx.annotation.NonNull;
+import androidx.work.WorkerParameters;
+import androidx.work.rxjava3.RxWorker;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+
+public class CompactionWorker extends RxWorker {
+
+    public CompactionWorker(@NonNull Context appContext, @NonNull WorkerParameters workerParams) {
+        super(appContext, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Single<Result> createWork() {
+        return Completable.defer(() -> {
+            LucaApplication application = (LucaApplication) getApplicationContext();
+            PreferencesManager preferencesManager = application.getPreferencesManager();
+            return preferencesManager.initialize(application).andThen(preferencesManager.compact());
+        }).andThen(Single.just(Result.success()))
+                .onErrorReturnItem(Result.failure());
+    }
+
+}
@@ -0,0 +1,144 @@
+package de.culture4life.luca.preference;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import timber.log.Timber;
+
+/**
+ * Collection of items that is persisted in the {@link PreferencesManager} as one value per day,
+ * using the key prefix followed by the number of (UTC) days since epoch.
+ *
+ * Adding an item only rewrites the partition of the day the item belongs to and expired items are
+ * deleted by removing whole partitions, without having to restore them. Consequently, items are
+ * kept until the end of the day in which they expire.
+ */
+public class DailyPartitionedCollection<Item, Container> {
+
+    private static final long PARTITION_DURATION = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Converts between items and the container type used to persist the items of a partition.
+     */
+    public interface ContainerAdapter<Item, Container> {
+
+        Class<Container> getContainerClass();
+
+        List<Item> getItems(@NonNull Container container);
+
+        Container createContainer(@NonNull List<Item> items);
+
+        long getTimestamp(@NonNull Item item);
+
+        /**
+         * Identifies the item, so that items that have already been migrated can be skipped.
+         */
+        String getKey(@NonNull Item item);
+
+    }
+
+    private final PreferencesManager preferencesManager;
+    private final String keyPrefix;
+    private final ContainerAdapter<Item, Container> adapter;
+
+    public DailyPartitionedCollection(@NonNull PreferencesManager preferencesManager, @NonNull String keyPrefix, @NonNull ContainerAdapter<Item, Container> adapter) {
+        this.preferencesManager = preferencesManager;
+        this.keyPrefix = keyPrefix;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Adds the item to the partition of the day it has been created.
+     */
+    public Completable add(@NonNull Item item) {
+        return Single.fromCallable(() -> getPartitionKey(getPartition(adapter.getTimestamp(item))))
+                .flatMapCompletable(key -> addAll(key, Observable.just(item)));
+    }
+
+    /**
+     * Emits all items, partitions are emitted in chronological order.
+     */
+    public Observable<Item> getItems() {
+        return getPartitions()
+                .sorted()
+                .map(this::getPartitionKey)
+                .concatMap(this::restoreItems);
+    }
+
+    /**
+     * Deletes all partitions which only contain items created before the specified timestamp.
+     */
+    public Completable deleteItemsCreatedBefore(long timestamp) {
+        long firstPartitionToKeep = getPartition(timestamp);
+        return getPartitions()
+                .filter(partition -> partition < firstPartitionToKeep)
+                .map(this::getPartitionKey)
+                .flatMapCompletable(preferencesManager::delete)
+                .doOnComplete(() -> Timber.d("Deleted %s partitions created before %d", keyPrefix, timestamp));
+    }
+
+    public Completable clear() {
+        return getPartitions()
+                .map(this::getPartitionKey)
+                .flatMapCompletable(preferencesManager::delete);
+    }
+
+    /**
+     * Moves the items of a container previously persisted under a single key into partitions.
+     * Items already contained in their partition are skipped, so that a migration that got
+     * interrupted before deleting the legacy key doesn't add them twice.
+     */
+    public Completable migrate(@NonNull String legacyKey) {
+        return preferencesManager.restoreIfAvailable(legacyKey, adapter.getContainerClass())
+                .flatMapObservable(container -> Observable.fromIterable(adapter.getItems(container)))
+                .groupBy(item -> getPartitionKey(getPartition(adapter.getTimestamp(item))))
+                .flatMapCompletable(partitionItems -> addAllNotYetContained(partitionItems.getKey(), partitionItems))
+                .andThen(preferencesManager.delete(legacyKey))
+                .doOnComplete(() -> Timber.d("Migrated %s to partitions", legacyKey));
+    }
+
+    private Completable addAll(@NonNull String key, @NonNull Observable<Item> items) {
+        return restoreItems(key)
+                .concatWith(items)
+                .toList()
+                .map(adapter::createContainer)
+                .flatMapCompletable(container -> preferencesManager.persist(key, container));
+    }
+
+    private Completable addAllNotYetContained(@NonNull String key, @NonNull Observable<Item> items) {
+        return restoreItems(key)
+                .map(adapter::getKey)
+                .collect(HashSet<String>::new, HashSet::add)
+                .flatMapCompletable(containedKeys -> addAll(key, items.filter(item -> !containedKeys.contains(adapter.getKey(item)))));
+    }
+
+    private Observable<Item> restoreItems(@NonNull String key) {
+        return preferencesManager.restoreIfAvailable(key, adapter.getContainerClass())
+                .map(adapter::getItems)
+                .defaultIfEmpty(new ArrayList<>())
+                .flatMapObservable(Observable::fromIterable);
+    }
+
+    private Observable<Long> getPartitions() {
+        return preferencesManager.getKeys()
+                .filter(key -> key.startsWith(keyPrefix))
+                .flatMapMaybe(key -> Maybe.fromCallable(() -> Long.parseLong(key.substring(keyPrefix.length())))
+                        .onErrorComplete());
+    }
+
+    private String getPartitionKey(long partition) {
+        return keyPrefix + partition;
+    }
+
+    private static long getPartition(long timestamp) {
+        return timestamp / PARTITION_DURATION;
+    }
+
+}
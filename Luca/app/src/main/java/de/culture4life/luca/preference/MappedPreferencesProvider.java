@@ -0,0 +1,340 @@
+package de.culture4life.luca.preference;
+
+import com.google.gson.Gson;
+
+import com.nexenio.rxpreferences.provider.PreferencesProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
+import timber.log.Timber;
+
+/**
+ * {@link PreferencesProvider} that stores values as JSON in a {@link PreferencesLog}.
+ *
+ * Unlike the Tray based provider, reads don't require a content provider query and each persist
+ * results in a single write. The log is compacted in the background once it contains mostly
+ * superseded values.
+ *
+ * Values of keys with a registered {@link ValueSerializer} are stored in a binary format instead,
+ * starting with {@link #BINARY_FORMAT_MARKER} and the serializer version. As JSON never starts
+ * with that byte, values persisted as JSON before a serializer has been registered stay readable.
+ */
+public class MappedPreferencesProvider implements PreferencesProvider {
+
+    static final int BINARY_FORMAT_MARKER = 0;
+
+    private final PreferencesLog log;
+    private final Gson gson;
+    private final Map<String, ValueSerializer<?>> serializers;
+    private final Map<String, ValueSerializer<?>> prefixSerializers;
+    private final Subject<Change> changes;
+    private final CompositeDisposable compactionDisposable;
+
+    public MappedPreferencesProvider(@NonNull File file, @NonNull Gson gson) {
+        this.log = new PreferencesLog(file);
+        this.gson = gson;
+        this.serializers = new HashMap<>();
+        this.prefixSerializers = new HashMap<>();
+        this.changes = PublishSubject.<Change>create().toSerialized();
+        this.compactionDisposable = new CompositeDisposable();
+    }
+
+    /**
+     * Persists values of the specified key using the specified serializer. Must be called before
+     * the key is accessed.
+     */
+    public void registerSerializer(@NonNull String key, @NonNull ValueSerializer<?> serializer) {
+        serializers.put(key, serializer);
+    }
+
+    /**
+     * Forces changes of the specified key to the storage device before completing, see {@link
+     * PreferencesLog#addDurableKey(String)}. Meant for values that can't be restored otherwise.
+     */
+    public void registerDurableKey(@NonNull String key) {
+        log.addDurableKey(key);
+    }
+
+    /**
+     * Persists values of all keys starting with the specified prefix using the specified serializer,
+     * e.g. for partitions of a {@link DailyPartitionedCollection}.
+     */
+    public void registerSerializerForKeyPrefix(@NonNull String keyPrefix, @NonNull ValueSerializer<?> serializer) {
+        prefixSerializers.put(keyPrefix, serializer);
+    }
+
+    public Completable open() {
+        return Completable.fromAction(log::open);
+    }
+
+    /**
+     * Replaces all values with the specified, already serialized, values. Used to migrate values
+     * from other providers without having to know their types.
+     */
+    public Completable importSerializedValues(@NonNull Map<String, String> serializedValues) {
+        return Completable.fromAction(() -> {
+            Map<String, byte[]> encodedValues = new HashMap<>(serializedValues.size());
+            for (Map.Entry<String, String> entry : serializedValues.entrySet()) {
+                encodedValues.put(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+            log.replaceAll(encodedValues);
+        })
+                .doOnComplete(() -> Timber.d("Imported %d serialized values", serializedValues.size()));
+    }
+
+    @Override
+    public Observable<String> getKeys() {
+        return Single.fromCallable(log::getKeys)
+                .flatMapObservable(Observable::fromIterable);
+    }
+
+    @Override
+    public Single<Boolean> containsKey(@NonNull String key) {
+        return Single.fromCallable(() -> log.containsKey(key));
+    }
+
+    @Override
+    public <Type> Single<Type> restore(@NonNull String key, @NonNull Class<Type> typeClass) {
+        return restoreIfAvailable(key, typeClass)
+                .switchIfEmpty(Single.error(new NoSuchElementException("No value available for key: " + key)));
+    }
+
+    @Override
+    public <Type> Single<Type> restoreOrDefault(@NonNull String key, @NonNull Type defaultValue) {
+        return restoreIfAvailable(key, getTypeClass(defaultValue))
+                .defaultIfEmpty(defaultValue);
+    }
+
+    @Override
+    public <Type> Observable<Type> restoreOrDefaultAndGetChanges(@NonNull String key, @NonNull Type defaultValue) {
+        return restoreOrDefault(key, defaultValue).toObservable()
+                .concatWith(getChanges(key, getTypeClass(defaultValue)));
+    }
+
+    @Override
+    public <Type> Maybe<Type> restoreIfAvailable(@NonNull String key, @NonNull Class<Type> typeClass) {
+        return Maybe.fromCallable(() -> log.get(key))
+                .map(serializedValue -> deserialize(key, serializedValue, typeClass));
+    }
+
+    @Override
+    public <Type> Observable<Type> restoreIfAvailableAndGetChanges(@NonNull String key, @NonNull Class<Type> typeClass) {
+        return restoreIfAvailable(key, typeClass).toObservable()
+                .concatWith(getChanges(key, typeClass));
+    }
+
+    @Override
+    public <Type> Completable persist(@NonNull String key, @NonNull Type value) {
+        return Completable.fromAction(() -> {
+            byte[] serializedValue = serialize(key, value);
+            log.put(key, serializedValue);
+            changes.onNext(new Change(key, value, serializedValue));
+            compactIfRequired();
+        });
+    }
+
+    @Override
+    public <Type> Completable persistIfNotYetAvailable(@NonNull String key, @NonNull Type value) {
+        return containsKey(key)
+                .flatMapCompletable(isAvailable -> isAvailable ? Completable.complete() : persist(key, value));
+    }
+
+    @Override
+    public <Type> Observable<Type> getChanges(@NonNull String key, @NonNull Class<Type> typeClass) {
+        return changes.filter(change -> change.key.equals(key))
+                .map(change -> change.getValue(typeClass));
+    }
+
+    /**
+     * Persists and deletes the specified keys in a single transaction.
+     */
+    public Completable commit(@NonNull Map<String, Object> values, @NonNull Collection<String> deletedKeys) {
+        return Completable.fromAction(() -> {
+            Map<String, byte[]> serializedValues = new HashMap<>(values.size());
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                serializedValues.put(entry.getKey(), serialize(entry.getKey(), entry.getValue()));
+            }
+            log.commit(serializedValues, deletedKeys);
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                changes.onNext(new Change(entry.getKey(), entry.getValue(), serializedValues.get(entry.getKey())));
+            }
+            compactIfRequired();
+        });
+    }
+
+    @Override
+    public Completable delete(@NonNull String key) {
+        return Completable.fromAction(() -> log.delete(key));
+    }
+
+    @Override
+    public Completable deleteAll() {
+        return Completable.fromAction(log::clear);
+    }
+
+    /*
+        Serialization
+     */
+
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(@NonNull String key, @NonNull Object value) {
+        ValueSerializer<Object> serializer = (ValueSerializer<Object>) getSerializer(key);
+        if (serializer == null || !serializer.getTypeClass().isInstance(value)) {
+            return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+        }
+        BinaryWriter writer = new BinaryWriter()
+                .writeByte(BINARY_FORMAT_MARKER)
+                .writeVarLong(serializer.getVersion());
+        serializer.serialize(value, writer);
+        return writer.toByteArray();
+    }
+
+    private <Type> Type deserialize(@NonNull String key, @NonNull byte[] serializedValue, @NonNull Class<Type> typeClass) throws IOException {
+        if (serializedValue.length == 0 || serializedValue[0] != BINARY_FORMAT_MARKER) {
+            return gson.fromJson(new String(serializedValue, StandardCharsets.UTF_8), typeClass);
+        }
+        ValueSerializer<?> serializer = getSerializer(key);
+        if (serializer == null) {
+            throw new IOException("No serializer registered for binary value of key: " + key);
+        }
+        BinaryReader reader = new BinaryReader(serializedValue);
+        reader.readByte();
+        int version = (int) reader.readVarLong();
+        return typeClass.cast(serializer.deserialize(reader, version));
+    }
+
+    @Nullable
+    private ValueSerializer<?> getSerializer(@NonNull String key) {
+        ValueSerializer<?> serializer = serializers.get(key);
+        if (serializer != null) {
+            return serializer;
+        }
+        for (Map.Entry<String, ValueSerializer<?>> entry : prefixSerializers.entrySet()) {
+            if (key.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compacts the log in the background, if it contains mostly superseded values.
+     */
+    private void compactIfRequired() {
+        if (!log.requiresCompaction()) {
+            return;
+        }
+        compactionDisposable.add(Completable.fromAction(() -> {
+            if (log.requiresCompaction()) {
+                log.compact();
+            }
+        }).subscribeOn(Schedulers.io())
+                .subscribe(
+                        () -> Timber.d("Compacted preferences log"),
+                        throwable -> Timber.w("Unable to compact preferences log: %s", throwable.toString())
+                ));
+    }
+
+    /**
+     * Compacts the log, regardless of the amount of superseded values. Also releases capacity that
+     * is no longer required.
+     */
+    public Single<CompactionStatistics> compact() {
+        return Single.fromCallable(() -> {
+            CompactionStatistics statistics = new CompactionStatistics();
+            statistics.setTimestamp(System.currentTimeMillis());
+            statistics.setFileSizeBefore(log.getFileSize());
+            statistics.setUsedSizeBefore(log.getLength());
+            statistics.setReadDurationBefore(measureReadDuration());
+            log.compact();
+            statistics.setFileSizeAfter(log.getFileSize());
+            statistics.setUsedSizeAfter(log.getLength());
+            statistics.setReadDurationAfter(measureReadDuration());
+            return statistics;
+        });
+    }
+
+    /**
+     * @return the duration it takes to read all values, in microseconds
+     */
+    private long measureReadDuration() throws IOException {
+        long startTime = System.nanoTime();
+        for (String key : log.getKeys()) {
+            log.get(key);
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+    }
+
+    public void dispose() {
+        compactionDisposable.dispose();
+    }
+
+    public PreferencesLog getLog() {
+        return log;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Type> Class<Type> getTypeClass(@NonNull Type value) {
+        return (Class<Type>) value.getClass();
+    }
+
+    /**
+     * @return true if instances of the specified type can't be modified, so that they can safely be
+     * shared between callers
+     */
+    static boolean isImmutableType(@NonNull Class<?> typeClass) {
+        return typeClass == String.class
+                || typeClass == Boolean.class
+                || typeClass == Integer.class
+                || typeClass == Long.class
+                || typeClass == Float.class
+                || typeClass == Double.class
+                || typeClass == Short.class
+                || typeClass == Byte.class
+                || typeClass == Character.class
+                || typeClass.isEnum();
+    }
+
+    private class Change {
+
+        private final String key;
+        private final Object value;
+        private final byte[] serializedValue;
+
+        private Change(@NonNull String key, @NonNull Object value, @NonNull byte[] serializedValue) {
+            this.key = key;
+            this.value = value;
+            this.serializedValue = serializedValue;
+        }
+
+        /**
+         * Provides the persisted value. Mutable values are deserialized for each subscriber, so
+         * that neither the persisting caller nor other subscribers can modify them.
+         */
+        private <Type> Type getValue(@NonNull Class<Type> typeClass) throws IOException {
+            if (isImmutableType(value.getClass()) && typeClass.isInstance(value)) {
+                return typeClass.cast(value);
+            }
+            return deserialize(key, serializedValue, typeClass);
+        }
+
+    }
+
+}
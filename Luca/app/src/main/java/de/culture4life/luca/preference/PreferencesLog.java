@@ -0,0 +1,447 @@
+package de.culture4life.luca.preference;
+
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import timber.log.Timber;
+
+/**
+ * Append-only key-value log, backed by a memory-mapped file.
+ *
+ * Each change is appended as a single record, using a single write. An in-memory index maps each
+ * key to the position of its latest value in the mapped file, so that reads don't require any I/O.
+ * Records that have been superseded by later changes stay in the file until {@link #compact()} is
+ * called.
+ *
+ * Records have the following format:
+ * <pre>
+ * length (4) | CRC32 (4) | operation (1) | key length (2) | key | value
+ * </pre>
+ * Each write is followed by a zero length, which marks the end of the log. Replaying stops at the
+ * first record with an invalid length or checksum, so that an incomplete record (e.g. caused by the
+ * process being killed while writing) will be ignored.
+ *
+ * Batches written by {@link #commit(Map, Collection)} are a single record with an empty key, which
+ * contains all changes as value:
+ * <pre>
+ * n * (operation (1) | key length (2) | value length (4) | key | value)
+ * </pre>
+ * This way, either all or none of the changes in a batch will be replayed.
+ *
+ * Records are written to the page cache only, unless they change one of the {@link #durableKeys}.
+ */
+public class PreferencesLog {
+
+    static final byte OPERATION_SET = 1;
+    static final byte OPERATION_DELETE = 2;
+    static final byte OPERATION_BATCH = 3;
+
+    private static final int HEADER_LENGTH = 8;
+    private static final int TERMINATOR_LENGTH = 4;
+    private static final int MINIMUM_PAYLOAD_LENGTH = 3;
+    private static final int BATCH_ENTRY_HEADER_LENGTH = 7;
+    private static final int MINIMUM_CAPACITY = 64 * 1024;
+    private static final int MINIMUM_COMPACTION_LENGTH = 32 * 1024;
+
+    private final File file;
+    private final Map<String, Entry> index = new HashMap<>();
+
+    /**
+     * Keys of values that can't be restored otherwise (e.g. the user ID). Records changing these
+     * keys are forced to the storage device before returning, so that they survive a power loss.
+     */
+    private final Set<String> durableKeys = new HashSet<>();
+
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int length;
+    private int liveLength;
+
+    public PreferencesLog(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Maps the file and replays all records into the index. Called implicitly by all other
+     * methods, if required.
+     */
+    public synchronized void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        map(getRequiredCapacity((int) channel.size()));
+        replay();
+        Timber.d("Opened preferences log with %d keys, %d of %d bytes in use", index.size(), liveLength, length);
+    }
+
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void replay() {
+        index.clear();
+        length = 0;
+        liveLength = 0;
+        int capacity = buffer.capacity();
+        while (length + HEADER_LENGTH <= capacity) {
+            int payloadLength = buffer.getInt(length);
+            if (payloadLength < MINIMUM_PAYLOAD_LENGTH || payloadLength > capacity - length - HEADER_LENGTH) {
+                break;
+            }
+            byte[] payload = read(length + HEADER_LENGTH, payloadLength);
+            if (buffer.getInt(length + 4) != getChecksum(payload, 0, payloadLength)) {
+                Timber.w("Ignoring incomplete preferences log record at %d", length);
+                break;
+            }
+            indexRecord(ByteBuffer.wrap(payload), length + HEADER_LENGTH);
+            length += HEADER_LENGTH + payloadLength;
+        }
+    }
+
+    /**
+     * Updates the index based on the specified record payload.
+     *
+     * @param payloadOffset the position of the payload in the file
+     */
+    private void indexRecord(@NonNull ByteBuffer payload, int payloadOffset) {
+        byte operation = payload.get();
+        int keyLength = payload.getShort() & 0xFFFF;
+        String key = readString(payload, keyLength);
+        if (operation != OPERATION_BATCH) {
+            int valueLength = payload.remaining();
+            apply(operation, key, new Entry(HEADER_LENGTH + payload.limit(), payloadOffset + payload.position(), valueLength));
+            return;
+        }
+        while (payload.remaining() >= BATCH_ENTRY_HEADER_LENGTH) {
+            byte entryOperation = payload.get();
+            int entryKeyLength = payload.getShort() & 0xFFFF;
+            int entryValueLength = payload.getInt();
+            String entryKey = readString(payload, entryKeyLength);
+            int valueOffset = payload.position();
+            payload.position(valueOffset + entryValueLength);
+            int entryLength = BATCH_ENTRY_HEADER_LENGTH + entryKeyLength + entryValueLength;
+            apply(entryOperation, entryKey, new Entry(entryLength, payloadOffset + valueOffset, entryValueLength));
+        }
+    }
+
+    private void apply(byte operation, @NonNull String key, @NonNull Entry entry) {
+        Entry previousEntry;
+        if (operation == OPERATION_SET) {
+            previousEntry = index.put(key, entry);
+            liveLength += entry.recordLength;
+        } else {
+            previousEntry = index.remove(key);
+        }
+        if (previousEntry != null) {
+            liveLength -= previousEntry.recordLength;
+        }
+    }
+
+    /**
+     * @return the latest value persisted for the specified key, or null if not available
+     */
+    @Nullable
+    public synchronized byte[] get(@NonNull String key) throws IOException {
+        open();
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return read(entry.valueOffset, entry.valueLength);
+    }
+
+    public synchronized boolean containsKey(@NonNull String key) throws IOException {
+        open();
+        return index.containsKey(key);
+    }
+
+    public synchronized List<String> getKeys() throws IOException {
+        open();
+        return new ArrayList<>(index.keySet());
+    }
+
+    public synchronized void addDurableKey(@NonNull String key) {
+        durableKeys.add(key);
+    }
+
+    public synchronized void put(@NonNull String key, @NonNull byte[] value) throws IOException {
+        append(OPERATION_SET, key, value, durableKeys.contains(key));
+    }
+
+    public synchronized void delete(@NonNull String key) throws IOException {
+        if (containsKey(key)) {
+            append(OPERATION_DELETE, key, new byte[0], durableKeys.contains(key));
+        }
+    }
+
+    /**
+     * Sets and deletes the specified keys using a single record, so that either all or none of the
+     * changes will be persisted.
+     */
+    public synchronized void commit(@NonNull Map<String, byte[]> values, @NonNull Collection<String> deletedKeys) throws IOException {
+        open();
+        ByteArrayOutputStream entriesStream = new ByteArrayOutputStream();
+        DataOutputStream entries = new DataOutputStream(entriesStream);
+        boolean isDurable = false;
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            writeBatchEntry(entries, OPERATION_SET, entry.getKey(), entry.getValue());
+            isDurable |= durableKeys.contains(entry.getKey());
+        }
+        for (String key : deletedKeys) {
+            if (index.containsKey(key)) {
+                writeBatchEntry(entries, OPERATION_DELETE, key, new byte[0]);
+                isDurable |= durableKeys.contains(key);
+            }
+        }
+        if (entries.size() > 0) {
+            append(OPERATION_BATCH, "", entriesStream.toByteArray(), isDurable);
+        }
+    }
+
+    private static void writeBatchEntry(@NonNull DataOutputStream entries, byte operation, @NonNull String key, @NonNull byte[] value) throws IOException {
+        byte[] encodedKey = encodeKey(key);
+        entries.writeByte(operation);
+        entries.writeShort(encodedKey.length);
+        entries.writeInt(value.length);
+        entries.write(encodedKey);
+        entries.write(value);
+    }
+
+    /**
+     * Appends a record using a single positional write. The write goes through the page cache, so
+     * the new record is immediately visible in the mapped buffer.
+     *
+     * @param force true if the record should be forced to the storage device before returning
+     */
+    private void append(byte operation, @NonNull String key, @NonNull byte[] value, boolean force) throws IOException {
+        open();
+        byte[] record = encodeRecord(operation, key, value);
+        int recordLength = record.length - TERMINATOR_LENGTH;
+        ensureCapacity(record.length);
+
+        ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+        while (recordBuffer.hasRemaining()) {
+            channel.write(recordBuffer, length + recordBuffer.position());
+        }
+        if (force) {
+            channel.force(false);
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(record, HEADER_LENGTH, recordLength - HEADER_LENGTH).slice();
+        indexRecord(payload, length + HEADER_LENGTH);
+        length += recordLength;
+    }
+
+    /**
+     * Makes sure that the specified amount of bytes can be appended, either by compacting the log
+     * or by growing the mapping.
+     */
+    private void ensureCapacity(int appendLength) throws IOException {
+        if (length + appendLength <= buffer.capacity()) {
+            return;
+        }
+        if (requiresCompaction()) {
+            compact();
+            if (length + appendLength <= buffer.capacity()) {
+                return;
+            }
+        }
+        map(getRequiredCapacity(length + appendLength));
+    }
+
+    /**
+     * @return true if more than half of the log is occupied by superseded records
+     */
+    public synchronized boolean requiresCompaction() {
+        return length >= MINIMUM_COMPACTION_LENGTH && length - liveLength > liveLength;
+    }
+
+    /**
+     * Re-writes the log so that it only contains the latest value of each key.
+     */
+    public synchronized void compact() throws IOException {
+        open();
+        Map<String, byte[]> values = new HashMap<>(index.size());
+        for (String key : index.keySet()) {
+            values.put(key, get(key));
+        }
+        int previousLength = length;
+        replaceAll(values);
+        Timber.d("Compacted preferences log from %d to %d bytes", previousLength, length);
+    }
+
+    /**
+     * Atomically replaces all keys with the specified values. The new log is written to a temporary
+     * file first, so that the current log stays intact if writing fails. The parent directory is
+     * synced after renaming, so that the replacement is durable before returning (e.g. before
+     * clearing migrated legacy values).
+     */
+    public synchronized void replaceAll(@NonNull Map<String, byte[]> values) throws IOException {
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+                byte[] record = encodeRecord(OPERATION_SET, entry.getKey(), entry.getValue());
+                outputStream.write(record, 0, record.length - TERMINATOR_LENGTH);
+            }
+            outputStream.write(new byte[TERMINATOR_LENGTH]);
+            outputStream.getFD().sync();
+        }
+        close();
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Unable to replace preferences log");
+        }
+        syncDirectory(file.getParentFile());
+        open();
+    }
+
+    /**
+     * Flushes the specified directory to the storage device, which makes renaming files within it
+     * durable.
+     */
+    private static void syncDirectory(@NonNull File directory) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try (FileChannel directoryChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+                directoryChannel.force(true);
+            }
+            return;
+        }
+        try {
+            FileDescriptor fileDescriptor = Os.open(directory.getPath(), OsConstants.O_RDONLY, 0);
+            try {
+                Os.fsync(fileDescriptor);
+            } finally {
+                Os.close(fileDescriptor);
+            }
+        } catch (ErrnoException e) {
+            throw new IOException("Unable to sync directory: " + directory, e);
+        }
+    }
+
+    public synchronized void clear() throws IOException {
+        replaceAll(Collections.emptyMap());
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        channel.close();
+        randomAccessFile.close();
+        channel = null;
+        randomAccessFile = null;
+        buffer = null;
+    }
+
+    /**
+     * Size of the log file, including the capacity reserved for future records, in bytes.
+     */
+    public long getFileSize() {
+        return file.length();
+    }
+
+    /**
+     * Amount of bytes occupied by records, including superseded ones.
+     */
+    public synchronized int getLength() throws IOException {
+        open();
+        return length;
+    }
+
+    private byte[] read(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] encodeRecord(byte operation, @NonNull String key, @NonNull byte[] value) {
+        byte[] encodedKey = encodeKey(key);
+        int payloadLength = MINIMUM_PAYLOAD_LENGTH + encodedKey.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + payloadLength + TERMINATOR_LENGTH);
+        record.putInt(payloadLength)
+                .putInt(0)
+                .put(operation)
+                .putShort((short) encodedKey.length)
+                .put(encodedKey)
+                .put(value)
+                .putInt(0);
+        record.putInt(4, getChecksum(record.array(), HEADER_LENGTH, payloadLength));
+        return record.array();
+    }
+
+    private static byte[] encodeKey(@NonNull String key) {
+        byte[] encodedKey = key.getBytes(StandardCharsets.UTF_8);
+        if (encodedKey.length > 0xFFFF) {
+            throw new IllegalArgumentException("Key is too long");
+        }
+        return encodedKey;
+    }
+
+    private static String readString(@NonNull ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int getChecksum(@NonNull byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static int getRequiredCapacity(int length) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < length) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Location of the latest record of a key.
+     */
+    private static class Entry {
+
+        private final int recordLength;
+        private final int valueOffset;
+        private final int valueLength;
+
+        private Entry(int recordLength, int valueOffset, int valueLength) {
+            this.recordLength = recordLength;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+        }
+
+    }
+
+}
@@ -1,8 +1,11 @@
 package de.culture4life.luca.preference;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
 
 import com.nexenio.rxpreferences.provider.BasePreferencesProvider;
 import com.nexenio.rxpreferences.provider.InMemoryPreferencesProvider;
@@ -12,119 +15,793 @@ import com.nexenio.rxpreferences.serializer.GsonSerializer;
 
 import de.culture4life.luca.LucaApplication;
 import de.culture4life.luca.Manager;
+import de.culture4life.luca.checkin.ArchivedCheckInData;
+import de.culture4life.luca.checkin.CheckInData;
+import de.culture4life.luca.checkin.CheckInManager;
+import de.culture4life.luca.crypto.CryptoManager;
+import de.culture4life.luca.crypto.KeyIssuer;
 import de.culture4life.luca.crypto.TraceIdWrapper;
+import de.culture4life.luca.crypto.WrappedSecret;
+import de.culture4life.luca.dataaccess.AccessedData;
+import de.culture4life.luca.dataaccess.AccessedTraceData;
+import de.culture4life.luca.dataaccess.DataAccessManager;
 import de.culture4life.luca.history.HistoryItem;
+import de.culture4life.luca.history.HistoryItemContainer;
+import de.culture4life.luca.history.HistoryManager;
+import de.culture4life.luca.meeting.ArchivedMeetingData;
+import de.culture4life.luca.meeting.MeetingData;
+import de.culture4life.luca.meeting.MeetingGuestData;
+import de.culture4life.luca.meeting.MeetingManager;
+import de.culture4life.luca.registration.RegistrationData;
+import de.culture4life.luca.registration.RegistrationManager;
 
 import net.grandcentrix.tray.TrayPreferences;
+import net.grandcentrix.tray.core.TrayItem;
 import net.grandcentrix.tray.core.TrayStorage;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Action;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import timber.log.Timber;
 
 public class PreferencesManager extends Manager implements PreferencesProvider {
 
     private static final int VERSION = 1;
 
+    /**
+     * If true, preferences are stored in a {@link MappedPreferencesProvider} instead of Tray.
+     * Existing Tray preferences will be migrated (and removed) once, so switching back would lose
+     * all values persisted since then.
+     */
+    private static final boolean USE_MAPPED_PREFERENCES = true;
+    private static final String MAPPED_PREFERENCES_FILE_NAME = "preferences.log";
+
+    /**
+     * Persisted together with the migrated Tray preferences, so that an interrupted migration is
+     * repeated on the next start. Tray is only cleared once this marker has been persisted.
+     */
+    static final String KEY_TRAY_PREFERENCES_MIGRATED = "tray_preferences_migrated";
+
+    /**
+     * Periodically compacts the preferences store while the device is idle and charging, see
+     * {@link #compact()}.
+     */
+    private static final String COMPACTION_WORK_NAME = "preferences_compaction";
+    private static final long COMPACTION_INTERVAL = TimeUnit.DAYS.toMillis(7);
+    public static final String LAST_COMPACTION_STATISTICS_KEY = "last_preferences_compaction_statistics";
+
+    /**
+     * Name of the SQLite database used by Tray, which is vacuumed during compaction.
+     */
+    private static final String TRAY_DATABASE_NAME = "tray.db";
+
+    /**
+     * Values persisted or deleted using {@link #persistDeferred(String, Object)} or {@link
+     * #deleteDeferred(String)} are kept in memory for up to this amount of milliseconds and then
+     * committed in a single transaction. Multiple writes to the same key within that window are
+     * coalesced. Reads always reflect pending writes, change notifications are emitted once the
+     * writes are committed.
+     */
+    private static final long WRITE_BEHIND_DELAY = 250;
+
+    /**
+     * Marks pending deletions in {@link #pendingWrites}.
+     */
+    private static final Object PENDING_DELETION = new Object();
+
+    private final Map<String, Object> pendingWrites = new HashMap<>();
+    private final Object flushLock = new Object();
+    private boolean isFlushScheduled;
+
+    /**
+     * Maximum amount of deserialized values kept in the {@link #objectCache}.
+     */
+    private static final int OBJECT_CACHE_SIZE = 256;
+
+    /**
+     * Marks keys without value in the {@link #objectCache}.
+     */
+    private static final Object NOT_AVAILABLE = new Object();
+
+    /**
+     * Deserialized values by key, so that repeated restores don't need to query and parse the
+     * persisted value. Only values of immutable types are cached (see {@link
+     * MappedPreferencesProvider#isImmutableType(Class)}), other values are deserialized on each
+     * restore so that callers can't modify the values restored by others.
+     */
+    private final Map<String, Object> objectCache = new LinkedHashMap<String, Object>(OBJECT_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > OBJECT_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong objectCacheHitCount = new AtomicLong();
+    private final AtomicLong objectCacheMissCount = new AtomicLong();
+
+    /**
+     * Incremented on each invalidation, so that values which have been restored while being
+     * changed don't end up in the {@link #objectCache}.
+     */
+    private long objectCacheGeneration;
+
+    /**
+     * Shared streams emitting the current value (or {@link #NOT_AVAILABLE}) followed by all changes,
+     * by key and type. Subscribers of the same key and type share a single provider listener and
+     * each change is only deserialized once. Only used for immutable types, like the {@link
+     * #objectCache}.
+     */
+    private final Map<String, Map<Class<?>, Observable<Object>>> sharedValues = new HashMap<>();
+
     private PreferencesProvider provider;
+    private Gson gson;
 
     @Override
     public Completable doInitialize(@NonNull Context context) {
-        return Completable.fromAction(() -> {
-            BasePreferencesProvider preferencesProvider;
+        return Completable.defer(() -> {
+            gson = createGsonBuilder().create();
             if (LucaApplication.isRunningUnitTests()) {
-                preferencesProvider = new InMemoryPreferencesProvider();
+                BasePreferencesProvider preferencesProvider = new InMemoryPreferencesProvider();
+                preferencesProvider.setSerializer(new GsonSerializer(gson));
+                this.provider = preferencesProvider;
+                return Completable.complete();
+            }
+            TrayPreferences trayPreferences = new TrayPreferences(context, context.getPackageName(), VERSION, TrayStorage.Type.DEVICE);
+            if (USE_MAPPED_PREFERENCES) {
+                return initializeMappedPreferencesProvider(context, trayPreferences);
             } else {
-                TrayPreferences trayPreferences = new TrayPreferences(context, context.getPackageName(), VERSION, TrayStorage.Type.DEVICE);
-                preferencesProvider = new TrayPreferencesProvider(trayPreferences);
+                BasePreferencesProvider preferencesProvider = new TrayPreferencesProvider(trayPreferences);
+                preferencesProvider.setSerializer(new GsonSerializer(createGsonBuilder()
+                        .setPrettyPrinting()
+                        .create()));
+                this.provider = preferencesProvider;
+                return Completable.complete();
             }
-            preferencesProvider.setSerializer(new GsonSerializer(new GsonBuilder()
-                    .setPrettyPrinting()
-                    .excludeFieldsWithoutExposeAnnotation()
-                    .registerTypeAdapter(TraceIdWrapper.class, new TraceIdWrapper.TypeAdapter())
-                    .registerTypeAdapter(HistoryItem.class, new HistoryItem.TypeAdapter())
-                    .create()));
-
-            this.provider = preferencesProvider;
         }).andThen(persistDefaultValues());
     }
 
+    private Completable initializeMappedPreferencesProvider(@NonNull Context context, @NonNull TrayPreferences trayPreferences) {
+        return Completable.defer(() -> {
+            File file = new File(context.getFilesDir(), MAPPED_PREFERENCES_FILE_NAME);
+            MappedPreferencesProvider preferencesProvider = new MappedPreferencesProvider(file, gson);
+            registerSerializers(preferencesProvider);
+            registerLegacySerializers(preferencesProvider);
+            registerDurableKeys(preferencesProvider);
+            return preferencesProvider.open()
+                    .andThen(migrateTrayPreferences(trayPreferences, preferencesProvider))
+                    .doOnComplete(() -> this.provider = preferencesProvider)
+                    .doOnComplete(() -> scheduleCompaction(context));
+        });
+    }
+
+    /**
+     * Registers binary serializers for large collections, which would otherwise take up a multiple
+     * of their size as JSON and be slow to parse.
+     */
+    private static void registerSerializers(@NonNull MappedPreferencesProvider preferencesProvider) {
+        preferencesProvider.registerSerializerForKeyPrefix(CheckInManager.KEY_ARCHIVED_CHECK_IN_DATA_PARTITION_PREFIX, new ArchivedCheckInData.BinarySerializer());
+        preferencesProvider.registerSerializerForKeyPrefix(MeetingManager.KEY_ARCHIVED_MEETING_DATA_PARTITION_PREFIX, new ArchivedMeetingData.BinarySerializer());
+        preferencesProvider.registerSerializer(DataAccessManager.ACCESSED_DATA_KEY, new AccessedData.BinarySerializer());
+    }
+
+    /**
+     * Registers the binary serializers of keys that are no longer used, so that values persisted
+     * before can still be migrated.
+     */
+    @SuppressWarnings("deprecation")
+    private static void registerLegacySerializers(@NonNull MappedPreferencesProvider preferencesProvider) {
+        preferencesProvider.registerSerializer(HistoryManager.KEY_HISTORY_ITEMS_V2, new HistoryItemContainer.BinarySerializer());
+        preferencesProvider.registerSerializer(CheckInManager.KEY_ARCHIVED_CHECK_IN_DATA, new ArchivedCheckInData.BinarySerializer());
+        preferencesProvider.registerSerializer(MeetingManager.KEY_ARCHIVED_MEETING_DATA, new ArchivedMeetingData.BinarySerializer());
+    }
+
+    /**
+     * Registers keys of values that can't be restored if lost, e.g. after a power loss right after
+     * registering.
+     */
+    private static void registerDurableKeys(@NonNull MappedPreferencesProvider preferencesProvider) {
+        preferencesProvider.registerDurableKey(RegistrationManager.USER_ID_KEY);
+        preferencesProvider.registerDurableKey(RegistrationManager.REGISTRATION_DATA_KEY);
+        preferencesProvider.registerDurableKey(RegistrationManager.REGISTRATION_COMPLETED_KEY);
+        preferencesProvider.registerDurableKey(CryptoManager.ALIAS_KEYSTORE_PASSWORD);
+        preferencesProvider.registerDurableKey(CryptoManager.DATA_SECRET_KEY);
+        preferencesProvider.registerDurableKey(CryptoManager.USER_TRACE_SECRET_KEY);
+        preferencesProvider.registerDurableKey(KEY_TRAY_PREFERENCES_MIGRATED);
+    }
+
+    private static Completable migrateTrayPreferences(@NonNull TrayPreferences trayPreferences, @NonNull MappedPreferencesProvider preferencesProvider) {
+        return migrateSerializedValues(preferencesProvider, () -> {
+            Map<String, String> serializedValues = new HashMap<>();
+            for (TrayItem trayItem : trayPreferences.getAll()) {
+                if (trayItem.value() != null) {
+                    serializedValues.put(trayItem.key(), trayItem.value());
+                }
+            }
+            return serializedValues;
+        }, trayPreferences::clear);
+    }
+
+    /**
+     * Copies the specified legacy values to the provider, unless that has been done before. Legacy
+     * values are stored as JSON, so they can be copied without being deserialized. They are
+     * imported together with {@link #KEY_TRAY_PREFERENCES_MIGRATED} in a single atomic write and
+     * only cleared afterwards, so that no values are lost if the migration gets interrupted.
+     *
+     * Values are only imported if the provider doesn't contain any values yet, otherwise they have
+     * been migrated by a previous version that didn't persist the marker. Failing to clear the
+     * legacy values doesn't fail the migration, they are ignored once the marker has been persisted.
+     */
+    static Completable migrateSerializedValues(@NonNull MappedPreferencesProvider preferencesProvider, @NonNull Callable<Map<String, String>> legacyValues, @NonNull Action clearLegacyValues) {
+        return preferencesProvider.containsKey(KEY_TRAY_PREFERENCES_MIGRATED)
+                .flatMapCompletable(isMigrated -> {
+                    if (isMigrated) {
+                        return Completable.complete();
+                    }
+                    return preferencesProvider.getKeys()
+                            .isEmpty()
+                            .flatMapCompletable(isEmpty -> {
+                                if (!isEmpty) {
+                                    return preferencesProvider.persist(KEY_TRAY_PREFERENCES_MIGRATED, true);
+                                }
+                                Map<String, String> serializedValues = new HashMap<>(legacyValues.call());
+                                int legacyValueCount = serializedValues.size();
+                                serializedValues.put(KEY_TRAY_PREFERENCES_MIGRATED, String.valueOf(true));
+                                return preferencesProvider.importSerializedValues(serializedValues)
+                                        .doOnComplete(() -> Timber.i("Migrated %d Tray preferences", legacyValueCount));
+                            })
+                            .andThen(Completable.fromAction(clearLegacyValues)
+                                    .doOnError(throwable -> Timber.w("Unable to clear legacy preferences: %s", throwable.toString()))
+                                    .onErrorComplete());
+                });
+    }
+
+    private static GsonBuilder createGsonBuilder() {
+        return new GsonBuilder()
+                .excludeFieldsWithoutExposeAnnotation()
+                .registerTypeAdapter(TraceIdWrapper.class, new TraceIdWrapper.TypeAdapter())
+                .registerTypeHierarchyAdapter(HistoryItem.class, new HistoryItem.TypeAdapter())
+                .registerTypeAdapter(CheckInData.class, new CheckInData.TypeAdapter())
+                .registerTypeAdapter(MeetingData.class, new MeetingData.TypeAdapter())
+                .registerTypeAdapter(MeetingGuestData.class, new MeetingGuestData.TypeAdapter())
+                .registerTypeAdapter(RegistrationData.class, new RegistrationData.TypeAdapter())
+                .registerTypeAdapter(AccessedTraceData.class, new AccessedTraceData.TypeAdapter())
+                .registerTypeAdapter(AccessedData.class, new AccessedData.TypeAdapter())
+                .registerTypeAdapter(ArchivedCheckInData.class, new ArchivedCheckInData.TypeAdapter())
+                .registerTypeAdapter(ArchivedMeetingData.class, new ArchivedMeetingData.TypeAdapter())
+                .registerTypeAdapter(WrappedSecret.class, new WrappedSecret.TypeAdapter())
+                .registerTypeAdapter(KeyIssuer.class, new KeyIssuer.TypeAdapter())
+                .registerTypeAdapter(CompactionStatistics.class, new CompactionStatistics.TypeAdapter());
+    }
+
     private Completable persistDefaultValues() {
         return Completable.complete();
     }
 
+    @Override
+    public void dispose() {
+        flush().onErrorComplete().blockingAwait();
+        invalidateAllSharedValues();
+        if (provider instanceof MappedPreferencesProvider) {
+            ((MappedPreferencesProvider) provider).dispose();
+        }
+        super.dispose();
+    }
+
+    /*
+        Compaction
+     */
+
+    private static void scheduleCompaction(@NonNull Context context) {
+        Constraints.Builder constraintsBuilder = new Constraints.Builder()
+                .setRequiresCharging(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraintsBuilder.setRequiresDeviceIdle(true);
+        }
+
+        PeriodicWorkRequest compactionWorkRequest = new PeriodicWorkRequest.Builder(
+                CompactionWorker.class,
+                COMPACTION_INTERVAL, TimeUnit.MILLISECONDS
+        ).setConstraints(constraintsBuilder.build())
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(COMPACTION_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, compactionWorkRequest);
+    }
+
+    /**
+     * Commits pending writes and re-writes the preferences store, so that superseded and deleted
+     * values no longer take up space. Sizes and read durations before and after are persisted as
+     * {@link CompactionStatistics}, so that they can be compared over time.
+     */
+    public Completable compact() {
+        return flush()
+                .andThen(getInitializedField(provider))
+                .flatMapMaybe(provider -> {
+                    if (provider instanceof MappedPreferencesProvider) {
+                        return ((MappedPreferencesProvider) provider).compact().toMaybe();
+                    }
+                    return Maybe.<CompactionStatistics>empty();
+                })
+                .doOnSuccess(statistics -> Timber.i("Compacted preferences: %s", statistics))
+                .flatMapCompletable(statistics -> persist(LAST_COMPACTION_STATISTICS_KEY, statistics))
+                .andThen(clearTrayPreferences())
+                .andThen(vacuumTrayDatabase())
+                .andThen(flush());
+    }
+
+    /**
+     * Clears values that are left in Tray if the app has been killed after migrating them but
+     * before clearing Tray, see {@link #migrateSerializedValues(MappedPreferencesProvider, Callable,
+     * Action)}.
+     */
+    private Completable clearTrayPreferences() {
+        if (!USE_MAPPED_PREFERENCES) {
+            return Completable.complete();
+        }
+        return Completable.fromAction(() -> new TrayPreferences(context, context.getPackageName(), VERSION, TrayStorage.Type.DEVICE).clear())
+                .doOnError(throwable -> Timber.w("Unable to clear Tray preferences: %s", throwable.toString()))
+                .onErrorComplete();
+    }
+
+    /**
+     * Rebuilds the Tray database, which doesn't shrink by itself after values have been deleted or
+     * migrated to the {@link MappedPreferencesProvider}. Skipped if the database is currently in
+     * use, it will be vacuumed during the next compaction.
+     */
+    private Completable vacuumTrayDatabase() {
+        return Completable.fromAction(() -> {
+            File databaseFile = context.getDatabasePath(TRAY_DATABASE_NAME);
+            if (!databaseFile.exists()) {
+                return;
+            }
+            long previousSize = databaseFile.length();
+            SQLiteDatabase database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            try {
+                database.execSQL("VACUUM");
+            } finally {
+                database.close();
+            }
+            Timber.d("Vacuumed Tray database from %d to %d bytes", previousSize, databaseFile.length());
+        }).doOnError(throwable -> Timber.w("Unable to vacuum Tray database: %s", throwable.toString()))
+                .onErrorComplete();
+    }
+
+    /*
+        Write-behind
+     */
+
+    /**
+     * Commits all pending writes in a single transaction, if supported by the provider. Completes
+     * immediately if no writes are pending.
+     */
+    public Completable flush() {
+        return getInitializedField(provider)
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    synchronized (flushLock) {
+                        Map<String, Object> writes;
+                        synchronized (pendingWrites) {
+                            isFlushScheduled = false;
+                            if (pendingWrites.isEmpty()) {
+                                return;
+                            }
+                            writes = new HashMap<>(pendingWrites);
+                        }
+                        commit(provider, writes).blockingAwait();
+                        invalidateCachedObjects(writes.keySet());
+                        synchronized (pendingWrites) {
+                            for (Map.Entry<String, Object> write : writes.entrySet()) {
+                                // keep writes that have been replaced while committing
+                                if (pendingWrites.get(write.getKey()) == write.getValue()) {
+                                    pendingWrites.remove(write.getKey());
+                                }
+                            }
+                        }
+                        Timber.v("Committed %d pending writes", writes.size());
+                    }
+                }));
+    }
+
+    private static Completable commit(@NonNull PreferencesProvider provider, @NonNull Map<String, Object> writes) {
+        if (provider instanceof MappedPreferencesProvider) {
+            Map<String, Object> values = new HashMap<>();
+            List<String> deletedKeys = new ArrayList<>();
+            for (Map.Entry<String, Object> write : writes.entrySet()) {
+                if (write.getValue() == PENDING_DELETION) {
+                    deletedKeys.add(write.getKey());
+                } else {
+                    values.put(write.getKey(), write.getValue());
+                }
+            }
+            return ((MappedPreferencesProvider) provider).commit(values, deletedKeys);
+        }
+        return Observable.fromIterable(writes.entrySet())
+                .concatMapCompletable(write -> {
+                    if (write.getValue() == PENDING_DELETION) {
+                        return provider.delete(write.getKey());
+                    } else {
+                        return provider.persist(write.getKey(), write.getValue());
+                    }
+                });
+    }
+
+    private Completable addPendingWrite(@NonNull String key, @NonNull Object value) {
+        return getInitializedField(provider)
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    invalidateCachedObjects(Collections.singleton(key));
+                    boolean scheduleFlush;
+                    synchronized (pendingWrites) {
+                        pendingWrites.put(key, value);
+                        scheduleFlush = !isFlushScheduled;
+                        isFlushScheduled = true;
+                    }
+                    if (scheduleFlush) {
+                        managerDisposable.add(Completable.timer(WRITE_BEHIND_DELAY, TimeUnit.MILLISECONDS, Schedulers.io())
+                                .andThen(flush())
+                                .subscribe(
+                                        () -> {
+                                        },
+                                        throwable -> Timber.w("Unable to commit pending writes: %s", throwable.toString())
+                                ));
+                    }
+                }));
+    }
+
+    /**
+     * Writes the specified value (or deletion) right away. A pending write of the same key is
+     * discarded, so that it can't overwrite the value when being committed later on.
+     */
+    private Completable write(@NonNull String key, @NonNull Object value) {
+        return getInitializedField(provider)
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    synchronized (flushLock) {
+                        synchronized (pendingWrites) {
+                            pendingWrites.remove(key);
+                        }
+                        invalidateCachedObjects(Collections.singleton(key));
+                        try {
+                            if (value == PENDING_DELETION) {
+                                provider.delete(key).blockingAwait();
+                            } else {
+                                provider.persist(key, value).blockingAwait();
+                            }
+                        } finally {
+                            invalidateCachedObjects(Collections.singleton(key));
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * @return the pending value, {@link #PENDING_DELETION} or null if no write is pending
+     */
+    @Nullable
+    private Object getPendingWrite(@NonNull String key) {
+        synchronized (pendingWrites) {
+            return pendingWrites.get(key);
+        }
+    }
+
+    /**
+     * Casts the pending value to the specified type. If the type doesn't match (e.g. an Integer
+     * has been persisted but a Long is restored) or is mutable, the value is converted the same way
+     * it would be after being persisted.
+     */
+    private <Type> Type getPendingValue(@NonNull Object pendingWrite, @NonNull Class<Type> typeClass) {
+        if (typeClass.isInstance(pendingWrite) && MappedPreferencesProvider.isImmutableType(pendingWrite.getClass())) {
+            return typeClass.cast(pendingWrite);
+        }
+        return gson.fromJson(gson.toJson(pendingWrite), typeClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Type> Class<Type> getTypeClass(@NonNull Type value) {
+        return (Class<Type>) value.getClass();
+    }
+
+    /*
+        Object cache
+     */
+
+    /**
+     * Restores the value from the {@link #objectCache} or, if not cached yet, from the provider.
+     */
+    private <Type> Maybe<Type> restoreThroughCacheIfAvailable(@NonNull String key, @NonNull Class<Type> typeClass) {
+        return Maybe.defer(() -> {
+            Object cachedObject;
+            long generation;
+            synchronized (objectCache) {
+                cachedObject = objectCache.get(key);
+                generation = objectCacheGeneration;
+            }
+            if (cachedObject == NOT_AVAILABLE) {
+                objectCacheHitCount.incrementAndGet();
+                return Maybe.empty();
+            } else if (typeClass.isInstance(cachedObject)) {
+                objectCacheHitCount.incrementAndGet();
+                return Maybe.just(typeClass.cast(cachedObject));
+            }
+            objectCacheMissCount.incrementAndGet();
+            return getInitializedField(provider)
+                    .flatMapMaybe(provider -> provider.restoreIfAvailable(key, typeClass))
+                    .doOnSuccess(value -> {
+                        if (MappedPreferencesProvider.isImmutableType(value.getClass())) {
+                            cacheObject(key, value, generation);
+                        }
+                    })
+                    .doOnComplete(() -> cacheObject(key, NOT_AVAILABLE, generation));
+        });
+    }
+
+    @Nullable
+    private Object getCachedObject(@NonNull String key) {
+        synchronized (objectCache) {
+            return objectCache.get(key);
+        }
+    }
+
+    /**
+     * Caches the value, unless the cache has been invalidated since the specified generation.
+     */
+    void cacheObject(@NonNull String key, @NonNull Object value, long generation) {
+        synchronized (objectCache) {
+            if (generation == objectCacheGeneration) {
+                objectCache.put(key, value);
+            }
+        }
+    }
+
+    private void invalidateCachedObjects(@NonNull Collection<String> keys) {
+        synchronized (objectCache) {
+            objectCacheGeneration++;
+            for (String key : keys) {
+                objectCache.remove(key);
+            }
+        }
+        invalidateSharedValues(keys);
+    }
+
+    private void invalidateAllCachedObjects() {
+        synchronized (objectCache) {
+            objectCacheGeneration++;
+            objectCache.clear();
+        }
+        invalidateAllSharedValues();
+    }
+
+    long getObjectCacheGeneration() {
+        synchronized (objectCache) {
+            return objectCacheGeneration;
+        }
+    }
+
+    public long getObjectCacheHitCount() {
+        return objectCacheHitCount.get();
+    }
+
+    public long getObjectCacheMissCount() {
+        return objectCacheMissCount.get();
+    }
+
+    /*
+        Shared values
+     */
+
+    /**
+     * Provides the shared stream for the specified key and type, which replays the latest value to
+     * new subscribers. The stream is connected while it has subscribers, late subscribers don't
+     * need to restore the value again. Subscribers of mutable types get a separate stream instead.
+     */
+    private Observable<Object> getSharedValues(@NonNull String key, @NonNull Class<?> typeClass) {
+        if (!MappedPreferencesProvider.isImmutableType(typeClass)) {
+            return restoreIfAvailable(key, typeClass)
+                    .cast(Object.class)
+                    .defaultIfEmpty(NOT_AVAILABLE)
+                    .toObservable()
+                    .concatWith(getInitializedField(provider)
+                            .flatMapObservable(provider -> provider.getChanges(key, typeClass)));
+        }
+        synchronized (sharedValues) {
+            Map<Class<?>, Observable<Object>> valuesByType = sharedValues.get(key);
+            if (valuesByType == null) {
+                valuesByType = new HashMap<>();
+                sharedValues.put(key, valuesByType);
+            }
+            Observable<Object> values = valuesByType.get(typeClass);
+            if (values == null) {
+                values = restoreIfAvailable(key, typeClass)
+                        .cast(Object.class)
+                        .defaultIfEmpty(NOT_AVAILABLE)
+                        .toObservable()
+                        .concatWith(getInitializedField(provider)
+                                .flatMapObservable(provider -> provider.getChanges(key, typeClass)))
+                        .replay(1)
+                        .refCount();
+                valuesByType.put(typeClass, values);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Removes the shared streams of the specified keys after they have been changed, so that new
+     * subscribers start with the changed value instead of the replayed one. This matters for pending
+     * writes and deletions, which are not emitted by the provider. Existing subscribers keep
+     * receiving changes.
+     */
+    private void invalidateSharedValues(@NonNull Collection<String> keys) {
+        synchronized (sharedValues) {
+            for (String key : keys) {
+                sharedValues.remove(key);
+            }
+        }
+    }
+
+    private void invalidateAllSharedValues() {
+        synchronized (sharedValues) {
+            sharedValues.clear();
+        }
+    }
+
+    /*
+        Preferences provider
+     */
+
     @Override
     public Observable<String> getKeys() {
         return getInitializedField(provider)
-                .flatMapObservable(PreferencesProvider::getKeys);
+                .flatMapObservable(PreferencesProvider::getKeys)
+                .toList()
+                .map(keys -> {
+                    Set<String> mergedKeys = new LinkedHashSet<>(keys);
+                    synchronized (pendingWrites) {
+                        for (Map.Entry<String, Object> write : pendingWrites.entrySet()) {
+                            if (write.getValue() == PENDING_DELETION) {
+                                mergedKeys.remove(write.getKey());
+                            } else {
+                                mergedKeys.add(write.getKey());
+                            }
+                        }
+                    }
+                    return mergedKeys;
+                })
+                .flatMapObservable(Observable::fromIterable);
     }
 
     @Override
     public Single<Boolean> containsKey(@NonNull String key) {
-        return getInitializedField(provider)
-                .flatMap(provider -> provider.containsKey(key));
+        return Single.defer(() -> {
+            Object pendingWrite = getPendingWrite(key);
+            if (pendingWrite != null) {
+                return Single.just(pendingWrite != PENDING_DELETION);
+            }
+            Object cachedObject = getCachedObject(key);
+            if (cachedObject != null) {
+                objectCacheHitCount.incrementAndGet();
+                return Single.just(cachedObject != NOT_AVAILABLE);
+            }
+            return getInitializedField(provider)
+                    .flatMap(provider -> provider.containsKey(key));
+        });
     }
 
     @Override
     public <Type> Single<Type> restore(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedField(provider)
-                .flatMap(provider -> provider.restore(key, typeClass));
+        return restoreIfAvailable(key, typeClass)
+                .switchIfEmpty(Single.error(new NoSuchElementException("No value available for key: " + key)));
     }
 
     @Override
     public <Type> Single<Type> restoreOrDefault(@NonNull String key, @NonNull Type defaultValue) {
-        return getInitializedField(provider)
-                .flatMap(provider -> provider.restoreOrDefault(key, defaultValue));
+        return restoreIfAvailable(key, getTypeClass(defaultValue))
+                .defaultIfEmpty(defaultValue);
     }
 
     @Override
     public <Type> Observable<Type> restoreOrDefaultAndGetChanges(@NonNull String key, @NonNull Type defaultValue) {
-        return getInitializedField(provider)
-                .flatMapObservable(provider -> provider.restoreOrDefaultAndGetChanges(key, defaultValue));
+        Class<Type> typeClass = getTypeClass(defaultValue);
+        return Observable.defer(() -> getSharedValues(key, typeClass))
+                .map(value -> value != NOT_AVAILABLE ? typeClass.cast(value) : defaultValue);
     }
 
     @Override
     public <Type> Maybe<Type> restoreIfAvailable(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedField(provider)
-                .flatMapMaybe(provider -> provider.restoreIfAvailable(key, typeClass));
+        return Maybe.defer(() -> {
+            Object pendingWrite = getPendingWrite(key);
+            if (pendingWrite == PENDING_DELETION) {
+                return Maybe.empty();
+            } else if (pendingWrite != null) {
+                return Maybe.just(getPendingValue(pendingWrite, typeClass));
+            }
+            return restoreThroughCacheIfAvailable(key, typeClass);
+        });
     }
 
     @Override
     public <Type> Observable<Type> restoreIfAvailableAndGetChanges(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedField(provider)
-                .flatMapObservable(provider -> provider.restoreIfAvailableAndGetChanges(key, typeClass));
+        return Observable.defer(() -> getSharedValues(key, typeClass))
+                .filter(value -> value != NOT_AVAILABLE)
+                .map(typeClass::cast);
     }
 
     @Override
     public <Type> Completable persist(@NonNull String key, @NonNull Type value) {
-        return getInitializedField(provider)
-                .flatMapCompletable(provider -> provider.persist(key, value));
+        return write(key, value);
+    }
+
+    /**
+     * Like {@link #persist(String, Object)}, but the value is only committed after {@link
+     * #WRITE_BEHIND_DELAY} milliseconds (or when calling {@link #flush()}), together with other
+     * pending writes. The value is lost if the app gets killed before, so this should only be used
+     * for values that can be restored otherwise.
+     */
+    public <Type> Completable persistDeferred(@NonNull String key, @NonNull Type value) {
+        return addPendingWrite(key, value);
     }
 
     @Override
     public <Type> Completable persistIfNotYetAvailable(@NonNull String key, @NonNull Type value) {
-        return getInitializedField(provider)
-                .flatMapCompletable(provider -> provider.persistIfNotYetAvailable(key, value));
+        return containsKey(key)
+                .flatMapCompletable(isAvailable -> isAvailable ? Completable.complete() : persist(key, value));
     }
 
     @Override
     public <Type> Observable<Type> getChanges(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedField(provider)
-                .flatMapObservable(provider -> provider.getChanges(key, typeClass));
+        // the first value is either the restored or the replayed latest value
+        return Observable.defer(() -> getSharedValues(key, typeClass))
+                .skip(1)
+                .map(typeClass::cast);
     }
 
     @Override
     public Completable delete(@NonNull String key) {
-        return getInitializedField(provider)
-                .flatMapCompletable(provider -> provider.delete(key));
+        return write(key, PENDING_DELETION);
+    }
+
+    /**
+     * Like {@link #delete(String)}, but deferred the same way as {@link #persistDeferred(String,
+     * Object)}.
+     */
+    public Completable deleteDeferred(@NonNull String key) {
+        return addPendingWrite(key, PENDING_DELETION);
     }
 
     @Override
     public Completable deleteAll() {
         return getInitializedField(provider)
-                .flatMapCompletable(PreferencesProvider::deleteAll);
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    synchronized (flushLock) {
+                        synchronized (pendingWrites) {
+                            pendingWrites.clear();
+                        }
+                        invalidateAllCachedObjects();
+                        provider.deleteAll().blockingAwait();
+                        invalidateAllCachedObjects();
+                    }
+                }));
     }
 
 }
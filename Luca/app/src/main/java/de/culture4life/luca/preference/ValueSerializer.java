@@ -0,0 +1,24 @@
+package de.culture4life.luca.preference;
+
+import java.io.IOException;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Serializes values of a specific type to a compact binary format, as an alternative to JSON.
+ * Serializers are registered per key in {@link MappedPreferencesProvider}.
+ *
+ * The version is persisted along with each value, so that values persisted by previous app versions
+ * can still be read after the format has been changed.
+ */
+public interface ValueSerializer<Type> {
+
+    Class<Type> getTypeClass();
+
+    int getVersion();
+
+    void serialize(@NonNull Type value, @NonNull BinaryWriter writer);
+
+    Type deserialize(@NonNull BinaryReader reader, int version) throws IOException;
+
+}
@@ -2,7 +2,13 @@ package de.culture4life.luca.registration;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import de.culture4life.luca.util.TypeAdapterUtil;
+
+import java.io.IOException;
 import java.util.UUID;
 
 public class RegistrationData {
@@ -134,4 +140,76 @@ public class RegistrationData {
         this.postalCode = postalCode;
     }
 
+    /**
+     * Streaming adapter for {@link RegistrationData}, avoiding reflection.
+     */
+    public static class TypeAdapter extends com.google.gson.TypeAdapter<RegistrationData> {
+
+        @Override
+        public void write(JsonWriter writer, RegistrationData registrationData) throws IOException {
+            if (registrationData == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("id");
+            TypeAdapterUtil.writeUuid(writer, registrationData.id);
+            writer.name("firstName").value(registrationData.firstName);
+            writer.name("lastName").value(registrationData.lastName);
+            writer.name("phoneNumber").value(registrationData.phoneNumber);
+            writer.name("email").value(registrationData.email);
+            writer.name("street").value(registrationData.street);
+            writer.name("houseNumber").value(registrationData.houseNumber);
+            writer.name("city").value(registrationData.city);
+            writer.name("postalCode").value(registrationData.postalCode);
+            writer.endObject();
+        }
+
+        @Override
+        public RegistrationData read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            RegistrationData registrationData = new RegistrationData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        registrationData.id = TypeAdapterUtil.nextUuidOrNull(reader);
+                        break;
+                    case "firstName":
+                        registrationData.firstName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "lastName":
+                        registrationData.lastName = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "phoneNumber":
+                        registrationData.phoneNumber = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "email":
+                        registrationData.email = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "street":
+                        registrationData.street = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "houseNumber":
+                        registrationData.houseNumber = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "city":
+                        registrationData.city = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    case "postalCode":
+                        registrationData.postalCode = TypeAdapterUtil.nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return registrationData;
+        }
+
+    }
+
 }
@@ -225,8 +225,7 @@ public class RegistrationManager extends Manager {
                 .map(contactDataJson -> contactDataJson.getBytes(StandardCharsets.UTF_8))
                 .flatMap(encodedContactData -> Single.zip(
                         cryptoManager.getDataSecret()
-                                .flatMap(cryptoManager::generateDataEncryptionSecret)
-                                .flatMap(CryptoManager::createKeyFromSecret),
+                                .flatMap(cryptoManager::getDataEncryptionKey),
                         cryptoManager.generateSecureRandomData(16),
                         Pair::new
                 ).flatMap(dataEncryptionKeyAndIv -> cryptoManager.getSymmetricCipherProvider()
@@ -236,8 +235,7 @@ public class RegistrationManager extends Manager {
 
     public Single<byte[]> createContactDataMac(byte[] encryptedContactData) {
         return cryptoManager.getDataSecret()
-                .flatMap(cryptoManager::generateDataAuthenticationSecret)
-                .flatMap(CryptoManager::createKeyFromSecret)
+                .flatMap(cryptoManager::getDataAuthenticationKey)
                 .flatMap(dataAuthenticationKey -> cryptoManager.getMacProvider().sign(encryptedContactData, dataAuthenticationKey));
     }
 
@@ -296,7 +294,7 @@ public class RegistrationManager extends Manager {
                                 .map(UUID::toString)
                                 .doOnSuccess(transferData::setUserId)
                                 .ignoreElement(),
-                        cryptoManager.restoreRecentTracingSecrets(14)
+                        cryptoManager.restoreRecentTracingSecrets(CryptoManager.RECENT_TRACING_SECRETS_DAYS)
                                 .map(pair -> {
                                     TransferData.TraceSecretWrapper traceSecretWrapper = new TransferData.TraceSecretWrapper();
                                     traceSecretWrapper.setTimestamp(TimeUtil.convertToUnixTimestamp(pair.first).blockingGet());
@@ -319,8 +317,7 @@ public class RegistrationManager extends Manager {
                 .map(transferDataJson -> transferDataJson.getBytes(StandardCharsets.UTF_8))
                 .flatMap(encodedContactData -> cryptoManager.generateSecureRandomData(16)
                         .flatMap(iv -> cryptoManager.getSharedDiffieHellmanSecret()
-                                .flatMap(cryptoManager::generateDataEncryptionSecret)
-                                .flatMap(CryptoManager::createKeyFromSecret)
+                                .flatMap(cryptoManager::getDataEncryptionKey)
                                 .map(dataEncryptionKey -> new Pair<>(dataEncryptionKey, iv)))
                         .flatMap(dataEncryptionKeyAndIv -> cryptoManager.getSymmetricCipherProvider()
                                 .encrypt(encodedContactData, dataEncryptionKeyAndIv.second, dataEncryptionKeyAndIv.first)
@@ -329,8 +326,7 @@ public class RegistrationManager extends Manager {
 
     public Single<byte[]> createTransferDataMac(byte[] encryptedTransferData) {
         return cryptoManager.getSharedDiffieHellmanSecret()
-                .flatMap(cryptoManager::generateDataAuthenticationSecret)
-                .flatMap(CryptoManager::createKeyFromSecret)
+                .flatMap(cryptoManager::getDataAuthenticationKey)
                 .flatMap(dataAuthenticationKey -> cryptoManager.getMacProvider().sign(encryptedTransferData, dataAuthenticationKey));
     }
 
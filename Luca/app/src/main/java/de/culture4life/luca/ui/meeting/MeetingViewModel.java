@@ -1,6 +1,5 @@
 package de.culture4life.luca.ui.meeting;
 
-import com.google.gson.Gson;
 import com.google.zxing.EncodeHintType;
 
 import android.app.Application;
@@ -145,7 +144,7 @@ public class MeetingViewModel extends BaseViewModel {
 
         Single<String> additionalData = registrationManager.getOrCreateRegistrationData()
                 .map(MeetingAdditionalData::new)
-                .map(meetingAdditionalData -> new Gson().toJson(meetingAdditionalData))
+                .flatMap(SerializationUtil::serializeToJson)
                 .map(json -> json.getBytes(StandardCharsets.UTF_8))
                 .flatMap(SerializationUtil::serializeToBase64);
 
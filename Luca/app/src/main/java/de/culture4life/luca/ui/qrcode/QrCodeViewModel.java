@@ -1,6 +1,5 @@
 package de.culture4life.luca.ui.qrcode;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -21,6 +20,7 @@ import de.culture4life.luca.checkin.CheckInManager;
 import de.culture4life.luca.crypto.AsymmetricCipherProvider;
 import de.culture4life.luca.crypto.DailyKeyPairPublicKeyWrapper;
 import de.culture4life.luca.crypto.CryptoManager;
+import de.culture4life.luca.crypto.TraceIdWrapper;
 import de.culture4life.luca.meeting.MeetingAdditionalData;
 import de.culture4life.luca.meeting.MeetingManager;
 import de.culture4life.luca.network.NetworkManager;
@@ -39,7 +39,9 @@ import java.nio.ByteBuffer;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.util.NavigableMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
@@ -64,6 +66,8 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
 
     private static final UUID DEBUGGING_SCANNER_ID = UUID.fromString("90e93809-2304-4e81-8c18-debf0a031c55");
     private static final long CHECK_IN_POLLING_INTERVAL = TimeUnit.SECONDS.toMillis(3);
+    private static final int QR_CODE_LOOK_AHEAD_MINUTES = 2;
+    private static final long QR_CODE_SWITCH_DELAY = 50;
 
     private final RegistrationManager registrationManager;
     private final CheckInManager checkInManager;
@@ -82,8 +86,11 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
     private final MutableLiveData<String> privateMeetingUrl = new MutableLiveData<>();
 
     private final BarcodeScanner scanner;
+    private final NavigableMap<Long, PreparedQrCode> preparedQrCodes = new ConcurrentSkipListMap<>();
 
     private UUID userId;
+    @Nullable
+    private volatile PreparedQrCode currentQrCode;
     private Disposable imageProcessingDisposable;
     private ViewError meetingError;
     private ViewError deepLinkError;
@@ -198,45 +205,161 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
         QR code generation
      */
 
+    /**
+     * Shows the QR code for the current minute and prepares the QR codes for the upcoming minutes
+     * in the background, so that the displayed code can be switched at the minute boundary without
+     * waiting for the key generation, encryption and rendering.
+     */
     private Completable keepUpdatingQrCodes() {
-        return Observable.interval(0, 1, TimeUnit.MINUTES, Schedulers.io())
-                .flatMapCompletable(tick -> generateQrCodeData()
+        return showQrCodeForCurrentMinute()
+                .doFinally(() -> updateAsSideEffect(isLoading, false))
+                .andThen(prepareUpcomingQrCodes()
+                        .doOnError(throwable -> Timber.w("Unable to prepare upcoming QR codes: %s", throwable.toString()))
+                        .onErrorComplete())
+                .andThen(Completable.defer(() -> TimeUtil.getCurrentUnixTimestamp()
+                        .flatMapCompletable(currentUnixTimestamp -> {
+                            long delay = TimeUnit.SECONDS.toMillis(60 - (currentUnixTimestamp % 60)) + QR_CODE_SWITCH_DELAY;
+                            return Completable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.io());
+                        })))
+                .repeat()
+                .subscribeOn(Schedulers.io())
+                .doFinally(this::discardPreparedQrCodes);
+    }
+
+    private Completable showQrCodeForCurrentMinute() {
+        return getCurrentRoundedUnixTimestamp()
+                .flatMap(this::getOrCreateQrCode)
+                .flatMapCompletable(preparedQrCode -> {
+                    currentQrCode = preparedQrCode;
+                    return update(qrCode, preparedQrCode.bitmap);
+                });
+    }
+
+    /**
+     * Emits the prepared QR code for the specified minute, if available and still valid, or generates
+     * a new one. Prepared trace IDs and key pairs are only persisted once the QR code is actually
+     * shown.
+     */
+    private Single<PreparedQrCode> getOrCreateQrCode(long roundedUnixTimestamp) {
+        return Maybe.fromCallable(() -> preparedQrCodes.remove(roundedUnixTimestamp))
+                .flatMap(preparedQrCode -> cryptoManager.getDailyKeyPairPublicKeyWrapper()
+                        .map(DailyKeyPairPublicKeyWrapper::getId)
+                        .filter(keyId -> preparedQrCode.qrCodeData.getKeyId() == keyId.byteValue())
+                        .map(keyId -> preparedQrCode))
+                .flatMapSingle(preparedQrCode -> Completable.mergeArray(
+                        cryptoManager.persistTraceIdWrapper(preparedQrCode.traceIdWrapper),
+                        cryptoManager.persistUserEphemeralKeyPair(preparedQrCode.traceIdWrapper.getTraceId(), preparedQrCode.keyPair)
+                ).andThen(Single.just(preparedQrCode)))
+                .doOnSuccess(preparedQrCode -> Timber.d("Using prepared QR code data: %s", preparedQrCode.qrCodeData))
+                .switchIfEmpty(cryptoManager.getTraceIdWrapper(userId)
                         .doOnSubscribe(disposable -> Timber.d("Generating new QR code data"))
-                        .doOnSuccess(qrCodeData -> Timber.i("Generated new QR code data: %s", qrCodeData))
-                        .flatMap(this::serializeQrCodeData)
+                        .flatMap(traceIdWrapper -> cryptoManager.getUserEphemeralKeyPair(traceIdWrapper.getTraceId())
+                                .flatMap(keyPair -> prepareQrCode(traceIdWrapper, keyPair))));
+    }
+
+    /**
+     * Prepares the QR codes for the upcoming {@link #QR_CODE_LOOK_AHEAD_MINUTES} minutes, if not
+     * already prepared. Minutes belonging to the next day are skipped, as they require a different
+     * tracing secret.
+     */
+    private Completable prepareUpcomingQrCodes() {
+        return getCurrentRoundedUnixTimestamp()
+                .doOnSuccess(currentTimestamp -> discardPreparedQrCodesBefore(currentTimestamp + TimeUnit.MINUTES.toSeconds(1)))
+                .flatMapObservable(currentTimestamp -> Observable.range(1, QR_CODE_LOOK_AHEAD_MINUTES)
+                        .map(minutes -> currentTimestamp + TimeUnit.MINUTES.toSeconds(minutes))
+                        .filter(timestamp -> TimeUnit.SECONDS.toDays(timestamp) == TimeUnit.SECONDS.toDays(currentTimestamp)))
+                .filter(timestamp -> !preparedQrCodes.containsKey(timestamp))
+                .concatMapCompletable(timestamp -> prepareQrCode(timestamp)
+                        .doOnSuccess(preparedQrCode -> preparedQrCodes.put(timestamp, preparedQrCode))
+                        .doOnSuccess(preparedQrCode -> Timber.d("Prepared QR code data: %s", preparedQrCode.qrCodeData))
+                        .ignoreElement())
+                .subscribeOn(Schedulers.computation());
+    }
+
+    private Single<PreparedQrCode> prepareQrCode(long roundedUnixTimestamp) {
+        return cryptoManager.generateTraceIdWrapper(userId, roundedUnixTimestamp)
+                .flatMap(traceIdWrapper -> cryptoManager.generateUserEphemeralKeyPair(traceIdWrapper.getTraceId())
+                        .flatMap(keyPair -> prepareQrCode(traceIdWrapper, keyPair)));
+    }
+
+    private Single<PreparedQrCode> prepareQrCode(@NonNull TraceIdWrapper traceIdWrapper, @NonNull KeyPair keyPair) {
+        return generateQrCodeData(traceIdWrapper, keyPair)
+                .flatMap(qrCodeData -> serializeQrCodeData(qrCodeData)
                         .doOnSuccess(serializedQrCodeData -> Timber.d("Serialized QR code data: %s", serializedQrCodeData))
                         .flatMap(this::generateQrCode)
-                        .flatMapCompletable(bitmap -> update(qrCode, bitmap))
-                        .doFinally(() -> updateAsSideEffect(isLoading, false)));
+                        .map(bitmap -> new PreparedQrCode(traceIdWrapper, keyPair, qrCodeData, bitmap)));
+    }
+
+    private void discardPreparedQrCodesBefore(long roundedUnixTimestamp) {
+        NavigableMap<Long, PreparedQrCode> outdatedQrCodes = preparedQrCodes.headMap(roundedUnixTimestamp, false);
+        if (!outdatedQrCodes.isEmpty()) {
+            Timber.d("Discarding %d outdated prepared QR codes", outdatedQrCodes.size());
+            outdatedQrCodes.clear();
+        }
+    }
+
+    /**
+     * Drops all prepared but not yet shown QR codes. As their trace IDs and key pairs have never
+     * been persisted, nothing else needs to be cleaned up.
+     */
+    private void discardPreparedQrCodes() {
+        if (!preparedQrCodes.isEmpty()) {
+            Timber.d("Discarding %d prepared QR codes", preparedQrCodes.size());
+            preparedQrCodes.clear();
+        }
+        currentQrCode = null;
+    }
+
+    private static Single<Long> getCurrentRoundedUnixTimestamp() {
+        return TimeUtil.getCurrentUnixTimestamp()
+                .flatMap(TimeUtil::roundUnixTimestampDownToMinute);
+    }
+
+    /**
+     * Emits the QR code data that is currently shown, if it is still valid for the current minute.
+     * Otherwise, new QR code data will be generated.
+     */
+    private Single<QrCodeData> getCurrentOrGenerateQrCodeData() {
+        return getCurrentRoundedUnixTimestamp()
+                .flatMapMaybe(currentTimestamp -> Maybe.fromCallable(() -> currentQrCode)
+                        .filter(preparedQrCode -> preparedQrCode.traceIdWrapper.getTimestamp() == currentTimestamp))
+                .map(preparedQrCode -> preparedQrCode.qrCodeData)
+                .switchIfEmpty(generateQrCodeData());
     }
 
     private Single<QrCodeData> generateQrCodeData() {
+        return cryptoManager.getTraceIdWrapper(userId)
+                .flatMap(userTraceIdWrapper -> cryptoManager.getUserEphemeralKeyPair(userTraceIdWrapper.getTraceId())
+                        .flatMap(keyPair -> generateQrCodeData(userTraceIdWrapper, keyPair)));
+    }
+
+    private Single<QrCodeData> generateQrCodeData(@NonNull TraceIdWrapper userTraceIdWrapper, @NonNull KeyPair keyPair) {
         return Single.just(new QrCodeData())
-                .flatMap(qrCodeData -> cryptoManager.getTraceIdWrapper(userId)
-                        .flatMapCompletable(userTraceIdWrapper -> Completable.mergeArray(
-                                cryptoManager.getDailyKeyPairPublicKeyWrapper()
-                                        .map(DailyKeyPairPublicKeyWrapper::getId)
-                                        .doOnSuccess(qrCodeData::setKeyId)
-                                        .ignoreElement(),
-                                cryptoManager.getUserEphemeralKeyPair(userTraceIdWrapper.getTraceId())
-                                        .observeOn(Schedulers.computation())
-                                        .flatMapCompletable(keyPair -> Completable.mergeArray(
-                                                encryptUserIdAndSecret(userId, keyPair)
-                                                        .doOnSuccess(encryptedDataAndIv -> qrCodeData.setEncryptedData(encryptedDataAndIv.first))
-                                                        .flatMap(encryptedDataAndIv -> generateVerificationTag(encryptedDataAndIv.first, userTraceIdWrapper.getTimestamp())
-                                                                .doOnSuccess(qrCodeData::setVerificationTag))
-                                                        .ignoreElement(),
-                                                Single.just(keyPair.getPublic())
-                                                        .cast(ECPublicKey.class)
-                                                        .flatMap(publicKey -> AsymmetricCipherProvider.encode(publicKey, true))
-                                                        .doOnSuccess(qrCodeData::setUserEphemeralPublicKey)
-                                                        .ignoreElement()
-                                        )),
-                                TimeUtil.encodeUnixTimestamp(userTraceIdWrapper.getTimestamp())
-                                        .doOnSuccess(qrCodeData::setTimestamp)
-                                        .ignoreElement(),
-                                Completable.fromAction(() -> qrCodeData.setTraceId(userTraceIdWrapper.getTraceId()))))
-                        .andThen(Single.just(qrCodeData)));
+                .flatMap(qrCodeData -> Completable.mergeArray(
+                        cryptoManager.getDailyKeyPairPublicKeyWrapper()
+                                .map(DailyKeyPairPublicKeyWrapper::getId)
+                                .doOnSuccess(qrCodeData::setKeyId)
+                                .ignoreElement(),
+                        Single.just(keyPair)
+                                .observeOn(Schedulers.computation())
+                                .flatMapCompletable(userEphemeralKeyPair -> Completable.mergeArray(
+                                        encryptUserIdAndSecret(userId, userEphemeralKeyPair)
+                                                .doOnSuccess(encryptedDataAndIv -> qrCodeData.setEncryptedData(encryptedDataAndIv.first))
+                                                .flatMap(encryptedDataAndIv -> generateVerificationTag(encryptedDataAndIv.first, userTraceIdWrapper.getTimestamp())
+                                                        .doOnSuccess(qrCodeData::setVerificationTag))
+                                                .ignoreElement(),
+                                        Single.just(userEphemeralKeyPair.getPublic())
+                                                .cast(ECPublicKey.class)
+                                                .flatMap(publicKey -> AsymmetricCipherProvider.encode(publicKey, true))
+                                                .doOnSuccess(qrCodeData::setUserEphemeralPublicKey)
+                                                .ignoreElement()
+                                )),
+                        TimeUtil.encodeUnixTimestamp(userTraceIdWrapper.getTimestamp())
+                                .doOnSuccess(qrCodeData::setTimestamp)
+                                .ignoreElement(),
+                        Completable.fromAction(() -> qrCodeData.setTraceId(userTraceIdWrapper.getTraceId())))
+                        .andThen(Single.just(qrCodeData)))
+                .doOnSuccess(qrCodeData -> Timber.i("Generated new QR code data: %s", qrCodeData));
     }
 
     private Single<android.util.Pair<byte[], byte[]>> encryptUserIdAndSecret(@NonNull UUID userId, @NonNull KeyPair userEphemeralKeyPair) {
@@ -253,8 +376,7 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
                 .flatMap(userDataSecret -> CryptoManager.encode(userId)
                         .flatMap(encodedUserId -> CryptoManager.concatenate(encodedUserId, userDataSecret)))
                 .flatMap(encodedData -> cryptoManager.generateEphemeralDiffieHellmanSecret(userEphemeralPrivateKey)
-                        .flatMap(cryptoManager::generateDataEncryptionSecret)
-                        .flatMap(CryptoManager::createKeyFromSecret)
+                        .flatMap(cryptoManager::deriveDataEncryptionKey)
                         .flatMap(encodingKey -> cryptoManager.getSymmetricCipherProvider().encrypt(encodedData, iv, encodingKey)));
     }
 
@@ -262,8 +384,7 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
         return TimeUtil.encodeUnixTimestamp(roundedUnixTimestamp)
                 .flatMap(encodedTimestamp -> CryptoManager.concatenate(encodedTimestamp, encryptedUserIdAndSecret))
                 .flatMap(encodedData -> cryptoManager.getDataSecret()
-                        .flatMap(cryptoManager::generateDataAuthenticationSecret)
-                        .flatMap(CryptoManager::createKeyFromSecret)
+                        .flatMap(cryptoManager::getDataAuthenticationKey)
                         .flatMap(dataAuthenticationKey -> cryptoManager.getMacProvider().sign(encodedData, dataAuthenticationKey)))
                 .flatMap(verificationTag -> CryptoManager.trim(verificationTag, 8))
                 .doOnSuccess(verificationTag -> Timber.d("Generated new verification tag: %s", SerializationUtil.serializeToBase64(verificationTag).blockingGet()));
@@ -401,7 +522,7 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
         Single<String> additionalData = application.getRegistrationManager()
                 .getOrCreateRegistrationData()
                 .map(MeetingAdditionalData::new)
-                .map(meetingAdditionalData -> new Gson().toJson(meetingAdditionalData));
+                .flatMap(SerializationUtil::serializeToJson);
 
         return extractMeetingHostName.andThen(Single.zip(scannerId, additionalData, Pair::new))
                 .flatMapCompletable(scannerIdAndAdditionalData -> performSelfCheckIn(scannerIdAndAdditionalData.first, scannerIdAndAdditionalData.second));
@@ -410,7 +531,7 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
     private Single<MeetingAdditionalData> getMeetingAdditionalDataFromUrl(@NonNull String url) {
         return getAdditionalFromUrlIfAvailable(url)
                 .toSingle()
-                .map(json -> new Gson().fromJson(json, MeetingAdditionalData.class));
+                .flatMap(json -> SerializationUtil.deserializeFromJson(json, MeetingAdditionalData.class));
     }
 
     private Completable handleSelfCheckInDeepLink(@NonNull String url) {
@@ -422,7 +543,7 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
     }
 
     private Completable performSelfCheckIn(UUID scannerId, @Nullable String additionalData) {
-        return generateQrCodeData()
+        return getCurrentOrGenerateQrCodeData()
                 .flatMapCompletable(qrCodeData -> checkInManager.checkIn(scannerId, qrCodeData))
                 .doOnComplete(() -> uploadAdditionalDataIfAvailableAsSideEffect(scannerId, additionalData));
     }
@@ -452,7 +573,7 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
     }
 
     public void onDebuggingCheckInRequested() {
-        modelDisposable.add(generateQrCodeData()
+        modelDisposable.add(getCurrentOrGenerateQrCodeData()
                 .flatMapCompletable(qrCodeData -> checkInManager.checkIn(DEBUGGING_SCANNER_ID, qrCodeData))
                 .doOnSubscribe(disposable -> updateAsSideEffect(isLoading, true))
                 .doFinally(() -> updateAsSideEffect(isLoading, false))
@@ -588,4 +709,24 @@ public class QrCodeViewModel extends BaseViewModel implements ImageAnalysis.Anal
         return privateMeetingUrl;
     }
 
+    /**
+     * QR code data together with its rendered bitmap and the trace ID and key pair that have been
+     * used to generate it.
+     */
+    private static final class PreparedQrCode {
+
+        private final TraceIdWrapper traceIdWrapper;
+        private final KeyPair keyPair;
+        private final QrCodeData qrCodeData;
+        private final Bitmap bitmap;
+
+        private PreparedQrCode(@NonNull TraceIdWrapper traceIdWrapper, @NonNull KeyPair keyPair, @NonNull QrCodeData qrCodeData, @NonNull Bitmap bitmap) {
+            this.traceIdWrapper = traceIdWrapper;
+            this.keyPair = keyPair;
+            this.qrCodeData = qrCodeData;
+            this.bitmap = bitmap;
+        }
+
+    }
+
 }
@@ -1,17 +1,26 @@
 package de.culture4life.luca.util;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 
 import android.util.Base64;
 
 import com.nexenio.rxkeystore.util.RxBase64;
 
+import de.culture4life.luca.meeting.MeetingAdditionalData;
+import de.culture4life.luca.network.pojo.ContactData;
+import de.culture4life.luca.network.pojo.TransferData;
+
 import androidx.annotation.NonNull;
 import io.reactivex.rxjava3.core.Single;
 
 public final class SerializationUtil {
 
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ContactData.class, new ContactData.TypeAdapter())
+            .registerTypeAdapter(TransferData.class, new TransferData.TypeAdapter())
+            .registerTypeAdapter(MeetingAdditionalData.class, new MeetingAdditionalData.TypeAdapter())
+            .create();
 
     private SerializationUtil() {
     }
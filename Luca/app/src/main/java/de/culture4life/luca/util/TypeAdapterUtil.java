@@ -0,0 +1,100 @@
+package de.culture4life.luca.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Helpers for streaming {@link com.google.gson.TypeAdapter}s, matching the behaviour of the
+ * reflective adapters they replace (e.g. null values and UUIDs as strings).
+ */
+public final class TypeAdapterUtil {
+
+    private TypeAdapterUtil() {
+    }
+
+    @Nullable
+    public static String nextStringOrNull(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    @Nullable
+    public static Long nextLongOrNull(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+
+    public static long nextLongOrZero(@NonNull JsonReader reader) throws IOException {
+        Long value = nextLongOrNull(reader);
+        return value != null ? value : 0;
+    }
+
+    public static int nextIntOrZero(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    public static double nextDoubleOrZero(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextDouble();
+    }
+
+    @Nullable
+    public static UUID nextUuidOrNull(@NonNull JsonReader reader) throws IOException {
+        String value = nextStringOrNull(reader);
+        return value != null ? UUID.fromString(value) : null;
+    }
+
+    @Nullable
+    public static List<String> nextStringsOrNull(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(nextStringOrNull(reader));
+        }
+        reader.endArray();
+        return values;
+    }
+
+    public static void writeUuid(@NonNull JsonWriter writer, @Nullable UUID value) throws IOException {
+        writer.value(value != null ? value.toString() : null);
+    }
+
+    public static void writeStrings(@NonNull JsonWriter writer, @Nullable List<String> values) throws IOException {
+        if (values == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginArray();
+        for (String value : values) {
+            writer.value(value);
+        }
+        writer.endArray();
+    }
+
+}
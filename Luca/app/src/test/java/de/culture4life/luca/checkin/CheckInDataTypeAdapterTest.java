@@ -0,0 +1,48 @@
+package de.culture4life.luca.checkin;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class CheckInDataTypeAdapterTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(CheckInData.class, new CheckInData.TypeAdapter())
+            .create();
+
+    @Test
+    public void read_locationName_restoresLocationAreaName() {
+        String json = "{\"traceId\":\"AAAA\",\"locationName\":\"Area\",\"locationGroupName\":\"Group\",\"timestamp\":1}";
+
+        CheckInData checkInData = gson.fromJson(json, CheckInData.class);
+
+        assertEquals("Area", checkInData.getLocationAreaName());
+        assertEquals("Group - Area", checkInData.getLocationDisplayName());
+    }
+
+    @Test
+    public void write_checkInData_matchesReflectiveAdapter() {
+        CheckInData checkInData = new CheckInData();
+        checkInData.setTraceId("AAAA");
+        checkInData.setLocationId(UUID.fromString("d229e28b-f881-4945-b0d8-09a413b04e00"));
+        checkInData.setLocationAreaName("Area");
+        checkInData.setTimestamp(1);
+        checkInData.setLatitude(52.5);
+        checkInData.setRadius(50);
+
+        String json = gson.toJson(checkInData);
+        CheckInData restoredData = gson.fromJson(json, CheckInData.class);
+
+        assertEquals(new Gson().toJson(checkInData), json);
+        assertEquals(checkInData.getLocationId(), restoredData.getLocationId());
+        assertEquals("Area", restoredData.getLocationAreaName());
+        assertEquals(checkInData.getLatitude(), restoredData.getLatitude(), 0);
+        assertEquals(checkInData.getRadius(), restoredData.getRadius());
+    }
+
+}
@@ -0,0 +1,162 @@
+package de.culture4life.luca.crypto;
+
+import android.content.Context;
+
+import com.nexenio.rxkeystore.RxKeyStore;
+import com.nexenio.rxkeystore.provider.cipher.symmetric.aes.AesCipherProvider;
+import com.nexenio.rxkeystore.provider.hash.Sha256HashProvider;
+import com.nexenio.rxkeystore.provider.mac.HmacProvider;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import androidx.annotation.NonNull;
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.core.Single;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Verifies that the {@link CryptoKernel} produces the same output as the RxKeyStore providers that
+ * {@link MacProvider}, {@link HashProvider} and {@link SymmetricCipherProvider} used before
+ * delegating to it.
+ */
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class CryptoKernelTest {
+
+    private static final int[] DATA_LENGTHS = {0, 1, 15, 16, 17, 32, 100, 1000};
+
+    private Random random;
+    private RxKeyStore rxKeyStore;
+
+    @BeforeClass
+    public static void setupSecurityProviders() {
+        CryptoManager.setupSecurityProviders().blockingAwait();
+    }
+
+    @Before
+    public void setup() {
+        random = new Random(42);
+        rxKeyStore = new RxKeyStore(RxKeyStore.TYPE_BKS, RxKeyStore.PROVIDER_BOUNCY_CASTLE);
+    }
+
+    @Test
+    public void hmacSha256_variousDataLengths_matchesHmacProvider() throws Exception {
+        BaselineMacProvider macProvider = new BaselineMacProvider(rxKeyStore);
+        for (int dataLength : DATA_LENGTHS) {
+            SecretKey key = new SecretKeySpec(createRandomBytes(16), "AES");
+            byte[] data = createRandomBytes(dataLength);
+            byte[] expected = macProvider.sign(data, key).blockingGet();
+
+            assertArrayEquals(expected, CryptoKernel.hmacSha256(key, data));
+
+            byte[] trimmed = new byte[20];
+            CryptoKernel.hmacSha256(key, data, 0, data.length, trimmed, 4, 16);
+            assertArrayEquals(Arrays.copyOf(expected, 16), Arrays.copyOfRange(trimmed, 4, 20));
+        }
+    }
+
+    @Test
+    public void sha256_variousDataLengths_matchesSha256HashProvider() throws Exception {
+        BaselineHashProvider hashProvider = new BaselineHashProvider(rxKeyStore);
+        for (int dataLength : DATA_LENGTHS) {
+            byte[] data = createRandomBytes(dataLength);
+            byte[] expected = hashProvider.hash(data).blockingGet();
+
+            assertArrayEquals(expected, CryptoKernel.sha256(data));
+
+            byte[] trimmed = new byte[16];
+            CryptoKernel.sha256(data, 0, data.length, trimmed, 0, trimmed.length);
+            assertArrayEquals(Arrays.copyOf(expected, 16), trimmed);
+        }
+    }
+
+    @Test
+    public void aesCtrEncrypt_variousDataLengths_matchesAesCipherProvider() throws Exception {
+        BaselineSymmetricCipherProvider cipherProvider = new BaselineSymmetricCipherProvider(rxKeyStore);
+        for (int dataLength : DATA_LENGTHS) {
+            SecretKey key = new SecretKeySpec(createRandomBytes(16), "AES");
+            byte[] iv = createRandomBytes(16);
+            byte[] data = createRandomBytes(dataLength);
+            byte[] expected = cipherProvider.encrypt(data, iv, key).blockingGet();
+
+            byte[] encrypted = CryptoKernel.aesCtrEncrypt(key, iv, data);
+            assertArrayEquals(expected, encrypted);
+            assertArrayEquals(cipherProvider.decrypt(encrypted, iv, key).blockingGet(), CryptoKernel.aesCtrDecrypt(key, iv, encrypted));
+        }
+    }
+
+    private byte[] createRandomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * The {@link MacProvider} before delegating to the {@link CryptoKernel}.
+     */
+    private static class BaselineMacProvider extends HmacProvider {
+
+        BaselineMacProvider(@NonNull RxKeyStore rxKeyStore) {
+            super(rxKeyStore, HASH_ALGORITHM_SHA256);
+        }
+
+    }
+
+    /**
+     * The {@link HashProvider} before delegating to the {@link CryptoKernel}.
+     */
+    private static class BaselineHashProvider extends Sha256HashProvider {
+
+        BaselineHashProvider(@NonNull RxKeyStore rxKeyStore) {
+            super(rxKeyStore);
+        }
+
+    }
+
+    /**
+     * The {@link SymmetricCipherProvider} before delegating to the {@link CryptoKernel}.
+     */
+    private static class BaselineSymmetricCipherProvider extends AesCipherProvider {
+
+        BaselineSymmetricCipherProvider(@NonNull RxKeyStore rxKeyStore) {
+            super(rxKeyStore);
+        }
+
+        @Override
+        public Single<SecretKey> generateKey(@NonNull String alias, @NonNull Context context) {
+            return getKeyGeneratorInstance()
+                    .map(keyGenerator -> {
+                        keyGenerator.init(128);
+                        return keyGenerator.generateKey();
+                    });
+        }
+
+        @Override
+        protected String[] getBlockModes() {
+            return new String[]{"CTR"};
+        }
+
+        @Override
+        protected String[] getEncryptionPaddings() {
+            return new String[]{RxKeyStore.ENCRYPTION_PADDING_NONE};
+        }
+
+        @Override
+        protected String getTransformationAlgorithm() {
+            return "AES/CTR/" + RxKeyStore.ENCRYPTION_PADDING_NONE;
+        }
+
+    }
+
+}
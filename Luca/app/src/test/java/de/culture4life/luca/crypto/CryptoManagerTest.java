@@ -0,0 +1,86 @@
+package de.culture4life.luca.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class CryptoManagerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PersistentKeyStore keyStore;
+
+    @Before
+    public void setup() {
+        CryptoManager.setupSecurityProviders().blockingAwait();
+        SecretKey journalKey = new SecretKeySpec(new byte[16], "AES");
+        keyStore = new PersistentKeyStore(
+                "test",
+                new File(temporaryFolder.getRoot(), "keystore"),
+                new File(temporaryFolder.getRoot(), "keystore.journal"),
+                Single.just("password"),
+                Single.just("password"),
+                Single.just(journalKey)
+        );
+    }
+
+    @Test
+    public void sweepExpiredEntries_meetingCreatedAfterAssembly_keepsActiveMeetingKeyPair() throws Exception {
+        UUID expiredMeetingId = UUID.randomUUID();
+        UUID activeMeetingId = UUID.randomUUID();
+        keyStore.setKeyPair(getAlias(expiredMeetingId), createKeyPair()).blockingAwait();
+
+        AtomicReference<UUID> currentMeetingId = new AtomicReference<>();
+        Single<HashSet<String>> activeAliases = Maybe.fromCallable(currentMeetingId::get)
+                .map(CryptoManagerTest::getAlias)
+                .toObservable()
+                .collect(HashSet::new, HashSet::add);
+        Single<KeyStoreSweepResult> sweep = CryptoManager.sweepExpiredEntries(keyStore, activeAliases);
+
+        currentMeetingId.set(activeMeetingId);
+        keyStore.setKeyPair(getAlias(activeMeetingId), createKeyPair()).blockingAwait();
+
+        sweep.map(KeyStoreSweepResult::getDeletedEntryCount)
+                .test()
+                .assertValue(1);
+        keyStore.getKeyPairIfAvailable(getAlias(activeMeetingId))
+                .test()
+                .assertValueCount(1);
+        keyStore.getKeyPairIfAvailable(getAlias(expiredMeetingId))
+                .test()
+                .assertNoValues();
+    }
+
+    private static String getAlias(UUID meetingId) {
+        return CryptoManager.getMeetingEphemeralKeyPairAlias(meetingId).blockingGet();
+    }
+
+    private static KeyPair createKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+}
@@ -0,0 +1,80 @@
+package de.culture4life.luca.crypto;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import javax.crypto.SecretKey;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class DerivedKeyCacheTest {
+
+    private DerivedKeyCache derivedKeyCache;
+
+    @Before
+    public void setup() {
+        derivedKeyCache = new DerivedKeyCache(1);
+    }
+
+    @Test
+    public void getDataEncryptionKey_evictedWhileInUse_keyStaysValid() throws Exception {
+        byte[] baseSecret = createBaseSecret(1);
+        SecretKey dataEncryptionKey = derivedKeyCache.getDataEncryptionKey(baseSecret);
+        SecretKey dataAuthenticationKey = derivedKeyCache.getDataAuthenticationKey(baseSecret);
+
+        derivedKeyCache.getDataEncryptionKey(createBaseSecret(2));
+
+        assertArrayEquals(getExpectedDataEncryptionSecret(baseSecret), dataEncryptionKey.getEncoded());
+        assertArrayEquals(getExpectedDataAuthenticationSecret(baseSecret), dataAuthenticationKey.getEncoded());
+        assertFalse(dataEncryptionKey.isDestroyed());
+    }
+
+    @Test
+    public void getDataEncryptionKey_clearedWhileInUse_keyStaysValid() throws Exception {
+        byte[] baseSecret = createBaseSecret(1);
+        SecretKey dataEncryptionKey = derivedKeyCache.getDataEncryptionKey(baseSecret);
+
+        derivedKeyCache.clear();
+
+        assertArrayEquals(getExpectedDataEncryptionSecret(baseSecret), dataEncryptionKey.getEncoded());
+    }
+
+    @Test
+    public void getDataEncryptionKey_cachedKey_providesEqualCopy() throws Exception {
+        byte[] baseSecret = createBaseSecret(1);
+        SecretKey firstKey = derivedKeyCache.getDataEncryptionKey(baseSecret);
+        SecretKey secondKey = derivedKeyCache.getDataEncryptionKey(baseSecret);
+
+        assertNotSame(firstKey, secondKey);
+        assertArrayEquals(firstKey.getEncoded(), secondKey.getEncoded());
+    }
+
+    private static byte[] createBaseSecret(int value) {
+        byte[] baseSecret = new byte[32];
+        Arrays.fill(baseSecret, (byte) value);
+        return baseSecret;
+    }
+
+    private static byte[] getExpectedDataEncryptionSecret(byte[] baseSecret) throws Exception {
+        byte[] secret = new byte[16];
+        CryptoManager.generateDataEncryptionSecret(baseSecret, secret, 0);
+        return secret;
+    }
+
+    private static byte[] getExpectedDataAuthenticationSecret(byte[] baseSecret) throws Exception {
+        byte[] secret = new byte[CryptoKernel.SHA256_LENGTH];
+        CryptoManager.generateDataAuthenticationSecret(baseSecret, secret, 0);
+        return secret;
+    }
+
+}
@@ -0,0 +1,86 @@
+package de.culture4life.luca.crypto;
+
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.math.BigInteger;
+import java.security.Security;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class EcCodecTest {
+
+    private static final ECNamedCurveParameterSpec PARAMETER_SPEC = ECNamedCurveTable.getParameterSpec(EcCodec.CURVE_NAME);
+
+    private final Random random = new Random();
+
+    @BeforeClass
+    public static void setupProvider() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Test
+    public void decodePublicKey_decodedBefore_returnsCachedKey() throws Exception {
+        byte[] encodedKey = createEncodedPublicKey();
+
+        ECPublicKey publicKey = EcCodec.decodePublicKey(encodedKey);
+
+        assertSame(publicKey, EcCodec.decodePublicKey(encodedKey.clone()));
+    }
+
+    @Test
+    public void decodePublicKey_cacheSizeExceeded_evictsLeastRecentlyUsedKey() throws Exception {
+        byte[] evictedEncodedKey = createEncodedPublicKey();
+        ECPublicKey evictedKey = EcCodec.decodePublicKey(evictedEncodedKey);
+
+        for (int i = 0; i < EcCodec.PUBLIC_KEY_CACHE_SIZE; i++) {
+            EcCodec.decodePublicKey(createEncodedPublicKey());
+        }
+
+        ECPublicKey decodedKey = EcCodec.decodePublicKey(evictedEncodedKey);
+        assertNotSame(evictedKey, decodedKey);
+        assertEquals(evictedKey, decodedKey);
+    }
+
+    @Test
+    public void decodePublicKeys_nullAndInvalidKeys_decodesValidKeys() throws Exception {
+        byte[] encodedKey = createEncodedPublicKey();
+        byte[] invalidEncodedKey = new byte[]{0x02, 0x01, 0x02};
+
+        List<ECPublicKey> publicKeys = EcCodec.decodePublicKeys(Arrays.asList(null, invalidEncodedKey, encodedKey));
+
+        assertEquals(3, publicKeys.size());
+        assertNull(publicKeys.get(0));
+        assertNull(publicKeys.get(1));
+        assertNotNull(publicKeys.get(2));
+        assertEquals(EcCodec.decodePublicKey(encodedKey), publicKeys.get(2));
+    }
+
+    /**
+     * Creates a compressed point from a random scalar, so that the key has not been cached yet.
+     */
+    private byte[] createEncodedPublicKey() {
+        BigInteger scalar = new BigInteger(PARAMETER_SPEC.getN().bitLength() - 1, random).add(BigInteger.ONE);
+        return PARAMETER_SPEC.getG().multiply(scalar).normalize().getEncoded(true);
+    }
+
+}
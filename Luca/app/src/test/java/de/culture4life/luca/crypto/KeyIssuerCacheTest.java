@@ -0,0 +1,124 @@
+package de.culture4life.luca.crypto;
+
+import com.google.gson.JsonObject;
+
+import de.culture4life.luca.LucaUnitTest;
+import de.culture4life.luca.network.NetworkManager;
+import de.culture4life.luca.network.endpoints.LucaEndpointsV3;
+import de.culture4life.luca.preference.PreferencesManager;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import okhttp3.Headers;
+import retrofit2.Response;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class KeyIssuerCacheTest extends LucaUnitTest {
+
+    private static final String ISSUER_ID = "d229e28b-f881-4945-b0d8-09a413b04e00";
+
+    private LucaEndpointsV3 lucaEndpointsV3;
+    private KeyIssuerCache keyIssuerCache;
+    private ECPublicKey previousSigningKey;
+    private ECPublicKey rotatedSigningKey;
+
+    @Before
+    public void setup() throws Exception {
+        CryptoManager.setupSecurityProviders().blockingAwait();
+        PreferencesManager preferencesManager = new PreferencesManager();
+        preferencesManager.initialize(application).blockingAwait();
+
+        lucaEndpointsV3 = mock(LucaEndpointsV3.class);
+        NetworkManager networkManager = mock(NetworkManager.class);
+        doReturn(Single.just(lucaEndpointsV3)).when(networkManager).getLucaEndpointsV3();
+
+        previousSigningKey = createSigningKey();
+        rotatedSigningKey = createSigningKey();
+        doReturn(Single.just(createResponse(previousSigningKey, "previous")), Single.just(createResponse(rotatedSigningKey, "rotated")))
+                .when(lucaEndpointsV3)
+                .getKeyIssuer(eq(ISSUER_ID), isNull());
+
+        keyIssuerCache = new KeyIssuerCache(preferencesManager, networkManager);
+    }
+
+    @Test
+    public void verify_rotatedSigningKey_fetchesKeyAgainAndVerifies() {
+        keyIssuerCache.getSigningKey(ISSUER_ID).blockingGet();
+
+        keyIssuerCache.verify(ISSUER_ID, signingKey -> verifyIsKey(signingKey, rotatedSigningKey))
+                .test()
+                .assertComplete();
+
+        verify(lucaEndpointsV3, times(2)).getKeyIssuer(eq(ISSUER_ID), isNull());
+        verify(lucaEndpointsV3, never()).getKeyIssuer(eq(ISSUER_ID), eq("previous"));
+        keyIssuerCache.getSigningKey(ISSUER_ID)
+                .test()
+                .assertValue(signingKey -> isKey(signingKey, rotatedSigningKey));
+    }
+
+    @Test
+    public void verify_validCachedSigningKey_doesNotFetchKeyAgain() {
+        keyIssuerCache.getSigningKey(ISSUER_ID).blockingGet();
+
+        keyIssuerCache.verify(ISSUER_ID, signingKey -> verifyIsKey(signingKey, previousSigningKey))
+                .test()
+                .assertComplete();
+
+        verify(lucaEndpointsV3, times(1)).getKeyIssuer(any(), any());
+    }
+
+    @Test
+    public void verify_invalidSignature_fetchesKeyAgainOnlyOnce() {
+        keyIssuerCache.verify(ISSUER_ID, signingKey -> Completable.error(new IllegalStateException("Invalid signature")))
+                .test()
+                .assertError(IllegalStateException.class);
+
+        verify(lucaEndpointsV3, times(2)).getKeyIssuer(any(), any());
+    }
+
+    private static Completable verifyIsKey(PublicKey signingKey, ECPublicKey expectedKey) {
+        return isKey(signingKey, expectedKey) ? Completable.complete() : Completable.error(new IllegalStateException("Invalid signature"));
+    }
+
+    private static boolean isKey(PublicKey signingKey, ECPublicKey expectedKey) {
+        return Arrays.equals(AsymmetricCipherProvider.encode((ECPublicKey) signingKey).blockingGet(), AsymmetricCipherProvider.encode(expectedKey).blockingGet());
+    }
+
+    private static ECPublicKey createSigningKey() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return (ECPublicKey) keyPairGenerator.generateKeyPair().getPublic();
+    }
+
+    private static Response<JsonObject> createResponse(ECPublicKey signingKey, String eTag) {
+        JsonObject body = new JsonObject();
+        body.addProperty("publicHDSKP", AsymmetricCipherProvider.encode(signingKey)
+                .flatMap(CryptoManager::encodeToString)
+                .blockingGet());
+        return Response.success(body, Headers.of("ETag", eTag));
+    }
+
+}
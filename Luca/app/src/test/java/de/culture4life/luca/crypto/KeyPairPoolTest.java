@@ -0,0 +1,106 @@
+package de.culture4life.luca.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.core.Single;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class KeyPairPoolTest {
+
+    private static final int SIZE = 2;
+    private static final long REFILL_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private KeyPairPool keyPairPool;
+
+    @BeforeClass
+    public static void setupProvider() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Before
+    public void setup() {
+        keyPairPool = new KeyPairPool(Single.fromCallable(() -> {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+            keyPairGenerator.initialize(256);
+            return keyPairGenerator.generateKeyPair();
+        }), SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        keyPairPool.dispose();
+    }
+
+    @Test
+    public void take_poolEmpty_generatesKeyPairOnDemand() {
+        KeyPair keyPair = keyPairPool.take().blockingGet();
+
+        assertNotNull(keyPair);
+        assertEquals(0, keyPairPool.getHitCount());
+        assertEquals(1, keyPairPool.getMissCount());
+    }
+
+    @Test
+    public void take_poolFilled_emitsPooledKeyPair() throws Exception {
+        keyPairPool.refill();
+        awaitAvailableKeyPairs(SIZE);
+
+        KeyPair keyPair = keyPairPool.take().blockingGet();
+
+        assertNotNull(keyPair);
+        assertEquals(1, keyPairPool.getHitCount());
+        assertEquals(0, keyPairPool.getMissCount());
+    }
+
+    @Test
+    public void take_keyPairTaken_refillsPool() throws Exception {
+        keyPairPool.refill();
+        awaitAvailableKeyPairs(SIZE);
+
+        keyPairPool.take().blockingGet();
+        keyPairPool.take().blockingGet();
+
+        awaitAvailableKeyPairs(SIZE);
+        assertEquals(2, keyPairPool.getHitCount());
+    }
+
+    @Test
+    public void refill_afterDisposing_refillsPool() throws Exception {
+        keyPairPool.refill();
+        awaitAvailableKeyPairs(SIZE);
+
+        keyPairPool.dispose();
+        assertEquals(0, keyPairPool.getAvailableKeyPairCount());
+
+        keyPairPool.refill();
+        awaitAvailableKeyPairs(SIZE);
+    }
+
+    private void awaitAvailableKeyPairs(int count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + REFILL_TIMEOUT;
+        while (keyPairPool.getAvailableKeyPairCount() < count) {
+            assertTrue("Pool not refilled in time", System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package de.culture4life.luca.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import io.reactivex.rxjava3.core.Completable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyStoreJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private SecretKey journalKey;
+    private KeyStoreJournal journal;
+
+    @BeforeClass
+    public static void setupProvider() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Before
+    public void setup() {
+        file = new File(temporaryFolder.getRoot(), "keystore.journal");
+        journalKey = createJournalKey((byte) 1);
+        journal = new KeyStoreJournal(file);
+    }
+
+    @Test
+    public void readRecords_afterReopening_emitsAppendedRecordsInOrder() throws Exception {
+        KeyPair keyPair = createKeyPair();
+        journal.appendKeyPair("first", keyPair, journalKey).blockingAwait();
+        journal.appendDeletion("second", journalKey).blockingAwait();
+        journal.appendDeletions(Arrays.asList("third", "fourth"), journalKey).blockingAwait();
+
+        KeyStoreJournal reopenedJournal = new KeyStoreJournal(file);
+        reopenedJournal.readRecords(journalKey)
+                .test()
+                .assertValueCount(3)
+                .assertValueAt(0, record -> !record.isDeletion() && record.getAlias().equals("first"))
+                .assertValueAt(1, record -> record.isDeletion() && record.getAliases().equals(Arrays.asList("second")))
+                .assertValueAt(2, record -> record.isDeletion() && record.getAliases().equals(Arrays.asList("third", "fourth")))
+                .assertComplete();
+
+        KeyPair restoredKeyPair = reopenedJournal.readRecords(journalKey).blockingFirst().getKeyPair();
+        assertArrayEquals(keyPair.getPrivate().getEncoded(), restoredKeyPair.getPrivate().getEncoded());
+        assertArrayEquals(keyPair.getPublic().getEncoded(), restoredKeyPair.getPublic().getEncoded());
+        assertEquals(3, reopenedJournal.getRecordCount());
+    }
+
+    @Test
+    public void readRecords_truncatedLastRecord_emitsCompleteRecordsAndAcceptsNewRecords() throws Exception {
+        journal.appendDeletion("first", journalKey).blockingAwait();
+        long firstRecordLength = file.length();
+        journal.appendDeletion("second", journalKey).blockingAwait();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() - 5);
+        }
+
+        KeyStoreJournal reopenedJournal = new KeyStoreJournal(file);
+        reopenedJournal.readRecords(journalKey)
+                .map(KeyStoreJournal.Record::getAlias)
+                .test()
+                .assertValues("first")
+                .assertComplete();
+        assertEquals(firstRecordLength, file.length());
+
+        reopenedJournal.appendDeletion("third", journalKey).blockingAwait();
+        new KeyStoreJournal(file).readRecords(journalKey)
+                .map(KeyStoreJournal.Record::getAlias)
+                .test()
+                .assertValues("first", "third")
+                .assertComplete();
+    }
+
+    @Test
+    public void readRecords_wrongJournalKey_emitsErrorAndKeepsJournal() {
+        journal.appendDeletion("first", journalKey).blockingAwait();
+        long length = file.length();
+
+        new KeyStoreJournal(file).readRecords(createJournalKey((byte) 2))
+                .test()
+                .assertNoValues()
+                .assertError(AEADBadTagException.class);
+
+        assertEquals(length, file.length());
+        new KeyStoreJournal(file).readRecords(journalKey)
+                .test()
+                .assertValueCount(1);
+    }
+
+    @Test
+    public void compact_thresholdReached_persistsSnapshotAndTruncatesJournal() {
+        for (int i = 0; i < KeyStoreJournal.COMPACTION_THRESHOLD - 1; i++) {
+            journal.appendDeletion("alias-" + i, journalKey).blockingAwait();
+        }
+        assertFalse(journal.requiresCompaction());
+        journal.appendDeletion("last", journalKey).blockingAwait();
+        assertTrue(journal.requiresCompaction());
+
+        boolean[] snapshotPersisted = new boolean[1];
+        journal.compact(Completable.fromAction(() -> snapshotPersisted[0] = true)).blockingAwait();
+
+        assertTrue(snapshotPersisted[0]);
+        assertFalse(journal.requiresCompaction());
+        assertFalse(file.exists());
+        journal.readRecords(journalKey)
+                .test()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    private static SecretKey createJournalKey(byte value) {
+        byte[] encodedKey = new byte[32];
+        Arrays.fill(encodedKey, value);
+        return new SecretKeySpec(encodedKey, "AES");
+    }
+
+    private static KeyPair createKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+}
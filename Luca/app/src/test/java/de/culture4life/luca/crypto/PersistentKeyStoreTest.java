@@ -0,0 +1,131 @@
+package de.culture4life.luca.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.core.Single;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class PersistentKeyStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File snapshotFile;
+    private File journalFile;
+    private PersistentKeyStore keyStore;
+
+    @Before
+    public void setup() {
+        CryptoManager.setupSecurityProviders().blockingAwait();
+        snapshotFile = new File(temporaryFolder.getRoot(), "keystore");
+        journalFile = new File(temporaryFolder.getRoot(), "keystore.journal");
+        keyStore = createKeyStore();
+    }
+
+    @Test
+    public void reopen_afterJournaledChanges_restoresEntries() throws Exception {
+        KeyPair keyPair = createKeyPair();
+        applyChanges(keyPair);
+
+        PersistentKeyStore reopenedKeyStore = createKeyStore();
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "d")), getAliases(reopenedKeyStore));
+        assertArrayEquals(keyPair.getPublic().getEncoded(), reopenedKeyStore.getKeyPair("a").blockingGet().getPublic().getEncoded());
+    }
+
+    @Test
+    public void reopen_afterPersistingSnapshot_restoresEntries() throws Exception {
+        KeyPair keyPair = createKeyPair();
+        applyChanges(keyPair);
+        keyStore.persist().blockingAwait();
+        keyStore.setKeyPair("e", createKeyPair()).blockingAwait();
+        keyStore.deleteEntry("d").blockingAwait();
+
+        PersistentKeyStore reopenedKeyStore = createKeyStore();
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "e")), getAliases(reopenedKeyStore));
+        assertArrayEquals(keyPair.getPublic().getEncoded(), reopenedKeyStore.getKeyPair("a").blockingGet().getPublic().getEncoded());
+        assertFalse(new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp").exists());
+    }
+
+    @Test
+    public void reopen_afterLoadingWithLegacyPassword_restoresEntries() throws Exception {
+        PersistentKeyStore legacyKeyStore = createKeyStore("luca", "luca");
+        KeyPair keyPair = createKeyPair();
+        legacyKeyStore.setKeyPair("a", keyPair)
+                .andThen(legacyKeyStore.persist())
+                .blockingAwait();
+
+        PersistentKeyStore migratedKeyStore = createKeyStore("luca", "password");
+        migratedKeyStore.setKeyPair("b", createKeyPair()).blockingAwait();
+
+        PersistentKeyStore reopenedKeyStore = createKeyStore("password", "password");
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), getAliases(reopenedKeyStore));
+        assertArrayEquals(keyPair.getPublic().getEncoded(), reopenedKeyStore.getKeyPair("a").blockingGet().getPublic().getEncoded());
+    }
+
+    /**
+     * Sets entries a to e, deletes b and bulk-deletes c and e.
+     */
+    private void applyChanges(KeyPair keyPair) throws Exception {
+        keyStore.setKeyPair("a", keyPair).blockingAwait();
+        for (String alias : Arrays.asList("b", "c", "d", "e")) {
+            keyStore.setKeyPair(alias, createKeyPair()).blockingAwait();
+        }
+        keyStore.deleteEntry("b").blockingAwait();
+        keyStore.deleteEntries(Arrays.asList("c", "e")).blockingAwait();
+        assertEquals(new HashSet<>(Arrays.asList("a", "d")), getAliases(keyStore));
+    }
+
+    private PersistentKeyStore createKeyStore() {
+        return createKeyStore("password", "password");
+    }
+
+    private PersistentKeyStore createKeyStore(String loadingPassword, String password) {
+        SecretKey journalKey = new SecretKeySpec(new byte[16], "AES");
+        return new PersistentKeyStore(
+                "test",
+                snapshotFile,
+                journalFile,
+                Single.just(loadingPassword),
+                Single.just(password),
+                Single.just(journalKey)
+        );
+    }
+
+    private static Set<String> getAliases(PersistentKeyStore keyStore) {
+        return keyStore.getAliases()
+                .collect(HashSet<String>::new, HashSet::add)
+                .blockingGet();
+    }
+
+    private static KeyPair createKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+}
@@ -0,0 +1,129 @@
+package de.culture4life.luca.crypto;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+public class TraceIdRingBufferTest {
+
+    private static final int CAPACITY = 3;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File(temporaryFolder.getRoot(), "trace_ids.bin");
+    }
+
+    @Test
+    public void read_emptyBuffer_emitsNothing() {
+        new TraceIdRingBuffer(file, CAPACITY).read()
+                .test()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    @Test
+    public void append_belowCapacity_overwritesNothing() {
+        TraceIdRingBuffer ringBuffer = new TraceIdRingBuffer(file, CAPACITY);
+        ringBuffer.append(createTraceIdWrapper(1))
+                .test()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    @Test
+    public void append_capacityReached_overwritesOldest() {
+        TraceIdRingBuffer ringBuffer = new TraceIdRingBuffer(file, CAPACITY);
+        for (int i = 1; i <= CAPACITY; i++) {
+            ringBuffer.append(createTraceIdWrapper(i)).blockingSubscribe();
+        }
+        ringBuffer.append(createTraceIdWrapper(4))
+                .map(TraceIdWrapper::getTimestamp)
+                .test()
+                .assertValue(1L);
+
+        ringBuffer.read()
+                .map(TraceIdWrapper::getTimestamp)
+                .test()
+                .assertValues(2L, 3L, 4L);
+    }
+
+    @Test
+    public void read_afterReopening_emitsPersistedRecordsInOrder() throws Exception {
+        TraceIdRingBuffer ringBuffer = new TraceIdRingBuffer(file, CAPACITY);
+        for (int i = 1; i <= 5; i++) {
+            ringBuffer.append(createTraceIdWrapper(i)).blockingSubscribe();
+        }
+        ringBuffer.close();
+
+        new TraceIdRingBuffer(file, CAPACITY, true).read()
+                .test()
+                .assertValueCount(CAPACITY)
+                .assertValueAt(0, traceIdWrapper -> traceIdWrapper.getTimestamp() == 3 && traceIdWrapper.getTraceId()[0] == 3)
+                .assertValueAt(2, traceIdWrapper -> traceIdWrapper.getTimestamp() == 5 && traceIdWrapper.getTraceId()[0] == 5);
+    }
+
+    @Test
+    public void read_interruptedAppendAtCapacity_skipsIncompleteRecord() throws Exception {
+        TraceIdRingBuffer ringBuffer = new TraceIdRingBuffer(file, CAPACITY);
+        for (int i = 1; i <= CAPACITY; i++) {
+            ringBuffer.append(createTraceIdWrapper(i)).blockingSubscribe();
+        }
+        ringBuffer.close();
+        // the count is written first, simulate the process being killed before the record
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(8);
+            randomAccessFile.writeLong(CAPACITY + 1);
+        }
+
+        new TraceIdRingBuffer(file, CAPACITY).read()
+                .map(TraceIdWrapper::getTimestamp)
+                .test()
+                .assertValues(2L, 3L);
+    }
+
+    @Test
+    public void read_corruptedRecord_skipsRecord() throws Exception {
+        TraceIdRingBuffer ringBuffer = new TraceIdRingBuffer(file, CAPACITY);
+        for (int i = 1; i <= CAPACITY; i++) {
+            ringBuffer.append(createTraceIdWrapper(i)).blockingSubscribe();
+        }
+        ringBuffer.close();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(file.length() - 10);
+            randomAccessFile.writeByte(42);
+        }
+
+        new TraceIdRingBuffer(file, CAPACITY).read()
+                .map(TraceIdWrapper::getTimestamp)
+                .test()
+                .assertValues(1L, 2L);
+    }
+
+    @Test
+    public void clear_afterAppending_emitsNothing() {
+        TraceIdRingBuffer ringBuffer = new TraceIdRingBuffer(file, CAPACITY);
+        ringBuffer.append(createTraceIdWrapper(1))
+                .ignoreElement()
+                .andThen(ringBuffer.clear())
+                .andThen(ringBuffer.read())
+                .test()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    private static TraceIdWrapper createTraceIdWrapper(int index) {
+        byte[] traceId = new byte[TraceIdRingBuffer.TRACE_ID_LENGTH];
+        traceId[0] = (byte) index;
+        return new TraceIdWrapper(index, traceId);
+    }
+
+}
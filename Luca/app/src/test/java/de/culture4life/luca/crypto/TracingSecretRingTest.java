@@ -0,0 +1,68 @@
+package de.culture4life.luca.crypto;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TracingSecretRingTest {
+
+    private static final int CAPACITY = 3;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long TODAY = 18_000 * DAY;
+
+    private TracingSecretRing ring;
+
+    @Before
+    public void setup() {
+        ring = new TracingSecretRing(CAPACITY);
+    }
+
+    @Test
+    public void contains_notLoaded_returnsFalse() {
+        assertFalse(ring.contains(TODAY));
+        assertNull(ring.get(TODAY));
+    }
+
+    @Test
+    public void get_afterPut_returnsSecret() {
+        ring.put(TODAY, new byte[]{1, 2, 3});
+        assertTrue(ring.contains(TODAY));
+        assertArrayEquals(new byte[]{1, 2, 3}, ring.get(TODAY));
+    }
+
+    @Test
+    public void contains_missingSecretPut_returnsTrue() {
+        ring.put(TODAY, null);
+        assertTrue(ring.contains(TODAY));
+        assertNull(ring.get(TODAY));
+    }
+
+    @Test
+    public void put_dayRotated_replacesOldestDay() {
+        ring.put(TODAY - CAPACITY * DAY, new byte[]{1});
+        ring.put(TODAY, new byte[]{2});
+        assertFalse(ring.contains(TODAY - CAPACITY * DAY));
+        assertArrayEquals(new byte[]{2}, ring.get(TODAY));
+    }
+
+    @Test
+    public void put_olderDay_doesNotReplaceRecentDay() {
+        ring.put(TODAY, new byte[]{2});
+        ring.put(TODAY - CAPACITY * DAY, new byte[]{1});
+        assertArrayEquals(new byte[]{2}, ring.get(TODAY));
+    }
+
+    @Test
+    public void clear_afterPut_removesSecrets() {
+        ring.put(TODAY, new byte[]{1});
+        ring.clear();
+        assertFalse(ring.contains(TODAY));
+    }
+
+}
@@ -1,5 +1,7 @@
 package de.culture4life.luca.dataaccess;
 
+import android.util.Base64;
+
 import de.culture4life.luca.LucaUnitTest;
 import de.culture4life.luca.checkin.CheckInManager;
 import de.culture4life.luca.crypto.CryptoManager;
@@ -16,14 +18,19 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
 
 import androidx.test.runner.AndroidJUnit4;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -357,6 +364,44 @@ public class DataAccessManagerTest extends LucaUnitTest {
         assertFalse(DataAccessManager.hasBeenAccessed(potentiallyAccessedData, accessedData));
     }
 
+    @Test
+    public void getHashedTraceId_allCombinations_matchesHashedTraceIdMatrix() {
+        List<String> healthDepartmentIds = Arrays.asList(
+                "8fa43091-261a-45f0-a893-548fc1271025",
+                UUID.randomUUID().toString(),
+                UUID.randomUUID().toString()
+        );
+        // above the sequential threshold, so that hashing is split across tasks
+        List<String> traceIds = new ArrayList<>();
+        traceIds.add("9bZZ5Ak465V60PXv92aMFA==");
+        Random random = new Random(42);
+        for (int i = 1; i < 300; i++) {
+            byte[] traceId = new byte[16];
+            random.nextBytes(traceId);
+            traceIds.add(Base64.encodeToString(traceId, Base64.NO_WRAP));
+        }
+
+        List<UUID> decodedHealthDepartmentIds = new ArrayList<>();
+        for (String healthDepartmentId : healthDepartmentIds) {
+            decodedHealthDepartmentIds.add(UUID.fromString(healthDepartmentId));
+        }
+        List<byte[]> decodedTraceIds = new ArrayList<>();
+        for (String traceId : traceIds) {
+            decodedTraceIds.add(Base64.decode(traceId, Base64.NO_WRAP));
+        }
+        HashedTraceIdMatrix matrix = HashedTraceIdMatrix.calculate(decodedHealthDepartmentIds, decodedTraceIds);
+
+        byte[] hashedTraceId = new byte[HashedTraceIdMatrix.HASHED_TRACE_ID_LENGTH];
+        for (int healthDepartmentIndex = 0; healthDepartmentIndex < healthDepartmentIds.size(); healthDepartmentIndex++) {
+            for (int traceIdIndex = 0; traceIdIndex < traceIds.size(); traceIdIndex++) {
+                String expected = dataAccessManager.getHashedTraceId(healthDepartmentIds.get(healthDepartmentIndex), traceIds.get(traceIdIndex)).blockingGet();
+                matrix.copy(healthDepartmentIndex, traceIdIndex, hashedTraceId, 0);
+                assertEquals(expected, Base64.encodeToString(hashedTraceId, Base64.NO_WRAP));
+            }
+        }
+        assertEquals("qiqA2+SpnoioxRMWb7IDsw==", dataAccessManager.getHashedTraceId(healthDepartmentIds.get(0), traceIds.get(0)).blockingGet());
+    }
+
     @Test
     public void hasBeenAccessed_accessedTraceId_emitsTrue() {
         AccessedTraceData newAccessedTraceData = new AccessedTraceData();
@@ -0,0 +1,46 @@
+package de.culture4life.luca.history;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryItemTypeAdapterTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeHierarchyAdapter(HistoryItem.class, new HistoryItem.TypeAdapter())
+            .create();
+
+    @Test
+    public void read_typeAfterSubclassFields_restoresSubclass() {
+        String json = "{\"tracingId\":\"AAAA\",\"checkInTimestamp\":1,\"checkOutTimestamp\":2,\"type\":8,\"relatedId\":\"id\",\"timestamp\":3}";
+
+        HistoryItem item = gson.fromJson(json, HistoryItem.class);
+
+        assertTrue(item instanceof TraceDataAccessedItem);
+        TraceDataAccessedItem accessedItem = (TraceDataAccessedItem) item;
+        assertEquals("AAAA", accessedItem.getTraceId());
+        assertEquals(1, accessedItem.getCheckInTimestamp());
+        assertEquals(2, accessedItem.getCheckOutTimestamp());
+        assertEquals("id", accessedItem.getRelatedId());
+        assertEquals(3, accessedItem.getTimestamp());
+    }
+
+    @Test
+    public void write_meetingEndedItem_restoresGuests() {
+        MeetingEndedItem item = new MeetingEndedItem();
+        item.setGuests(Arrays.asList("Erika", "Max"));
+
+        HistoryItem restoredItem = gson.fromJson(gson.toJson(item, HistoryItem.class), HistoryItem.class);
+
+        assertTrue(restoredItem instanceof MeetingEndedItem);
+        assertEquals(item.getGuests(), ((MeetingEndedItem) restoredItem).getGuests());
+        assertEquals(item.getTimestamp(), restoredItem.getTimestamp());
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.culture4life.luca.history;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class HistoryLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private HistoryLog historyLog;
+
+    @Before
+    public void setup() {
+        file = new File(temporaryFolder.getRoot(), "history.log");
+        historyLog = new HistoryLog(file);
+    }
+
+    @Test
+    public void getItems_appendedOutOfOrder_returnsNewestFirst() throws Exception {
+        historyLog.append(createItem(2));
+        historyLog.append(createItem(3));
+        historyLog.append(createItem(1));
+
+        List<HistoryItem> items = historyLog.getItems();
+        assertEquals(3, items.get(0).getTimestamp());
+        assertEquals(2, items.get(1).getTimestamp());
+        assertEquals(1, items.get(2).getTimestamp());
+    }
+
+    @Test
+    public void getItems_afterReopening_returnsAppendedItems() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            historyLog.append(createItem(i));
+        }
+        historyLog.close();
+
+        List<HistoryItem> items = new HistoryLog(file).getItems();
+        assertEquals(10, items.size());
+        assertEquals(9, items.get(0).getTimestamp());
+        assertEquals("Item 9", items.get(0).getDisplayName());
+    }
+
+    @Test
+    public void removeItemsCreatedAtOrBefore_oldItems_removesItemsAfterReopening() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            historyLog.append(createItem(i));
+        }
+        long length = historyLog.getLength();
+
+        historyLog.removeItemsCreatedAtOrBefore(899);
+        historyLog.close();
+
+        HistoryLog reopenedHistoryLog = new HistoryLog(file);
+        List<HistoryItem> items = reopenedHistoryLog.getItems();
+        assertEquals(100, items.size());
+        assertEquals(900, items.get(items.size() - 1).getTimestamp());
+        assertTrue(reopenedHistoryLog.getLength() < length);
+    }
+
+    @Test
+    public void removeItemsCreatedAtOrBefore_itemAtHead_removesItemFromFile() throws Exception {
+        historyLog.append(createItem(1));
+        historyLog.append(createItem(2));
+
+        historyLog.removeItemsCreatedAtOrBefore(1);
+        historyLog.close();
+
+        assertFalse(containsDisplayName(file, "Item 1"));
+        assertEquals(1, new HistoryLog(file).getItems().size());
+    }
+
+    @Test
+    public void removeItemsCreatedAtOrBefore_itemNotAtHead_removesItemFromFile() throws Exception {
+        historyLog.append(createItem(2));
+        historyLog.append(createItem(1));
+
+        historyLog.removeItemsCreatedAtOrBefore(1);
+        historyLog.close();
+
+        assertFalse(containsDisplayName(file, "Item 1"));
+        assertEquals(1, new HistoryLog(file).getItems().size());
+    }
+
+    private static boolean containsDisplayName(File file, String displayName) throws Exception {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        return content.contains(displayName);
+    }
+
+    private static HistoryItem createItem(long timestamp) {
+        HistoryItem item = new HistoryItem(HistoryItem.TYPE_CHECK_IN);
+        item.setTimestamp(timestamp);
+        item.setDisplayName("Item " + timestamp);
+        return item;
+    }
+
+}
@@ -0,0 +1,45 @@
+package de.culture4life.luca.network.pojo;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TracesResponseDataTypeAdapterTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(TracesResponseData.class, new TracesResponseData.TypeAdapter())
+            .create();
+
+    @Test
+    public void read_nullTimestamps_restoresNullTimestamps() {
+        String json = "{\"traceId\":\"AAAA\",\"checkin\":null,\"checkout\":null,\"data\":{\"publicKey\":\"key\"}}";
+
+        TracesResponseData tracesResponseData = gson.fromJson(json, TracesResponseData.class);
+
+        assertEquals("AAAA", tracesResponseData.getTraceId());
+        assertNull(tracesResponseData.getCheckInTimestamp());
+        assertNull(tracesResponseData.getCheckOutTimestamp());
+        assertEquals(0, tracesResponseData.getCheckOutTimestampOrZero());
+        assertEquals("key", tracesResponseData.getAdditionalData().getPublicKey());
+    }
+
+    @Test
+    public void write_nullTimestamps_matchesReflectiveAdapter() {
+        TracesResponseData tracesResponseData = new TracesResponseData();
+        tracesResponseData.setTraceId("AAAA");
+        tracesResponseData.setCheckInTimestamp(1L);
+
+        String json = gson.toJson(tracesResponseData);
+        TracesResponseData restoredData = gson.fromJson(json, TracesResponseData.class);
+
+        assertEquals(new Gson().toJson(tracesResponseData), json);
+        assertEquals(Long.valueOf(1), restoredData.getCheckInTimestamp());
+        assertNull(restoredData.getCheckOutTimestamp());
+        assertNull(restoredData.getAdditionalData());
+    }
+
+}
@@ -0,0 +1,101 @@
+package de.culture4life.luca.preference;
+
+import de.culture4life.luca.LucaUnitTest;
+import de.culture4life.luca.checkin.ArchivedCheckInData;
+import de.culture4life.luca.checkin.CheckInData;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import androidx.test.runner.AndroidJUnit4;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class DailyPartitionedCollectionTest extends LucaUnitTest {
+
+    private static final String KEY_PREFIX = "test_items_";
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private PreferencesManager preferencesManager;
+    private DailyPartitionedCollection<CheckInData, ArchivedCheckInData> collection;
+
+    @Before
+    public void setUp() {
+        preferencesManager = new PreferencesManager();
+        preferencesManager.initialize(application).blockingAwait();
+        collection = new DailyPartitionedCollection<>(preferencesManager, KEY_PREFIX, new ArchivedCheckInData.ContainerAdapter());
+    }
+
+    @Test
+    public void add_itemsOfDifferentDays_persistsOnePartitionPerDay() {
+        collection.add(createItem(10 * DAY + 1))
+                .andThen(collection.add(createItem(10 * DAY + 2)))
+                .andThen(collection.add(createItem(11 * DAY)))
+                .blockingAwait();
+
+        preferencesManager.getKeys()
+                .filter(key -> key.startsWith(KEY_PREFIX))
+                .sorted()
+                .test()
+                .assertValues(KEY_PREFIX + 10, KEY_PREFIX + 11);
+    }
+
+    @Test
+    public void deleteItemsCreatedBefore_expiredPartitions_deletesOnlyExpiredPartitions() {
+        collection.add(createItem(10 * DAY))
+                .andThen(collection.add(createItem(11 * DAY)))
+                .andThen(collection.add(createItem(12 * DAY)))
+                .andThen(collection.deleteItemsCreatedBefore(11 * DAY + 1))
+                .blockingAwait();
+
+        collection.getItems()
+                .map(CheckInData::getTimestamp)
+                .test()
+                .assertValues(11 * DAY, 12 * DAY);
+    }
+
+    @Test
+    public void migrate_legacyContainer_movesItemsToPartitions() {
+        String legacyKey = "legacy_test_items";
+        ArchivedCheckInData container = new ArchivedCheckInData(Arrays.asList(createItem(11 * DAY), createItem(10 * DAY)));
+        preferencesManager.persist(legacyKey, container)
+                .andThen(collection.migrate(legacyKey))
+                .blockingAwait();
+
+        collection.getItems()
+                .map(CheckInData::getTimestamp)
+                .test()
+                .assertValues(10 * DAY, 11 * DAY);
+        preferencesManager.containsKey(legacyKey)
+                .test()
+                .assertValue(false);
+    }
+
+    @Test
+    public void migrate_interruptedBeforeDeletingLegacyContainer_doesNotDuplicateItems() {
+        String legacyKey = "legacy_test_items";
+        ArchivedCheckInData container = new ArchivedCheckInData(Arrays.asList(createItem(10 * DAY), createItem(11 * DAY)));
+        preferencesManager.persist(legacyKey, container)
+                .andThen(collection.add(createItem(10 * DAY)))
+                .andThen(collection.migrate(legacyKey))
+                .blockingAwait();
+
+        collection.getItems()
+                .map(CheckInData::getTimestamp)
+                .test()
+                .assertValues(10 * DAY, 11 * DAY);
+    }
+
+    private static CheckInData createItem(long timestamp) {
+        CheckInData item = new CheckInData();
+        item.setTraceId("trace-" + timestamp);
+        item.setTimestamp(timestamp);
+        return item;
+    }
+
+}
@@ -0,0 +1,126 @@
+package de.culture4life.luca.preference;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import de.culture4life.luca.checkin.ArchivedCheckInData;
+import de.culture4life.luca.checkin.CheckInData;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.observers.TestObserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class MappedPreferencesProviderTest {
+
+    private static final String KEY = "archived_check_in_data";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Gson gson;
+    private File file;
+    private MappedPreferencesProvider provider;
+
+    @Before
+    public void setup() {
+        gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+        file = new File(temporaryFolder.getRoot(), "preferences.log");
+        provider = new MappedPreferencesProvider(file, gson);
+    }
+
+    @Test
+    public void restore_binarySerializerRegistered_restoresPersistedValue() {
+        provider.registerSerializer(KEY, new ArchivedCheckInData.BinarySerializer());
+        ArchivedCheckInData archivedCheckInData = createArchivedCheckInData(10);
+
+        provider.persist(KEY, archivedCheckInData).blockingAwait();
+
+        MappedPreferencesProvider reopenedProvider = new MappedPreferencesProvider(file, gson);
+        reopenedProvider.registerSerializer(KEY, new ArchivedCheckInData.BinarySerializer());
+        ArchivedCheckInData restoredCheckInData = reopenedProvider.restore(KEY, ArchivedCheckInData.class).blockingGet();
+        assertEquals(gson.toJson(archivedCheckInData), gson.toJson(restoredCheckInData));
+    }
+
+    @Test
+    public void persist_binarySerializerRegistered_requiresLessSpaceThanJson() throws Exception {
+        provider.registerSerializer(KEY, new ArchivedCheckInData.BinarySerializer());
+        ArchivedCheckInData archivedCheckInData = createArchivedCheckInData(100);
+
+        provider.persist(KEY, archivedCheckInData).blockingAwait();
+
+        byte[] serializedValue = provider.getLog().get(KEY);
+        assertEquals(MappedPreferencesProvider.BINARY_FORMAT_MARKER, serializedValue[0]);
+        assertTrue(serializedValue.length * 2 < gson.toJson(archivedCheckInData).length());
+    }
+
+    @Test
+    public void getChanges_mutableValuePersisted_emitsCopy() {
+        provider.registerSerializer(KEY, new ArchivedCheckInData.BinarySerializer());
+        ArchivedCheckInData archivedCheckInData = createArchivedCheckInData(3);
+        TestObserver<ArchivedCheckInData> changesObserver = provider.getChanges(KEY, ArchivedCheckInData.class).test();
+
+        provider.persist(KEY, archivedCheckInData).blockingAwait();
+
+        ArchivedCheckInData changedCheckInData = changesObserver.values().get(0);
+        assertNotSame(archivedCheckInData, changedCheckInData);
+        assertEquals(gson.toJson(archivedCheckInData), gson.toJson(changedCheckInData));
+    }
+
+    @Test
+    public void restore_jsonPersistedBeforeRegistration_restoresPersistedValue() {
+        ArchivedCheckInData archivedCheckInData = createArchivedCheckInData(3);
+        provider.persist(KEY, archivedCheckInData).blockingAwait();
+
+        provider.registerSerializer(KEY, new ArchivedCheckInData.BinarySerializer());
+
+        ArchivedCheckInData restoredCheckInData = provider.restore(KEY, ArchivedCheckInData.class).blockingGet();
+        assertEquals(gson.toJson(archivedCheckInData), gson.toJson(restoredCheckInData));
+    }
+
+    @Test
+    public void compact_supersededValues_reducesUsedSize() {
+        for (int i = 0; i < 10; i++) {
+            provider.persist(KEY, createArchivedCheckInData(10)).blockingAwait();
+        }
+
+        CompactionStatistics statistics = provider.compact().blockingGet();
+
+        assertTrue(statistics.getUsedSizeAfter() * 5 < statistics.getUsedSizeBefore());
+        assertTrue(provider.restoreIfAvailable(KEY, ArchivedCheckInData.class).blockingGet().getCheckIns().size() == 10);
+    }
+
+    private static ArchivedCheckInData createArchivedCheckInData(int count) {
+        List<CheckInData> checkIns = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CheckInData checkInData = new CheckInData();
+            checkInData.setTraceId("AAECAwQFBgcICQoLDA0ODw==");
+            checkInData.setLocationId(UUID.randomUUID());
+            checkInData.setLocationAreaName("Area " + i);
+            checkInData.setLocationGroupName("Group");
+            checkInData.setTimestamp(1617000000000L + i);
+            checkInData.setLatitude(52.52);
+            checkInData.setLongitude(13.40);
+            checkInData.setRadius(50);
+            checkIns.add(checkInData);
+        }
+        return new ArchivedCheckInData(checkIns);
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.culture4life.luca.preference;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PreferencesLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private PreferencesLog log;
+
+    @Before
+    public void setup() {
+        file = new File(temporaryFolder.getRoot(), "preferences.log");
+        log = new PreferencesLog(file);
+    }
+
+    @Test
+    public void get_notPersisted_returnsNull() throws Exception {
+        assertNull(log.get("key"));
+        assertFalse(log.containsKey("key"));
+    }
+
+    @Test
+    public void get_afterPut_returnsLatestValue() throws Exception {
+        log.put("key", encode("1"));
+        log.put("key", encode("2"));
+        assertEquals("2", decode(log.get("key")));
+    }
+
+    @Test
+    public void get_afterDelete_returnsNull() throws Exception {
+        log.put("key", encode("1"));
+        log.delete("key");
+        assertNull(log.get("key"));
+    }
+
+    @Test
+    public void open_afterClose_replaysRecords() throws Exception {
+        log.put("first", encode("1"));
+        log.put("second", encode("2"));
+        log.delete("first");
+        log.close();
+
+        PreferencesLog reopenedLog = new PreferencesLog(file);
+        assertNull(reopenedLog.get("first"));
+        assertEquals("2", decode(reopenedLog.get("second")));
+    }
+
+    @Test
+    public void open_incompleteRecord_ignoresRecord() throws Exception {
+        log.put("first", encode("1"));
+        log.put("second", encode("2"));
+        log.close();
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long secondRecordOffset = 8 + 3 + "first".length() + "1".length();
+            randomAccessFile.seek(secondRecordOffset + 8 + 3);
+            randomAccessFile.write('X');
+        }
+
+        PreferencesLog reopenedLog = new PreferencesLog(file);
+        assertEquals("1", decode(reopenedLog.get("first")));
+        assertFalse(reopenedLog.containsKey("second"));
+    }
+
+    @Test
+    public void put_exceedingCapacity_growsLog() throws Exception {
+        String value = new String(new char[1024]).replace('\0', 'a');
+        for (int i = 0; i < 100; i++) {
+            log.put("key" + i, encode(value));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(value, decode(log.get("key" + i)));
+        }
+    }
+
+    @Test
+    public void compact_supersededValues_keepsLatestValues() throws Exception {
+        String value = new String(new char[1024]).replace('\0', 'a');
+        for (int i = 0; i < 100; i++) {
+            log.put("key", encode(value + i));
+        }
+        assertTrue(log.requiresCompaction());
+
+        log.compact();
+
+        assertFalse(log.requiresCompaction());
+        assertEquals(value + 99, decode(log.get("key")));
+        assertEquals(Collections.singletonList("key"), log.getKeys());
+    }
+
+    @Test
+    public void clear_afterPut_removesAllKeys() throws Exception {
+        log.put("key", encode("1"));
+        log.clear();
+        assertTrue(log.getKeys().isEmpty());
+    }
+
+    private static byte[] encode(@NonNull String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(@NonNull byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,220 @@
+package de.culture4life.luca.preference;
+
+import com.google.gson.Gson;
+
+import de.culture4life.luca.LucaUnitTest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.test.runner.AndroidJUnit4;
+import io.reactivex.rxjava3.observers.TestObserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Config(sdk = 28)
+@RunWith(AndroidJUnit4.class)
+public class PreferencesManagerTest extends LucaUnitTest {
+
+    private static final String KEY = "test_key";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PreferencesManager preferencesManager;
+
+    @Before
+    public void setUp() {
+        preferencesManager = new PreferencesManager();
+        preferencesManager.initialize(application).blockingAwait();
+        preferencesManager.persist(KEY, "value").blockingAwait();
+    }
+
+    @Test
+    public void restoreIfAvailableAndGetChanges_lateSubscriber_replaysValueWithoutRestoring() {
+        TestObserver<String> firstObserver = preferencesManager.restoreIfAvailableAndGetChanges(KEY, String.class).test();
+        long restoreCount = preferencesManager.getObjectCacheHitCount() + preferencesManager.getObjectCacheMissCount();
+
+        TestObserver<String> secondObserver = preferencesManager.restoreIfAvailableAndGetChanges(KEY, String.class).test();
+
+        firstObserver.assertValue("value");
+        secondObserver.assertValue("value");
+        assertEquals(restoreCount, preferencesManager.getObjectCacheHitCount() + preferencesManager.getObjectCacheMissCount());
+    }
+
+    @Test
+    public void restore_valueRestoredBefore_restoresFromCache() {
+        preferencesManager.restore(KEY, String.class).blockingGet();
+        long missCount = preferencesManager.getObjectCacheMissCount();
+        long hitCount = preferencesManager.getObjectCacheHitCount();
+
+        preferencesManager.restore(KEY, String.class)
+                .test()
+                .assertValue("value");
+
+        assertEquals(missCount, preferencesManager.getObjectCacheMissCount());
+        assertEquals(hitCount + 1, preferencesManager.getObjectCacheHitCount());
+    }
+
+    @Test
+    public void restore_afterPersisting_restoresPersistedValue() {
+        preferencesManager.restore(KEY, String.class).blockingGet();
+        long missCount = preferencesManager.getObjectCacheMissCount();
+
+        preferencesManager.persist(KEY, "changed").blockingAwait();
+
+        preferencesManager.restore(KEY, String.class)
+                .test()
+                .assertValue("changed");
+        assertEquals(missCount + 1, preferencesManager.getObjectCacheMissCount());
+    }
+
+    @Test
+    public void restoreIfAvailable_afterDeleting_restoresNothing() {
+        preferencesManager.restore(KEY, String.class).blockingGet();
+
+        preferencesManager.delete(KEY).blockingAwait();
+
+        preferencesManager.restoreIfAvailable(KEY, String.class)
+                .test()
+                .assertNoValues();
+    }
+
+    @Test
+    public void cacheObject_invalidatedWhileRestoring_doesNotCacheRestoredValue() {
+        long generation = preferencesManager.getObjectCacheGeneration();
+        preferencesManager.persist(KEY, "changed").blockingAwait();
+
+        preferencesManager.cacheObject(KEY, "value", generation);
+
+        preferencesManager.restore(KEY, String.class)
+                .test()
+                .assertValue("changed");
+    }
+
+    @Test
+    public void getChanges_valueAvailable_doesNotEmitCurrentValue() {
+        preferencesManager.restoreIfAvailableAndGetChanges(KEY, String.class).test();
+
+        preferencesManager.getChanges(KEY, String.class)
+                .test()
+                .assertNoValues();
+    }
+
+    @Test
+    public void restoreOrDefaultAndGetChanges_valueDeleted_emitsDefaultValue() {
+        preferencesManager.restoreIfAvailableAndGetChanges(KEY, String.class).test();
+
+        preferencesManager.delete(KEY)
+                .andThen(preferencesManager.restoreOrDefaultAndGetChanges(KEY, "default"))
+                .test()
+                .assertValue("default");
+    }
+
+    @Test
+    public void persistDeferred_multipleWritesToSameKey_commitsLatestValueOnce() {
+        TestObserver<String> changesObserver = preferencesManager.getChanges(KEY, String.class).test();
+
+        preferencesManager.persistDeferred(KEY, "first")
+                .andThen(preferencesManager.persistDeferred(KEY, "second"))
+                .blockingAwait();
+        changesObserver.assertNoValues();
+
+        preferencesManager.flush().blockingAwait();
+        changesObserver.assertValue("second");
+    }
+
+    @Test
+    public void persistDeferred_notYetCommitted_restoresPendingValue() {
+        TestObserver<String> changesObserver = preferencesManager.getChanges(KEY, String.class).test();
+
+        preferencesManager.persistDeferred(KEY, "pending").blockingAwait();
+
+        preferencesManager.restore(KEY, String.class)
+                .test()
+                .assertValue("pending");
+        changesObserver.assertNoValues();
+    }
+
+    @Test
+    public void deleteDeferred_notYetCommitted_valueNotAvailable() {
+        preferencesManager.deleteDeferred(KEY).blockingAwait();
+
+        preferencesManager.containsKey(KEY)
+                .test()
+                .assertValue(false);
+        preferencesManager.restoreIfAvailable(KEY, String.class)
+                .test()
+                .assertNoValues();
+    }
+
+    @Test
+    public void persist_deferredWritePending_discardsPendingWrite() {
+        preferencesManager.persistDeferred(KEY, "pending")
+                .andThen(preferencesManager.persist(KEY, "persisted"))
+                .andThen(preferencesManager.flush())
+                .blockingAwait();
+
+        preferencesManager.restore(KEY, String.class)
+                .test()
+                .assertValue("persisted");
+    }
+
+    @Test
+    public void migrateSerializedValues_interruptedBeforeImport_importsValuesOnNextStart() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "preferences.log");
+        Map<String, String> legacyValues = createLegacyValues();
+        // the log file exists after opening, but the app got killed before importing
+        new MappedPreferencesProvider(file, new Gson()).open().blockingAwait();
+
+        MappedPreferencesProvider provider = new MappedPreferencesProvider(file, new Gson());
+        provider.open()
+                .andThen(PreferencesManager.migrateSerializedValues(provider, () -> legacyValues, legacyValues::clear))
+                .blockingAwait();
+
+        assertEquals("value", provider.restore(KEY, String.class).blockingGet());
+        assertTrue(legacyValues.isEmpty());
+    }
+
+    @Test
+    public void migrateSerializedValues_clearingFails_keepsImportedValues() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "preferences.log");
+        Map<String, String> legacyValues = createLegacyValues();
+        MappedPreferencesProvider provider = new MappedPreferencesProvider(file, new Gson());
+        provider.open()
+                .andThen(PreferencesManager.migrateSerializedValues(provider, () -> legacyValues, () -> {
+                    throw new IOException("Unable to clear");
+                }))
+                .test()
+                .assertComplete();
+        assertEquals("value", provider.restore(KEY, String.class).blockingGet());
+
+        MappedPreferencesProvider reopenedProvider = new MappedPreferencesProvider(file, new Gson());
+        reopenedProvider.open()
+                .andThen(reopenedProvider.persist(KEY, "changed"))
+                .andThen(PreferencesManager.migrateSerializedValues(reopenedProvider, () -> legacyValues, legacyValues::clear))
+                .blockingAwait();
+
+        assertEquals("changed", reopenedProvider.restore(KEY, String.class).blockingGet());
+        assertTrue(reopenedProvider.containsKey(PreferencesManager.KEY_TRAY_PREFERENCES_MIGRATED).blockingGet());
+        assertFalse(legacyValues.isEmpty());
+    }
+
+    private static Map<String, String> createLegacyValues() {
+        Map<String, String> legacyValues = new HashMap<>();
+        legacyValues.put(KEY, "\"value\"");
+        return legacyValues;
+    }
+
+}